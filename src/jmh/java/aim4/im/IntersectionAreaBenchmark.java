@@ -0,0 +1,185 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.map.GridMap;
+import aim4.util.ConvexDecomposition;
+import aim4.util.GeomUtil;
+
+/**
+ * A comparison of the vehicle-versus-intersection test done with
+ * {@link Area} (as in <code>VehicleUtil.intersects(VehicleSimView, Area)
+ * </code>) and with the {@link ConvexDecomposition} of the intersection.
+ * The vehicles are placed at random around the intersection with random
+ * headings.  The setup checks that both tests agree on every vehicle
+ * before anything is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntersectionAreaBenchmark {
+
+  /** The random seed of the vehicles */
+  private static final long SEED = 20111;
+  /** The number of vehicles */
+  private static final int NUM_OF_VEHICLES = 4096;
+  /** The margin around the intersection in which vehicles are placed */
+  private static final double MARGIN = 6.0;
+  /** The length of the vehicles */
+  private static final double VEHICLE_LENGTH = 4.8;
+  /** The width of the vehicles */
+  private static final double VEHICLE_WIDTH = 1.8;
+
+  /** The number of lanes per road */
+  @Param({"1", "3"})
+  public int lanesPerRoad;
+
+  /** The area plus of the intersection */
+  private Area area;
+  /** The convex decomposition of the area plus */
+  private ConvexDecomposition decomposition;
+  /** The corner coordinates of the vehicles */
+  private double[][] corners;
+  /** The shapes of the vehicles */
+  private Shape[] shapes;
+  /** The front points of the vehicles */
+  private Point2D[] fronts;
+  /** The rear points of the vehicles */
+  private Point2D[] rears;
+  /** The index of the next vehicle */
+  private int next;
+
+  /**
+   * Create the intersection and the vehicles, and check that both tests
+   * agree on every vehicle.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    GridMap map = new GridMap(0.0, 1, 1, 4.0, 25.0, lanesPerRoad, 1.0, 150.0);
+    RoadBasedIntersection intersection =
+      new RoadBasedIntersection(map.getRoads(0, 0));
+    area = intersection.getAreaPlus();
+    decomposition = intersection.getAreaPlusDecomposition();
+
+    Random random = new Random(SEED);
+    Rectangle2D bounds = area.getBounds2D();
+    corners = new double[NUM_OF_VEHICLES][];
+    shapes = new Shape[NUM_OF_VEHICLES];
+    fronts = new Point2D[NUM_OF_VEHICLES];
+    rears = new Point2D[NUM_OF_VEHICLES];
+    for(int i = 0; i < NUM_OF_VEHICLES; i++) {
+      double x = bounds.getMinX() - MARGIN
+        + random.nextDouble() * (bounds.getWidth() + 2 * MARGIN);
+      double y = bounds.getMinY() - MARGIN
+        + random.nextDouble() * (bounds.getHeight() + 2 * MARGIN);
+      double h = random.nextDouble() * 2 * Math.PI;
+      double c = Math.cos(h);
+      double s = Math.sin(h);
+      double hw = VEHICLE_WIDTH / 2;
+      double l = VEHICLE_LENGTH;
+      corners[i] = new double[] {
+        x - hw * s,     y + hw * c,
+        x - l * c - hw * s, y - l * s + hw * c,
+        x - l * c + hw * s, y - l * s - hw * c,
+        x + hw * s,     y - hw * c,
+      };
+      shapes[i] = GeomUtil.convertCoordinatesToShape(corners[i]);
+      fronts[i] = new Point2D.Double(x, y);
+      rears[i] = new Point2D.Double(x - l * c, y - l * s);
+      if (intersectsByArea(i) != decomposition.intersectsConvexPolygon(
+                                   corners[i])) {
+        throw new IllegalStateException("The tests disagree on vehicle " + i);
+      }
+    }
+    next = 0;
+  }
+
+  /**
+   * Test a vehicle with {@link Area}.
+   *
+   * @return whether the vehicle intersects the intersection
+   */
+  @Benchmark
+  public boolean area() {
+    return intersectsByArea(next++ & (NUM_OF_VEHICLES - 1));
+  }
+
+  /**
+   * Test a vehicle with the convex decomposition.
+   *
+   * @return whether the vehicle intersects the intersection
+   */
+  @Benchmark
+  public boolean convexDecomposition() {
+    return decomposition.intersectsConvexPolygon(
+             corners[next++ & (NUM_OF_VEHICLES - 1)]);
+  }
+
+  /**
+   * Test a vehicle the same way as
+   * <code>VehicleUtil.intersects(VehicleSimView, Area)</code>.
+   *
+   * @param i  the index of the vehicle
+   * @return   whether the vehicle intersects the intersection
+   */
+  private boolean intersectsByArea(int i) {
+    if (area.contains(fronts[i]) || area.contains(rears[i])) {
+      return true;
+    } else {
+      Area vehicleArea = new Area(shapes[i]);
+      vehicleArea.intersect(area);
+      return !vehicleArea.isEmpty();
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import aim4.config.Constants.TurnDirection;
+import aim4.config.SimConfig;
+import aim4.im.v2i.reservation.ReservationGridManager;
+import aim4.map.GridMap;
+import aim4.map.GridMapUtil;
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+
+/**
+ * A single intersection with a FCFS manager and the list of its turns, one
+ * for every vehicle specification, arrival lane and exit road except the
+ * U-turns.  The benchmarks of the turns cycle through this list.
+ */
+public final class IntersectionTurns {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The intersection manager */
+  private final IntersectionManager im;
+  /** The vehicle specifications of the turns */
+  private final List<VehicleSpec> specs = new ArrayList<VehicleSpec>();
+  /** The arrival lanes of the turns */
+  private final List<Lane> arrivalLanes = new ArrayList<Lane>();
+  /** The departure lanes of the turns */
+  private final List<Lane> departureLanes = new ArrayList<Lane>();
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create the intersection and the list of its turns.
+   *
+   * @param lanesPerRoad        the number of lanes per road
+   * @param trajectoryCacheSize the size of the trajectory cache of the
+   *                            reservation grid manager; zero disables the
+   *                            cache
+   */
+  public IntersectionTurns(int lanesPerRoad, int trajectoryCacheSize) {
+    GridMap map = new GridMap(0.0, 1, 1, 4.0, 25.0, lanesPerRoad, 1.0, 150.0);
+    ReservationGridManager.Config gridConfig =
+      new ReservationGridManager.Config(SimConfig.TIME_STEP,
+                                        SimConfig.GRID_TIME_STEP,
+                                        0.25, 0.1, 0.25, true, 1.0);
+    gridConfig.setTrajectoryCacheSize(trajectoryCacheSize);
+    GridMapUtil.setFCFSManagers(map, 0.0, gridConfig);
+    im = map.getManager(0, 0);
+
+    for(int i = 0; i < VehicleSpecDatabase.getNumOfSpec(); i++) {
+      VehicleSpec spec = VehicleSpecDatabase.getVehicleSpecById(i);
+      for(Lane arrivalLane : im.getIntersection().getEntryLanes()) {
+        for(Road road : im.getIntersection().getExitRoads()) {
+          List<Lane> lanes =
+            im.getTrackModel().getSortedDepartureLanes(arrivalLane, road);
+          if (!lanes.isEmpty()
+              && im.getIntersection().calcTurnDirection(arrivalLane,
+                   lanes.get(0)) != TurnDirection.U_TURN) {
+            specs.add(spec);
+            arrivalLanes.add(arrivalLane);
+            departureLanes.add(lanes.get(0));
+          }
+        }
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the intersection manager.
+   *
+   * @return the intersection manager
+   */
+  public IntersectionManager getManager() {
+    return im;
+  }
+
+  /**
+   * Get the number of turns.
+   *
+   * @return the number of turns
+   */
+  public int getNumOfTurns() {
+    return specs.size();
+  }
+
+  /**
+   * Get the vehicle specification of a turn.
+   *
+   * @param i  the index of the turn
+   * @return the vehicle specification of the turn
+   */
+  public VehicleSpec getSpec(int i) {
+    return specs.get(i);
+  }
+
+  /**
+   * Get the arrival lane of a turn.
+   *
+   * @param i  the index of the turn
+   * @return the arrival lane of the turn
+   */
+  public Lane getArrivalLane(int i) {
+    return arrivalLanes.get(i);
+  }
+
+  /**
+   * Get the departure lane of a turn.
+   *
+   * @param i  the index of the turn
+   * @return the departure lane of the turn
+   */
+  public Lane getDepartureLane(int i) {
+    return departureLanes.get(i);
+  }
+}
@@ -0,0 +1,171 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.v2i.reservation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import aim4.im.v2i.reservation.ReservationArray.TimeTile;
+
+/**
+ * A comparison of {@link ReservationArray} and {@link RingReservationArray}
+ * under a workload that mimics an intersection manager: every simulated
+ * step probes and reserves the swept tiles of a few vehicles, cancels some
+ * of the older reservations, and periodically cleans up the past.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationArrayBenchmark {
+
+  /** The random seed of the workload */
+  private static final long SEED = 20111;
+  /** The number of tiles of a 1m-granularity four-lane intersection */
+  private static final int NUM_OF_TILES = 32 * 32;
+  /** The number of discrete times a vehicle spends in the intersection */
+  private static final int TRAVERSAL_STEPS = 120;
+  /** The number of tiles a vehicle occupies at a time */
+  private static final int TILES_PER_STEP = 12;
+  /** The number of reservations in the workload */
+  private static final int NUM_OF_RESERVATIONS = 1024;
+  /** The number of steps between two clean up */
+  private static final int CLEAN_UP_PERIOD = 30;
+
+  /** The implementation of the reservation array */
+  @Param({"tree", "ring"})
+  public String backend;
+
+  /** The reservation array */
+  private ReservationArray array;
+  /** The working lists of the reservations */
+  private List<List<TimeTile>> workingLists;
+  /** The index of the next reservation */
+  private int next;
+
+  /**
+   * Create the working lists.  Each reservation crosses the intersection
+   * in a straight line starting one step after the previous one.
+   */
+  @Setup(Level.Trial)
+  public void setUpWorkload() {
+    Random random = new Random(SEED);
+    workingLists = new ArrayList<List<TimeTile>>(NUM_OF_RESERVATIONS);
+    for(int i = 0; i < NUM_OF_RESERVATIONS; i++) {
+      List<TimeTile> workingList = new ArrayList<TimeTile>();
+      int row = random.nextInt(32);
+      for(int t = 0; t < TRAVERSAL_STEPS; t++) {
+        int col = (t * 32) / TRAVERSAL_STEPS;
+        for(int k = 0; k < TILES_PER_STEP; k++) {
+          int tid = ((row + k / 4) % 32) * 32 + (col + k % 4) % 32;
+          workingList.add(new TimeTile(i + t, tid));
+        }
+      }
+      workingLists.add(workingList);
+    }
+  }
+
+  /**
+   * Create a reservation array in which every eighth reservation has been
+   * made.
+   */
+  @Setup(Level.Iteration)
+  public void setUpArray() {
+    if (backend.equals("ring")) {
+      array = new RingReservationArray(NUM_OF_TILES);
+    } else {
+      array = new ReservationArray(NUM_OF_TILES);
+    }
+    for(int i = 0; i < NUM_OF_RESERVATIONS; i += 8) {
+      array.reserve(i, workingLists.get(i));
+    }
+    next = 0;
+  }
+
+  /**
+   * One simulated step: probe and reserve the next reservation, cancel a
+   * reservation made a few steps ago, and clean up periodically.  The array
+   * is emptied whenever the workload wraps around, including the first
+   * call.
+   *
+   * @param bh  the black hole
+   */
+  @Benchmark
+  public void reserveCancelCleanUp(Blackhole bh) {
+    int i = next++ % NUM_OF_RESERVATIONS;
+    if (i == 0) {
+      array.cleanUp(Integer.MAX_VALUE);
+    }
+    bh.consume(array.reserve(i, workingLists.get(i)));
+    if (i >= 5 && i % 3 == 0) {
+      bh.consume(array.cancel(i - 5));
+    }
+    if (i % CLEAN_UP_PERIOD == 0) {
+      array.cleanUp(i - TRAVERSAL_STEPS);
+    }
+  }
+
+  /**
+   * Probe every time-tile of a reservation.
+   *
+   * @param bh  the black hole
+   */
+  @Benchmark
+  public void isReserved(Blackhole bh) {
+    List<TimeTile> workingList =
+      workingLists.get((next++ * 7) % NUM_OF_RESERVATIONS);
+    int n = 0;
+    for(TimeTile tt : workingList) {
+      if (array.isReserved(tt.getDiscreteTime(), tt.getTileId())) {
+        n++;
+      }
+    }
+    bh.consume(n);
+  }
+}
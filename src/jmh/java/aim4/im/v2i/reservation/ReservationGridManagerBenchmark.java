@@ -0,0 +1,164 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.v2i.reservation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.im.IntersectionManager;
+import aim4.im.IntersectionTurns;
+import aim4.im.v2i.V2IManager;
+import aim4.map.lane.Lane;
+import aim4.msg.v2i.Request;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleUtil;
+
+/**
+ * The cost of {@link ReservationGridManager#query(ReservationGridManager.Query)}
+ * on a reservation grid that is partially filled with the reservations of
+ * other vehicles, with and without the trajectory cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationGridManagerBenchmark {
+
+  /** The random seed of the queries */
+  private static final long SEED = 20111;
+  /** The number of queries */
+  private static final int NUM_OF_QUERIES = 1024;
+  /** The number of reservations made before the measurement */
+  private static final int NUM_OF_RESERVATIONS = 64;
+  /** The period of time over which the arrival times are spread */
+  private static final double ARRIVAL_PERIOD = 20.0;
+
+  /** The number of lanes per road */
+  @Param({"1", "3"})
+  public int lanesPerRoad;
+
+  /** The size of the trajectory cache; zero disables the cache */
+  @Param({"0", "1024"})
+  public int trajectoryCacheSize;
+
+  /** The reservation grid manager */
+  private ReservationGridManager manager;
+  /** The queries */
+  private ReservationGridManager.Query[] queries;
+  /** The index of the next query */
+  private int next;
+
+  /**
+   * Create the intersection, reserve tiles for some vehicles, and create
+   * the queries.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    IntersectionTurns turns =
+      new IntersectionTurns(lanesPerRoad, trajectoryCacheSize);
+    IntersectionManager im = turns.getManager();
+    manager = ((V2IManager)im).getReservationGridManager();
+
+    Random random = new Random(SEED);
+    int numOfTurns = turns.getNumOfTurns();
+    for(int vin = 1; vin <= NUM_OF_RESERVATIONS; vin++) {
+      ReservationGridManager.Query q =
+        makeQuery(vin, random, turns, random.nextInt(numOfTurns));
+      ReservationGridManager.Plan plan = manager.query(q);
+      if (plan != null) {
+        manager.accept(plan);
+      }
+    }
+    queries = new ReservationGridManager.Query[NUM_OF_QUERIES];
+    for(int i = 0; i < NUM_OF_QUERIES; i++) {
+      queries[i] =
+        makeQuery(NUM_OF_RESERVATIONS + 1, random, turns,
+                  random.nextInt(numOfTurns));
+    }
+    next = 0;
+  }
+
+  /**
+   * Run the next query.
+   *
+   * @return the plan, or <code>null</code> if the query fails
+   */
+  @Benchmark
+  public ReservationGridManager.Plan query() {
+    return manager.query(queries[next++ & (NUM_OF_QUERIES - 1)]);
+  }
+
+  /**
+   * Create a query of a turn at a random time and a random velocity.
+   *
+   * @param vin     the VIN of the vehicle
+   * @param random  the random number generator
+   * @param turns   the turns of the intersection
+   * @param i       the index of the turn
+   * @return the query
+   */
+  private static ReservationGridManager.Query makeQuery(int vin,
+                                                        Random random,
+                                                        IntersectionTurns turns,
+                                                        int i) {
+    VehicleSpec spec = turns.getSpec(i);
+    Lane arrivalLane = turns.getArrivalLane(i);
+    Lane departureLane = turns.getDepartureLane(i);
+    double maxTurnVelocity =
+      VehicleUtil.maxTurnVelocity(spec, arrivalLane, departureLane,
+                                  turns.getManager());
+    double arrivalVelocity = random.nextDouble() * maxTurnVelocity;
+    return new ReservationGridManager.Query(
+             vin,
+             1.0 + random.nextDouble() * ARRIVAL_PERIOD,
+             arrivalVelocity,
+             arrivalLane.getId(),
+             departureLane.getId(),
+             new Request.VehicleSpecForRequestMsg(spec),
+             maxTurnVelocity,
+             true);
+  }
+}
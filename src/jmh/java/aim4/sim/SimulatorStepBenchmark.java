@@ -0,0 +1,110 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.config.SimConfig;
+import aim4.sim.setup.AutoDriverOnlySimSetup;
+
+/**
+ * The cost of one step of the serial {@link AutoDriverOnlySimulator} as a
+ * function of the size of the grid map and the traffic level.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SimulatorStepBenchmark {
+
+  /** The random seed of the simulation */
+  private static final long SEED = 20111;
+  /** The number of steps before the measurement, to fill the map */
+  private static final int NUM_OF_INITIAL_STEPS = 1500;
+
+  /** The number of columns and rows of the grid map */
+  @Param({"1", "3", "5"})
+  public int gridSize;
+
+  /** The traffic level */
+  @Param({"0.1", "0.28", "0.5"})
+  public double trafficLevel;
+
+  /** The simulator */
+  private AutoDriverOnlySimulator sim;
+
+  /**
+   * Create a simulator and run it until the map is filled with vehicles.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    SimContext.current().setSeed(SEED);
+    AutoDriverOnlySimSetup setup =
+      new AutoDriverOnlySimSetup(gridSize, // columns
+                                 gridSize, // rows
+                                 4, // lane width
+                                 25.0, // speed limit
+                                 2, // lanes per road
+                                 1, // median size
+                                 150, // distance between
+                                 trafficLevel, // traffic level
+                                 1.0); // stop distance before intersection
+    sim = (AutoDriverOnlySimulator)setup.getSimulator();
+    for(int i = 0; i < NUM_OF_INITIAL_STEPS; i++) {
+      sim.step(SimConfig.TIME_STEP);
+    }
+  }
+
+  /**
+   * Run one simulation step.
+   *
+   * @return the result of the step
+   */
+  @Benchmark
+  public Simulator.SimStepResult step() {
+    return sim.step(SimConfig.TIME_STEP);
+  }
+}
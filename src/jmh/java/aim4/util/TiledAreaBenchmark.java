@@ -0,0 +1,129 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.im.RoadBasedIntersection;
+import aim4.map.GridMap;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+
+/**
+ * The cost of {@link TiledArea#findOccupiedTiles(Shape)} for vehicles
+ * placed at random inside the intersection with random headings, as in
+ * the internal simulation of the reservation grid manager.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TiledAreaBenchmark {
+
+  /** The random seed of the vehicles */
+  private static final long SEED = 20111;
+  /** The number of vehicles */
+  private static final int NUM_OF_VEHICLES = 4096;
+  /** The static buffer around the vehicles */
+  private static final double STATIC_BUFFER_SIZE = 0.25;
+
+  /** The number of lanes per road */
+  @Param({"1", "3"})
+  public int lanesPerRoad;
+
+  /** The side length of the tiles */
+  @Param({"0.5", "1.0"})
+  public double granularity;
+
+  /** The tiled area */
+  private TiledArea tiledArea;
+  /** The shapes of the vehicles */
+  private Shape[] shapes;
+  /** The index of the next vehicle */
+  private int next;
+
+  /**
+   * Create the tiled area of the intersection and the vehicles.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    GridMap map = new GridMap(0.0, 1, 1, 4.0, 25.0, lanesPerRoad, 1.0, 150.0);
+    RoadBasedIntersection intersection =
+      new RoadBasedIntersection(map.getRoads(0, 0));
+    tiledArea = new TiledArea(intersection.getArea(), granularity);
+
+    Random random = new Random(SEED);
+    Rectangle2D bounds = intersection.getArea().getBounds2D();
+    double[] coords = new double[8];
+    shapes = new Shape[NUM_OF_VEHICLES];
+    for(int i = 0; i < NUM_OF_VEHICLES; i++) {
+      VehicleSpec spec = VehicleSpecDatabase.getVehicleSpecById(
+                           random.nextInt(VehicleSpecDatabase.getNumOfSpec()));
+      spec.getCornerCoordinates(
+        STATIC_BUFFER_SIZE,
+        bounds.getMinX() + random.nextDouble() * bounds.getWidth(),
+        bounds.getMinY() + random.nextDouble() * bounds.getHeight(),
+        random.nextDouble() * 2 * Math.PI,
+        coords);
+      shapes[i] = GeomUtil.convertCoordinatesToShape(coords);
+    }
+    next = 0;
+  }
+
+  /**
+   * Find the tiles occupied by the next vehicle.
+   *
+   * @return the occupied tiles
+   */
+  @Benchmark
+  public List<TiledArea.Tile> findOccupiedTiles() {
+    return tiledArea.findOccupiedTiles(shapes[next++ & (NUM_OF_VEHICLES - 1)]);
+  }
+}
@@ -0,0 +1,138 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.vehicle;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.im.IntersectionManager;
+import aim4.im.IntersectionTurns;
+import aim4.map.lane.Lane;
+
+/**
+ * The cost of {@link VehicleUtil#maxTurnVelocity(VehicleSpec, Lane, Lane,
+ * IntersectionManager)} with an empty memoization cache (cold), which runs
+ * the internal simulation of the turn, and with a filled cache (warm).
+ * The benchmark cycles through every turn of every vehicle specification
+ * at the intersection.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MaxTurnVelocityBenchmark {
+
+  /** The number of lanes per road */
+  @Param({"1", "3"})
+  public int lanesPerRoad;
+
+  /** The intersection manager */
+  private IntersectionManager im;
+  /** The vehicle specifications of the turns */
+  private VehicleSpec[] specs;
+  /** The arrival lanes of the turns */
+  private Lane[] arrivalLanes;
+  /** The departure lanes of the turns */
+  private Lane[] departureLanes;
+  /** The index of the next turn */
+  private int next;
+
+  /**
+   * Create the intersection and the list of turns, and fill the cache.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    IntersectionTurns turns = new IntersectionTurns(lanesPerRoad, 0);
+    im = turns.getManager();
+    int numOfTurns = turns.getNumOfTurns();
+    specs = new VehicleSpec[numOfTurns];
+    arrivalLanes = new Lane[numOfTurns];
+    departureLanes = new Lane[numOfTurns];
+    for(int i = 0; i < numOfTurns; i++) {
+      specs[i] = turns.getSpec(i);
+      arrivalLanes[i] = turns.getArrivalLane(i);
+      departureLanes[i] = turns.getDepartureLane(i);
+    }
+
+    for(int i = 0; i < specs.length; i++) {
+      VehicleUtil.maxTurnVelocity(specs[i], arrivalLanes[i],
+                                  departureLanes[i], im);
+    }
+    next = 0;
+  }
+
+  /**
+   * Compute the max turn velocity of the next turn after clearing the cache.
+   *
+   * @return the max turn velocity
+   */
+  @Benchmark
+  public double cold() {
+    VehicleUtil.clearMaxTurnVelocityCache();
+    return maxTurnVelocityOfNextTurn();
+  }
+
+  /**
+   * Look up the max turn velocity of the next turn in the cache.
+   *
+   * @return the max turn velocity
+   */
+  @Benchmark
+  public double warm() {
+    return maxTurnVelocityOfNextTurn();
+  }
+
+  /**
+   * Compute the max turn velocity of the next turn.
+   *
+   * @return the max turn velocity
+   */
+  private double maxTurnVelocityOfNextTurn() {
+    int i = next;
+    next = (next + 1) % specs.length;
+    return VehicleUtil.maxTurnVelocity(specs[i], arrivalLanes[i],
+                                       departureLanes[i], im);
+  }
+}
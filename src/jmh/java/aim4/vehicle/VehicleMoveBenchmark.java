@@ -0,0 +1,299 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.vehicle;
+
+import java.awt.geom.Point2D;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.config.SimConfig;
+import aim4.map.track.ArcTrack;
+import aim4.map.track.WayPoint;
+import aim4.vehicle.BasicVehicle.AccelScheduleMovement;
+import aim4.vehicle.BasicVehicle.MoveToTargetVelocityMovement;
+import aim4.vehicle.BasicVehicle.Movement;
+import aim4.vehicle.BasicVehicle.MovementFactory;
+import aim4.vehicle.BasicVehicle.PhysicalMovement;
+import aim4.vehicle.BasicVehicle.SteeringMovement;
+import aim4.vehicle.BasicVehicle.TrackMovement;
+
+/**
+ * The cost of moving a vehicle by one time step.  The <code>movement</code>
+ * benchmark calls {@link Movement#move(double, double)} on each type of
+ * {@link Movement}; the <code>vehicle</code> benchmark calls
+ * {@link BasicVehicle#move(double)}, which also updates the gauges and the
+ * memos of the vehicle, under the two kinds of control the drivers use.
+ * The movements and the vehicles are recreated every
+ * {@value #NUM_OF_STEPS_PER_RUN} steps so that they never leave their
+ * track or exhaust their acceleration schedule.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleMoveBenchmark {
+
+  /** The number of steps before a movement or a vehicle is recreated */
+  static final int NUM_OF_STEPS_PER_RUN = 500;
+  /** The name of the vehicle specification */
+  private static final String SPEC_NAME = "SEDAN";
+  /** The initial velocity */
+  private static final double INITIAL_VELOCITY = 5.0;
+  /** The target velocity */
+  private static final double TARGET_VELOCITY = 25.0;
+  /** The steering angle */
+  private static final double STEERING_ANGLE = 0.05;
+  /** The velocity on the track */
+  private static final double TRACK_VELOCITY = 15.0;
+  /** The radius of the track */
+  private static final double TRACK_RADIUS = 50.0;
+  /**
+   * The period between the acceleration changes of the acceleration
+   * schedule; not a multiple of the time step, so that the changes fall
+   * inside the steps
+   */
+  private static final double ACCEL_PERIOD = 0.51;
+  /** The acceleration of the acceleration schedule */
+  private static final double ACCEL = 1.0;
+
+  /**
+   * The state of the <code>movement</code> benchmark.
+   */
+  @State(Scope.Thread)
+  public static class MovementState {
+
+    /** The type of the movement */
+    @Param({"steering", "track", "physical", "moveToTargetVelocity",
+            "accelSchedule"})
+    public String movementType;
+
+    /** The vehicle specification */
+    private VehicleSpec spec;
+    /** The movement */
+    private Movement movement;
+    /** The current time */
+    private double currentTime;
+    /** The number of steps since the movement was created */
+    private int steps;
+
+    /**
+     * Create the movement.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+      spec = VehicleSpecDatabase.getVehicleSpecByName(SPEC_NAME);
+      reset();
+    }
+
+    /**
+     * Move by one time step.
+     *
+     * @return the position after the step
+     */
+    Point2D step() {
+      if (steps == NUM_OF_STEPS_PER_RUN) {
+        reset();
+      }
+      movement.move(currentTime, SimConfig.TIME_STEP);
+      currentTime += SimConfig.TIME_STEP;
+      steps++;
+      return movement.getPosition();
+    }
+
+    /**
+     * Recreate the movement at the origin.
+     */
+    private void reset() {
+      currentTime = 0.0;
+      steps = 0;
+      Point2D origin = new Point2D.Double(0.0, 0.0);
+      if (movementType.equals("steering")) {
+        movement = new SteeringMovement(spec, origin, 0.0, TARGET_VELOCITY,
+                                        STEERING_ANGLE);
+      } else if (movementType.equals("track")) {
+        ArcTrack track = new ArcTrack(new WayPoint(TRACK_RADIUS, 0.0),
+                                      new WayPoint(-TRACK_RADIUS, 0.0),
+                                      origin,
+                                      false);
+        movement = new TrackMovement(
+          spec, track.getStartWayPoint(), Math.PI / 2, TRACK_VELOCITY,
+          track.getPosition(0.0),
+          new MovementFactory() {
+            @Override
+            public Movement make(Point2D position, double heading,
+                                 double velocity) {
+              return new SteeringMovement(spec, position, heading, velocity,
+                                          0.0);
+            }
+          });
+      } else if (movementType.equals("physical")) {
+        movement = new PhysicalMovement(
+          new SteeringMovement(spec, origin, 0.0, INITIAL_VELOCITY,
+                               STEERING_ANGLE),
+          ACCEL);
+      } else if (movementType.equals("moveToTargetVelocity")) {
+        movement = new MoveToTargetVelocityMovement(spec, origin, 0.0,
+                                                    INITIAL_VELOCITY,
+                                                    STEERING_ANGLE,
+                                                    spec.getMaxAcceleration(),
+                                                    TARGET_VELOCITY);
+      } else if (movementType.equals("accelSchedule")) {
+        movement = new AccelScheduleMovement(
+          new MoveToTargetVelocityMovement(spec, origin, 0.0,
+                                           TARGET_VELOCITY / 2,
+                                           STEERING_ANGLE, 0.0,
+                                           TARGET_VELOCITY),
+          makeAccelSchedule(currentTime));
+      } else {
+        throw new IllegalArgumentException("Unknown movement: " +
+                                           movementType);
+      }
+    }
+  }
+
+  /**
+   * The state of the <code>vehicle</code> benchmark.
+   */
+  @State(Scope.Thread)
+  public static class VehicleState {
+
+    /**
+     * The control of the vehicle: <code>targetVelocity</code> for the
+     * default move-to-target-velocity movement, <code>accelSchedule</code>
+     * for the acceleration schedule movement
+     */
+    @Param({"targetVelocity", "accelSchedule"})
+    public String control;
+
+    /** The vehicle specification */
+    private VehicleSpec spec;
+    /** The vehicle */
+    private BasicAutoVehicle vehicle;
+    /** The number of steps since the vehicle was created */
+    private int steps;
+
+    /**
+     * Create the vehicle.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+      spec = VehicleSpecDatabase.getVehicleSpecByName(SPEC_NAME);
+      reset();
+    }
+
+    /**
+     * Move by one time step.
+     *
+     * @return the position after the step
+     */
+    Point2D step() {
+      if (steps == NUM_OF_STEPS_PER_RUN) {
+        reset();
+      }
+      vehicle.move(SimConfig.TIME_STEP);
+      steps++;
+      return vehicle.getPosition();
+    }
+
+    /**
+     * Recreate the vehicle at the origin.
+     */
+    private void reset() {
+      steps = 0;
+      vehicle = new BasicAutoVehicle(spec,
+                                     new Point2D.Double(0.0, 0.0),
+                                     0.0, // heading
+                                     STEERING_ANGLE,
+                                     INITIAL_VELOCITY,
+                                     TARGET_VELOCITY,
+                                     0.0, // acceleration
+                                     0.0); // current time
+      if (control.equals("targetVelocity")) {
+        vehicle.setTargetVelocityWithMaxAccel(TARGET_VELOCITY);
+      } else if (control.equals("accelSchedule")) {
+        vehicle.setAccelSchedule(makeAccelSchedule(vehicle.gaugeTime()));
+      } else {
+        throw new IllegalArgumentException("Unknown control: " + control);
+      }
+    }
+  }
+
+  /**
+   * Move a movement by one time step.
+   *
+   * @param state  the state of the movement
+   * @return the position after the step
+   */
+  @Benchmark
+  public Point2D movement(MovementState state) {
+    return state.step();
+  }
+
+  /**
+   * Move a vehicle by one time step.
+   *
+   * @param state  the state of the vehicle
+   * @return the position after the step
+   */
+  @Benchmark
+  public Point2D vehicle(VehicleState state) {
+    return state.step();
+  }
+
+  /**
+   * Create an acceleration schedule that alternates between speeding up
+   * and slowing down for the duration of one run.
+   *
+   * @param startTime  the start time of the schedule
+   * @return the acceleration schedule
+   */
+  private static AccelSchedule makeAccelSchedule(double startTime) {
+    AccelSchedule as = new AccelSchedule();
+    double duration = NUM_OF_STEPS_PER_RUN * SimConfig.TIME_STEP;
+    for(int i = 0; i * ACCEL_PERIOD <= duration; i++) {
+      as.add(startTime + i * ACCEL_PERIOD, (i % 2 == 0) ? ACCEL : -ACCEL);
+    }
+    return as;
+  }
+}
@@ -31,24 +31,19 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.config;
 
 import java.awt.Color;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import aim4.gui.ViewerDebugView;
-import aim4.map.BasicMap;
+import aim4.sim.SimContext;
 
 /**
  * The configuration for debugging purposes.
  */
 public class Debug {
 
-  /**
-   * A global variable referring to the global map.
-   */
-  public static BasicMap currentMap;
-
   /**
    * A global variable referring to the GUI object.
    */
@@ -263,12 +258,14 @@ public class Debug {
   /**
    * The list of long term debug points.
    */
-  private static List<DebugPoint> longTermDebugPoints = new LinkedList<DebugPoint>();
+  private static List<DebugPoint> longTermDebugPoints =
+    Collections.synchronizedList(new LinkedList<DebugPoint>());
 
   /**
    * The list of short term debug points.
    */
-  private static List<DebugPoint> shortTermDebugPoints = new LinkedList<DebugPoint>();
+  private static List<DebugPoint> shortTermDebugPoints =
+    Collections.synchronizedList(new LinkedList<DebugPoint>());
 
   /**
    * Get the long-term debugging points.
@@ -324,10 +321,64 @@ public class Debug {
   // VEHICLE COLORING
   /////////////////////////////////
 
+  // The colors are kept in the SimContext of the simulation.  The simulator
+  // removes the color of a vehicle when the vehicle leaves the map.
+
+  /**
+   * The changes of the colors of the vehicles made on a thread while the
+   * changes are deferred.  The color map of the simulation is not safe to
+   * use from several threads, so the code that runs in parallel records its
+   * changes here, and the simulation thread applies them afterwards.
+   */
+  public static class VehicleColorChanges {
+    /** The VINs of the vehicles whose colors are changed */
+    private final List<Integer> vins = new ArrayList<Integer>();
+    /** The new colors of the vehicles; null if the color is removed */
+    private final List<Color> colors = new ArrayList<Color>();
+
+    /**
+     * Apply the changes, in the order in which they were made, to the colors
+     * of the vehicles of the current simulation context.
+     */
+    public void apply() {
+      for (int i = 0; i < vins.size(); i++) {
+        if (colors.get(i) != null) {
+          SimContext.current().getVehicleColors().put(vins.get(i),
+                                                      colors.get(i));
+        } else {
+          SimContext.current().getVehicleColors().remove(vins.get(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * The changes of the colors of the vehicles that are being deferred on
+   * the threads
+   */
+  private static final ThreadLocal<VehicleColorChanges> deferredColorChanges =
+    new ThreadLocal<VehicleColorChanges>();
+
   /**
-   * A mapping from vehicle's VINs to the color of the vehicles.
+   * Start deferring the changes of the colors of the vehicles made on the
+   * current thread.
+   *
+   * @return the changes that will be made on the current thread until
+   *         {@link #stopDeferringVehicleColorChanges()} is called
    */
-  private static Map<Integer, Color> vinToVehicleColor = new HashMap<Integer, Color>();
+  public static VehicleColorChanges deferVehicleColorChanges() {
+    VehicleColorChanges changes = new VehicleColorChanges();
+    deferredColorChanges.set(changes);
+    return changes;
+  }
+
+  /**
+   * Stop deferring the changes of the colors of the vehicles made on the
+   * current thread.
+   */
+  public static void stopDeferringVehicleColorChanges() {
+    deferredColorChanges.remove();
+  }
 
   /**
    * Get the color of a vehicle.
@@ -336,7 +387,7 @@ public class Debug {
    * @return the color of the vehicle
    */
   public static Color getVehicleColor(int vin) {
-    return vinToVehicleColor.get(vin);
+    return SimContext.current().getVehicleColors().get(vin);
   }
 
   /**
@@ -346,7 +397,13 @@ public class Debug {
    * @param color the color of the vehicle
    */
   public static void setVehicleColor(int vin, Color color) {
-    vinToVehicleColor.put(vin, color);
+    VehicleColorChanges changes = deferredColorChanges.get();
+    if (changes != null) {
+      changes.vins.add(vin);
+      changes.colors.add(color);
+    } else {
+      SimContext.current().getVehicleColors().put(vin, color);
+    }
   }
 
   /**
@@ -355,7 +412,13 @@ public class Debug {
    * @param vin the VIN number of the vehicle
    */
   public static void removeVehicleColor(int vin) {
-    vinToVehicleColor.remove(vin);
+    VehicleColorChanges changes = deferredColorChanges.get();
+    if (changes != null) {
+      changes.vins.add(vin);
+      changes.colors.add(null);
+    } else {
+      SimContext.current().getVehicleColors().remove(vin);
+    }
   }
 
   /////////////////////////////////
@@ -62,15 +62,11 @@ public class SimConfig {
    */
   public static final double SPAWN_TIME_STEP = TIME_STEP / 5.0;
 
-  /**
-   * Whether or not the vehicle must stop before an intersection
-   */
-  public static boolean MUST_STOP_BEFORE_INTERSECTION = false;
-
   /**
    * The distance before the stopping distance before an intersection
-   * such that a vehicle can consider moving again when
-   * MUST_STOP_BEFORE_INTERSECTION is true.
+   * such that a vehicle can consider moving again when the vehicles must
+   * stop before intersections (see
+   * {@link aim4.sim.SimContext#isMustStopBeforeIntersection()}).
    */
   public static final double ADDITIONAL_STOP_DIST_BEFORE_INTERSECTION = 0.01;
 }
@@ -30,13 +30,12 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.driver;
 
-import java.awt.geom.Area;
-
 import aim4.driver.coordinator.NoIntersectionCoordinator;
 import aim4.driver.coordinator.V2ICoordinator;
 import aim4.driver.coordinator.Coordinator;
 import aim4.im.IntersectionManager;
 import aim4.map.BasicMap;
+import aim4.util.ConvexDecomposition;
 import aim4.vehicle.AutoVehicleDriverView;
 
 /**
@@ -240,7 +239,8 @@ public class AutoDriver extends Driver
   public boolean inCurrentIntersection() {
     if(memoInCurrentIntersection == null) {
       memoInCurrentIntersection =
-        intersects(getVehicle(), currentIM.getIntersection().getAreaPlus());
+        intersects(getVehicle(),
+                   currentIM.getIntersection().getAreaPlusDecomposition());
         //intersects(getVehicle(), currentIM.getIntersection().getArea());
     }
     return memoInCurrentIntersection;
@@ -255,25 +255,13 @@ public class AutoDriver extends Driver
    * Determine whether the given Vehicle is currently inside an area
    *
    * @param v     the vehicle
-   * @param area  the area
+   * @param area  the convex decomposition of the area
    * @return      whether the Vehicle is currently in the area
    */
-  private static boolean intersects(AutoVehicleDriverView v, Area area) {
+  private static boolean intersects(AutoVehicleDriverView v,
+                                    ConvexDecomposition area) {
     // TODO: move this function to somewhere else.
-
-    // As a quick check, see if the front or rear point is in the intersection
-    // Most of the time this should work
-    if(area.contains(v.gaugePosition()) || area.contains(v.gaugePointAtRear())){
-      return true;
-    } else {
-      // We actually have to check to see if the Area of the
-      // Vehicle and the Area of the IntersectionManager have a nonempty
-      // intersection
-      Area vehicleArea = new Area(v.gaugeShape());
-      // Important that it is in this order, as it is destructive to the caller
-      vehicleArea.intersect(area);
-      return !vehicleArea.isEmpty();
-    }
+    return area.intersectsConvexPolygon(v.gaugeCornerCoordinates());
   }
 
   /**
@@ -32,9 +32,9 @@ package aim4.driver;
 
 import java.awt.geom.Point2D;
 
-import aim4.config.Debug;
 import aim4.driver.pilot.V2IPilot;
 import aim4.map.lane.Lane;
+import aim4.sim.SimContext;
 import aim4.vehicle.AutoVehicleDriverView;
 
 /**
@@ -88,7 +88,7 @@ public class CrashTestDummy extends Driver {
     // If we're not already in the departure lane
     if(getCurrentLane() != departureLane) {
       // If we're changing to a different Road
-      if(Debug.currentMap.getRoad(getCurrentLane()) != Debug.currentMap.getRoad(departureLane)) {
+      if(SimContext.current().getMap().getRoad(getCurrentLane()) != SimContext.current().getMap().getRoad(departureLane)) {
         // If we're close enough...
         if(departureLane.nearestDistance(getVehicle().gaugePosition()) <
            calculateTraversingLaneChangeDistance()) {
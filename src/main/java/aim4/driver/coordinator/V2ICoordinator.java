@@ -42,6 +42,8 @@ import aim4.driver.AutoDriver;
 import aim4.driver.AutoDriverCoordinatorView;
 import aim4.driver.DriverUtil;
 import aim4.driver.navigator.BasicNavigator;
+import aim4.driver.navigator.CongestionAwareNavigator;
+import aim4.driver.navigator.CongestionRouteTable;
 import aim4.driver.navigator.Navigator;
 import aim4.driver.pilot.V2IPilot;
 import aim4.im.IntersectionManager;
@@ -56,6 +58,7 @@ import aim4.msg.v2i.Away;
 import aim4.msg.v2i.Cancel;
 import aim4.msg.v2i.Done;
 import aim4.msg.v2i.Request;
+import aim4.sim.SimContext;
 import aim4.util.Util;
 import aim4.vehicle.AccelSchedule;
 import aim4.vehicle.AutoVehicleDriverView;
@@ -499,7 +502,7 @@ public class V2ICoordinator implements Coordinator {
     private TurnDirection getTurnDirection(Navigator navigator) {
       IntersectionManager im = driver.nextIntersectionManager();
       Lane currentLane = driver.getCurrentLane();
-      Road currentRoad = Debug.currentMap.getRoad(currentLane);
+      Road currentRoad = SimContext.current().getMap().getRoad(currentLane);
       Road departureRoad =
         navigator.navigate(currentRoad, im, driver.getDestination());
       Lane departureLane = departureRoad.getIndexLane();
@@ -707,9 +710,9 @@ public class V2ICoordinator implements Coordinator {
      */
     public ReservationParameter(Confirm msg) {
       this.arrivalLane =
-        Debug.currentMap.getLaneRegistry().get(msg.getArrivalLaneID());
+        SimContext.current().getMap().getLaneRegistry().get(msg.getArrivalLaneID());
       this.departureLane =
-        Debug.currentMap.getLaneRegistry().get(msg.getDepartureLaneID());
+        SimContext.current().getMap().getLaneRegistry().get(msg.getDepartureLaneID());
 //      this.arrivalLane = LaneRegistry.getLaneFromId(msg.getArrivalLaneID());
 //      this.departureLane = LaneRegistry.getLaneFromId(msg.getDepartureLaneID());
       this.arrivalTime = msg.getArrivalTime();
@@ -915,7 +918,14 @@ public class V2ICoordinator implements Coordinator {
     this.vehicle = vehicle;
     this.driver = driver;
     this.pilot = new V2IPilot(vehicle, driver);
-    this.navigator = new BasicNavigator(vehicle.getSpec(), basicMap);
+    CongestionRouteTable congestionRouteTable =
+      CongestionRouteTable.getInstance(basicMap);
+    if (congestionRouteTable != null) {
+      this.navigator = new CongestionAwareNavigator(vehicle.getSpec(),
+                                                    congestionRouteTable);
+    } else {
+      this.navigator = new BasicNavigator(vehicle.getSpec(), basicMap);
+    }
 
     isDebugging = Debug.isTargetVIN(vehicle.getVIN());
 
@@ -1305,9 +1315,9 @@ public class V2ICoordinator implements Coordinator {
         }  // else fall through
       }  // else fall through
       if (vehicle.gaugeTime() >= nextAllowedSendingRequestTime) {
-        if (!SimConfig.MUST_STOP_BEFORE_INTERSECTION ||
+        if (!SimContext.current().isMustStopBeforeIntersection() ||
             driver.distanceToNextIntersection() <=
-            V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION +
+            SimContext.current().getStopDistanceBeforeIntersection() +
             SimConfig.ADDITIONAL_STOP_DIST_BEFORE_INTERSECTION) {
           // prepare reservation
           setState(State.V2I_PREPARING_RESERVATION);
@@ -1582,7 +1592,7 @@ public class V2ICoordinator implements Coordinator {
       List<Lane> departureLanes =
         new ArrayList<Lane>(MAX_LANES_TO_TRY_PER_ROAD);
       Road departureRoad =
-        navigator.navigate(Debug.currentMap.getRoad(driver.getCurrentLane()),
+        navigator.navigate(SimContext.current().getMap().getRoad(driver.getCurrentLane()),
                            driver.getCurrentIM(),
                            driver.getDestination());
       // Let's just take the highest priority Lane from each Road
@@ -1629,7 +1639,7 @@ public class V2ICoordinator implements Coordinator {
         if (isDebugging) {
           double dTotal =
             driver.distanceToNextIntersection()
-            - V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION;
+            - SimContext.current().getStopDistanceBeforeIntersection();
           if (dTotal < 0.0) {
             System.err.printf("vin %d passed point of no return\n",
                               vehicle.getVIN());
@@ -2038,7 +2048,7 @@ public class V2ICoordinator implements Coordinator {
     double d2 = VehicleUtil.distanceToCarInFront(vehicle);
     if (d2 >= Double.MAX_VALUE) return true;  // no car in front
     double d3 = d1 - d2;
-    return (d3 <= V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION);
+    return (d3 <= SimContext.current().getStopDistanceBeforeIntersection());
   }
 
 
@@ -2055,7 +2065,7 @@ public class V2ICoordinator implements Coordinator {
     // stop at the buffer distance before intersection
     double dTotal =
       driver.distanceToNextIntersection()
-      - V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION;
+      - SimContext.current().getStopDistanceBeforeIntersection();
 
     if (dTotal > 0.0) {
       double time1 = vehicle.gaugeTime();
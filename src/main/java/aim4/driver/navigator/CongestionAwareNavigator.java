@@ -0,0 +1,120 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.driver.navigator;
+
+import aim4.im.IntersectionManager;
+import aim4.map.Road;
+import aim4.vehicle.VehicleSpec;
+
+/**
+ * A navigator that chooses the fastest route under the current load of the
+ * intersections, as estimated by a {@link CongestionRouteTable}.  The
+ * choice of the road out of an intersection is made once, when the vehicle
+ * first asks about the intersection, so that the lane the vehicle moves to
+ * and the reservation it requests agree even if the routes change in
+ * between.
+ */
+public class CongestionAwareNavigator implements Navigator {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The vehicle for which this agent is navigating.
+   */
+  private VehicleSpec vehicleSpec;
+
+  /**
+   * The table of the fastest routes under the current load.
+   */
+  private CongestionRouteTable routeTable;
+
+  /**
+   * The road of the last decision.
+   */
+  private Road lastCurrent;
+
+  /**
+   * The intersection manager of the last decision.
+   */
+  private IntersectionManager lastIm;
+
+  /**
+   * The destination of the last decision.
+   */
+  private Road lastDestination;
+
+  /**
+   * The road chosen by the last decision.
+   */
+  private Road lastDecision;
+
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Construct a new congestion-aware navigator for the given vehicle
+   * specification.
+   *
+   * @param vehicleSpec  the vehicle's specification
+   * @param routeTable   the table of the fastest routes under the current
+   *                     load
+   */
+  public CongestionAwareNavigator(VehicleSpec vehicleSpec,
+                                  CongestionRouteTable routeTable) {
+    this.vehicleSpec = vehicleSpec;
+    this.routeTable = routeTable;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Road navigate(Road current, IntersectionManager im, Road destination) {
+    if (current != lastCurrent || im != lastIm
+        || destination != lastDestination) {
+      lastCurrent = current;
+      lastIm = im;
+      lastDestination = destination;
+      lastDecision =
+        routeTable.getNextRoad(vehicleSpec, current, im, destination);
+    }
+    return lastDecision;
+  }
+
+}
@@ -0,0 +1,593 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.driver.navigator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import aim4.im.IntersectionManager;
+import aim4.im.v2i.V2IManager;
+import aim4.im.v2i.reservation.AdmissionControlZone;
+import aim4.map.BasicMap;
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+import aim4.sim.SimContext;
+import aim4.vehicle.VehicleSimView;
+import aim4.vehicle.VehicleSpec;
+
+/**
+ * A table of the fastest routes on a map under the current load of the
+ * intersections.  The travel time along each edge of the {@link RoadGraph}
+ * of the map is the travel time used by {@link RouteTable} plus a delay
+ * estimated from the live metrics of the intersection managers:
+ * <ul>
+ * <li> the rate at which the manager rejected reservation requests since
+ *      the last refresh,</li>
+ * <li> the occupancy of the admission control zones of the lanes of the
+ *      road taken out of the intersection, and</li>
+ * <li> the number of vehicles queued on the road before the
+ *      intersection.</li>
+ * </ul>
+ * The delays are refreshed periodically by {@link #update(double,
+ * Collection)}, and the routes are repaired incrementally: only the nodes
+ * whose fastest routes used an edge that became slower, or that can use an
+ * edge that became faster, are searched again.
+ * <p>
+ * The table is used only if it has been enabled on the map by
+ * {@link #enable(BasicMap, double)}.  The lookups can be made by the
+ * drivers in parallel, but not while the table is being updated; the
+ * simulator updates the table between the phases of a step.
+ */
+public class CongestionRouteTable {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The default period, in simulated seconds, of the refresh of the delays */
+  public static final double DEFAULT_REFRESH_PERIOD = 5.0;
+  /** The velocity below which a vehicle is regarded as queued */
+  private static final double QUEUED_VEHICLE_VELOCITY = 1.0;
+  /** The time it takes for a queued vehicle to leave a lane, in seconds */
+  private static final double QUEUE_DISCHARGE_TIME = 2.0;
+  /** The delay caused by a rejected request, in seconds */
+  private static final double REJECTION_DELAY = 1.0;
+  /** The maximum rejection rate used to estimate the delay */
+  private static final double MAX_REJECTION_RATE = 0.9;
+  /** The delay caused by full admission control zones, in seconds */
+  private static final double FULL_ACZ_DELAY = 10.0;
+  /** The weight of the new measurements in the smoothed delays */
+  private static final double SMOOTHING_FACTOR = 0.5;
+  /**
+   * The smallest change of the delay of an edge, in seconds, that causes
+   * the routes to be repaired
+   */
+  private static final double MIN_DELAY_CHANGE = 0.1;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The fastest routes of a vehicle specification.
+   */
+  private static class Routes {
+    /** The travel time along each edge without delays */
+    final double[] baseTimes;
+    /** The travel time along each edge with delays */
+    final double[] edgeTimes;
+    /** The travel time from each node, indexed by the destination road */
+    final double[][] times;
+    /** The edge to take at each node, indexed by the destination road */
+    final int[][] nextEdges;
+
+    /**
+     * Compute the fastest routes of a vehicle specification.
+     *
+     * @param graph   the graph of the map
+     * @param spec    the vehicle specification
+     * @param delays  the delay of each edge
+     */
+    Routes(RoadGraph graph, VehicleSpec spec, double[] delays) {
+      baseTimes = graph.calcEdgeTimes(spec);
+      edgeTimes = new double[baseTimes.length];
+      for (int e = 0; e < edgeTimes.length; e++) {
+        edgeTimes[e] = baseTimes[e] + delays[e];
+      }
+      times = new double[graph.roads.length][graph.numOfNodes];
+      nextEdges = new int[graph.roads.length][graph.numOfNodes];
+      for (int dest = 0; dest < graph.roads.length; dest++) {
+        graph.calcRoutes(edgeTimes, dest, times[dest], nextEdges[dest]);
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The map */
+  private final BasicMap basicMap;
+  /** The period of the refresh of the delays */
+  private final double refreshPeriod;
+  /** The time of the next refresh */
+  private double nextRefreshTime;
+  /** The graph of the map; null if it has not been built */
+  private volatile RoadGraph graph;
+  /** The delay of each edge */
+  private double[] delays;
+  /** The smoothed rejection rate of each intersection manager */
+  private double[] rejectionRates;
+  /** The number of requests received by each manager at the last refresh */
+  private long[] lastNumOfRequests;
+  /** The number of rejects sent by each manager at the last refresh */
+  private long[] lastNumOfRejects;
+  /** A mapping from the names of vehicle specifications to their routes */
+  private final Map<String,Routes> routes =
+    new ConcurrentHashMap<String,Routes>();
+
+  // the scratch space of the repair of the routes
+
+  /** Whether a node lost its fastest route */
+  private boolean[] isAffected;
+  /** Whether a node is waiting to be settled */
+  private boolean[] isQueued;
+  /** The affected nodes */
+  private int[] affected;
+  /** The nodes waiting to be settled */
+  private int[] queue;
+
+  /////////////////////////////////
+  // CLASS METHODS
+  /////////////////////////////////
+
+  /**
+   * Enable congestion-aware routing on a map.  The navigators created
+   * afterwards for the vehicles on the map use the table.  The table is
+   * kept in the current simulation context, so that it is dropped with the
+   * context or when the context gets a new map.
+   *
+   * @param basicMap       the map
+   * @param refreshPeriod  the period, in simulated seconds, of the refresh
+   *                       of the delays
+   * @return the route table of the map
+   */
+  public static synchronized CongestionRouteTable enable(BasicMap basicMap,
+                                                         double refreshPeriod) {
+    if (refreshPeriod <= 0.0) {
+      throw new IllegalArgumentException("The refresh period must be "
+                                         + "positive: " + refreshPeriod);
+    }
+    CongestionRouteTable table = new CongestionRouteTable(basicMap,
+                                                          refreshPeriod);
+    SimContext.current().setCongestionRouteTable(table);
+    return table;
+  }
+
+  /**
+   * Get the route table of a map.
+   *
+   * @param basicMap  the map
+   * @return the route table of the map; <code>null</code> if
+   *         congestion-aware routing has not been enabled on the map
+   */
+  public static synchronized CongestionRouteTable getInstance(
+                                                    BasicMap basicMap) {
+    CongestionRouteTable table =
+      SimContext.current().getCongestionRouteTable();
+    return (table != null && table.basicMap == basicMap) ? table : null;
+  }
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a route table of a map.
+   *
+   * @param basicMap       the map
+   * @param refreshPeriod  the period of the refresh of the delays
+   */
+  private CongestionRouteTable(BasicMap basicMap, double refreshPeriod) {
+    this.basicMap = basicMap;
+    this.refreshPeriod = refreshPeriod;
+    this.nextRefreshTime = refreshPeriod;
+    this.graph = null;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the period of the refresh of the delays.
+   *
+   * @return the period, in simulated seconds, of the refresh of the delays
+   */
+  public double getRefreshPeriod() {
+    return refreshPeriod;
+  }
+
+  /**
+   * Get the road to take out of an intersection on the fastest route to a
+   * destination road under the current load.
+   *
+   * @param spec         the specification of the vehicle
+   * @param current      the road on which the vehicle is currently traveling
+   * @param im           the intersection manager the vehicle is approaching
+   * @param destination  the destination road
+   * @return the road to take out of the intersection, or <code>null</code>
+   *         if the destination cannot be reached
+   */
+  public Road getNextRoad(VehicleSpec spec, Road current,
+                          IntersectionManager im, Road destination) {
+    RoadGraph g = getGraph(im);
+    int node = g.nodeOf(current, im);
+    if (node < 0) {
+      return null;
+    }
+    Routes r = routes.get(spec.getName());
+    if (r == null) {
+      r = makeRoutes(g, spec);
+    }
+    int e = r.nextEdges[g.roadIndex(destination)][node];
+    return (e >= 0) ? g.roads[g.edgeExitRoad[e]] : null;
+  }
+
+  /**
+   * Refresh the delays if the refresh is due, and repair the routes.  This
+   * method must not be called while vehicles are looking up routes.
+   *
+   * @param currentTime  the current time
+   * @param vehicles     the vehicles on the map
+   */
+  public synchronized void update(double currentTime,
+                                  Collection<? extends VehicleSimView>
+                                    vehicles) {
+    if (currentTime < nextRefreshTime) {
+      return;
+    }
+    nextRefreshTime = currentTime + refreshPeriod;
+    RoadGraph g = graph;
+    if (g == null) {
+      // no vehicle has looked up a route yet
+      return;
+    }
+    int[] changedEdges = refreshDelays(g, vehicles);
+    if (changedEdges.length > 0) {
+      for (Routes r : routes.values()) {
+        repairRoutes(g, r, changedEdges);
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the graph of the map, rebuilding it if it does not contain a given
+   * intersection manager.
+   *
+   * @param im  the intersection manager
+   * @return the graph of the map
+   */
+  private RoadGraph getGraph(IntersectionManager im) {
+    RoadGraph g = graph;
+    if (g == null || !g.contains(im)) {
+      synchronized(this) {
+        g = graph;
+        if (g == null || !g.contains(im)) {
+          g = new RoadGraph(basicMap);
+          delays = new double[g.edgeFrom.length];
+          rejectionRates = new double[g.ims.length];
+          lastNumOfRequests = new long[g.ims.length];
+          lastNumOfRejects = new long[g.ims.length];
+          for (int m = 0; m < g.ims.length; m++) {
+            if (g.ims[m] instanceof V2IManager) {
+              V2IManager im2 = (V2IManager) g.ims[m];
+              lastNumOfRequests[m] = im2.getNumOfRequestsReceived();
+              lastNumOfRejects[m] = im2.getNumOfRejectsSent();
+            }
+          }
+          isAffected = new boolean[g.numOfNodes];
+          isQueued = new boolean[g.numOfNodes];
+          affected = new int[g.numOfNodes];
+          queue = new int[g.numOfNodes];
+          routes.clear();
+          graph = g;
+        }
+      }
+    }
+    return g;
+  }
+
+  /**
+   * Compute the routes of a vehicle specification under the current
+   * delays.
+   *
+   * @param g     the graph of the map
+   * @param spec  the vehicle specification
+   * @return the routes of the vehicle specification
+   */
+  private synchronized Routes makeRoutes(RoadGraph g, VehicleSpec spec) {
+    Routes r = routes.get(spec.getName());
+    if (r == null) {
+      r = new Routes(g, spec, delays);
+      routes.put(spec.getName(), r);
+    }
+    return r;
+  }
+
+  /**
+   * Measure the load of the intersections and update the delays of the
+   * edges.
+   *
+   * @param g         the graph of the map
+   * @param vehicles  the vehicles on the map
+   * @return the edges whose delays have changed
+   */
+  private int[] refreshDelays(RoadGraph g,
+                              Collection<? extends VehicleSimView> vehicles) {
+    // the number of vehicles queued at each node
+    int[] queueLengths = new int[g.numOfNodes];
+    for (VehicleSimView vehicle : vehicles) {
+      if (vehicle.getVelocity() >= QUEUED_VEHICLE_VELOCITY) {
+        continue;
+      }
+      Lane lane = vehicle.getDriver().getCurrentLane();
+      if (lane == null) {
+        continue;
+      }
+      IntersectionManager im =
+        lane.getLaneIM().nextIntersectionManager(vehicle.getPosition());
+      if (im != null && g.contains(im)) {
+        int node = g.nodeOf(basicMap.getRoad(lane), im);
+        if (node >= 0) {
+          queueLengths[node]++;
+        }
+      }
+    }
+    // the rejection rate of each intersection manager
+    for (int m = 0; m < g.ims.length; m++) {
+      if (g.ims[m] instanceof V2IManager) {
+        V2IManager im = (V2IManager) g.ims[m];
+        long numOfRequests = im.getNumOfRequestsReceived();
+        long numOfRejects = im.getNumOfRejectsSent();
+        long requests = numOfRequests - lastNumOfRequests[m];
+        long rejects = numOfRejects - lastNumOfRejects[m];
+        double rate = (requests > 0)
+                      ? Math.min((double) rejects / requests,
+                                 MAX_REJECTION_RATE)
+                      : 0.0;
+        rejectionRates[m] += SMOOTHING_FACTOR * (rate - rejectionRates[m]);
+        lastNumOfRequests[m] = numOfRequests;
+        lastNumOfRejects[m] = numOfRejects;
+      }
+    }
+    // the delay of each edge
+    int[] changedEdges = new int[g.edgeFrom.length];
+    int numOfChangedEdges = 0;
+    for (int e = 0; e < g.edgeFrom.length; e++) {
+      int node = g.edgeFrom[e];
+      int m = g.nodeIm[node];
+      Road road = g.roads[g.nodeRoad[node]];
+      // the expected number of rejections before a request is accepted
+      double rate = rejectionRates[m];
+      double delay = REJECTION_DELAY * rate / (1.0 - rate);
+      delay += QUEUE_DISCHARGE_TIME * queueLengths[node]
+               / road.getLanes().size();
+      if (g.ims[m] instanceof V2IManager) {
+        delay += FULL_ACZ_DELAY *
+                 calcAczOccupancy((V2IManager) g.ims[m],
+                                  g.roads[g.edgeExitRoad[e]]);
+      }
+      double smoothed = delays[e] + SMOOTHING_FACTOR * (delay - delays[e]);
+      if (Math.abs(smoothed - delays[e]) >= MIN_DELAY_CHANGE) {
+        delays[e] = smoothed;
+        changedEdges[numOfChangedEdges++] = e;
+      }
+    }
+    return Arrays.copyOf(changedEdges, numOfChangedEdges);
+  }
+
+  /**
+   * Compute the occupancy of the admission control zones of the lanes of a
+   * road leaving an intersection.
+   *
+   * @param im    the intersection manager
+   * @param road  the road leaving the intersection
+   * @return the average fraction of the admission control zones of the
+   *         lanes that is occupied
+   */
+  private static double calcAczOccupancy(V2IManager im, Road road) {
+    double occupancy = 0.0;
+    int n = 0;
+    for (Lane lane : road.getLanes()) {
+      AdmissionControlZone acz = im.getACZ(lane.getId());
+      if (acz != null && acz.getMaxSize() > 0.0) {
+        occupancy += acz.getCurrentSize() / acz.getMaxSize();
+        n++;
+      }
+    }
+    return (n > 0) ? occupancy / n : 0.0;
+  }
+
+  /**
+   * Repair the routes of a vehicle specification after the delays of some
+   * edges have changed.
+   *
+   * @param g             the graph of the map
+   * @param r             the routes
+   * @param changedEdges  the edges whose delays have changed
+   */
+  private void repairRoutes(RoadGraph g, Routes r, int[] changedEdges) {
+    double[] oldTimes = new double[changedEdges.length];
+    for (int i = 0; i < changedEdges.length; i++) {
+      int e = changedEdges[i];
+      oldTimes[i] = r.edgeTimes[e];
+      r.edgeTimes[e] = r.baseTimes[e] + delays[e];
+    }
+    for (int dest = 0; dest < g.roads.length; dest++) {
+      repairRoutes(g, r.edgeTimes, dest, r.times[dest], r.nextEdges[dest],
+                   changedEdges, oldTimes);
+    }
+  }
+
+  /**
+   * Repair the fastest routes to a destination road after the travel times
+   * of some edges have changed.  The nodes whose fastest routes used an
+   * edge that became slower lose their routes, and are searched again
+   * together with the nodes that can use an edge that became faster, by a
+   * Dijkstra search that starts from these nodes only.
+   *
+   * @param g             the graph of the map
+   * @param edgeTimes     the new travel time along each edge
+   * @param dest          the index of the destination road
+   * @param times         the travel time from each node to the destination
+   * @param nextEdges     the edge to take at each node
+   * @param changedEdges  the edges whose travel times have changed
+   * @param oldTimes      the old travel times of the changed edges
+   */
+  private void repairRoutes(RoadGraph g, double[] edgeTimes, int dest,
+                            double[] times, int[] nextEdges,
+                            int[] changedEdges, double[] oldTimes) {
+    // find the nodes whose fastest routes use an edge that became slower
+    int numOfAffected = 0;
+    for (int i = 0; i < changedEdges.length; i++) {
+      int e = changedEdges[i];
+      int u = g.edgeFrom[e];
+      if (edgeTimes[e] > oldTimes[i] && nextEdges[u] == e && !isAffected[u]) {
+        isAffected[u] = true;
+        affected[numOfAffected++] = u;
+      }
+    }
+    for (int i = 0; i < numOfAffected; i++) {
+      int v = affected[i];
+      for (int k = g.edgesToStart[v]; k < g.edgesToStart[v + 1]; k++) {
+        int e = g.edgesTo[k];
+        int u = g.edgeFrom[e];
+        if (nextEdges[u] == e && !isAffected[u]) {
+          isAffected[u] = true;
+          affected[numOfAffected++] = u;
+        }
+      }
+    }
+    for (int i = 0; i < numOfAffected; i++) {
+      times[affected[i]] = Double.POSITIVE_INFINITY;
+      nextEdges[affected[i]] = -1;
+    }
+    // the affected nodes take the fastest edges to the unaffected nodes
+    int numOfQueued = 0;
+    for (int i = 0; i < numOfAffected; i++) {
+      int u = affected[i];
+      for (int e = g.edgesFromStart[u]; e < g.edgesFromStart[u + 1]; e++) {
+        if (g.edgeTo[e] >= 0 && isAffected[g.edgeTo[e]]) {
+          continue;
+        }
+        double t = edgeTimes[e] + timeAfter(g, e, dest, times);
+        if (t < times[u]) {
+          times[u] = t;
+          nextEdges[u] = e;
+        }
+      }
+      if (times[u] < Double.POSITIVE_INFINITY) {
+        isQueued[u] = true;
+        queue[numOfQueued++] = u;
+      }
+    }
+    // the nodes that can use an edge that became faster
+    for (int i = 0; i < changedEdges.length; i++) {
+      int e = changedEdges[i];
+      int u = g.edgeFrom[e];
+      if (edgeTimes[e] < oldTimes[i]) {
+        double t = edgeTimes[e] + timeAfter(g, e, dest, times);
+        if (t < times[u]) {
+          times[u] = t;
+          nextEdges[u] = e;
+          if (!isQueued[u]) {
+            isQueued[u] = true;
+            queue[numOfQueued++] = u;
+          }
+        }
+      }
+    }
+    // settle the queued nodes in the order of their travel times
+    while (numOfQueued > 0) {
+      int best = 0;
+      for (int i = 1; i < numOfQueued; i++) {
+        if (times[queue[i]] < times[queue[best]]) {
+          best = i;
+        }
+      }
+      int v = queue[best];
+      queue[best] = queue[--numOfQueued];
+      isQueued[v] = false;
+      for (int k = g.edgesToStart[v]; k < g.edgesToStart[v + 1]; k++) {
+        int e = g.edgesTo[k];
+        int u = g.edgeFrom[e];
+        double t = times[v] + edgeTimes[e];
+        if (t < times[u]) {
+          times[u] = t;
+          nextEdges[u] = e;
+          if (!isQueued[u]) {
+            isQueued[u] = true;
+            queue[numOfQueued++] = u;
+          }
+        }
+      }
+    }
+    for (int i = 0; i < numOfAffected; i++) {
+      isAffected[affected[i]] = false;
+    }
+  }
+
+  /**
+   * Get the travel time to a destination road after taking an edge.
+   *
+   * @param g      the graph of the map
+   * @param e      the edge
+   * @param dest   the index of the destination road
+   * @param times  the travel time from each node to the destination
+   * @return the travel time from the end of the edge to the destination;
+   *         infinity if the destination cannot be reached
+   */
+  private static double timeAfter(RoadGraph g, int e, int dest,
+                                  double[] times) {
+    if (g.edgeTo[e] >= 0) {
+      return times[g.edgeTo[e]];
+    } else {
+      return (g.edgeExitRoad[e] == dest) ? 0.0 : Double.POSITIVE_INFINITY;
+    }
+  }
+}
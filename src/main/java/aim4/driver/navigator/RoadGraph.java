@@ -0,0 +1,359 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.driver.navigator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import aim4.im.IntersectionManager;
+import aim4.map.BasicMap;
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+import aim4.util.Util;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleUtil;
+
+/**
+ * The graph of the roads and the intersection managers of a map, in
+ * primitive arrays.  The nodes of the graph are the pairs of a road and an
+ * intersection manager the road leads into, and the edges are the roads
+ * taken out of the intersections.  An edge arrives at the node of the road
+ * and the next intersection manager on the road, or leads out of the map
+ * if there is no next intersection manager.
+ * <p>
+ * The graph is immutable, and reflects the intersection managers of the
+ * map at the time it was built.
+ */
+class RoadGraph {
+
+  /////////////////////////////////
+  // PACKAGE FIELDS
+  /////////////////////////////////
+
+  /** The roads */
+  final Road[] roads;
+  /** A mapping from the IDs of the index lanes to the indices of roads */
+  final int[] laneIdToRoad;
+  /** The intersection managers */
+  final IntersectionManager[] ims;
+  /** A mapping from the IDs of the managers to their indices */
+  final int[] imIdToIm;
+  /**
+   * A mapping from the index of a road times the number of managers plus
+   * the index of a manager to the index of the node of the road leading
+   * into the manager; -1 if the road does not lead into the manager
+   */
+  final int[] nodeOf;
+  /** The number of nodes */
+  final int numOfNodes;
+  /** The road of each node */
+  final int[] nodeRoad;
+  /** The manager of each node */
+  final int[] nodeIm;
+  /** The node from which each edge leaves */
+  final int[] edgeFrom;
+  /** The road taken out of the intersection by each edge */
+  final int[] edgeExitRoad;
+  /**
+   * The node at which each edge arrives; -1 if the road taken out of the
+   * intersection leads out of the map
+   */
+  final int[] edgeTo;
+  /** The edges leaving node i are edgesFromStart[i] to
+   *  edgesFromStart[i+1]-1 */
+  final int[] edgesFromStart;
+  /** The edges arriving at node i are edgesTo[edgesToStart[i]] to
+   *  edgesTo[edgesToStart[i+1]-1] */
+  final int[] edgesToStart;
+  /** The edges sorted by the nodes at which they arrive */
+  final int[] edgesTo;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Build the graph of a map.
+   *
+   * @param basicMap  the map
+   */
+  RoadGraph(BasicMap basicMap) {
+    List<Road> roadList = basicMap.getRoads();
+    roads = roadList.toArray(new Road[roadList.size()]);
+    int maxLaneId = -1;
+    for (Road road : roads) {
+      maxLaneId = Math.max(maxLaneId, road.getIndexLane().getId());
+    }
+    laneIdToRoad = new int[maxLaneId + 1];
+    Arrays.fill(laneIdToRoad, -1);
+    for (int i = 0; i < roads.length; i++) {
+      laneIdToRoad[roads[i].getIndexLane().getId()] = i;
+    }
+
+    List<IntersectionManager> imList = basicMap.getIntersectionManagers();
+    ims = imList.toArray(new IntersectionManager[imList.size()]);
+    int maxImId = -1;
+    for (IntersectionManager im : ims) {
+      maxImId = Math.max(maxImId, im.getId());
+    }
+    imIdToIm = new int[maxImId + 1];
+    Arrays.fill(imIdToIm, -1);
+    for (int i = 0; i < ims.length; i++) {
+      imIdToIm[ims[i].getId()] = i;
+    }
+
+    // the nodes
+    nodeOf = new int[roads.length * ims.length];
+    Arrays.fill(nodeOf, -1);
+    int n = 0;
+    for (int r = 0; r < roads.length; r++) {
+      for (int m = 0; m < ims.length; m++) {
+        if (ims[m].getIntersection().isEnteredBy(roads[r].getIndexLane())) {
+          nodeOf[r * ims.length + m] = n++;
+        }
+      }
+    }
+    numOfNodes = n;
+    nodeRoad = new int[numOfNodes];
+    nodeIm = new int[numOfNodes];
+    for (int r = 0; r < roads.length; r++) {
+      for (int m = 0; m < ims.length; m++) {
+        int node = nodeOf[r * ims.length + m];
+        if (node >= 0) {
+          nodeRoad[node] = r;
+          nodeIm[node] = m;
+        }
+      }
+    }
+
+    // the edges, grouped by the nodes from which they leave
+    int numOfEdges = 0;
+    for (int node = 0; node < numOfNodes; node++) {
+      numOfEdges += ims[nodeIm[node]].getIntersection().getExitRoads().size();
+    }
+    int[] from = new int[numOfEdges];
+    int[] exitRoad = new int[numOfEdges];
+    int[] to = new int[numOfEdges];
+    edgesFromStart = new int[numOfNodes + 1];
+    int e = 0;
+    for (int node = 0; node < numOfNodes; node++) {
+      edgesFromStart[node] = e;
+      IntersectionManager im = ims[nodeIm[node]];
+      Road road = roads[nodeRoad[node]];
+      for (Road r : im.getIntersection().getExitRoads()) {
+        // Don't come out the way we went in
+        if (r == road.getDual()) {
+          continue;
+        }
+        Lane lane = r.getIndexLane();
+        IntersectionManager nextIm =
+          lane.getLaneIM().nextIntersectionManager(im);
+        from[e] = node;
+        exitRoad[e] = laneIdToRoad[lane.getId()];
+        to[e] = (nextIm != null)
+                ? nodeOf[exitRoad[e] * ims.length + imIdToIm[nextIm.getId()]]
+                : -1;
+        e++;
+      }
+    }
+    edgesFromStart[numOfNodes] = e;
+    edgeFrom = Arrays.copyOf(from, e);
+    edgeExitRoad = Arrays.copyOf(exitRoad, e);
+    edgeTo = Arrays.copyOf(to, e);
+
+    // the edges sorted by the nodes at which they arrive
+    edgesToStart = new int[numOfNodes + 1];
+    for (int i = 0; i < edgeTo.length; i++) {
+      if (edgeTo[i] >= 0) {
+        edgesToStart[edgeTo[i] + 1]++;
+      }
+    }
+    for (int i = 0; i < numOfNodes; i++) {
+      edgesToStart[i + 1] += edgesToStart[i];
+    }
+    edgesTo = new int[edgesToStart[numOfNodes]];
+    int[] fill = Arrays.copyOf(edgesToStart, numOfNodes);
+    for (int i = 0; i < edgeTo.length; i++) {
+      if (edgeTo[i] >= 0) {
+        edgesTo[fill[edgeTo[i]]++] = i;
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PACKAGE METHODS
+  /////////////////////////////////
+
+  /**
+   * Whether the graph reflects the intersection managers of a map, that is,
+   * whether the map has the same managers, in the same order, as when the
+   * graph was built.
+   *
+   * @param basicMap  the map
+   * @return whether the graph reflects the managers of the map
+   */
+  boolean isUpToDate(BasicMap basicMap) {
+    List<IntersectionManager> imList = basicMap.getIntersectionManagers();
+    if (imList.size() != ims.length) {
+      return false;
+    }
+    for (int i = 0; i < ims.length; i++) {
+      if (imList.get(i) != ims[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Whether the graph contains an intersection manager.
+   *
+   * @param im  the intersection manager
+   * @return whether the graph contains the intersection manager
+   */
+  boolean contains(IntersectionManager im) {
+    int id = im.getId();
+    return id < imIdToIm.length && imIdToIm[id] >= 0 && ims[imIdToIm[id]] == im;
+  }
+
+  /**
+   * Get the index of a road.
+   *
+   * @param road  the road
+   * @return the index of the road
+   */
+  int roadIndex(Road road) {
+    return laneIdToRoad[road.getIndexLane().getId()];
+  }
+
+  /**
+   * Get the node of a road leading into an intersection manager in the
+   * graph.
+   *
+   * @param road  the road
+   * @param im    the intersection manager
+   * @return the index of the node; -1 if the road does not lead into the
+   *         intersection manager
+   */
+  int nodeOf(Road road, IntersectionManager im) {
+    return nodeOf[roadIndex(road) * ims.length + imIdToIm[im.getId()]];
+  }
+
+  /**
+   * Compute the travel time along each edge for a vehicle specification:
+   * the time to cross the intersection at the maximum turn velocity, plus
+   * the time to reach the next intersection, or to get out of the map, at
+   * the speed limit.
+   *
+   * @param spec  the vehicle specification
+   * @return the travel time along each edge; infinity if the vehicle
+   *         cannot take the turn
+   */
+  double[] calcEdgeTimes(VehicleSpec spec) {
+    double[] times = new double[edgeFrom.length];
+    for (int e = 0; e < edgeFrom.length; e++) {
+      IntersectionManager im = ims[nodeIm[edgeFrom[e]]];
+      Road road = roads[nodeRoad[edgeFrom[e]]];
+      Road r = roads[edgeExitRoad[e]];
+      // Find out how fast we can take the turn
+      double maxTurnVelocity =
+        VehicleUtil.maxTurnVelocity(spec, road.getIndexLane(),
+                                    r.getIndexLane(), im);
+      if (Util.isDoubleZero(maxTurnVelocity)) {
+        times[e] = Double.POSITIVE_INFINITY;
+        continue;
+      }
+      times[e] = im.traversalDistance(road, r) / maxTurnVelocity;
+      if (edgeTo[e] >= 0) {
+        // the time to get to the next intersection
+        times[e] += r.getIndexLane().getLaneIM().
+                    timeToNextIntersectionManager(im, spec.getMaxVelocity());
+      } else {
+        // the time to get out of the map
+        times[e] += r.getIndexLane().getLaneIM().
+                    remainingDistanceFromLastIntersection() /
+                    Math.min(r.getIndexLane().getSpeedLimit(),
+                             spec.getMaxVelocity());
+      }
+    }
+    return times;
+  }
+
+  /**
+   * Compute the fastest routes to a destination road by a backward
+   * Dijkstra search from the destination.
+   *
+   * @param edgeTimes  the travel time along each edge
+   * @param dest       the index of the destination road
+   * @param times      the array in which to store the travel time from each
+   *                   node to the destination; infinity if the destination
+   *                   cannot be reached from the node
+   * @param nextEdges  the array in which to store the edge to take at each
+   *                   node; -1 if the destination cannot be reached from
+   *                   the node
+   */
+  void calcRoutes(double[] edgeTimes, int dest,
+                  double[] times, int[] nextEdges) {
+    boolean[] isDone = new boolean[numOfNodes];
+    Arrays.fill(times, Double.POSITIVE_INFINITY);
+    Arrays.fill(nextEdges, -1);
+    // the edges leading out of the map onto the destination road
+    for (int e = 0; e < edgeFrom.length; e++) {
+      if (edgeTo[e] < 0 && edgeExitRoad[e] == dest
+          && edgeTimes[e] < times[edgeFrom[e]]) {
+        times[edgeFrom[e]] = edgeTimes[e];
+        nextEdges[edgeFrom[e]] = e;
+      }
+    }
+    // the graph is small, so a linear scan is faster than a heap
+    while (true) {
+      int node = -1;
+      for (int i = 0; i < numOfNodes; i++) {
+        if (!isDone[i] && times[i] < Double.POSITIVE_INFINITY
+            && (node < 0 || times[i] < times[node])) {
+          node = i;
+        }
+      }
+      if (node < 0) {
+        break;
+      }
+      isDone[node] = true;
+      for (int k = edgesToStart[node]; k < edgesToStart[node + 1]; k++) {
+        int e = edgesTo[k];
+        double t = times[node] + edgeTimes[e];
+        if (t < times[edgeFrom[e]]) {
+          times[edgeFrom[e]] = t;
+          nextEdges[edgeFrom[e]] = e;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.driver.navigator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import aim4.im.IntersectionManager;
+import aim4.map.BasicMap;
+import aim4.map.Road;
+import aim4.sim.SimContext;
+import aim4.vehicle.VehicleSpec;
+
+/**
+ * A table of the fastest routes on a map, shared by all navigators of the
+ * map.  For every vehicle specification, the table stores the road to take
+ * out of each intersection, for every road leading into the intersection
+ * and every destination road, in primitive arrays.  The table for a
+ * vehicle specification is computed when a vehicle with the specification
+ * first asks for a route, by one backward Dijkstra search per destination
+ * road over the {@link RoadGraph} of the map.
+ * <p>
+ * The travel times are the same as those of the A* search that
+ * {@link BasicNavigator} used to run for every vehicle: the time to cross
+ * each intersection at the maximum turn velocity, plus the time to reach
+ * the next intersection at the speed limit.
+ * <p>
+ * Each lookup checks that the intersection managers of the map are still
+ * those of the graph.  If a manager has been added, removed or replaced,
+ * the whole graph is rebuilt and the routes of all vehicle specifications
+ * are dropped.  The table is not repaired incrementally, since a new
+ * manager changes the max turn velocities through its intersection, and
+ * with them the fastest routes across the whole map.  The lookups do not
+ * lock and can be made by the drivers in parallel.
+ */
+public class RouteTable {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The graph of the map and the fastest routes of each vehicle
+   * specification on the graph.
+   */
+  private static class Routes {
+    /** The graph of the map */
+    final RoadGraph graph;
+    /**
+     * A mapping from the names of vehicle specifications to the fastest
+     * routes of the vehicles with the specifications: the road to take out
+     * of the intersection, indexed by the destination road and the node
+     */
+    final Map<String,int[][]> nextRoads =
+      new ConcurrentHashMap<String,int[][]>();
+
+    /**
+     * Create the routes on a graph.
+     *
+     * @param graph  the graph of the map
+     */
+    Routes(RoadGraph graph) {
+      this.graph = graph;
+    }
+
+    /**
+     * Get the fastest routes of a vehicle specification, computing them if
+     * necessary.
+     *
+     * @param spec  the vehicle specification
+     * @return the road to take out of the intersection, indexed by the
+     *         destination road and the node; -1 if the destination cannot
+     *         be reached from the node
+     */
+    int[][] getNextRoads(VehicleSpec spec) {
+      int[][] result = nextRoads.get(spec.getName());
+      if (result == null) {
+        double[] edgeTimes = graph.calcEdgeTimes(spec);
+        double[] times = new double[graph.numOfNodes];
+        int[] nextEdges = new int[graph.numOfNodes];
+        result = new int[graph.roads.length][graph.numOfNodes];
+        for (int dest = 0; dest < graph.roads.length; dest++) {
+          graph.calcRoutes(edgeTimes, dest, times, nextEdges);
+          for (int node = 0; node < graph.numOfNodes; node++) {
+            result[dest][node] = (nextEdges[node] >= 0)
+                                 ? graph.edgeExitRoad[nextEdges[node]]
+                                 : -1;
+          }
+        }
+        // another thread may have computed the same routes in the meantime
+        nextRoads.put(spec.getName(), result);
+      }
+      return result;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The map */
+  private final BasicMap basicMap;
+  /** The routes on the map; null if the graph has not been built */
+  private volatile Routes routes;
+
+  /////////////////////////////////
+  // CLASS METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the route table of a map.  The table is kept in the current
+   * simulation context, so that it is dropped with the context or when the
+   * context gets a new map.
+   *
+   * @param basicMap  the map
+   * @return the route table of the map
+   */
+  public static synchronized RouteTable getInstance(BasicMap basicMap) {
+    SimContext context = SimContext.current();
+    RouteTable table = context.getRouteTable();
+    if (table == null || table.basicMap != basicMap) {
+      table = new RouteTable(basicMap);
+      context.setRouteTable(table);
+    }
+    return table;
+  }
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a route table of a map.
+   *
+   * @param basicMap  the map
+   */
+  private RouteTable(BasicMap basicMap) {
+    this.basicMap = basicMap;
+    this.routes = null;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the road to take out of an intersection on the fastest route to a
+   * destination road.
+   *
+   * @param spec         the specification of the vehicle
+   * @param current      the road on which the vehicle is currently traveling
+   * @param im           the intersection manager the vehicle is approaching
+   * @param destination  the destination road
+   * @return the road to take out of the intersection, or <code>null</code>
+   *         if the manager is not on the map or the destination cannot be
+   *         reached
+   */
+  public Road getNextRoad(VehicleSpec spec, Road current,
+                          IntersectionManager im, Road destination) {
+    Routes r = getRoutes();
+    if (!r.graph.contains(im)) {
+      return null;
+    }
+    int node = r.graph.nodeOf(current, im);
+    if (node < 0) {
+      return null;
+    }
+    int next = r.getNextRoads(spec)[r.graph.roadIndex(destination)][node];
+    return (next >= 0) ? r.graph.roads[next] : null;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the routes on the map, rebuilding the graph if the intersection
+   * managers of the map have changed.
+   *
+   * @return the routes on the map
+   */
+  private Routes getRoutes() {
+    Routes r = routes;
+    if (r == null || !r.graph.isUpToDate(basicMap)) {
+      synchronized(this) {
+        r = routes;
+        if (r == null || !r.graph.isUpToDate(basicMap)) {
+          r = new Routes(new RoadGraph(basicMap));
+          routes = r;
+        }
+      }
+    }
+    return r;
+  }
+}
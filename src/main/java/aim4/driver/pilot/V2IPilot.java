@@ -38,6 +38,7 @@ import aim4.config.SimConfig;
 import aim4.driver.AutoDriver;
 import aim4.driver.DriverUtil;
 import aim4.driver.coordinator.V2ICoordinator.ReservationParameter;
+import aim4.sim.SimContext;
 import aim4.vehicle.AutoVehicleDriverView;
 import aim4.vehicle.VehicleUtil;
 
@@ -60,9 +61,11 @@ public class V2IPilot extends BasicPilot {
 
   /**
    * The default shortest distance before an intersection at which the vehicle
-   * stops if the vehicle can't enter the intersection immediately.
+   * stops if the vehicle can't enter the intersection immediately.  The
+   * distance of a simulation is kept in its context (see
+   * {@link SimContext#getStopDistanceBeforeIntersection()}).
    */
-  public static double DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION = 1.0;
+  public static final double DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION = 1.0;
 
   /**
    * The distance, expressed in units of the Vehicle's velocity, at which to
@@ -94,7 +97,8 @@ public class V2IPilot extends BasicPilot {
   public V2IPilot(AutoVehicleDriverView vehicle, AutoDriver driver) {
     this.vehicle = vehicle;
     this.driver = driver;
-    stopDistanceBeforeIntersection = DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION;
+    stopDistanceBeforeIntersection =
+      SimContext.current().getStopDistanceBeforeIntersection();
   }
 
   // ///////////////////////////////
@@ -131,8 +135,8 @@ public class V2IPilot extends BasicPilot {
     // If we're not already in the departure lane
     if (driver.getCurrentLane() != rp.getDepartureLane()) {
       // If we're changing to a different Road
-      if (Debug.currentMap.getRoad(driver.getCurrentLane()) !=
-        Debug.currentMap.getRoad(rp.getDepartureLane())) {
+      if (SimContext.current().getMap().getRoad(driver.getCurrentLane()) !=
+        SimContext.current().getMap().getRoad(rp.getDepartureLane())) {
         // Find out how far from it we are
         double distToLane =
           rp.getDepartureLane().nearestDistance(vehicle.gaugePosition());
@@ -280,7 +284,8 @@ public class V2IPilot extends BasicPilot {
 //      VehicleUtil.calcDistanceToStop(vehicle.gaugeVelocity(),
 //                                     vehicle.getSpec().getMaxDeceleration());
     double minDistanceToIntersection =
-      stoppingDistance + DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION;
+      stoppingDistance
+      + SimContext.current().getStopDistanceBeforeIntersection();
     if (vehicle.getDriver().distanceToNextIntersection() <
         minDistanceToIntersection) {
 //      if (Debug.isTargetVIN(vehicle.getVIN())) {
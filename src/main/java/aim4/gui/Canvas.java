@@ -51,14 +51,19 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import javax.imageio.ImageIO;
 import javax.swing.JPanel;
@@ -146,6 +151,8 @@ public class Canvas extends JPanel implements ComponentListener,
   private static final String ASPHALT_TEXTURE_FILE_PROP = System.getProperty("asphaltTexture", ASPHALT_TILE_FILE);
   /** Default: whether to draw lane lines; overridable via -DshowLaneLines (default false). */
   private static final boolean SHOW_LANE_LINES_DEFAULT = getBooleanSysProp("showLaneLines", false);
+  /** Default: whether far-zoomed vehicles are drawn as points; overridable via -DvehicleLevelOfDetail. */
+  private static final boolean VEHICLE_LEVEL_OF_DETAIL_DEFAULT = getBooleanSysProp("vehicleLevelOfDetail", true);
   /** The color of the grass, if the image does not load properly. */
   public static final Color GRASS_COLOR = Color.GREEN.darker().darker();
   /** The color of the asphalt, if the image does not load properly. */
@@ -254,6 +261,84 @@ public class Canvas extends JPanel implements ComponentListener,
   private static final Color TRACK_COLOR = Color.RED;
   /** The stroke of the track */
   private static final Stroke TRACK_STROKE = new BasicStroke(0.3f);
+  // rendering
+  /** The period between checks of the render thread if nothing is drawn (ms) */
+  private static final long IDLE_RENDER_PERIOD = 100L;
+  /**
+   * The scale (pixels per meter) below which vehicles are drawn as points
+   * if the level of detail is enabled
+   */
+  private static final double VEHICLE_POINT_SCALE = 1.5;
+  /** The size of a vehicle drawn as a point (pixels) */
+  private static final double VEHICLE_POINT_SIZE = 2.0;
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * A traffic light of an entry lane of an intersection that uses a
+   * traffic signal request handler.
+   */
+  private static class TrafficLight {
+    /** The request handler that controls the light */
+    final TrafficSignalRequestHandler requestHandler;
+    /** The ID of the entry lane */
+    final int laneId;
+    /** The shape of the light */
+    final Shape shape;
+
+    /**
+     * Create a traffic light.
+     *
+     * @param requestHandler  the request handler that controls the light
+     * @param laneId          the ID of the entry lane
+     * @param shape           the shape of the light
+     */
+    TrafficLight(TrafficSignalRequestHandler requestHandler, int laneId,
+                 Shape shape) {
+      this.requestHandler = requestHandler;
+      this.laneId = laneId;
+      this.shape = shape;
+    }
+  }
+
+  /**
+   * The render thread, which draws the latest snapshot at the frame rate.
+   */
+  private class RenderThread implements Runnable {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+      Thread thisThread = Thread.currentThread();
+      while (renderThread == thisThread) {
+        double rate = frameRate;
+        long period =
+            (rate > 0.0) ? (long) (1000.0 / rate) : IDLE_RENDER_PERIOD;
+        long nextFrameTime = System.currentTimeMillis() + period;
+        if (rate > 0.0 && canUpdateCanvas) {
+          FrameSnapshot snapshot = latestSnapshot;
+          if (snapshot != null && snapshot.frameNumber != drawnFrameNumber) {
+            update();
+          } else {
+            // the latest snapshot has been drawn by now
+            isSnapshotRequested = true;
+          }
+        }
+        long t = nextFrameTime - System.currentTimeMillis();
+        if (t > 0) {
+          try {
+            Thread.sleep(t);
+          } catch (InterruptedException e) {
+            // do nothing
+          }
+        }
+      }
+    }
+  }
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -320,6 +405,38 @@ public class Canvas extends JPanel implements ComponentListener,
   private boolean isShowIMDebugShapes;
   /** Whether to draw white/yellow lane lines. */
   private boolean showLaneLines;
+  // rendering
+  /** The traffic lights of the map */
+  private transient List<TrafficLight> trafficLights;
+  /** The two snapshots, one of which is written while the other is drawn */
+  private final transient FrameSnapshot[] snapshots =
+      { new FrameSnapshot(), new FrameSnapshot() };
+  /** The latest published snapshot; null if there is none */
+  private transient volatile FrameSnapshot latestSnapshot;
+  /**
+   * Whether the latest snapshot has been drawn, so that the simulation
+   * thread can write the other snapshot
+   */
+  private volatile boolean isSnapshotRequested;
+  /** The number of the next frame; accessed by the simulation thread */
+  private long nextFrameNumber;
+  /** The number of the frame drawn last */
+  private volatile long drawnFrameNumber;
+  /** The render thread; null if it is not running */
+  private transient volatile Thread renderThread;
+  /** The frame rate of the render thread; zero if nothing is drawn */
+  private volatile double frameRate;
+  /** The path reused for drawing a single vehicle */
+  private final Path2D.Double vehiclePath = new Path2D.Double();
+  /** The paths of the vehicles, one per paint, reused from frame to frame */
+  private final transient Map<Color, Path2D.Double> vehiclePaths =
+      new LinkedHashMap<Color, Path2D.Double>();
+  /** The indices in the snapshot of the vehicles within view */
+  private int[] visibleVehicles;
+  /** The number of vehicles within view */
+  private int numOfVisibleVehicles;
+  /** Whether far-zoomed vehicles are drawn as points */
+  private boolean useVehicleLevelOfDetail;
 
   /////////////////////////////////
   // CLASS CONSTRUCTORS
@@ -349,6 +466,7 @@ public class Canvas extends JPanel implements ComponentListener,
     this.useAsphaltTexture = USE_ASPHALT_TEXTURE_DEFAULT;
     this.asphaltTextureFile = ASPHALT_TEXTURE_FILE_PROP;
     this.showLaneLines = SHOW_LANE_LINES_DEFAULT; // default hidden unless -DshowLaneLines=true
+    this.useVehicleLevelOfDetail = VEHICLE_LEVEL_OF_DETAIL_DEFAULT;
 
     grassImage = loadImage(GRASS_TILE_FILE);
     if (grassImage == null) {
@@ -365,6 +483,16 @@ public class Canvas extends JPanel implements ComponentListener,
 
     canUpdateCanvas = false;
 
+    trafficLights = new ArrayList<TrafficLight>();
+    latestSnapshot = null;
+    isSnapshotRequested = true;
+    nextFrameNumber = 0;
+    drawnFrameNumber = -1;
+    renderThread = null;
+    frameRate = 0.0;
+    visibleVehicles = new int[0];
+    numOfVisibleVehicles = 0;
+
     isShowSimulationTime = Viewer.IS_SHOW_SIMULATION_TIME;
     isShowVin = Viewer.IS_SHOW_VIN_BY_DEFAULT;
     isShowIMDebugShapes = Viewer.IS_SHOW_IM_DEBUG_SHAPES_BY_DEFAULT;
@@ -432,6 +560,9 @@ public class Canvas extends JPanel implements ComponentListener,
     }
     // create the map image for the initial scale
     mapImageTable[scaleIndex] = createMapImage(basicMap, scaleTable[scaleIndex]);
+    // cache the traffic lights
+    trafficLights = makeTrafficLights(basicMap);
+    latestSnapshot = null;
 
     canUpdateCanvas = true;
   }
@@ -673,6 +804,21 @@ public class Canvas extends JPanel implements ComponentListener,
     return this.showLaneLines;
   }
 
+  /**
+   * Enable/disable drawing far-zoomed vehicles as points.
+   *
+   * @param useLevelOfDetail true to draw far-zoomed vehicles as points,
+   *                         false to always draw their shapes
+   */
+  public void setUseVehicleLevelOfDetail(boolean useLevelOfDetail) {
+    this.useVehicleLevelOfDetail = useLevelOfDetail;
+  }
+
+  /** Whether far-zoomed vehicles are drawn as points. */
+  public boolean isUseVehicleLevelOfDetail() {
+    return this.useVehicleLevelOfDetail;
+  }
+
   /**
    * Invalidate cached map images so they will be regenerated.
    */
@@ -853,8 +999,73 @@ public class Canvas extends JPanel implements ComponentListener,
     repaint();
   }
 
+  // rendering
+
   /**
-   * Update the canvas to visualize the current state of simulation.
+   * Start the render thread, which draws the latest snapshot of the
+   * simulation at the frame rate.
+   */
+  public synchronized void startRendering() {
+    assert renderThread == null;
+    renderThread = new Thread(new RenderThread(), "AIM4 Render Thread");
+    renderThread.setDaemon(true);
+    renderThread.start();
+  }
+
+  /**
+   * Stop the render thread.
+   */
+  public synchronized void stopRendering() {
+    renderThread = null;
+    latestSnapshot = null;
+  }
+
+  /**
+   * Set the frame rate of the render thread.
+   *
+   * @param frameRate the frame rate; zero if nothing should be drawn
+   */
+  public void setFrameRate(double frameRate) {
+    this.frameRate = frameRate;
+  }
+
+  /**
+   * Take a snapshot of the simulation for the render thread if the render
+   * thread has drawn the previous one.  This method is called by the
+   * simulation thread after each simulation step; it neither blocks nor
+   * draws, and returns immediately if no snapshot is needed.
+   *
+   * @param sim the simulator
+   */
+  public void publishSnapshot(Simulator sim) {
+    if (isSnapshotRequested && canUpdateCanvas) {
+      isSnapshotRequested = false;
+      FrameSnapshot snapshot =
+          (latestSnapshot == snapshots[0]) ? snapshots[1] : snapshots[0];
+      writeSnapshot(snapshot, sim);
+      latestSnapshot = snapshot;
+    }
+  }
+
+  /**
+   * Take a snapshot of the simulation and draw it immediately.  This method
+   * is called by the simulation thread when every frame must be drawn, such
+   * as when the screen is recorded.
+   *
+   * @param sim the simulator
+   */
+  public synchronized void updateNow(Simulator sim) {
+    if (canUpdateCanvas) {
+      FrameSnapshot snapshot =
+          (latestSnapshot == snapshots[0]) ? snapshots[1] : snapshots[0];
+      writeSnapshot(snapshot, sim);
+      latestSnapshot = snapshot;
+      updateCanvas();
+    }
+  }
+
+  /**
+   * Update the canvas to visualize the latest snapshot of the simulation.
    */
   public void update() {
     if (canUpdateCanvas) {
@@ -866,7 +1077,8 @@ public class Canvas extends JPanel implements ComponentListener,
   }
 
   /**
-   * Update the canvas to visualize the current state of simulation.
+   * Update the canvas to visualize the latest snapshot of the simulation.
+   * The simulator itself is not accessed.
    */
   private synchronized void updateCanvas() {
     // reset the affine transform
@@ -875,41 +1087,37 @@ public class Canvas extends JPanel implements ComponentListener,
     paintEntireBuffer(displayBuffer, BACKGROUND_COLOR);
     // draw the map
     drawImageOnBuffer(displayBuffer, getMapImageTable(scaleIndex));
-    // Get the simulator
-    Simulator sim = viewer.getSimulator();
-    // if the simulator exists, draw the current view
-    if (sim != null) {
-      Collection<IntersectionManager> ims = sim.getMap().getIntersectionManagers();
+    // Get the latest snapshot
+    FrameSnapshot snapshot = latestSnapshot;
+    // if the snapshot exists, draw the current view
+    if (snapshot != null) {
       // draw the intersection managers' debug shapes
       if (isShowIMDebugShapes) {
-        for (IntersectionManager im : ims) {
-          drawIMDebugShapes(displayBuffer, im);
-        }
-      }
-      // draw the vehicles
-      for (VehicleSimView v : sim.getActiveVehicles()) {
-        drawVehicle(displayBuffer, v, sim.getSimulationTime());
+        drawIMDebugShapes(displayBuffer, snapshot.imDebugShapes);
       }
+      // draw the vehicles within view
+      cullVehicles(snapshot);
+      drawVehicles(displayBuffer, snapshot);
       // draw the traffic lights
-      for (IntersectionManager im : ims) {
-        drawTrafficLights(displayBuffer, im);
-      }
+      drawTrafficLights(displayBuffer, snapshot);
       // draw simulation time.
       if (isShowSimulationTime) {
-        drawSimulationTime(displayBuffer, sim.getSimulationTime());
+        drawSimulationTime(displayBuffer, snapshot.simulationTime);
       }
       // draw the debug points
-      drawDebugPoints(displayBuffer, Debug.getLongTermDebugPoints());
-      drawDebugPoints(displayBuffer, Debug.getShortTermDebugPoints());
+      drawDebugPoints(displayBuffer, snapshot.debugPoints);
       // draw tracks
       // drawTracks(displayBuffer);
       // lastly, draw the vehicles' information string
-      for (VehicleSimView v : sim.getActiveVehicles()) {
-        drawVehicleInfoString(displayBuffer, v, sim.getSimulationTime());
+      for (int k = 0; k < numOfVisibleVehicles; k++) {
+        drawVehicleInfoString(displayBuffer, snapshot, visibleVehicles[k]);
       }
+      drawnFrameNumber = snapshot.frameNumber;
       // Finally display the new image
       repaint();
-    } // else no simulator no drawing
+    } // else no snapshot no drawing
+    // no one draws any other snapshot at this point
+    isSnapshotRequested = true;
   }
 
   /**
@@ -943,57 +1151,138 @@ public class Canvas extends JPanel implements ComponentListener,
     buffer.setTransform(tf);
   }
 
+  /**
+   * Find the vehicles in a snapshot whose bounding boxes intersect the
+   * visible area of the map, i.e., the canvas under the inverse of the
+   * current affine transform.
+   *
+   * @param snapshot the snapshot
+   */
+  private void cullVehicles(FrameSnapshot snapshot) {
+    double scale = scaleTable[scaleIndex];
+    double minX = -posOfOriginX / scale;
+    double minY = -posOfOriginY / scale;
+    double maxX = (getWidth() - posOfOriginX) / scale;
+    double maxY = (getHeight() - posOfOriginY) / scale;
+    if (visibleVehicles.length < snapshot.numOfVehicles) {
+      visibleVehicles = new int[snapshot.vins.length];
+    }
+    double[] c = snapshot.cornerCoordinates;
+    int n = 0;
+    for (int i = 0; i < snapshot.numOfVehicles; i++) {
+      int j = 8 * i;
+      double x0 = Math.min(Math.min(c[j], c[j + 2]),
+                           Math.min(c[j + 4], c[j + 6]));
+      double x1 = Math.max(Math.max(c[j], c[j + 2]),
+                           Math.max(c[j + 4], c[j + 6]));
+      double y0 = Math.min(Math.min(c[j + 1], c[j + 3]),
+                           Math.min(c[j + 5], c[j + 7]));
+      double y1 = Math.max(Math.max(c[j + 1], c[j + 3]),
+                           Math.max(c[j + 5], c[j + 7]));
+      if (x1 >= minX && x0 <= maxX && y1 >= minY && y0 <= maxY) {
+        visibleVehicles[n++] = i;
+      }
+    }
+    numOfVisibleVehicles = n;
+  }
+
+  /**
+   * Draw the vehicles within view.  The vehicles of the same paint are
+   * drawn together as one path; if the map is zoomed out far enough, the
+   * vehicles are drawn as points.  The selected vehicle is drawn last, in
+   * full detail.
+   *
+   * @param buffer   the display buffer
+   * @param snapshot the snapshot
+   */
+  private void drawVehicles(Graphics2D buffer, FrameSnapshot snapshot) {
+    double scale = scaleTable[scaleIndex];
+    boolean isPoint = useVehicleLevelOfDetail && scale < VEHICLE_POINT_SCALE;
+    double h = VEHICLE_POINT_SIZE / scale / 2.0;
+    int targetVIN = Debug.getTargetVIN();
+    int selected = -1;
+    double[] c = snapshot.cornerCoordinates;
+    for (int k = 0; k < numOfVisibleVehicles; k++) {
+      int i = visibleVehicles[k];
+      if (snapshot.vins[i] == targetVIN) {
+        selected = i;
+        continue;
+      }
+      Path2D.Double path = vehiclePaths.get(snapshot.colors[i]);
+      if (path == null) {
+        path = new Path2D.Double();
+        vehiclePaths.put(snapshot.colors[i], path);
+      }
+      int j = 8 * i;
+      if (isPoint) {
+        double x = (c[j] + c[j + 2] + c[j + 4] + c[j + 6]) / 4.0;
+        double y = (c[j + 1] + c[j + 3] + c[j + 5] + c[j + 7]) / 4.0;
+        path.moveTo(x - h, y - h);
+        path.lineTo(x + h, y - h);
+        path.lineTo(x + h, y + h);
+        path.lineTo(x - h, y + h);
+      } else {
+        path.moveTo(c[j], c[j + 1]);
+        path.lineTo(c[j + 2], c[j + 3]);
+        path.lineTo(c[j + 4], c[j + 5]);
+        path.lineTo(c[j + 6], c[j + 7]);
+      }
+      path.closePath();
+    }
+    buffer.setStroke(VEHICLE_STROKE);
+    for (Iterator<Map.Entry<Color, Path2D.Double>> iter =
+        vehiclePaths.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry<Color, Path2D.Double> entry = iter.next();
+      Path2D.Double path = entry.getValue();
+      if (path.getCurrentPoint() == null) {
+        // no vehicle of this paint is within view
+        iter.remove();
+      } else {
+        buffer.setPaint(entry.getKey());
+        buffer.fill(path);
+        path.reset();
+      }
+    }
+    if (selected >= 0) {
+      drawVehicle(buffer, snapshot, selected);
+    }
+  }
+
   /**
    * Draw an individual Vehicle, and any associated debug information, if this
    * Vehicle is a debug Vehicle.
    *
-   * @param buffer      the display buffer
-   * @param vehicle     the Vehicle to draw now
-   * @param currentTime the current simulated time
+   * @param buffer   the display buffer
+   * @param snapshot the snapshot
+   * @param i        the index of the vehicle in the snapshot
    */
   private void drawVehicle(Graphics2D buffer,
-      VehicleSimView vehicle,
-      double currentTime) {
+      FrameSnapshot snapshot,
+      int i) {
     // whether the vehicle is selected
-    boolean selectedVehicle = (Debug.getTargetVIN() == vehicle.getVIN());
-    // check to see if we use another color
+    boolean selectedVehicle = (Debug.getTargetVIN() == snapshot.vins[i]);
     if (selectedVehicle) {
       buffer.setPaint(VEHICLE_SELECTED_COLOR);
-    } else if (vehicle.getVIN() == MARVIN_VEHICLE_VIN) {
-      buffer.setPaint(MARVIN_VEHICLE_COLOR);
-    } else if (Debug.getVehicleColor(vehicle.getVIN()) != null) {
-      buffer.setPaint(Debug.getVehicleColor(vehicle.getVIN()));
-    } else if (Debug.SHOW_VEHICLE_COLOR_BY_MSG_STATE) {
-      if (vehicle.getDriver() instanceof AutoDriver) {
-        AutoDriver autoDriver = (AutoDriver) vehicle.getDriver();
-        if (autoDriver.getCurrentCoordinator() instanceof V2ICoordinator) {
-          V2ICoordinator coordinator = (V2ICoordinator) autoDriver.getCurrentCoordinator();
-          if (coordinator.isAwaitingResponse()) {
-            buffer.setPaint(VEHICLE_WAITING_FOR_RESPONSE_COLOR);
-          } else if (coordinator.getReservationParameter() != null) {
-            buffer.setPaint(VEHICLE_HAS_RESERVATION_COLOR);
-          } else {
-            buffer.setPaint(VEHICLE_COLOR); // the default color
-          }
-        } else {
-          buffer.setPaint(VEHICLE_COLOR); // the default color
-        }
-      } else {
-        buffer.setPaint(VEHICLE_COLOR); // the default color
-      }
     } else {
-      buffer.setPaint(VEHICLE_COLOR); // the default color
+      buffer.setPaint(snapshot.colors[i]);
     }
-
     buffer.setStroke(VEHICLE_STROKE);
 
     // Now draw the vehicle's shape
-    buffer.fill(vehicle.getShape());
+    double[] c = snapshot.cornerCoordinates;
+    int j = 8 * i;
+    vehiclePath.reset();
+    vehiclePath.moveTo(c[j], c[j + 1]);
+    vehiclePath.lineTo(c[j + 2], c[j + 3]);
+    vehiclePath.lineTo(c[j + 4], c[j + 5]);
+    vehiclePath.lineTo(c[j + 6], c[j + 7]);
+    vehiclePath.closePath();
+    buffer.fill(vehiclePath);
     // Draw wheels and stuff if needed
-    if (selectedVehicle) {
+    if (selectedVehicle && snapshot.selectedWheelShapes != null) {
       buffer.setPaint(TIRE_COLOR);
       buffer.setStroke(TIRE_STROKE);
-      for (Shape wheel : vehicle.getWheelShapes()) {
+      for (Shape wheel : snapshot.selectedWheelShapes) {
         buffer.fill(wheel);
       }
     }
@@ -1002,121 +1291,45 @@ public class Canvas extends JPanel implements ComponentListener,
   /**
    * Draw the information string of the vehicle on screen
    *
-   * @param buffer      the display buffer
-   * @param vehicle     the vehicle
-   * @param currentTime the current simulated time
+   * @param buffer   the display buffer
+   * @param snapshot the snapshot
+   * @param i        the index of the vehicle in the snapshot
    */
   private void drawVehicleInfoString(Graphics2D buffer,
-      VehicleSimView vehicle,
-      double currentTime) {
-    List<String> infos = new LinkedList<String>();
-
+      FrameSnapshot snapshot,
+      int i) {
+    String info = snapshot.infoStrings[i];
     // display the vin
     if (isShowVin) {
-      infos.add(Integer.toString(vehicle.getVIN()));
-    }
-
-    if (vehicle instanceof AutoVehicleSimView
-        && vehicle.getDriver() instanceof AutoDriver) {
-      AutoDriver da = (AutoDriver) vehicle.getDriver();
-      if (da.getCurrentCoordinator() instanceof V2ICoordinator) {
-        V2ICoordinator coordinator = (V2ICoordinator) da.getCurrentCoordinator();
-
-        // display the arrival time of the request (if any)
-        if (Debug.SHOW_ARRIVAL_TIME) {
-          if (coordinator.isAwaitingResponse()
-              || coordinator.getReservationParameter() != null) {
-            V2IMessage msg = ((AutoVehicleSimView) vehicle).getLastV2IMessage();
-            if (msg instanceof Request) {
-              Request request = (Request) msg;
-              if (request.getProposals().size() > 0) {
-                // one arrival time is enough.
-                double arrival_time = request.getProposals().get(0).getArrivalTime();
-                infos.add(String.format("%.2f", arrival_time));
-              } else {
-                infos.add("No Proposals");
-              }
-            } // else ignore other types of messages
-          }
-        }
-
-        if (Debug.SHOW_REMAINING_ARRIVAL_TIME) {
-          if (coordinator.isAwaitingResponse()
-              || coordinator.getReservationParameter() != null) {
-            V2IMessage msg = ((AutoVehicleSimView) vehicle).getLastV2IMessage();
-            if (msg instanceof Request) {
-              Request request = (Request) msg;
-              if (request.getProposals().size() > 0) {
-                // one arrival time is enough.
-                double arrival_time = request.getProposals().get(0).getArrivalTime();
-                if (coordinator.getReservationParameter() == null
-                    || arrival_time - currentTime >= 0) {
-                  infos.add(String.format("%.2f", arrival_time - currentTime));
-                }
-              } else {
-                infos.add("No Proposals");
-              }
-            } // else ignore other types of messages
-          }
-        }
-      }
+      String vin = Integer.toString(snapshot.vins[i]);
+      info = (info == null) ? vin : vin + "," + info;
     }
 
-    if (infos.size() > 0) {
-      Point2D centerPoint = vehicle.getCenterPoint();
+    if (info != null) {
+      // the center point is the average of the corners
+      double[] c = snapshot.cornerCoordinates;
+      int j = 8 * i;
+      double x = (c[j] + c[j + 2] + c[j + 4] + c[j + 6]) / 4.0;
+      double y = (c[j + 1] + c[j + 3] + c[j + 5] + c[j + 7]) / 4.0;
       buffer.setColor(VEHICLE_INFO_STRING_COLOR);
       buffer.setFont(VEHICLE_INFO_STRING_FONT);
-      buffer.drawString(Util.concatenate(infos, ","),
-          (float) centerPoint.getX(),
-          (float) centerPoint.getY());
+      buffer.drawString(info, (float) x, (float) y);
     }
   }
 
   /**
    * Draw the current state of the lights for all IntersectionManagers.
    *
-   * @param buffer the display buffer
-   * @param im     the intersection manager whose traffic lights to draw
-   */
-  private void drawTrafficLights(Graphics2D buffer, IntersectionManager im) {
-    if (im instanceof V2IManager) {
-      Policy policy = ((V2IManager) im).getPolicy();
-      if (policy instanceof BasePolicy) {
-        BasePolicy basePolicy = (BasePolicy) policy;
-        if (basePolicy.getRequestHandler() instanceof TrafficSignalRequestHandler) {
-          TrafficSignalRequestHandler requestHandler = (TrafficSignalRequestHandler) basePolicy.getRequestHandler();
-          for (Lane entryLane : im.getIntersection().getEntryLanes()) {
-            switch (requestHandler.getSignal(entryLane.getId())) {
-              case GREEN:
-                buffer.setPaint(Color.GREEN);
-                break;
-              case YELLOW:
-                buffer.setPaint(Color.YELLOW);
-                break;
-              case RED:
-                buffer.setPaint(Color.RED);
-                break;
-              default:
-                throw new RuntimeException("Unknown traffic signals.\n");
-            }
-            // Now create the shape we will use to draw the light
-            // For some reason, Java's angles increase to the right instead of
-            // to the left
-            // TODO: cache it
-            Arc2D lightShape = new Arc2D.Double(im.getIntersection().getEntryPoint(entryLane).getX()
-                - TRAFFIC_LIGHT_RADIUS, // x
-                im.getIntersection().getEntryPoint(entryLane).getY()
-                    - TRAFFIC_LIGHT_RADIUS, // y
-                TRAFFIC_LIGHT_RADIUS * 2, // width
-                TRAFFIC_LIGHT_RADIUS * 2, // height
-                90 - // start
-                    Math.toDegrees(im.getIntersection().getEntryHeading(entryLane)),
-                180.0, // extent
-                Arc2D.PIE); // type
-            // Now draw it!
-            buffer.fill(lightShape);
-          }
-        }
+   * @param buffer   the display buffer
+   * @param snapshot the snapshot holding the colors of the lights
+   */
+  private void drawTrafficLights(Graphics2D buffer, FrameSnapshot snapshot) {
+    // the traffic lights may have been replaced since the snapshot is taken
+    List<TrafficLight> lights = trafficLights;
+    if (lights.size() == snapshot.trafficLightColors.length) {
+      for (int i = 0; i < lights.size(); i++) {
+        buffer.setPaint(snapshot.trafficLightColors[i]);
+        buffer.fill(lights.get(i).shape);
       }
     }
   }
@@ -1126,11 +1339,11 @@ public class Canvas extends JPanel implements ComponentListener,
    * are usually things like used tiles for a tile-based reservation policy,
    * current heuristic values and so forth.
    *
-   * @param buffer the display buffer
-   * @param im     the intersection manager whose debug shapes to draw
+   * @param buffer      the display buffer
+   * @param debugShapes the debug shapes of the intersection managers
    */
-  private void drawIMDebugShapes(Graphics2D buffer, IntersectionManager im) {
-    for (Shape s : im.getDebugShapes()) {
+  private void drawIMDebugShapes(Graphics2D buffer, List<Shape> debugShapes) {
+    for (Shape s : debugShapes) {
       buffer.setPaint(IM_DEBUG_SHAPE_COLOR);
       buffer.fill(s);
     }
@@ -1240,6 +1453,193 @@ public class Canvas extends JPanel implements ComponentListener,
     } while (pos.move(10.0) == 0);
   }
 
+  // snapshots
+
+  /**
+   * Find the traffic lights of a map.
+   *
+   * @param map the map
+   * @return the traffic lights
+   */
+  private List<TrafficLight> makeTrafficLights(BasicMap map) {
+    List<TrafficLight> lights = new ArrayList<TrafficLight>();
+    for (IntersectionManager im : map.getIntersectionManagers()) {
+      if (im instanceof V2IManager) {
+        Policy policy = ((V2IManager) im).getPolicy();
+        if (policy instanceof BasePolicy) {
+          BasePolicy basePolicy = (BasePolicy) policy;
+          if (basePolicy.getRequestHandler() instanceof TrafficSignalRequestHandler) {
+            TrafficSignalRequestHandler requestHandler = (TrafficSignalRequestHandler) basePolicy.getRequestHandler();
+            for (Lane entryLane : im.getIntersection().getEntryLanes()) {
+              // Now create the shape we will use to draw the light
+              // For some reason, Java's angles increase to the right instead
+              // of to the left
+              Point2D p = im.getIntersection().getEntryPoint(entryLane);
+              Arc2D lightShape = new Arc2D.Double(p.getX()
+                  - TRAFFIC_LIGHT_RADIUS, // x
+                  p.getY() - TRAFFIC_LIGHT_RADIUS, // y
+                  TRAFFIC_LIGHT_RADIUS * 2, // width
+                  TRAFFIC_LIGHT_RADIUS * 2, // height
+                  90 - // start
+                      Math.toDegrees(im.getIntersection().getEntryHeading(entryLane)),
+                  180.0, // extent
+                  Arc2D.PIE); // type
+              lights.add(new TrafficLight(requestHandler, entryLane.getId(),
+                  lightShape));
+            }
+          }
+        }
+      }
+    }
+    return lights;
+  }
+
+  /**
+   * Write the current state of the simulation into a snapshot.
+   *
+   * @param snapshot the snapshot
+   * @param sim      the simulator
+   */
+  private void writeSnapshot(FrameSnapshot snapshot, Simulator sim) {
+    Collection<? extends VehicleSimView> vehicles = sim.getActiveVehicles();
+    List<TrafficLight> lights = trafficLights;
+    double currentTime = sim.getSimulationTime();
+    snapshot.reset(vehicles.size(), lights.size());
+    snapshot.frameNumber = nextFrameNumber++;
+    snapshot.simulationTime = currentTime;
+    int targetVIN = Debug.getTargetVIN();
+    int n = 0;
+    for (VehicleSimView v : vehicles) {
+      snapshot.vins[n] = v.getVIN();
+      System.arraycopy(v.getCornerCoordinates(), 0,
+          snapshot.cornerCoordinates, 8 * n, 8);
+      snapshot.colors[n] = getVehicleColor(v);
+      snapshot.infoStrings[n] = getVehicleInfoString(v, currentTime);
+      if (v.getVIN() == targetVIN) {
+        snapshot.selectedWheelShapes = v.getWheelShapes();
+      }
+      n++;
+    }
+    snapshot.numOfVehicles = n;
+    for (int i = 0; i < lights.size(); i++) {
+      TrafficLight light = lights.get(i);
+      switch (light.requestHandler.getSignal(light.laneId)) {
+        case GREEN:
+          snapshot.trafficLightColors[i] = Color.GREEN;
+          break;
+        case YELLOW:
+          snapshot.trafficLightColors[i] = Color.YELLOW;
+          break;
+        case RED:
+          snapshot.trafficLightColors[i] = Color.RED;
+          break;
+        default:
+          throw new RuntimeException("Unknown traffic signals.\n");
+      }
+    }
+    if (isShowIMDebugShapes) {
+      for (IntersectionManager im : sim.getMap().getIntersectionManagers()) {
+        snapshot.imDebugShapes.addAll(im.getDebugShapes());
+      }
+    }
+    snapshot.debugPoints.addAll(Debug.getLongTermDebugPoints());
+    snapshot.debugPoints.addAll(Debug.getShortTermDebugPoints());
+  }
+
+  /**
+   * Get the color of a vehicle other than the color of selected vehicles,
+   * which is decided when the vehicle is drawn.
+   *
+   * @param vehicle the vehicle
+   * @return the color of the vehicle
+   */
+  private Color getVehicleColor(VehicleSimView vehicle) {
+    // check to see if we use another color
+    if (vehicle.getVIN() == MARVIN_VEHICLE_VIN) {
+      return MARVIN_VEHICLE_COLOR;
+    }
+    Color color = Debug.getVehicleColor(vehicle.getVIN());
+    if (color != null) {
+      return color;
+    } else if (Debug.SHOW_VEHICLE_COLOR_BY_MSG_STATE
+        && vehicle.getDriver() instanceof AutoDriver) {
+      AutoDriver autoDriver = (AutoDriver) vehicle.getDriver();
+      if (autoDriver.getCurrentCoordinator() instanceof V2ICoordinator) {
+        V2ICoordinator coordinator = (V2ICoordinator) autoDriver.getCurrentCoordinator();
+        if (coordinator.isAwaitingResponse()) {
+          return VEHICLE_WAITING_FOR_RESPONSE_COLOR;
+        } else if (coordinator.getReservationParameter() != null) {
+          return VEHICLE_HAS_RESERVATION_COLOR;
+        }
+      }
+    }
+    return VEHICLE_COLOR; // the default color
+  }
+
+  /**
+   * Get the information string of a vehicle other than its VIN.
+   *
+   * @param vehicle     the vehicle
+   * @param currentTime the current simulated time
+   * @return the information string; <code>null</code> if there is nothing
+   *         to show
+   */
+  private String getVehicleInfoString(VehicleSimView vehicle,
+      double currentTime) {
+    if (!Debug.SHOW_ARRIVAL_TIME && !Debug.SHOW_REMAINING_ARRIVAL_TIME) {
+      return null;
+    }
+    List<String> infos = new LinkedList<String>();
+
+    if (vehicle instanceof AutoVehicleSimView
+        && vehicle.getDriver() instanceof AutoDriver) {
+      AutoDriver da = (AutoDriver) vehicle.getDriver();
+      if (da.getCurrentCoordinator() instanceof V2ICoordinator) {
+        V2ICoordinator coordinator = (V2ICoordinator) da.getCurrentCoordinator();
+
+        // display the arrival time of the request (if any)
+        if (Debug.SHOW_ARRIVAL_TIME) {
+          if (coordinator.isAwaitingResponse()
+              || coordinator.getReservationParameter() != null) {
+            V2IMessage msg = ((AutoVehicleSimView) vehicle).getLastV2IMessage();
+            if (msg instanceof Request) {
+              Request request = (Request) msg;
+              if (request.getProposals().size() > 0) {
+                // one arrival time is enough.
+                double arrival_time = request.getProposals().get(0).getArrivalTime();
+                infos.add(String.format("%.2f", arrival_time));
+              } else {
+                infos.add("No Proposals");
+              }
+            } // else ignore other types of messages
+          }
+        }
+
+        if (Debug.SHOW_REMAINING_ARRIVAL_TIME) {
+          if (coordinator.isAwaitingResponse()
+              || coordinator.getReservationParameter() != null) {
+            V2IMessage msg = ((AutoVehicleSimView) vehicle).getLastV2IMessage();
+            if (msg instanceof Request) {
+              Request request = (Request) msg;
+              if (request.getProposals().size() > 0) {
+                // one arrival time is enough.
+                double arrival_time = request.getProposals().get(0).getArrivalTime();
+                if (coordinator.getReservationParameter() == null
+                    || arrival_time - currentTime >= 0) {
+                  infos.add(String.format("%.2f", arrival_time - currentTime));
+                }
+              } else {
+                infos.add("No Proposals");
+              }
+            } // else ignore other types of messages
+          }
+        }
+      }
+    }
+
+    return (infos.size() > 0) ? Util.concatenate(infos, ",") : null;
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -0,0 +1,156 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.gui;
+
+import java.awt.Color;
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.List;
+
+import aim4.config.DebugPoint;
+
+/**
+ * A snapshot of the state of the simulation that is drawn on one frame of
+ * the {@link Canvas}.  The vehicles are stored in primitive arrays that are
+ * reused from frame to frame.  The canvas keeps two snapshots: the
+ * simulation thread writes into the one that is not the latest, and then
+ * publishes it, so that a published snapshot is never modified while it is
+ * drawn.
+ */
+class FrameSnapshot {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The initial number of vehicles the arrays can hold */
+  private static final int INITIAL_CAPACITY = 256;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The number of the frame; later snapshots have larger numbers */
+  long frameNumber;
+
+  /** The simulation time */
+  double simulationTime;
+
+  /** The number of vehicles */
+  int numOfVehicles;
+
+  /** The VINs of the vehicles */
+  int[] vins;
+
+  /**
+   * The coordinates of the corners of the vehicles, eight per vehicle, in
+   * the order of {@link aim4.vehicle.VehicleSimView#getCornerCoordinates()}
+   */
+  double[] cornerCoordinates;
+
+  /** The colors of the vehicles */
+  Color[] colors;
+
+  /**
+   * The information strings of the vehicles other than the VINs;
+   * <code>null</code> if a vehicle has none
+   */
+  String[] infoStrings;
+
+  /** The wheels of the selected vehicle; <code>null</code> if none */
+  Shape[] selectedWheelShapes;
+
+  /** The colors of the traffic lights, in the order of the canvas */
+  Color[] trafficLightColors;
+
+  /** The debug shapes of the intersection managers */
+  final List<Shape> imDebugShapes = new ArrayList<Shape>();
+
+  /** The debug points */
+  final List<DebugPoint> debugPoints = new ArrayList<DebugPoint>();
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create an empty snapshot.
+   */
+  FrameSnapshot() {
+    frameNumber = -1;
+    simulationTime = 0.0;
+    numOfVehicles = 0;
+    allocate(INITIAL_CAPACITY);
+    selectedWheelShapes = null;
+    trafficLightColors = new Color[0];
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Clear the snapshot and make sure it can hold a given number of
+   * vehicles and traffic lights.
+   *
+   * @param numOfVehicles       the number of vehicles
+   * @param numOfTrafficLights  the number of traffic lights
+   */
+  void reset(int numOfVehicles, int numOfTrafficLights) {
+    if (vins.length < numOfVehicles) {
+      allocate(Math.max(numOfVehicles, 2 * vins.length));
+    }
+    if (trafficLightColors.length != numOfTrafficLights) {
+      trafficLightColors = new Color[numOfTrafficLights];
+    }
+    this.numOfVehicles = 0;
+    selectedWheelShapes = null;
+    imDebugShapes.clear();
+    debugPoints.clear();
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Allocate the arrays of the vehicles.
+   *
+   * @param capacity  the number of vehicles the arrays can hold
+   */
+  private void allocate(int capacity) {
+    vins = new int[capacity];
+    cornerCoordinates = new double[8 * capacity];
+    colors = new Color[capacity];
+    infoStrings = new String[capacity];
+  }
+
+}
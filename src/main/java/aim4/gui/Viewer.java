@@ -66,9 +66,7 @@ import aim4.im.IntersectionManager;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
 import aim4.sim.Simulator;
-import aim4.sim.UdpListener;
-import aim4.sim.AutoDriverOnlySimulator.AutoDriverOnlySimStepResult;
-import aim4.sim.Simulator.SimStepResult;
+import aim4.sim.NioUdpListener;
 import aim4.sim.setup.BasicSimSetup;
 import aim4.sim.setup.SimFactory;
 import aim4.sim.setup.SimSetup;
@@ -385,7 +383,7 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
   /** The simulation's thread */
   private SimThread simThread;
   /** UDP listener */
-  private UdpListener udpListener;
+  private NioUdpListener udpListener;
   /** The target simulation speed */
   private double targetSimSpeed;
   /** The target frame rate */
@@ -446,6 +444,8 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
   private JCheckBoxMenuItem showVinMenuItem;
   /** Menu item for controlling whether to show debug shapes */
   private JCheckBoxMenuItem showIMShapesMenuItem;
+  /** Menu item for controlling whether far vehicles are drawn as points */
+  private JCheckBoxMenuItem vehicleLevelOfDetailMenuItem;
   /** Menu item for toggling asphalt texture usage */
   private JCheckBoxMenuItem useAsphaltTextureMenuItem;
   /** Menu item for setting asphalt tile size in meters */
@@ -650,6 +650,11 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
     showIMShapesMenuItem = new JCheckBoxMenuItem("Show IM Shapes", false);
     showIMShapesMenuItem.addItemListener(this);
     menu.add(showIMShapesMenuItem);
+    // View->Draw Far Vehicles as Points
+    vehicleLevelOfDetailMenuItem =
+        new JCheckBoxMenuItem("Draw Far Vehicles as Points", true);
+    vehicleLevelOfDetailMenuItem.addItemListener(this);
+    menu.add(vehicleLevelOfDetailMenuItem);
 
     // View->Use Asphalt Texture
     useAsphaltTextureMenuItem = new JCheckBoxMenuItem("Use Asphalt Texture", true);
@@ -799,6 +804,10 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
     if (useAsphaltTextureMenuItem != null && canvas != null) {
       useAsphaltTextureMenuItem.setSelected(canvas.isUseAsphaltTexture());
     }
+    if (vehicleLevelOfDetailMenuItem != null && canvas != null) {
+      vehicleLevelOfDetailMenuItem.setSelected(
+          canvas.isUseVehicleLevelOfDetail());
+    }
   }
 
   /**
@@ -807,6 +816,8 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
   private void setSimStartGUIsetting() {
     canvasCardLayout.show(mainPanel, "CANVAS");
     canvas.initWithGivenMap(sim.getMap());
+    canvas.setFrameRate(targetFrameRate);
+    canvas.startRendering();
     statusPanel.init();
 
     // update the buttons
@@ -830,6 +841,7 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
    * Use the simulation reset GUI setting.
    */
   private void setSimResetGUIsetting() {
+    canvas.stopRendering();
     canvas.cleanUp();
     statusPanel.clear();
     resetButtonMenuItem();
@@ -904,6 +916,8 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
 
     // create the simulator
     sim = SimFactory.makeSimulator(initSimSetup);
+    // make the metrics of the simulator visible to JMX clients
+    sim.getMetrics().registerMBeans();
     // create the simulation thread
     createSimThread();
     // initialize the GUI
@@ -970,6 +984,7 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
       simThread.resume();
     }
     simThread = null;
+    sim.getMetrics().unregisterMBeans();
     sim = null;
 
     if (udpListener != null) {
@@ -1051,6 +1066,9 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
   public void setTargetFrameRate(double targetFrameRate) {
     this.targetFrameRate =
         Math.min(targetFrameRate, SimConfig.CYCLES_PER_SECOND);
+    if (canvas != null) {
+      canvas.setFrameRate(this.targetFrameRate);
+    }
 
     if (simThread != null) {
       if (simThread.isTurboMode()) {
@@ -1074,15 +1092,9 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
    */
   private void runSimulationStep() {
     Debug.clearShortTermDebugPoints();
-    SimStepResult simStepResult = sim.step(SimConfig.TIME_STEP);
-
-    if (simStepResult instanceof AutoDriverOnlySimStepResult) {
-      AutoDriverOnlySimStepResult simStepResult2 =
-          (AutoDriverOnlySimStepResult) simStepResult;
-      for (int vin : simStepResult2.getCompletedVINs()) {
-        Debug.removeVehicleColor(vin);
-      }
-    }
+    sim.step(SimConfig.TIME_STEP);
+    // hand a snapshot to the render thread if it is ready for one
+    canvas.publishSnapshot(sim);
   }
 
   /**
@@ -1134,7 +1146,11 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
    * Update the screen
    */
   private void updateScreen() {
-    canvas.update();
+    // the canvas is drawn by its own render thread, unless every frame must
+    // be drawn for the recording
+    if (recording && imageDir != null) {
+      canvas.updateNow(sim);
+    }
     statusPanel.update();
   }
 
@@ -1455,6 +1471,10 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
       boolean enabled = (e.getStateChange() == ItemEvent.SELECTED);
       canvas.setUseAsphaltTexture(enabled);
       canvas.update();
+    } else if (source == vehicleLevelOfDetailMenuItem) {
+      boolean enabled = (e.getStateChange() == ItemEvent.SELECTED);
+      canvas.setUseVehicleLevelOfDetail(enabled);
+      canvas.update();
     }
   }
 
@@ -1474,7 +1494,7 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
       }
 
       // create the UDP listener thread
-      udpListener = new UdpListener(sim);
+      udpListener = new NioUdpListener(sim);
       udpListener.start();
 
       if (udpListener.hasStarted()) {
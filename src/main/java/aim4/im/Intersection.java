@@ -39,6 +39,7 @@ import aim4.config.Constants.TurnDirection;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
 import aim4.map.track.WayPoint;
+import aim4.util.ConvexDecomposition;
 
 
 /**
@@ -61,6 +62,22 @@ public interface Intersection {
    */
   Area getAreaPlus();
 
+  /**
+   * Get the decomposition of the area controlled by this
+   * IntersectionManager into convex pieces.
+   *
+   * @return the convex decomposition of {@link #getArea()}
+   */
+  ConvexDecomposition getAreaDecomposition();
+
+  /**
+   * Get the decomposition of the area slightly larger than the area
+   * controlled by this IntersectionManager into convex pieces.
+   *
+   * @return the convex decomposition of {@link #getAreaPlus()}
+   */
+  ConvexDecomposition getAreaPlusDecomposition();
+
   /**
    * Get the centroid of the IntersectionManager.
    *
@@ -47,11 +47,12 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-import aim4.config.Debug;
 import aim4.config.Constants.TurnDirection;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
 import aim4.map.track.WayPoint;
+import aim4.sim.SimContext;
+import aim4.util.ConvexDecomposition;
 import aim4.util.GeomMath;
 import aim4.util.Util;
 
@@ -93,6 +94,16 @@ public class RoadBasedIntersection implements Intersection {
    */
   private Area areaPlus;
 
+  /**
+   * The convex decomposition of the area, for fast intersection tests.
+   */
+  private ConvexDecomposition areaDecomposition;
+
+  /**
+   * The convex decomposition of the area plus, for fast intersection tests.
+   */
+  private ConvexDecomposition areaPlusDecomposition;
+
   /**
    * The smallest rectangle that contains this intersection.
    */
@@ -194,6 +205,9 @@ public class RoadBasedIntersection implements Intersection {
     calcEdges();
     // Now build a GeneralPath using the waypoints.
     addWayPointsPath();
+    // Decompose the areas into convex pieces for fast intersection tests
+    areaDecomposition = new ConvexDecomposition(area);
+    areaPlusDecomposition = new ConvexDecomposition(areaPlus);
     // Calculate the bounding box
     boundingBox = area.getBounds2D();
 
@@ -485,6 +499,22 @@ public class RoadBasedIntersection implements Intersection {
     return areaPlus;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ConvexDecomposition getAreaDecomposition() {
+    return areaDecomposition;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ConvexDecomposition getAreaPlusDecomposition() {
+    return areaPlusDecomposition;
+  }
+
   /**
    * Get the centroid of the intersection manager.
    *
@@ -530,8 +560,8 @@ public class RoadBasedIntersection implements Intersection {
    */
   private void calcEntryRoads() {
     for(Lane lane : getEntryLanes()) {
-      if (!entryRoads.contains(Debug.currentMap.getRoad(lane))) {
-        entryRoads.add(Debug.currentMap.getRoad(lane));
+      if (!entryRoads.contains(SimContext.current().getMap().getRoad(lane))) {
+        entryRoads.add(SimContext.current().getMap().getRoad(lane));
       }
     }
   }
@@ -595,8 +625,8 @@ public class RoadBasedIntersection implements Intersection {
 
   private void calcExitRoads() {
     for(Lane lane : getExitLanes()) {
-      if (!exitRoads.contains(Debug.currentMap.getRoad(lane))) {
-        exitRoads.add(Debug.currentMap.getRoad(lane));
+      if (!exitRoads.contains(SimContext.current().getMap().getRoad(lane))) {
+        exitRoads.add(SimContext.current().getMap().getRoad(lane));
       }
     }
   }
@@ -655,8 +685,8 @@ public class RoadBasedIntersection implements Intersection {
    */
   @Override
   public TurnDirection calcTurnDirection(Lane currentLane, Lane departureLane) {
-    Road currentRoad = Debug.currentMap.getRoad(currentLane);
-    Road departureRoad = Debug.currentMap.getRoad(departureLane);
+    Road currentRoad = SimContext.current().getMap().getRoad(currentLane);
+    Road departureRoad = SimContext.current().getMap().getRoad(departureLane);
     if(departureRoad == currentRoad) {
       return TurnDirection.STRAIGHT;
     } else if(departureRoad == currentRoad.getDual()) {
@@ -37,14 +37,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
-import aim4.config.Debug;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
+import aim4.sim.SimContext;
 import aim4.util.GeomMath;
 
 
@@ -53,6 +53,19 @@ import aim4.util.GeomMath;
  */
 public class RoadBasedTrackModel implements TrackModel {
 
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** A comparator that orders Lanes by their IDs */
+  private static final Comparator<Lane> LANE_ID_COMPARATOR =
+    new Comparator<Lane>() {
+      @Override
+      public int compare(Lane l1, Lane l2) {
+        return Integer.compare(l1.getId(), l2.getId());
+      }
+    };
+
   /////////////////////////////////
   // NESTED CLASSES
   /////////////////////////////////
@@ -136,20 +149,49 @@ public class RoadBasedTrackModel implements TrackModel {
   private Map<Lane, Map<Road, List<Lane>>> lanePriorities =
     new HashMap<Lane, Map<Road, List<Lane>>>();
 
+
+  /**
+   * The lanes that enter the intersection, ordered by their IDs.  The index
+   * of a lane in this list is its entry index.
+   */
+  private List<Lane> entryLanes;
+
+  /**
+   * The lanes that exit the intersection, ordered by their IDs.  The index
+   * of a lane in this list is its exit index.
+   */
+  private List<Lane> exitLanes;
+
+  /**
+   * The entry indices of the lanes, indexed by the lane IDs; -1 for lanes
+   * that do not enter the intersection.
+   */
+  private int[] entryIndices;
+
+  /**
+   * The exit indices of the lanes, indexed by the lane IDs; -1 for lanes
+   * that do not exit the intersection.
+   */
+  private int[] exitIndices;
+
   /**
-   * Memoization cache for {@link #traversalDistance(Road arrival, Road
-   * departure)}.
+   * The distances from the entry of the arrival lanes to the exit of the
+   * departure lanes, indexed by the IDs of the movements.
    */
-  private Map<List<Integer>, Double> memoTraversalDistance =
-    new HashMap<List<Integer>, Double>();
+  private double[] traversalDistances;
 
-  // TODO: remove this variable
   /**
-   * A set of 4-tuples of lanes IDs such that if the tuple
-   * <i>(l1, l2, l3, l4)</i> is in the set, the track from lane <i>l1</i> to
-   * lane </i>l2</i> conflicts with the track from lane <i>l3</i> to <i>l4</i>.
+   * The number of longs in a row of {@link #laneConflicts}.
    */
-  private Set<List<Integer>> laneConflicts = new HashSet<List<Integer>>();
+  private int wordsPerRow;
+
+  /**
+   * The conflict matrix of the movements.  The bit of movement <i>m2</i> in
+   * the row of movement <i>m1</i> is set if the track of movement <i>m1</i>
+   * conflicts with the track of movement <i>m2</i>.  Each row starts at a
+   * new long, so that the rows can be filled in parallel.
+   */
+  private long[] laneConflicts;
 
 
   /////////////////////////////////
@@ -166,7 +208,9 @@ public class RoadBasedTrackModel implements TrackModel {
     this.intersection = intersection ;
     // Determine the priorities for exit lanes
     calculateLanePriorities();
-    calculateLaneConflicts(); // TODO remove this function
+    calculateMovementIds();
+    calculateTraversalDistances();
+    calculateLaneConflicts();
   }
 
   /////////////////////////////////
@@ -264,51 +308,133 @@ public class RoadBasedTrackModel implements TrackModel {
   }
 
 
-  //TODO remove this function
   /**
-   * For all pairs of trajectories (4-tuples of Lanes), find the ones
-   * that conflict and add them to <code>laneConflicts</code>. Assumes
-   * that Lanes are linear within the intersection.
+   * Number the lanes that enter and exit the intersection, which gives each
+   * movement through the intersection a dense ID (see
+   * {@link #getMovementId(int, int)}).
+   */
+  private void calculateMovementIds() {
+    entryLanes = intersection.getEntryLanes();
+    Collections.sort(entryLanes, LANE_ID_COMPARATOR);
+    exitLanes = intersection.getExitLanes();
+    Collections.sort(exitLanes, LANE_ID_COMPARATOR);
+
+    int maxId = -1;
+    for(Lane lane : entryLanes) {
+      maxId = Math.max(maxId, lane.getId());
+    }
+    for(Lane lane : exitLanes) {
+      maxId = Math.max(maxId, lane.getId());
+    }
+    entryIndices = new int[maxId + 1];
+    exitIndices = new int[maxId + 1];
+    Arrays.fill(entryIndices, -1);
+    Arrays.fill(exitIndices, -1);
+    for(int i = 0; i < entryLanes.size(); i++) {
+      entryIndices[entryLanes.get(i).getId()] = i;
+    }
+    for(int i = 0; i < exitLanes.size(); i++) {
+      exitIndices[exitLanes.get(i).getId()] = i;
+    }
+  }
+
+  /**
+   * Calculate the traversal distance of each movement.
+   */
+  private void calculateTraversalDistances() {
+    traversalDistances = new double[entryLanes.size() * exitLanes.size()];
+    int m = 0;
+    for(Lane entryLane : entryLanes) {
+      for(Lane exitLane : exitLanes) {
+        traversalDistances[m++] = calculateTraversalDistance(entryLane,
+                                                             exitLane);
+      }
+    }
+  }
+
+  /**
+   * Calculate the distance from the entry of the given Lane, to the
+   * departure of the other given Lane, if traveling along segments through
+   * their point of intersection.
+   *
+   * @param arrival   the arrival Lane
+   * @param departure the departure Lane
+   * @return          the distance from the entry of the arrival Lane to the
+   *                  exit of the departure Lane through their intersection
+   */
+  private double calculateTraversalDistance(Lane arrival, Lane departure) {
+    double totalDistance = 0;
+    // Add up the length of the segments
+    for(Line2D line : inIntersectionSegments(arrival, departure)) {
+      totalDistance += line.getP1().distance(line.getP2());
+    }
+    return totalDistance;
+  }
+
+  /**
+   * For all pairs of movements, find the ones whose tracks conflict and set
+   * their bits in <code>laneConflicts</code>.  Assumes that Lanes are linear
+   * within the intersection.
    */
   private void calculateLaneConflicts() {
-    // N^4: blech!
-    for(Lane l11: intersection.getEntryLanes()) {
-      for(Lane l12: intersection.getExitLanes()) {
-        // Find the line segments that represent the track
-        List<Line2D> l1Segments = inIntersectionSegments(l11, l12);
-        for(Lane l21: intersection.getEntryLanes()) {
-          for(Lane l22: intersection.getExitLanes()) {
-            // If the start or end lanes are the same, that's an automatic
-            // conflict
-            if(l11 == l21 || l12 == l22) {
-              // Construct the key from the IDs of the various lanes
-              List<Integer> key = Arrays.asList(l11.getId(), l12.getId(),
-                                                l21.getId(), l22.getId());
-              laneConflicts.add(key);
-            } else {
-              // Find the line segments that represent the track
-              List<Line2D> l2Segments = inIntersectionSegments(l21, l22);
-              // Now, if any of the l1 segments intersect any of the l2
-              // segments, there is a conflict.
-              findConflict: for(Line2D l1Seg: l1Segments) {
-                for(Line2D l2Seg: l2Segments) {
-                  if(l1Seg.intersectsLine(l2Seg)) {
-                    // Construct the key from the IDs of the various lanes
-                    List<Integer> key = Arrays.asList(l11.getId(),
-                                                      l12.getId(),
-                                                      l21.getId(),
-                                                      l22.getId());
-                    laneConflicts.add(key);
-                    break findConflict;  // No need to keep calculating
-                  }
+    int numOfMovements = entryLanes.size() * exitLanes.size();
+    // Find the line segments that represent the track of each movement
+    List<List<Line2D>> segments = new ArrayList<List<Line2D>>(numOfMovements);
+    for(Lane entryLane : entryLanes) {
+      for(Lane exitLane : exitLanes) {
+        segments.add(inIntersectionSegments(entryLane, exitLane));
+      }
+    }
+    wordsPerRow = (numOfMovements + 63) >>> 6;
+    laneConflicts = new long[numOfMovements * wordsPerRow];
+    fillLaneConflicts(segments, exitLanes.size(), wordsPerRow, laneConflicts);
+  }
+
+  /**
+   * Set the bits of the pairs of conflicting movements in a conflict
+   * matrix.  The rows of the matrix are filled in parallel.
+   *
+   * @param segments        the line segments of the track of each movement
+   * @param numOfExitLanes  the number of exit lanes
+   * @param wordsPerRow     the number of words per row of the matrix
+   * @param laneConflicts   the conflict matrix
+   */
+  private static void fillLaneConflicts(final List<List<Line2D>> segments,
+                                        final int numOfExitLanes,
+                                        final int wordsPerRow,
+                                        final long[] laneConflicts) {
+    final int numOfMovements = segments.size();
+    IntStream.range(0, numOfMovements).parallel().forEach(new IntConsumer() {
+      @Override
+      public void accept(int m1) {
+        int row = m1 * wordsPerRow;
+        int entry1 = m1 / numOfExitLanes;
+        int exit1 = m1 % numOfExitLanes;
+        for(int m2 = 0; m2 < numOfMovements; m2++) {
+          boolean isConflict;
+          // If the start or end lanes are the same, that's an automatic
+          // conflict
+          if(entry1 == m2 / numOfExitLanes || exit1 == m2 % numOfExitLanes) {
+            isConflict = true;
+          } else {
+            // Now, if any of the segments of the first track intersect any of
+            // the segments of the second track, there is a conflict.
+            isConflict = false;
+            findConflict: for(Line2D l1Seg: segments.get(m1)) {
+              for(Line2D l2Seg: segments.get(m2)) {
+                if(l1Seg.intersectsLine(l2Seg)) {
+                  isConflict = true;
+                  break findConflict;  // No need to keep calculating
                 }
               }
             }
-
+          }
+          if(isConflict) {
+            laneConflicts[row + (m2 >>> 6)] |= 1L << m2;
           }
         }
       }
-    }
+    });
   }
 
   /////////////////////////////////
@@ -342,7 +468,50 @@ public class RoadBasedTrackModel implements TrackModel {
   }
 
 
-  // TODO: remove this function
+  /**
+   * Get the number of movements through the intersection, that is, the
+   * number of pairs of an entry lane and an exit lane.
+   *
+   * @return the number of movements through the intersection
+   */
+  public int getNumOfMovements() {
+    return entryLanes.size() * exitLanes.size();
+  }
+
+  /**
+   * Get the dense ID of the movement from an arrival lane to a departure
+   * lane.  The IDs range from 0 to {@link #getNumOfMovements()} - 1, so they
+   * can index arrays.
+   *
+   * @param arrivalID    the ID number of the lane entering the intersection
+   * @param departureID  the ID number of the lane exiting the intersection
+   * @return the ID of the movement; -1 if the arrival lane does not enter
+   *         or the departure lane does not exit the intersection
+   */
+  public int getMovementId(int arrivalID, int departureID) {
+    if(arrivalID < 0 || arrivalID >= entryIndices.length
+       || departureID < 0 || departureID >= exitIndices.length) {
+      return -1;
+    }
+    int entry = entryIndices[arrivalID];
+    int exit = exitIndices[departureID];
+    if(entry < 0 || exit < 0) {
+      return -1;
+    }
+    return entry * exitLanes.size() + exit;
+  }
+
+  /**
+   * Determine whether the tracks of two movements conflict.
+   *
+   * @param m1  the ID of the first movement
+   * @param m2  the ID of the second movement
+   * @return    whether the tracks of the movements conflict
+   */
+  public boolean movementsConflict(int m1, int m2) {
+    return (laneConflicts[m1 * wordsPerRow + (m2 >>> 6)] & (1L << m2)) != 0;
+  }
+
   /**
    * Determine whether two trajectories overlap.  Errs on the side of caution.
    *
@@ -354,8 +523,9 @@ public class RoadBasedTrackModel implements TrackModel {
    */
   @Override
   public boolean trajectoriesConflict(int l11, int l12, int l21, int l22) {
-    List<Integer> lookupKey = Arrays.asList(l11, l12, l21, l22);
-    return laneConflicts.contains(lookupKey);
+    int m1 = getMovementId(l11, l12);
+    int m2 = getMovementId(l21, l22);
+    return m1 >= 0 && m2 >= 0 && movementsConflict(m1, m2);
   }
 
 
@@ -386,19 +556,12 @@ public class RoadBasedTrackModel implements TrackModel {
    */
   @Override
   public double traversalDistance(Lane arrival, Lane departure) {
-    List<Integer> key = Arrays.asList(arrival.getId(),
-                                      departure.getId());
-    if(!memoTraversalDistance.containsKey(key)) {
-      double totalDistance = 0;
-      List<Line2D> segments =
-        inIntersectionSegments(arrival, departure);
-      // Add up the length of the segments
-      for(Line2D line : segments) {
-        totalDistance += line.getP1().distance(line.getP2());
-      }
-      memoTraversalDistance.put(key, totalDistance);
+    int m = getMovementId(arrival.getId(), departure.getId());
+    if(m >= 0) {
+      return traversalDistances[m];
+    } else {
+      return calculateTraversalDistance(arrival, departure);
     }
-    return memoTraversalDistance.get(key);
   }
 
   /**
@@ -413,9 +576,8 @@ public class RoadBasedTrackModel implements TrackModel {
    */
   @Override
   public double traversalDistance(int arrivalID, int departureID) {
-    List<Integer> key = Arrays.asList(arrivalID, departureID);
-    Lane arrival = Debug.currentMap.getLaneRegistry().get(arrivalID);
-    Lane departure = Debug.currentMap.getLaneRegistry().get(departureID);
+    Lane arrival = SimContext.current().getMap().getLaneRegistry().get(arrivalID);
+    Lane departure = SimContext.current().getMap().getLaneRegistry().get(departureID);
     return traversalDistance(arrival, departure);
   }
 
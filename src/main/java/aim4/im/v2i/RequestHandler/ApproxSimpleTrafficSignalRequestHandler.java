@@ -30,7 +30,6 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im.v2i.RequestHandler;
 
-import aim4.config.Debug;
 import aim4.config.TrafficSignal;
 import java.util.List;
 
@@ -41,6 +40,7 @@ import aim4.im.v2i.policy.BasePolicy.ReserveParam;
 import aim4.map.Road;
 import aim4.msg.i2v.Reject;
 import aim4.msg.v2i.Request;
+import aim4.sim.SimContext;
 import aim4.sim.StatCollector;
 
 /**
@@ -178,7 +178,7 @@ public class ApproxSimpleTrafficSignalRequestHandler implements
    */
   @Override
   public TrafficSignal getSignal(int laneId) {
-    Road road = Debug.currentMap.getRoad(laneId);
+    Road road = SimContext.current().getMap().getRoad(laneId);
 
     double period = greenLightDuration + yellowLightDuration;
     int id = (int) Math.floor(basePolicy.getCurrentTime() / period);
@@ -224,7 +224,7 @@ public class ApproxSimpleTrafficSignalRequestHandler implements
    * @return whether the vehicle can enter the intersection
    */
   private boolean canEnterFromLane(int laneId) {
-    Road road = Debug.currentMap.getRoad(laneId);
+    Road road = SimContext.current().getMap().getRoad(laneId);
 
     double period = greenLightDuration + yellowLightDuration;
     int id = (int) Math.floor(basePolicy.getCurrentTime() / period);
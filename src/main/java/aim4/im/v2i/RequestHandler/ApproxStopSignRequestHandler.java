@@ -33,7 +33,6 @@ package aim4.im.v2i.RequestHandler;
 import java.util.Iterator;
 import java.util.List;
 
-import aim4.config.Debug;
 import aim4.im.v2i.policy.BasePolicy;
 import aim4.im.v2i.policy.BasePolicyCallback;
 import aim4.im.v2i.policy.ExtendedBasePolicyCallback;
@@ -42,6 +41,7 @@ import aim4.im.v2i.policy.BasePolicy.ReserveParam;
 import aim4.map.Road;
 import aim4.msg.i2v.Reject;
 import aim4.msg.v2i.Request;
+import aim4.sim.SimContext;
 import aim4.sim.StatCollector;
 
 /**
@@ -213,7 +213,7 @@ public class ApproxStopSignRequestHandler implements RequestHandler {
    * @return whether the vehicle can enter the intersection
    */
   private boolean canEnterFromLane(int laneId) {
-    Road road = Debug.currentMap.getRoad(laneId);
+    Road road = SimContext.current().getMap().getRoad(laneId);
     String roadName = road.getName();
 
     if (nextRoadName != null) {
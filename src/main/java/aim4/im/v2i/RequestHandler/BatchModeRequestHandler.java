@@ -34,10 +34,11 @@ import java.awt.Color;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeSet;
@@ -327,6 +328,12 @@ public class BatchModeRequestHandler implements RequestHandler {
    */
   private NavigableSet<IndexedProposal> queue;
 
+  /**
+   * The groups of indexed proposals in the queue, indexed by the VINs of
+   * the vehicles that sent the request messages.
+   */
+  private Map<Integer,List<IndexedProposal>> vinToProposalGroup;
+
   /**
    * The time at which the proposals in the next batch will be processed.
    */
@@ -377,6 +384,7 @@ public class BatchModeRequestHandler implements RequestHandler {
                                  RequestStatCollector requestSC) {
     this.reorderingStrategy = reorderingStrategy;
     this.queue = new TreeSet<IndexedProposal>();
+    this.vinToProposalGroup = new HashMap<Integer,List<IndexedProposal>>();
     this.requestSC = requestSC;
     nextIndexedProposalId = 0;
   }
@@ -552,17 +560,19 @@ public class BatchModeRequestHandler implements RequestHandler {
       // Remove a set of indexed proposals (including the given one)
       // from the queue.
       for(IndexedProposal iProposal2 : iProposal.getProposalGroup()) {
-        queue.remove(iProposal2); // efficient enough since queue is a TreeSet.
+        removeFromQueue(iProposal2);
       }
+      removeProposalGroup(msg.getVin(), iProposal.getProposalGroup());
     } else {
       // remove the indexed proposal from the queue.
-      queue.remove(iProposal);
+      removeFromQueue(iProposal);
       // shrink the proposal group
       List<IndexedProposal> ipGroup = iProposal.getProposalGroup();
       if (ipGroup.remove(iProposal)) {
         // if the proposal group is empty, no proposal left for the request
         // message and need to send the reject message.
         if (ipGroup.isEmpty()) {
+          removeProposalGroup(msg.getVin(), ipGroup);
           basePolicy.sendRejectMsg(msg.getVin(),
                                    msg.getRequestId(),
                                    Reason.NO_CLEAR_PATH);
@@ -584,11 +594,10 @@ public class BatchModeRequestHandler implements RequestHandler {
    * @param iProposal  the indexed proposal
    */
   private void tryReserveForProposalsBeforeTime(double time) {
-    Iterator<IndexedProposal> iter = queue.iterator();
-    while(iter.hasNext()) {
-      IndexedProposal iProposal = iter.next();
+    while(!queue.isEmpty()) {
+      IndexedProposal iProposal = queue.first();
       if (iProposal.getProposal().getArrivalTime() < time) {
-        iter.remove(); // remove the proposal from the queue.
+        removeFromQueue(iProposal);
         tryReserve(iProposal);
       } else {
         // the remaining proposals in the queue have a larger arrival time
@@ -597,6 +606,44 @@ public class BatchModeRequestHandler implements RequestHandler {
     }
   }
 
+  /**
+   * Add an indexed proposal to the queue and to the index of the reordering
+   * strategy.
+   *
+   * @param iProposal  the indexed proposal
+   */
+  private void addToQueue(IndexedProposal iProposal) {
+    if (queue.add(iProposal)) { // TreeSet will sort the IP automatically.
+      reorderingStrategy.proposalAdded(iProposal);
+    }
+  }
+
+  /**
+   * Remove an indexed proposal from the queue and from the index of the
+   * reordering strategy.
+   *
+   * @param iProposal  the indexed proposal
+   */
+  private void removeFromQueue(IndexedProposal iProposal) {
+    if (queue.remove(iProposal)) { // efficient enough since queue is a TreeSet.
+      reorderingStrategy.proposalRemoved(iProposal);
+    }
+  }
+
+  /**
+   * Remove a group of indexed proposals from the index of the groups by VIN,
+   * unless the vehicle has sent another request message since then.
+   *
+   * @param vin            the vehicle ID
+   * @param proposalGroup  the group of indexed proposals
+   */
+  private void removeProposalGroup(int vin,
+                                   List<IndexedProposal> proposalGroup) {
+    if (vinToProposalGroup.get(vin) == proposalGroup) {
+      vinToProposalGroup.remove(vin);
+    }
+  }
+
 
   /////////////////////////////////
   // PRIVATE METHODS
@@ -610,19 +657,13 @@ public class BatchModeRequestHandler implements RequestHandler {
    * @param vin  the vehicle ID
    */
   private void removeProposalsByVIN(int vin) {
-    // search for the first indexed proposal with the given vin.
-    // TODO: maybe able to make it runs faster
-    IndexedProposal selectedIndexedProposal = null;
-    for(IndexedProposal iProposal : queue) {
-      if (iProposal.getRequest().getVin() == vin) {
-        selectedIndexedProposal = iProposal;
-      }
-    }
+    // look up the indexed proposal group of the vehicle.
+    List<IndexedProposal> proposalGroup = vinToProposalGroup.remove(vin);
 
-    // remove the indexed proposal in the indexed proposal group.
-    if (selectedIndexedProposal != null) {
-      for(IndexedProposal ip : selectedIndexedProposal.getProposalGroup()) {
-        queue.remove(ip); // efficient enough since queue is a TreeSet.
+    // remove the indexed proposals in the indexed proposal group.
+    if (proposalGroup != null) {
+      for(IndexedProposal ip : proposalGroup) {
+        removeFromQueue(ip);
       }
     }
   }
@@ -667,9 +708,12 @@ public class BatchModeRequestHandler implements RequestHandler {
                               currentTime); // the subsmission time
         nextIndexedProposalId++;
         proposalGroup.add(iProposal);
-        queue.add(iProposal); // TreeSet will sort the IP automatically.
+        addToQueue(iProposal);
       }
     }
+    if (!proposalGroup.isEmpty()) {
+      vinToProposalGroup.put(msg.getVin(), proposalGroup);
+    }
   }
 
 
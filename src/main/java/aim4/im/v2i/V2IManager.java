@@ -116,6 +116,18 @@ public class V2IManager extends IntersectionManager
   private int bitsReceived;
   /** The number of bits this IntersectionManager has transmitted. */
   private int bitsTransmitted;
+  /**
+   * The number of request messages this IntersectionManager has received.
+   * It is volatile since the metrics of the simulator may be read by
+   * another thread.
+   */
+  private volatile long numOfRequestsReceived;
+  /**
+   * The number of reject messages this IntersectionManager has sent.
+   * It is volatile since the metrics of the simulator may be read by
+   * another thread.
+   */
+  private volatile long numOfRejectsSent;
 
 
   // intersection
@@ -175,7 +187,8 @@ public class V2IManager extends IntersectionManager
                                    config.getGranularity());
     this.reservationGrid = new ReservationGrid(tiledArea.getXNum(),
                                                tiledArea.getYNum(),
-                                               config.getGridTimeStep());
+                                               config.getGridTimeStep(),
+                                               config.getIsRingBufferEnabled());
     this.reservationGridManager = new ReservationGridManager(config,
                                                              intersection,
                                                              tiledArea,
@@ -307,6 +320,9 @@ public class V2IManager extends IntersectionManager
     inbox.add(msg);
     // And count the bits.
     bitsReceived += msg.getSize();
+    if (msg.getMessageType() == V2IMessage.Type.REQUEST) {
+      numOfRequestsReceived++;
+    }
   }
 
   /**
@@ -327,6 +343,26 @@ public class V2IManager extends IntersectionManager
     return bitsTransmitted;
   }
 
+  /**
+   * Get the number of request messages this IntersectionManager has
+   * received.
+   *
+   * @return the number of request messages this IntersectionManager has
+   *         received
+   */
+  public long getNumOfRequestsReceived() {
+    return numOfRequestsReceived;
+  }
+
+  /**
+   * Get the number of reject messages this IntersectionManager has sent.
+   *
+   * @return the number of reject messages this IntersectionManager has sent
+   */
+  public long getNumOfRejectsSent() {
+    return numOfRejectsSent;
+  }
+
 
   /////////////////////////////////
   // PUBLIC METHODS
@@ -389,6 +425,9 @@ public class V2IManager extends IntersectionManager
     }
     outbox.add(msg);
     bitsTransmitted += msg.getSize();
+    if (msg.getMessageType() == I2VMessage.Type.REJECT) {
+      numOfRejectsSent++;
+    }
   }
 
 
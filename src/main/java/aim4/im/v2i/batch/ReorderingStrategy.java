@@ -48,6 +48,22 @@ public interface ReorderingStrategy {
    */
   void setInitialTime(double initTime);
 
+  /**
+   * Notify the strategy that an indexed proposal has been added to the
+   * queue, so that the strategy can index it.
+   *
+   * @param iProposal  the indexed proposal
+   */
+  void proposalAdded(IndexedProposal iProposal);
+
+  /**
+   * Notify the strategy that an indexed proposal has been removed from the
+   * queue.
+   *
+   * @param iProposal  the indexed proposal
+   */
+  void proposalRemoved(IndexedProposal iProposal);
+
   /**
    * Select a subset of indexed proposals from the queue and sort them in a
    * particular order such that they will be processed in that order.
@@ -30,17 +30,18 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im.v2i.batch;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
+import java.util.TreeSet;
 
-import aim4.config.Debug;
 import aim4.im.TrackModel;
 import aim4.im.v2i.RequestHandler.BatchModeRequestHandler.IndexedProposal;
 import aim4.map.Road;
 import aim4.msg.v2i.Request.Proposal;
+import aim4.sim.SimContext;
 
 /**
  * The road-based reorder strategy.
@@ -95,6 +96,14 @@ public class RoadBasedReordering implements ReorderingStrategy {
    */
   private double processingInterval = DEFAULT_PROCESSING_INTERVAL;
 
+  /**
+   * The indexed proposals in the queue, partitioned according to the road
+   * of the arrival lane.  The proposals of each road are sorted in the
+   * order of the queue.
+   */
+  private Map<Road,NavigableSet<IndexedProposal>> partition =
+    new LinkedHashMap<Road,NavigableSet<IndexedProposal>>();
+
 
   /////////////////////////////////
   // CONSTRUCTORS
@@ -122,25 +131,50 @@ public class RoadBasedReordering implements ReorderingStrategy {
     nextProposalDeadline = nextProcessingTime + COMP_COMM_DELAY;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void proposalAdded(IndexedProposal iProposal) {
+    Road road = getArrivalRoad(iProposal);
+    NavigableSet<IndexedProposal> proposals = partition.get(road);
+    if (proposals == null) {
+      proposals = new TreeSet<IndexedProposal>();
+      partition.put(road, proposals);
+    }
+    proposals.add(iProposal);
+  }
 
-  /////////////////////////////////
-  // PUBLIC METHODS
-  /////////////////////////////////
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void proposalRemoved(IndexedProposal iProposal) {
+    NavigableSet<IndexedProposal> proposals =
+      partition.get(getArrivalRoad(iProposal));
+    if (proposals != null) {
+      proposals.remove(iProposal);
+    }
+  }
 
   /**
    * {@inheritDoc}
+   *
+   * <p>The proposals are taken from the partition of the queue maintained
+   * by {@link #proposalAdded(IndexedProposal)} and
+   * {@link #proposalRemoved(IndexedProposal)}, so the queue itself is not
+   * scanned.</p>
    */
   @Override
   public List<IndexedProposal> getBatch(double currentTime,
                                         NavigableSet<IndexedProposal> queue,
                                         TrackModel trackModel) {
 
-    List<IndexedProposal> proposals1 = selectProposals(currentTime, queue);
-    List<IndexedProposal> proposals2 = reorderProposals(proposals1);
+    List<IndexedProposal> proposals = selectProposals(currentTime);
 
     nextProcessingTime = currentTime + processingInterval;
     nextProposalDeadline = nextProcessingTime + COMP_COMM_DELAY;
-    return proposals2;
+    return proposals;
   }
 
   /**
@@ -164,28 +198,28 @@ public class RoadBasedReordering implements ReorderingStrategy {
   /////////////////////////////////
 
   /**
-   * Select the set of proposals in a batch.
+   * Select the set of proposals in a batch, grouped according to the road
+   * of the arrival lane.
    *
    * @param currentTime  the current time
-   * @param queue        the message queue
    * @return the set of proposals in a batch
    */
-  private List<IndexedProposal> selectProposals(
-                                  double currentTime,
-                                  NavigableSet<IndexedProposal> queue) {
-    List<IndexedProposal> result = new LinkedList<IndexedProposal>();
+  private List<IndexedProposal> selectProposals(double currentTime) {
+    List<IndexedProposal> result = new ArrayList<IndexedProposal>();
 
     double startTime = currentTime + LOOKAHEAD_TIME;
     double endTime = startTime + BATCH_INTERVAL;
 
-    for(IndexedProposal iProposal : queue) {
-      Proposal proposal = iProposal.getProposal();
-      double arrivalTime = proposal.getArrivalTime();
-      if (arrivalTime < endTime) {    // exclude the arrivalTime == maxTime
-        result.add(iProposal);
-      } else {
-        // the remaining proposals in the queue have a larger arrival time
-        break;
+    for(NavigableSet<IndexedProposal> proposals : partition.values()) {
+      for(IndexedProposal iProposal : proposals) {
+        Proposal proposal = iProposal.getProposal();
+        double arrivalTime = proposal.getArrivalTime();
+        if (arrivalTime < endTime) {    // exclude the arrivalTime == maxTime
+          result.add(iProposal);
+        } else {
+          // the remaining proposals of the road have a larger arrival time
+          break;
+        }
       }
     }
 
@@ -193,38 +227,14 @@ public class RoadBasedReordering implements ReorderingStrategy {
   }
 
   /**
-   * Reorder a list of indexed proposals.
+   * Get the road of the arrival lane of an indexed proposal.
    *
-   * @param iProposals a list of indexed proposals
-   * @return a reordered list of indexed proposals
-   */
-  private List<IndexedProposal> reorderProposals(
-                                             List<IndexedProposal> iProposals) {
-    // a partition of the proposals according to the road of the arrival lane.
-    Map<Road,List<IndexedProposal>> partition =
-      new HashMap<Road,List<IndexedProposal>>();
-
-    for(IndexedProposal iProposal : iProposals) {
-      int laneId = iProposal.getProposal().getArrivalLaneID();
-      Road road = Debug.currentMap.getRoad(laneId);
-      if (partition.containsKey(road)) {
-        partition.get(road).add(iProposal);
-      } else {
-        List<IndexedProposal> l = new LinkedList<IndexedProposal>();
-        l.add(iProposal);
-        partition.put(road, l);
-      }
-    }
-
-    // combine the proposals according to the partition
-    List<IndexedProposal> result = new LinkedList<IndexedProposal>();
-
-    for(List<IndexedProposal> iProposals2 : partition.values()) {
-      result.addAll(iProposals2);
-    }
-
-    return result;
+   * @param iProposal  the indexed proposal
+   * @return the road of the arrival lane
+   */
+  private Road getArrivalRoad(IndexedProposal iProposal) {
+    return SimContext.current().getMap().getRoad(
+             iProposal.getProposal().getArrivalLaneID());
   }
 
-
 }
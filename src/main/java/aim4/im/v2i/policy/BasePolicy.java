@@ -30,11 +30,16 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im.v2i.policy;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import aim4.config.Debug;
 import aim4.im.TrackModel;
@@ -54,6 +59,7 @@ import aim4.msg.v2i.Done;
 import aim4.msg.v2i.Request;
 import aim4.msg.v2i.V2IMessage;
 import aim4.msg.v2i.Request.Proposal;
+import aim4.sim.SimContext;
 import aim4.sim.StatCollector;
 import aim4.util.HashMapRegistry;
 import aim4.util.Registry;
@@ -352,6 +358,12 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
    */
   private StatCollector<BasePolicy> statCollector;
 
+  /**
+   * The worker threads on which the proposals of a request are evaluated
+   * in parallel; null if the proposals are evaluated one by one.
+   */
+  private ForkJoinPool proposalPool = null;
+
 
   /////////////////////////////////
   // CLASS CONSTRUCTORS
@@ -507,59 +519,43 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
   @Override
   public ReserveParam findReserveParam(Request msg,
                                        List<Request.Proposal> proposals) {
-    int vin = msg.getVin();
-
+    if (proposalPool != null && proposals.size() > 1) {
+      return findReserveParamInParallel(msg, proposals);
+    }
     // Okay, now let's actually try some of these proposals
-    Request.Proposal successfulProposal = null;
-    ReservationGridManager.Plan gridPlan = null;
-    AczManager aczManager = null;
-    AczManager.Plan aczPlan = null;
-
     for(Request.Proposal proposal : proposals) {
-      ReservationGridManager.Query gridQuery =
-        new ReservationGridManager.Query(vin,
-                                         proposal.getArrivalTime(),
-                                         proposal.getArrivalVelocity(),
-                                         proposal.getArrivalLaneID(),
-                                         proposal.getDepartureLaneID(),
-                                         msg.getSpec(),
-                                         proposal.getMaximumTurnVelocity(),
-                                         true);
-      gridPlan = im.getReservationGridManager().query(gridQuery);
-      if (gridPlan != null) {
-        double stopDist =
-          VehicleUtil.calcDistanceToStop(gridPlan.getExitVelocity(),
-                                         msg.getSpec().getMaxDeceleration());
-
-        aczManager = im.getAczManager(proposal.getDepartureLaneID());
-        if (aczManager == null) {
-          System.err.printf("FCFSPolicy::processRequestMsg(): " +
-                            "aczManager should not be null.\n");
-          System.err.printf("proposal.getDepartureLaneID() = %d\n",
-                            proposal.getDepartureLaneID());
-          aczPlan = null;
-        } else {
-          AczManager.Query aczQuery =
-            new AczManager.Query(vin,
-                                 gridPlan.getExitTime(),
-                                 gridPlan.getExitVelocity(),
-                                 msg.getSpec().getLength(),
-                                 stopDist);
-          aczPlan = aczManager.query(aczQuery);
-          if (aczPlan != null) {
-            successfulProposal = proposal;  // reservation succeeds!
-            break;
-          }
-        }
+      ReserveParam reserveParam = evaluateProposal(msg, proposal);
+      if (reserveParam != null) {
+        return reserveParam;  // reservation succeeds!
       }
     }
+    return null;
+  }
 
-    if (successfulProposal != null) {
-      return new ReserveParam(vin, successfulProposal, gridPlan, aczManager,
-                              aczPlan);
-    } else {
-      return null;
-    }
+  /**
+   * Set the worker threads on which the proposals of a request are
+   * evaluated in parallel.  The queries of the proposals only read the
+   * reservation grid and the admission control zones, so they are run
+   * speculatively and the first successful proposal in the order of the
+   * request is chosen, exactly as in the sequential evaluation.  The pool
+   * can be shared by several policies.
+   *
+   * @param proposalPool  the worker threads; null to evaluate the
+   *                      proposals one by one
+   */
+  public void setProposalPool(ForkJoinPool proposalPool) {
+    this.proposalPool = proposalPool;
+  }
+
+  /**
+   * Get the worker threads on which the proposals of a request are
+   * evaluated in parallel.
+   *
+   * @return the worker threads; null if the proposals are evaluated one by
+   *         one
+   */
+  public ForkJoinPool getProposalPool() {
+    return proposalPool;
   }
 
   /**
@@ -688,6 +684,108 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
   }
 
 
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Check whether the reservation grid and the admission control zone can
+   * accommodate a proposal.  Neither of them is changed.
+   *
+   * @param msg       the request message
+   * @param proposal  the proposal
+   * @return the parameters of the reservation; null if the proposal cannot
+   *         be accommodated
+   */
+  private ReserveParam evaluateProposal(Request msg,
+                                        Request.Proposal proposal) {
+    int vin = msg.getVin();
+    ReservationGridManager.Query gridQuery =
+      new ReservationGridManager.Query(vin,
+                                       proposal.getArrivalTime(),
+                                       proposal.getArrivalVelocity(),
+                                       proposal.getArrivalLaneID(),
+                                       proposal.getDepartureLaneID(),
+                                       msg.getSpec(),
+                                       proposal.getMaximumTurnVelocity(),
+                                       true);
+    ReservationGridManager.Plan gridPlan =
+      im.getReservationGridManager().query(gridQuery);
+    if (gridPlan != null) {
+      double stopDist =
+        VehicleUtil.calcDistanceToStop(gridPlan.getExitVelocity(),
+                                       msg.getSpec().getMaxDeceleration());
+
+      AczManager aczManager = im.getAczManager(proposal.getDepartureLaneID());
+      if (aczManager == null) {
+        System.err.printf("FCFSPolicy::processRequestMsg(): " +
+                          "aczManager should not be null.\n");
+        System.err.printf("proposal.getDepartureLaneID() = %d\n",
+                          proposal.getDepartureLaneID());
+      } else {
+        AczManager.Query aczQuery =
+          new AczManager.Query(vin,
+                               gridPlan.getExitTime(),
+                               gridPlan.getExitVelocity(),
+                               msg.getSpec().getLength(),
+                               stopDist);
+        AczManager.Plan aczPlan = aczManager.query(aczQuery);
+        if (aczPlan != null) {
+          return new ReserveParam(vin, proposal, gridPlan, aczManager,
+                                  aczPlan);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Evaluate all proposals of a request in parallel and choose the first
+   * successful one in the order of the proposals.  The evaluations of the
+   * later proposals are cancelled once an earlier one succeeds.
+   *
+   * @param msg        the request message
+   * @param proposals  the proposals
+   * @return the parameters of the reservation of the first successful
+   *         proposal; null if no proposal is successful
+   */
+  private ReserveParam findReserveParamInParallel(
+                                      final Request msg,
+                                      List<Request.Proposal> proposals) {
+    final SimContext context = SimContext.current();
+    List<Future<ReserveParam>> futures =
+      new ArrayList<Future<ReserveParam>>(proposals.size());
+    for(final Request.Proposal proposal : proposals) {
+      futures.add(proposalPool.submit(new Callable<ReserveParam>() {
+        @Override
+        public ReserveParam call() {
+          SimContext previous = SimContext.bind(context);
+          try {
+            return evaluateProposal(msg, proposal);
+          } finally {
+            SimContext.bind(previous);
+          }
+        }
+      }));
+    }
+    ReserveParam result = null;
+    try {
+      for(Future<ReserveParam> future : futures) {
+        if (result == null) {
+          result = future.get();
+        } else {
+          future.cancel(false);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while evaluating proposals", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Cannot evaluate a proposal", e.getCause());
+    }
+    return result;
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
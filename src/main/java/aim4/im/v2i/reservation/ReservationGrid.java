@@ -30,15 +30,18 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im.v2i.reservation;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
 import aim4.config.Constants;
 
 /**
- * The reservation grid.
+ * The reservation grid.  The time-tiles are stored in a
+ * {@link ReservationArray}, which can be either the tree-based array or the
+ * ring-buffered {@link RingReservationArray}.
  */
-public class ReservationGrid extends ReservationArray {
+public class ReservationGrid {
 
   /////////////////////////////////
   // CONSTANTS
@@ -108,6 +111,11 @@ public class ReservationGrid extends ReservationArray {
    */
   private final double gridTimeStep;
 
+  /**
+   * The reservation array that stores the time-tiles
+   */
+  private final ReservationArray reservationArray;
+
   /////////////////////////////////
   // CONSTRUCTORS
   /////////////////////////////////
@@ -120,10 +128,28 @@ public class ReservationGrid extends ReservationArray {
    * @param gridTimeStep  the time step.
    */
   public ReservationGrid(int xNum, int yNum, double gridTimeStep) {
-    super(xNum * yNum);
+    this(xNum, yNum, gridTimeStep, false);
+  }
+
+  /**
+   * Create a reservation grid.
+   *
+   * @param xNum                 the number of time tiles in the x direction
+   * @param yNum                 the number of time tiles in the y direction
+   * @param gridTimeStep         the time step.
+   * @param isRingBufferEnabled  whether to store the time-tiles in a
+   *                             {@link RingReservationArray}
+   */
+  public ReservationGrid(int xNum, int yNum, double gridTimeStep,
+                         boolean isRingBufferEnabled) {
     this.xNum = xNum;
     this.yNum = yNum;
     this.gridTimeStep = gridTimeStep;
+    if (isRingBufferEnabled) {
+      this.reservationArray = new RingReservationArray(xNum * yNum);
+    } else {
+      this.reservationArray = new ReservationArray(xNum * yNum);
+    }
   }
 
   /////////////////////////////////
@@ -143,6 +169,128 @@ public class ReservationGrid extends ReservationArray {
     }
   }
 
+  /**
+   * Get the number of tiles
+   */
+  public int getNumberOfTiles() {
+    return reservationArray.getNumberOfTiles();
+  }
+
+  /**
+   * Whether the time-tile has been reserved.
+   *
+   * @param dt   the discrete time
+   * @param tid  the tile ID
+   */
+  public boolean isReserved(int dt, int tid) {
+    return reservationArray.isReserved(dt, tid);
+  }
+
+  /**
+   * Get the reservation ID that reserved the given time-tile.
+   *
+   * @param dt   the discrete time
+   * @param tid  the id of the tile
+   * @return the reservation ID; -1 if the reservation ID does not exist
+   */
+  public int getReservationId(int dt, int tid) {
+    return reservationArray.getReservationId(dt, tid);
+  }
+
+  /**
+   * Check whether a given reservation ID exists
+   *
+   * @param rid  the reservation ID
+   * @return whether the reservation ID exists
+   */
+  public boolean hasReservation(int rid) {
+    return reservationArray.hasReservation(rid);
+  }
+
+  /**
+   * Get the last discrete time at which any time-tile has been reserved.
+   *
+   * @return the last discrete time at which any time-tile has been reserved;
+   *         -1 if there is currently no reservation.
+   */
+  public int getLastReservedDiscreteTime() {
+    return reservationArray.getLastReservedDiscreteTime();
+  }
+
+  /**
+   * Get the last discrete time of a particular reservation ID.
+   *
+   * @param  rid  the reservation ID
+   * @return the last discrete time of the reservation;
+   *         less than zero if the reservation id does not exist
+   */
+  public int getLastReservedDiscreteTime(int rid) {
+    return reservationArray.getLastReservedDiscreteTime(rid);
+  }
+
+  /**
+   * Make the reservation of a set of time-tiles with a given reservation id.
+   * If the reservation is not successful, no time-tiles will be reserved.
+   *
+   * @param rid          the reservation ID
+   * @param workingList  a collection of time-tiles to be reserved
+   *
+   * @return whether the reservation is successful
+   */
+  public boolean reserve(int rid,
+                         Collection<? extends ReservationArray.TimeTile>
+                           workingList) {
+    return reservationArray.reserve(rid, workingList);
+  }
+
+  /**
+   * Cancel a reservation
+   *
+   * @param rid  the reservation ID
+   * @return whether the cancellation is successful
+   */
+  public boolean cancel(int rid) {
+    return reservationArray.cancel(rid);
+  }
+
+  /**
+   * Remove all reservations before a given discrete time.
+   *
+   * @param dt  the discrete time before which the reservations will be removed.
+   */
+  public void cleanUp(int dt) {
+    reservationArray.cleanUp(dt);
+  }
+
+  /**
+   * Get the set of all reserved tiles at a given discrete time.
+   *
+   * @param dt  the discrete time
+   * @return the list of tile IDs that are reserved at the given discrete time.
+   */
+  public List<Integer> getReservedTilesAtTime(int dt) {
+    return reservationArray.getReservedTilesAtTime(dt);
+  }
+
+  /**
+   * Get the VINs of all reserved tiles at a given discrete time.
+   *
+   * @param dt  the discrete time
+   * @return a set of reservation IDs.
+   */
+  public Set<Integer> getVinOfReservedTilesAtTime(int dt) {
+    return reservationArray.getVinOfReservedTilesAtTime(dt);
+  }
+
+  /**
+   * Get the reservation array that stores the time-tiles.
+   *
+   * @return the reservation array
+   */
+  public ReservationArray getReservationArray() {
+    return reservationArray;
+  }
+
   /**
    * Get the number of time tiles in the x direction.
    *
@@ -260,7 +408,7 @@ public class ReservationGrid extends ReservationArray {
    *         -1 if there is currently no reservation.
    */
   public double getLastReservedTime() {
-    return super.getLastReservedDiscreteTime() * gridTimeStep;
+    return getLastReservedDiscreteTime() * gridTimeStep;
   }
 
   /**
@@ -270,7 +418,7 @@ public class ReservationGrid extends ReservationArray {
    * @return the list of tile IDs that are reserved at the given discrete time.
    */
   public List<Integer> getReservedTilesAtTime(double time) {
-    return super.getReservedTilesAtTime(calcDiscreteTime(time));
+    return getReservedTilesAtTime(calcDiscreteTime(time));
   }
 
   /**
@@ -280,7 +428,7 @@ public class ReservationGrid extends ReservationArray {
    * @return a set of reservation IDs.
    */
   public Set<Integer> getVinOfReservedTilesAtTime(double time) {
-    return super.getVinOfReservedTilesAtTime(calcDiscreteTime(time));
+    return getVinOfReservedTilesAtTime(calcDiscreteTime(time));
   }
 
 }
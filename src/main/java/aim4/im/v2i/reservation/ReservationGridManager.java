@@ -31,10 +31,10 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.im.v2i.reservation;
 
 import java.awt.Shape;
-import java.awt.geom.Area;
 import java.awt.geom.Rectangle2D;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -43,15 +43,18 @@ import java.util.Queue;
 import java.util.Set;
 
 import aim4.config.Constants;
-import aim4.config.Debug;
 import aim4.driver.CrashTestDummy;
 import aim4.driver.Driver;
 import aim4.im.Intersection;
 import aim4.im.v2i.reservation.ReservationGrid.TimeTile;
+import aim4.im.v2i.reservation.TrajectoryCache.Footprint;
 import aim4.map.lane.Lane;
 import aim4.msg.v2i.Request;
 import aim4.msg.v2i.Request.VehicleSpecForRequestMsg;
+import aim4.sim.SimContext;
 import aim4.sim.StatCollector;
+import aim4.sim.metrics.LatencyHistogram;
+import aim4.util.ConvexDecomposition;
 import aim4.util.TiledArea;
 import aim4.util.TiledArea.Tile;
 import aim4.vehicle.BasicAutoVehicle;
@@ -102,6 +105,15 @@ public class ReservationGridManager implements
      * The granularity.
      */
     private double granularity;
+    /**
+     * Whether the reservation grid is stored in a ring buffer.
+     */
+    private boolean isRingBufferEnabled;
+    /**
+     * The maximum number of footprints in the trajectory cache; zero if
+     * the trajectory cache is disabled.
+     */
+    private int trajectoryCacheSize = 0;
 
     /**
      * Create a configuration object.
@@ -121,6 +133,31 @@ public class ReservationGridManager implements
                   double edgeTileTimeBufferSize,
                   boolean isEdgeTileTimeBufferEnabled,
                   double granularity) {
+      this(timeStep, gridTimeStep, staticBufferSize,
+           internalTileTimeBufferSize, edgeTileTimeBufferSize,
+           isEdgeTileTimeBufferEnabled, granularity, false);
+    }
+
+    /**
+     * Create a configuration object.
+     *
+     * @param timeStep
+     * @param gridTimeStep
+     * @param staticBufferSize
+     * @param internalTileTimeBufferSize
+     * @param edgeTileTimeBufferSize
+     * @param isEdgeTileTimeBufferEnabled
+     * @param granularity
+     * @param isRingBufferEnabled
+     */
+    public Config(double timeStep,
+                  double gridTimeStep,
+                  double staticBufferSize,
+                  double internalTileTimeBufferSize,
+                  double edgeTileTimeBufferSize,
+                  boolean isEdgeTileTimeBufferEnabled,
+                  double granularity,
+                  boolean isRingBufferEnabled) {
       this.timeStep = timeStep;
       this.gridTimeStep = gridTimeStep;
       this.staticBufferSize = staticBufferSize;
@@ -128,6 +165,7 @@ public class ReservationGridManager implements
       this.edgeTileTimeBufferSize = edgeTileTimeBufferSize;
       this.isEdgeTileTimeBufferEnabled = isEdgeTileTimeBufferEnabled;
       this.granularity = granularity;
+      this.isRingBufferEnabled = isRingBufferEnabled;
     }
 
     /**
@@ -192,6 +230,39 @@ public class ReservationGridManager implements
     public double getGranularity() {
       return granularity;
     }
+
+    /**
+     * Get whether the reservation grid is stored in a ring buffer.
+     *
+     * @return whether the reservation grid is stored in a ring buffer
+     */
+    public boolean getIsRingBufferEnabled() {
+      return isRingBufferEnabled;
+    }
+
+    /**
+     * Get the maximum number of footprints in the trajectory cache.
+     *
+     * @return the maximum number of footprints in the trajectory cache;
+     *         zero if the trajectory cache is disabled
+     */
+    public int getTrajectoryCacheSize() {
+      return trajectoryCacheSize;
+    }
+
+    /**
+     * Set the maximum number of footprints in the trajectory cache.  When
+     * the trajectory cache is enabled, queries reuse the tiles swept by
+     * earlier test vehicles with the same lanes, vehicle specification and
+     * (quantized) arrival velocity instead of running the internal
+     * simulation.
+     *
+     * @param trajectoryCacheSize  the maximum number of footprints; zero
+     *                             disables the trajectory cache
+     */
+    public void setTrajectoryCacheSize(int trajectoryCacheSize) {
+      this.trajectoryCacheSize = trajectoryCacheSize;
+    }
   }
 
   /**
@@ -397,7 +468,10 @@ public class ReservationGridManager implements
   }
 
   /**
-   * The statistic collector for VIN history.
+   * The statistic collector for VIN history.  By default the collector
+   * keeps the whole history until the end of the simulation; if the history
+   * is not retained, each call of {@link #print(PrintStream)} prints the
+   * history collected since the previous call and forgets it.
    */
   public static class VinHistoryStatCollector
                   implements StatCollector<ReservationGridManager> {
@@ -411,12 +485,33 @@ public class ReservationGridManager implements
      */
     private Map<Double, Set<Integer>> vinHistory;
 
+    /**
+     * The VINs of the reserved tiles at the time of the last change.
+     */
+    private Set<Integer> lastVins;
+
+    /**
+     * Whether the history is kept after it is printed.
+     */
+    private boolean isRetained;
+
     /**
      * Create a statistic collector for VIN history.
      */
     public VinHistoryStatCollector() {
       this.vinHistoryTime = new LinkedList<Double>();
       this.vinHistory = new HashMap<Double, Set<Integer>>();
+      this.lastVins = null;
+      this.isRetained = true;
+    }
+
+    /**
+     * Set whether the history is kept after it is printed.
+     *
+     * @param isRetained  whether the history is kept after it is printed
+     */
+    public void setRetained(boolean isRetained) {
+      this.isRetained = isRetained;
     }
 
     /**
@@ -427,13 +522,10 @@ public class ReservationGridManager implements
       Set<Integer> s =
         manager.reservationGrid
           .getVinOfReservedTilesAtTime(manager.currentTime);
-      Set<Integer> lasts = null;
-      if (vinHistoryTime.size() > 0) {
-        lasts = vinHistory.get(vinHistoryTime.get(vinHistoryTime.size() - 1));
-      }
-      if (!s.equals(lasts)) {
+      if (!s.equals(lastVins)) {
         vinHistoryTime.add(manager.currentTime);
         vinHistory.put(manager.currentTime, s);
+        lastVins = s;
       }
     }
 
@@ -450,6 +542,10 @@ public class ReservationGridManager implements
         }
         outfile.println();
       }
+      if (!isRetained) {
+        vinHistoryTime.clear();
+        vinHistory.clear();
+      }
     }
 
   }
@@ -502,6 +598,14 @@ public class ReservationGridManager implements
    * The statistic collector
    */
   private StatCollector<ReservationGridManager> statCollector;
+  /**
+   * The trajectory cache; null if the trajectory cache is disabled.
+   */
+  private TrajectoryCache trajectoryCache;
+  /**
+   * The wall-clock durations of the queries
+   */
+  private final LatencyHistogram queryTimes = new LatencyHistogram();
 
 
   /////////////////////////////////
@@ -550,6 +654,12 @@ public class ReservationGridManager implements
     this.tiledArea = tiledArea;
     this.reservationGrid = reservationGrid;
     this.statCollector = new VinHistoryStatCollector();
+    if (config.getTrajectoryCacheSize() > 0) {
+      this.trajectoryCache =
+        new TrajectoryCache(config.getTrajectoryCacheSize());
+    } else {
+      this.trajectoryCache = null;
+    }
   }
 
 
@@ -595,6 +705,24 @@ public class ReservationGridManager implements
     return statCollector;
   }
 
+  /**
+   * Get the trajectory cache.
+   *
+   * @return the trajectory cache; null if the trajectory cache is disabled
+   */
+  public TrajectoryCache getTrajectoryCache() {
+    return trajectoryCache;
+  }
+
+  /**
+   * Get the histogram of the wall-clock durations of the queries.
+   *
+   * @return the histogram of the durations of the queries in nanoseconds
+   */
+  public LatencyHistogram getQueryTimes() {
+    return queryTimes;
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -611,54 +739,22 @@ public class ReservationGridManager implements
    */
   @Override
   public Plan query(Query q) {
+    long startTime = System.nanoTime();
 
     // Position the Vehicle to be ready to start the simulation
     Lane arrivalLane =
-      Debug.currentMap.getLaneRegistry().get(q.getArrivalLaneId());
+      SimContext.current().getMap().getLaneRegistry().get(q.getArrivalLaneId());
     Lane departureLane =
-      Debug.currentMap.getLaneRegistry().get(q.getDepartureLaneId());
-
-    // Create a test vehicle to use in the internal simulation
-    BasicAutoVehicle testVehicle =
-      createTestVehicle(q.getSpec(),
-                        q.getArrivalVelocity(),
-                        q.getMaxTurnVelocity(),
-                        arrivalLane);
-
-    // Create a dummy driver to steer it
-    Driver dummy = new CrashTestDummy(testVehicle, arrivalLane, departureLane);
-
-    // assign the drive to the vehicle
-    // testVehicle.setDriver(dummy);  // TODO fix this later.
-
-    // Keep track of the TileTimes that will make up this reservation
-    FindTileTimesBySimulationResult fResult
-      = findTileTimesBySimulation(testVehicle,
-                                  dummy,
-                                  q.getArrivalTime(),
-                                  q.isAccelerating());
-
-    if (fResult != null) {
-      List<TimeTile> workingList = fResult.getWorkingList();
-
-      double exitTime = workingList.get(workingList.size()-1).getTime();
-
-      Queue<double[]> accelerationProfile =
-        calcAccelerationProfile(q.getArrivalTime(),
-                                q.getArrivalVelocity(),
-                                q.getMaxTurnVelocity(),
-                                q.getSpec().getMaxAcceleration(),
-                                fResult.getExitTime(),
-                                q.isAccelerating());
+      SimContext.current().getMap().getLaneRegistry().get(q.getDepartureLaneId());
 
-      return new Plan(q.getVin(),
-                      exitTime,
-                      testVehicle.gaugeVelocity(),
-                      workingList,
-                      accelerationProfile);
+    Plan plan;
+    if (trajectoryCache != null) {
+      plan = queryByTrajectoryCache(q, arrivalLane, departureLane);
     } else {
-      return null;
+      plan = queryBySimulation(q, arrivalLane, departureLane);
     }
+    queryTimes.record(System.nanoTime() - startTime);
+    return plan;
   }
 
   /**
@@ -792,11 +888,12 @@ public class ReservationGridManager implements
                                       double arrivalTime,
                                       boolean accelerating) {
     // The area of the intersection
-    Area areaPlus = intersection.getAreaPlus();
+    ConvexDecomposition areaPlus = intersection.getAreaPlusDecomposition();
     // The following must be true because the test vehicle
     // starts at the entry point of the intersection.
-    assert areaPlus.contains(testVehicle.getPointAtMiddleFront(
-             Constants.DOUBLE_EQUAL_PRECISION));
+    assert intersection.getAreaPlus().contains(
+             testVehicle.getPointAtMiddleFront(
+               Constants.DOUBLE_EQUAL_PRECISION));
 
     // The list of tile-times that will make up this reservation
     List<TimeTile> workingList = new ArrayList<TimeTile>();
@@ -844,6 +941,223 @@ public class ReservationGridManager implements
                                                .calcTime(currentIntTime));
   }
 
+  /**
+   * Answer a query by running the internal simulation.
+   *
+   * @param q              the query object
+   * @param arrivalLane    the arrival lane
+   * @param departureLane  the departure lane
+   *
+   * @return the plan if the reservation is successful; otherwise null
+   */
+  private Plan queryBySimulation(Query q,
+                                 Lane arrivalLane,
+                                 Lane departureLane) {
+    // Create a test vehicle to use in the internal simulation
+    BasicAutoVehicle testVehicle =
+      createTestVehicle(q.getSpec(),
+                        q.getArrivalVelocity(),
+                        q.getMaxTurnVelocity(),
+                        arrivalLane);
+
+    // Create a dummy driver to steer it
+    Driver dummy = new CrashTestDummy(testVehicle, arrivalLane, departureLane);
+
+    // assign the drive to the vehicle
+    // testVehicle.setDriver(dummy);  // TODO fix this later.
+
+    // Keep track of the TileTimes that will make up this reservation
+    FindTileTimesBySimulationResult fResult
+      = findTileTimesBySimulation(testVehicle,
+                                  dummy,
+                                  q.getArrivalTime(),
+                                  q.isAccelerating());
+
+    if (fResult != null) {
+      List<TimeTile> workingList = fResult.getWorkingList();
+
+      double exitTime = workingList.get(workingList.size()-1).getTime();
+
+      Queue<double[]> accelerationProfile =
+        calcAccelerationProfile(q.getArrivalTime(),
+                                q.getArrivalVelocity(),
+                                q.getMaxTurnVelocity(),
+                                q.getSpec().getMaxAcceleration(),
+                                fResult.getExitTime(),
+                                q.isAccelerating());
+
+      return new Plan(q.getVin(),
+                      exitTime,
+                      testVehicle.gaugeVelocity(),
+                      workingList,
+                      accelerationProfile);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Answer a query with the footprint in the trajectory cache, running the
+   * internal simulation only if the footprint is not in the cache.
+   *
+   * @param q              the query object
+   * @param arrivalLane    the arrival lane
+   * @param departureLane  the departure lane
+   *
+   * @return the plan if the reservation is successful; otherwise null
+   */
+  private Plan queryByTrajectoryCache(Query q,
+                                      Lane arrivalLane,
+                                      Lane departureLane) {
+    double gridTimeStep = reservationGrid.getGridTimeStep();
+    long velocityBucket =
+      trajectoryCache.calcVelocityBucket(q.getArrivalVelocity());
+    int phaseBucket =
+      trajectoryCache.calcPhaseBucket(
+        reservationGrid.calcRemainingTime(q.getArrivalTime()), gridTimeStep);
+    TrajectoryCache.Key key =
+      new TrajectoryCache.Key(q.getArrivalLaneId(),
+                              q.getDepartureLaneId(),
+                              q.getSpec(),
+                              q.getMaxTurnVelocity(),
+                              q.isAccelerating(),
+                              velocityBucket,
+                              phaseBucket);
+    Footprint footprint = trajectoryCache.get(key);
+    if (footprint == null) {
+      footprint =
+        findFootprintBySimulation(
+          q.getSpec(),
+          trajectoryCache.calcVelocity(velocityBucket),
+          q.getMaxTurnVelocity(),
+          arrivalLane,
+          departureLane,
+          trajectoryCache.calcRemainingTime(phaseBucket, gridTimeStep),
+          q.isAccelerating());
+      trajectoryCache.put(key, footprint);
+    }
+
+    int arrivalIntTime = reservationGrid.calcDiscreteTime(q.getArrivalTime());
+    List<TimeTile> workingList =
+      findTileTimesByFootprint(footprint, arrivalIntTime);
+    if (workingList != null) {
+      double exitTime = workingList.get(workingList.size()-1).getTime();
+
+      Queue<double[]> accelerationProfile =
+        calcAccelerationProfile(q.getArrivalTime(),
+                                q.getArrivalVelocity(),
+                                q.getMaxTurnVelocity(),
+                                q.getSpec().getMaxAcceleration(),
+                                reservationGrid.calcTime(
+                                  arrivalIntTime + footprint.getNumOfSteps()),
+                                q.isAccelerating());
+
+      return new Plan(q.getVin(),
+                      exitTime,
+                      footprint.getExitVelocity(),
+                      workingList,
+                      accelerationProfile);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Find the tiles swept by a test vehicle by running the internal
+   * simulation without checking the reservation grid.
+   *
+   * @param spec             the specification of the test vehicle
+   * @param arrivalVelocity  the arrival velocity of the vehicle
+   * @param maxVelocity      the maximum velocity of the vehicle
+   * @param arrivalLane      the arrival lane
+   * @param departureLane    the departure lane
+   * @param remainingTime    the duration of the first move of the vehicle
+   * @param accelerating     whether or not to accelerate to maximum velocity
+   *                         during the traversal
+   *
+   * @return the footprint of the vehicle
+   */
+  private Footprint findFootprintBySimulation(VehicleSpecForRequestMsg spec,
+                                              double arrivalVelocity,
+                                              double maxVelocity,
+                                              Lane arrivalLane,
+                                              Lane departureLane,
+                                              double remainingTime,
+                                              boolean accelerating) {
+    BasicAutoVehicle testVehicle =
+      createTestVehicle(spec, arrivalVelocity, maxVelocity, arrivalLane);
+    Driver dummy = new CrashTestDummy(testVehicle, arrivalLane, departureLane);
+    ConvexDecomposition areaPlus = intersection.getAreaPlusDecomposition();
+
+    int numOfSteps = 0;
+    int numOfTiles = 0;
+    int[] stepStarts = new int[64];
+    int[] tileIds = new int[256];
+
+    double currentDuration = remainingTime;
+    while(VehicleUtil.intersects(testVehicle, areaPlus)) {
+      moveTestVehicle(testVehicle, dummy, currentDuration, accelerating);
+      List<Tile> occupied =
+        tiledArea.findOccupiedTiles(testVehicle.getShape(staticBufferSize));
+      if (numOfSteps + 1 >= stepStarts.length) {
+        stepStarts = Arrays.copyOf(stepStarts, 2 * stepStarts.length);
+      }
+      if (numOfTiles + occupied.size() > tileIds.length) {
+        tileIds = Arrays.copyOf(tileIds,
+                                2 * (numOfTiles + occupied.size()));
+      }
+      stepStarts[numOfSteps++] = numOfTiles;
+      for(Tile tile : occupied) {
+        tileIds[numOfTiles++] = tile.getId();
+      }
+      currentDuration = reservationGrid.getGridTimeStep();
+    }
+    stepStarts[numOfSteps] = numOfTiles;
+
+    return new Footprint(numOfSteps,
+                         Arrays.copyOf(stepStarts, numOfSteps + 1),
+                         Arrays.copyOf(tileIds, numOfTiles),
+                         testVehicle.gaugeVelocity());
+  }
+
+  /**
+   * Find a list of unreserved tiletimes by shifting a footprint to the
+   * arrival time.
+   *
+   * @param footprint       the footprint of the test vehicle
+   * @param arrivalIntTime  the discrete arrival time of the vehicle
+   *
+   * @return A list of tiles that can be reserved by the vehicle. If returns
+   *         null, the trajectory hits some reserved tiles and the reservation
+   *         fails.
+   */
+  private List<TimeTile> findTileTimesByFootprint(Footprint footprint,
+                                                  int arrivalIntTime) {
+    List<TimeTile> workingList = new ArrayList<TimeTile>();
+    for(int step = 1; step <= footprint.getNumOfSteps(); step++) {
+      int currentIntTime = arrivalIntTime + step;
+      for(int i = footprint.getStepStart(step - 1);
+          i < footprint.getStepStart(step); i++) {
+        int tileId = footprint.getTileId(i);
+        int buffer;
+        if (isEdgeTileTimeBufferEnabled
+            && tiledArea.getTileById(tileId).isEdgeTile()) {
+          buffer = edgeTileTimeBufferSteps;
+        } else {
+          buffer = internalTileTimeBufferSteps;
+        }
+        for(int t = currentIntTime - buffer; t <= currentIntTime + buffer; t++){
+          if (!reservationGrid.isReserved(t, tileId)) {
+            workingList.add(reservationGrid.new TimeTile(t, tileId));
+          } else {
+            return null; // Failure! Just bail!
+          }
+        }
+      }
+    }
+    return workingList;
+  }
+
   /**
    * Advance the test vehicle by one time step
    *
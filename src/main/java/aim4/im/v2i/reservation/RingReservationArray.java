@@ -0,0 +1,466 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.v2i.reservation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A reservation array that keeps the grids in a circular window of
+ * primitive arrays.  The grid of a discrete time <code>dt</code> is stored
+ * in the slot <code>dt mod horizon</code>, and the time-tiles of each
+ * reservation are kept in a primitive list so that a cancellation does not
+ * need to search the grids.  The window doubles in size whenever a
+ * reservation does not fit into it.
+ */
+public class RingReservationArray extends ReservationArray {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The default number of discrete times in the window. {@value}
+   */
+  public static final int DEFAULT_HORIZON = 512;
+
+  /**
+   * The marker for a slot that does not hold the grid of any discrete time.
+   */
+  private static final int EMPTY_SLOT = Integer.MIN_VALUE;
+
+  /**
+   * The initial capacity, in time-tiles, of the tile list of a reservation.
+   */
+  private static final int INITIAL_TILE_LIST_CAPACITY = 32;
+
+  /////////////////////////////////
+  // PRIVATE NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The time-tiles reserved by a reservation, stored as pairs of discrete
+   * times and tile IDs.
+   */
+  private static class TileList {
+    /** The discrete times and the tile IDs, interleaved */
+    int[] pairs = new int[2 * INITIAL_TILE_LIST_CAPACITY];
+    /** The number of time-tiles */
+    int size = 0;
+    /** The last discrete time in the list */
+    int lastDiscreteTime = -1;
+
+    /**
+     * Add a time-tile.
+     *
+     * @param dt   the discrete time
+     * @param tid  the tile ID
+     */
+    void add(int dt, int tid) {
+      if (2 * size == pairs.length) {
+        int[] newPairs = new int[2 * pairs.length];
+        System.arraycopy(pairs, 0, newPairs, 0, pairs.length);
+        pairs = newPairs;
+      }
+      pairs[2 * size] = dt;
+      pairs[2 * size + 1] = tid;
+      size++;
+      if (dt > lastDiscreteTime) {
+        lastDiscreteTime = dt;
+      }
+    }
+
+    /**
+     * Remove all time-tiles before a given discrete time.
+     *
+     * @param dt  the discrete time
+     */
+    void removeBefore(int dt) {
+      int j = 0;
+      for(int i = 0; i < size; i++) {
+        if (pairs[2 * i] >= dt) {
+          pairs[2 * j] = pairs[2 * i];
+          pairs[2 * j + 1] = pairs[2 * i + 1];
+          j++;
+        }
+      }
+      size = j;
+      if (size == 0) {
+        lastDiscreteTime = -1;
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The number of discrete times in the window; always a power of two.
+   */
+  private int horizon;
+
+  /**
+   * The grids of all slots; the reservation ID of tile <code>tid</code> in
+   * slot <code>s</code> is at index <code>s * numOfTiles + tid</code>.
+   */
+  private int[] cells;
+
+  /**
+   * The discrete time held by each slot, or {@link #EMPTY_SLOT}.
+   */
+  private int[] slotTimes;
+
+  /**
+   * The number of slots that hold a grid.
+   */
+  private int numOfUsedSlots = 0;
+
+  /**
+   * The first discrete time that has a grid; valid only if
+   * <code>numOfUsedSlots &gt; 0</code>.
+   */
+  private int firstDiscreteTime;
+
+  /**
+   * The last discrete time that has a grid; valid only if
+   * <code>numOfUsedSlots &gt; 0</code>.
+   */
+  private int lastDiscreteTime;
+
+  /**
+   * A mapping from reservation IDs to the time-tiles of the reservations.
+   */
+  private Map<Integer,TileList> ridToTiles = new HashMap<Integer,TileList>();
+
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a new reservation system with the default horizon.
+   *
+   * @param numOfTiles  The number of tiles in the intersection
+   */
+  public RingReservationArray(int numOfTiles) {
+    this(numOfTiles, DEFAULT_HORIZON);
+  }
+
+  /**
+   * Create a new reservation system.
+   *
+   * @param numOfTiles  The number of tiles in the intersection
+   * @param horizon     The initial number of discrete times in the window
+   */
+  public RingReservationArray(int numOfTiles, int horizon) {
+    super(numOfTiles);
+    allocate(Integer.highestOneBit(Math.max(horizon - 1, 1)) << 1);
+  }
+
+
+  ///////////////////////////
+  // PUBLIC METHODS
+  ///////////////////////////
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isReserved(int dt, int tid) {
+    return getReservationId(dt, tid) >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getReservationId(int dt, int tid) {
+    int slot = dt & (horizon - 1);
+    if (slotTimes[slot] == dt) {
+      return cells[slot * getNumberOfTiles() + tid];
+    } else {
+      return -1;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean hasReservation(int rid) {
+    return ridToTiles.containsKey(rid);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getLastReservedDiscreteTime() {
+    return (numOfUsedSlots > 0) ? lastDiscreteTime : -1;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getLastReservedDiscreteTime(int rid) {
+    TileList tiles = ridToTiles.get(rid);
+    return (tiles != null) ? tiles.lastDiscreteTime : -1;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean reserve(int rid, Collection<? extends TimeTile> workingList) {
+    // check to see if any time-tile is reserved in the past
+    for(TimeTile tt : workingList) {
+      if (isReserved(tt.getDiscreteTime(), tt.getTileId())) {
+        return false; // the time-tile has been reserved.
+      }
+    }
+
+    // ignore the time-tiles before the first grid, as ReservationArray does
+    int timeBegin = (numOfUsedSlots > 0) ? firstDiscreteTime : 0;
+
+    TileList tiles = ridToTiles.get(rid);
+    int numOfTiles = getNumberOfTiles();
+    for(TimeTile tt : workingList) {
+      int dt = tt.getDiscreteTime();
+      if (dt >= timeBegin) {
+        int slot = findOrCreateSlot(dt);
+        cells[slot * numOfTiles + tt.getTileId()] = rid;
+        if (tiles == null) {
+          tiles = new TileList();
+          ridToTiles.put(rid, tiles);
+        }
+        tiles.add(dt, tt.getTileId());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean cancel(int rid) {
+    TileList tiles = ridToTiles.remove(rid);
+    if (tiles != null) {
+      int numOfTiles = getNumberOfTiles();
+      for(int i = 0; i < tiles.size; i++) {
+        int dt = tiles.pairs[2 * i];
+        int slot = dt & (horizon - 1);
+        if (slotTimes[slot] == dt) {
+          cells[slot * numOfTiles + tiles.pairs[2 * i + 1]] = -1;
+        }
+      }
+      return true;
+    } else {
+      return false; // the rid is not found
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void cleanUp(int dt) {
+    if (numOfUsedSlots > 0 && firstDiscreteTime < dt) {
+      int end = Math.min(dt, lastDiscreteTime + 1);
+      for(int t = firstDiscreteTime; t < end; t++) {
+        int slot = t & (horizon - 1);
+        if (slotTimes[slot] == t) {
+          clearSlot(slot);
+        }
+      }
+      if (numOfUsedSlots > 0) {
+        firstDiscreteTime = dt;
+        while(slotTimes[firstDiscreteTime & (horizon - 1)]
+              != firstDiscreteTime) {
+          firstDiscreteTime++;
+        }
+      }
+    }
+
+    for(Iterator<TileList> iter = ridToTiles.values().iterator();
+        iter.hasNext();) {
+      TileList tiles = iter.next();
+      tiles.removeBefore(dt);
+      if (tiles.size == 0) {
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<Integer> getReservedTilesAtTime(int dt) {
+    List<Integer> tids = new LinkedList<Integer>();
+    int slot = dt & (horizon - 1);
+    if (slotTimes[slot] == dt) {
+      int numOfTiles = getNumberOfTiles();
+      int offset = slot * numOfTiles;
+      for(int tid = 0; tid < numOfTiles; tid++) {
+        if (cells[offset + tid] >= 0) {
+          tids.add(tid);
+        }
+      }
+    }
+    return tids;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Set<Integer> getVinOfReservedTilesAtTime(int dt) {
+    Set<Integer> rids = new HashSet<Integer>();
+    int slot = dt & (horizon - 1);
+    if (slotTimes[slot] == dt) {
+      int numOfTiles = getNumberOfTiles();
+      int offset = slot * numOfTiles;
+      for(int tid = 0; tid < numOfTiles; tid++) {
+        if (cells[offset + tid] >= 0) {
+          rids.add(cells[offset + tid]);
+        }
+      }
+    }
+    return rids;
+  }
+
+  /**
+   * Get the number of discrete times in the window.
+   *
+   * @return the number of discrete times in the window
+   */
+  public int getHorizon() {
+    return horizon;
+  }
+
+
+  ///////////////////////////
+  // PRIVATE METHODS
+  ///////////////////////////
+
+  /**
+   * Allocate an empty window.
+   *
+   * @param horizon  the number of discrete times in the window
+   */
+  private void allocate(int horizon) {
+    this.horizon = horizon;
+    cells = new int[horizon * getNumberOfTiles()];
+    Arrays.fill(cells, -1);
+    slotTimes = new int[horizon];
+    Arrays.fill(slotTimes, EMPTY_SLOT);
+  }
+
+  /**
+   * Get the slot of the grid of a discrete time, creating the grid if it
+   * does not exist.
+   *
+   * @param dt  the discrete time
+   * @return the slot of the grid
+   */
+  private int findOrCreateSlot(int dt) {
+    if (numOfUsedSlots > 0) {
+      int first = Math.min(firstDiscreteTime, dt);
+      int last = Math.max(lastDiscreteTime, dt);
+      if (last - first >= horizon) {
+        grow(last - first + 1);
+      }
+    }
+    int slot = dt & (horizon - 1);
+    if (slotTimes[slot] != dt) {
+      assert slotTimes[slot] == EMPTY_SLOT;
+      slotTimes[slot] = dt;
+      if (numOfUsedSlots == 0) {
+        firstDiscreteTime = dt;
+        lastDiscreteTime = dt;
+      } else {
+        firstDiscreteTime = Math.min(firstDiscreteTime, dt);
+        lastDiscreteTime = Math.max(lastDiscreteTime, dt);
+      }
+      numOfUsedSlots++;
+    }
+    return slot;
+  }
+
+  /**
+   * Enlarge the window so that it can hold a given number of consecutive
+   * discrete times.
+   *
+   * @param span  the number of consecutive discrete times
+   */
+  private void grow(int span) {
+    int[] oldCells = cells;
+    int[] oldSlotTimes = slotTimes;
+    int newHorizon = horizon;
+    while(newHorizon < span) {
+      newHorizon <<= 1;
+    }
+    allocate(newHorizon);
+    int numOfTiles = getNumberOfTiles();
+    for(int oldSlot = 0; oldSlot < oldSlotTimes.length; oldSlot++) {
+      int dt = oldSlotTimes[oldSlot];
+      if (dt != EMPTY_SLOT) {
+        int slot = dt & (horizon - 1);
+        slotTimes[slot] = dt;
+        System.arraycopy(oldCells, oldSlot * numOfTiles,
+                         cells, slot * numOfTiles, numOfTiles);
+      }
+    }
+  }
+
+  /**
+   * Remove the grid in a slot.
+   *
+   * @param slot  the slot
+   */
+  private void clearSlot(int slot) {
+    int numOfTiles = getNumberOfTiles();
+    Arrays.fill(cells, slot * numOfTiles, (slot + 1) * numOfTiles,
+                          -1);
+    slotTimes[slot] = EMPTY_SLOT;
+    numOfUsedSlots--;
+  }
+}
@@ -0,0 +1,429 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.v2i.reservation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import aim4.msg.v2i.Request.VehicleSpecForRequestMsg;
+
+/**
+ * A bounded, least-recently-used cache of the tiles swept by test vehicles
+ * in the internal simulation of the {@link ReservationGridManager}.  The
+ * tiles occupied at every grid time step of a traversal depend only on the
+ * arrival lane, the departure lane, the vehicle specification, the arrival
+ * velocity, the offset of the arrival time within a grid time step, and
+ * whether the vehicle accelerates.  The arrival velocity and the offset are
+ * quantized into buckets, and each cached footprint is computed with the
+ * representative values of its buckets so that the content of the cache
+ * does not depend on the order of the queries.
+ * <p>
+ * This class is thread-safe, so that the proposals of a request can be
+ * evaluated in parallel.
+ */
+public class TrajectoryCache {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The default size of a velocity bucket ({@value} meters per second).
+   */
+  public static final double DEFAULT_VELOCITY_BUCKET_SIZE = 0.01;
+
+  /**
+   * The default number of buckets in a grid time step ({@value}).
+   */
+  public static final int DEFAULT_NUM_OF_PHASE_BUCKETS = 10;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The tiles swept by a test vehicle.  The tiles occupied at the
+   * <code>i</code>-th grid time step after the arrival (starting from 1)
+   * are <code>tileIds[stepStarts[i-1]]</code> to
+   * <code>tileIds[stepStarts[i]-1]</code>.
+   */
+  public static class Footprint {
+    /** The number of grid time steps the traversal takes */
+    private final int numOfSteps;
+    /** The index of the first tile of each step */
+    private final int[] stepStarts;
+    /** The tile IDs of all steps */
+    private final int[] tileIds;
+    /** The velocity of the test vehicle at the exit */
+    private final double exitVelocity;
+
+    /**
+     * Create a footprint.
+     *
+     * @param numOfSteps    the number of grid time steps
+     * @param stepStarts    the index of the first tile of each step; its
+     *                      length must be <code>numOfSteps + 1</code>
+     * @param tileIds       the tile IDs of all steps
+     * @param exitVelocity  the velocity of the test vehicle at the exit
+     */
+    public Footprint(int numOfSteps, int[] stepStarts, int[] tileIds,
+                     double exitVelocity) {
+      assert stepStarts.length == numOfSteps + 1;
+      this.numOfSteps = numOfSteps;
+      this.stepStarts = stepStarts;
+      this.tileIds = tileIds;
+      this.exitVelocity = exitVelocity;
+    }
+
+    /**
+     * Get the number of grid time steps the traversal takes.
+     *
+     * @return the number of grid time steps
+     */
+    public int getNumOfSteps() {
+      return numOfSteps;
+    }
+
+    /**
+     * Get the index of the first tile of a step.
+     *
+     * @param step  the step, from 0 to <code>numOfSteps</code>
+     * @return the index of the first tile of the step
+     */
+    public int getStepStart(int step) {
+      return stepStarts[step];
+    }
+
+    /**
+     * Get the tile ID at a given index.
+     *
+     * @param index  the index
+     * @return the tile ID
+     */
+    public int getTileId(int index) {
+      return tileIds[index];
+    }
+
+    /**
+     * Get the velocity of the test vehicle at the exit.
+     *
+     * @return the exit velocity
+     */
+    public double getExitVelocity() {
+      return exitVelocity;
+    }
+  }
+
+  /**
+   * The key of a footprint.
+   */
+  public static class Key {
+    /** The ID of the arrival lane */
+    private final int arrivalLaneId;
+    /** The ID of the departure lane */
+    private final int departureLaneId;
+    /** The vehicle specification */
+    private final VehicleSpecForRequestMsg spec;
+    /** The maximum turn velocity */
+    private final double maxTurnVelocity;
+    /** Whether the acceleration is allowed */
+    private final boolean accelerating;
+    /** The velocity bucket of the arrival velocity */
+    private final long velocityBucket;
+    /** The phase bucket of the arrival time */
+    private final int phaseBucket;
+    /** The hash code */
+    private final int hashCode;
+
+    /**
+     * Create a key.
+     *
+     * @param arrivalLaneId    the ID of the arrival lane
+     * @param departureLaneId  the ID of the departure lane
+     * @param spec             the vehicle specification
+     * @param maxTurnVelocity  the maximum turn velocity
+     * @param accelerating     whether the acceleration is allowed
+     * @param velocityBucket   the velocity bucket of the arrival velocity
+     * @param phaseBucket      the phase bucket of the arrival time
+     */
+    public Key(int arrivalLaneId, int departureLaneId,
+               VehicleSpecForRequestMsg spec, double maxTurnVelocity,
+               boolean accelerating, long velocityBucket, int phaseBucket) {
+      this.arrivalLaneId = arrivalLaneId;
+      this.departureLaneId = departureLaneId;
+      this.spec = spec;
+      this.maxTurnVelocity = maxTurnVelocity;
+      this.accelerating = accelerating;
+      this.velocityBucket = velocityBucket;
+      this.phaseBucket = phaseBucket;
+
+      int h = arrivalLaneId;
+      h = 31 * h + departureLaneId;
+      h = 31 * h + hashDouble(spec.getLength());
+      h = 31 * h + hashDouble(spec.getWidth());
+      h = 31 * h + hashDouble(spec.getMaxAcceleration());
+      h = 31 * h + hashDouble(maxTurnVelocity);
+      h = 31 * h + (accelerating ? 1 : 0);
+      h = 31 * h + (int)(velocityBucket ^ (velocityBucket >>> 32));
+      h = 31 * h + phaseBucket;
+      this.hashCode = h;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key k = (Key)obj;
+      return hashCode == k.hashCode
+          && arrivalLaneId == k.arrivalLaneId
+          && departureLaneId == k.departureLaneId
+          && accelerating == k.accelerating
+          && velocityBucket == k.velocityBucket
+          && phaseBucket == k.phaseBucket
+          && maxTurnVelocity == k.maxTurnVelocity
+          && isSameSpec(spec, k.spec);
+    }
+
+    /**
+     * Compute the hash code of a double.
+     *
+     * @param d  the double
+     * @return the hash code
+     */
+    private static int hashDouble(double d) {
+      long bits = Double.doubleToLongBits(d);
+      return (int)(bits ^ (bits >>> 32));
+    }
+
+    /**
+     * Check whether two vehicle specifications are the same.
+     *
+     * @param s1  the first vehicle specification
+     * @param s2  the second vehicle specification
+     * @return whether the two vehicle specifications are the same
+     */
+    private static boolean isSameSpec(VehicleSpecForRequestMsg s1,
+                                      VehicleSpecForRequestMsg s2) {
+      return s1 == s2
+          || (s1.getMaxAcceleration() == s2.getMaxAcceleration()
+              && s1.getMaxDeceleration() == s2.getMaxDeceleration()
+              && s1.getMinVelocity() == s2.getMinVelocity()
+              && s1.getLength() == s2.getLength()
+              && s1.getWidth() == s2.getWidth()
+              && s1.getFrontAxleDisplacement()
+                 == s2.getFrontAxleDisplacement()
+              && s1.getRearAxleDisplacement() == s2.getRearAxleDisplacement()
+              && s1.getMaxSteeringAngle() == s2.getMaxSteeringAngle()
+              && s1.getMaxTurnPerSecond() == s2.getMaxTurnPerSecond());
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The size of a velocity bucket.
+   */
+  private final double velocityBucketSize;
+
+  /**
+   * The number of buckets in a grid time step.
+   */
+  private final int numOfPhaseBuckets;
+
+  /**
+   * The footprints, in the order of access.
+   */
+  private final Map<Key,Footprint> footprints;
+
+  /**
+   * The number of cache hits.
+   */
+  private long numOfHits = 0;
+
+  /**
+   * The number of cache misses.
+   */
+  private long numOfMisses = 0;
+
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a trajectory cache with the default bucket sizes.
+   *
+   * @param capacity  the maximum number of footprints in the cache
+   */
+  public TrajectoryCache(int capacity) {
+    this(capacity, DEFAULT_VELOCITY_BUCKET_SIZE, DEFAULT_NUM_OF_PHASE_BUCKETS);
+  }
+
+  /**
+   * Create a trajectory cache.
+   *
+   * @param capacity            the maximum number of footprints in the cache
+   * @param velocityBucketSize  the size of a velocity bucket
+   * @param numOfPhaseBuckets   the number of buckets in a grid time step
+   */
+  public TrajectoryCache(final int capacity,
+                         double velocityBucketSize,
+                         int numOfPhaseBuckets) {
+    assert capacity > 0 && velocityBucketSize > 0.0 && numOfPhaseBuckets > 0;
+    this.velocityBucketSize = velocityBucketSize;
+    this.numOfPhaseBuckets = numOfPhaseBuckets;
+    this.footprints = new LinkedHashMap<Key,Footprint>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key,Footprint> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the velocity bucket of a velocity.
+   *
+   * @param velocity  the velocity
+   * @return the velocity bucket
+   */
+  public long calcVelocityBucket(double velocity) {
+    return Math.round(velocity / velocityBucketSize);
+  }
+
+  /**
+   * Get the representative velocity of a velocity bucket.
+   *
+   * @param velocityBucket  the velocity bucket
+   * @return the representative velocity
+   */
+  public double calcVelocity(long velocityBucket) {
+    return velocityBucket * velocityBucketSize;
+  }
+
+  /**
+   * Get the phase bucket of the remaining time in a grid time step.
+   *
+   * @param remainingTime  the remaining time
+   * @param gridTimeStep   the grid time step
+   * @return the phase bucket
+   */
+  public int calcPhaseBucket(double remainingTime, double gridTimeStep) {
+    return (int)Math.round(remainingTime / gridTimeStep * numOfPhaseBuckets);
+  }
+
+  /**
+   * Get the representative remaining time of a phase bucket.
+   *
+   * @param phaseBucket   the phase bucket
+   * @param gridTimeStep  the grid time step
+   * @return the representative remaining time
+   */
+  public double calcRemainingTime(int phaseBucket, double gridTimeStep) {
+    return phaseBucket * gridTimeStep / numOfPhaseBuckets;
+  }
+
+  /**
+   * Get the footprint of a key.
+   *
+   * @param key  the key
+   * @return the footprint; null if the footprint is not in the cache
+   */
+  public synchronized Footprint get(Key key) {
+    Footprint footprint = footprints.get(key);
+    if (footprint != null) {
+      numOfHits++;
+    } else {
+      numOfMisses++;
+    }
+    return footprint;
+  }
+
+  /**
+   * Store the footprint of a key.
+   *
+   * @param key        the key
+   * @param footprint  the footprint
+   */
+  public synchronized void put(Key key, Footprint footprint) {
+    footprints.put(key, footprint);
+  }
+
+  /**
+   * Get the number of footprints in the cache.
+   *
+   * @return the number of footprints in the cache
+   */
+  public synchronized int size() {
+    return footprints.size();
+  }
+
+  /**
+   * Get the number of cache hits.
+   *
+   * @return the number of cache hits
+   */
+  public synchronized long getNumOfHits() {
+    return numOfHits;
+  }
+
+  /**
+   * Get the number of cache misses.
+   *
+   * @return the number of cache misses
+   */
+  public synchronized long getNumOfMisses() {
+    return numOfMisses;
+  }
+}
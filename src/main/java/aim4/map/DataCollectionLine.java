@@ -33,16 +33,28 @@ package aim4.map;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import aim4.vehicle.VehicleSimView;
+import aim4.vehicle.VinRegistry;
 
 /**
  * The data collection line.
+ * <p>
+ * By default the line keeps the times of all crossings until the end of
+ * the simulation.  In the streaming mode, the line keeps only the crossings
+ * since the last call of {@link #printPendingCrossings(PrintStream)}, plus
+ * the last crossing of the vehicles that crossed the line within the last
+ * NO_REPEAT_TIME_PERIOD, so its memory does not grow with the length of
+ * the simulation.
  */
 public class DataCollectionLine {
 
@@ -53,6 +65,13 @@ public class DataCollectionLine {
   /** The no repeat time period */
   private static final double NO_REPEAT_TIME_PERIOD = 1.0; // seconds
 
+  /** The initial capacity of the buffer of the pending crossings */
+  private static final int INITIAL_PENDING_CAPACITY = 16;
+
+  /** The header of the CSV file of the crossings */
+  public static final String CSV_HEADER =
+    "VIN,Time,DCLname,vType,startLaneId,destRoad";
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -70,6 +89,20 @@ public class DataCollectionLine {
    * through the line more than once within the NO_REPEAT_TIME_PERIOD.
    */
   private boolean isNoRepeat;
+  /** Whether the line is in the streaming mode */
+  private boolean isStreaming;
+  /**
+   * The time of the last crossing of the vehicles that crossed the line
+   * recently, in the order of the crossings.  Used in the streaming mode
+   * only.
+   */
+  private LinkedHashMap<Integer,Double> vinToLastTime;
+  /** The VINs of the pending crossings */
+  private int[] pendingVINs;
+  /** The times of the pending crossings */
+  private double[] pendingTimes;
+  /** The number of pending crossings */
+  private int numOfPendingCrossings;
 
   /////////////////////////////////
   // CONSTRUCTORS
@@ -93,6 +126,11 @@ public class DataCollectionLine {
     this.vinToTime = new HashMap<Integer,List<Double>>();
     this.line = new Line2D.Double(p1, p2);
     this.isNoRepeat = isNoRepeat;
+    this.isStreaming = false;
+    this.vinToLastTime = null;
+    this.pendingVINs = null;
+    this.pendingTimes = null;
+    this.numOfPendingCrossings = 0;
   }
 
   /////////////////////////////////
@@ -120,12 +158,14 @@ public class DataCollectionLine {
   public boolean intersect(VehicleSimView v, double time,
                            Point2D p1, Point2D p2) {
     int vin = v.getVIN();
+    Double lastTime = getLastTime(vin);
     if (!isNoRepeat
-      || !vinToTime.containsKey(vin)
-      || vinToTime.get(vin).get(vinToTime.get(vin).size()-1)
-        + NO_REPEAT_TIME_PERIOD < time) {
+      || lastTime == null
+      || lastTime + NO_REPEAT_TIME_PERIOD < time) {
       if (line.intersectsLine(p1.getX(), p1.getY(), p2.getX(), p2.getY())) {
-        if (!vinToTime.containsKey(vin)) {
+        if (isStreaming) {
+          addPendingCrossing(vin, time);
+        } else if (!vinToTime.containsKey(vin)) {
           List<Double> times = new LinkedList<Double>();
           times.add(time);
           vinToTime.put(vin, times);
@@ -161,7 +201,7 @@ public class DataCollectionLine {
   }
 
   /**
-   * Get the VINs of all vehicles.
+   * Get the VINs of all vehicles.  The set is empty in the streaming mode.
    *
    * @return the VINs of all vehicles
    */
@@ -179,4 +219,146 @@ public class DataCollectionLine {
     return vinToTime.get(vin);
   }
 
+  // streaming
+
+  /**
+   * Set whether the line is in the streaming mode.  Switching the mode
+   * discards the crossings recorded so far.
+   *
+   * @param isStreaming  whether the line is in the streaming mode
+   */
+  public void setStreaming(boolean isStreaming) {
+    this.isStreaming = isStreaming;
+    vinToTime = new HashMap<Integer,List<Double>>();
+    if (isStreaming) {
+      vinToLastTime = new LinkedHashMap<Integer,Double>();
+      pendingVINs = new int[INITIAL_PENDING_CAPACITY];
+      pendingTimes = new double[INITIAL_PENDING_CAPACITY];
+    } else {
+      vinToLastTime = null;
+      pendingVINs = null;
+      pendingTimes = null;
+    }
+    numOfPendingCrossings = 0;
+  }
+
+  /**
+   * Whether the line is in the streaming mode.
+   *
+   * @return whether the line is in the streaming mode
+   */
+  public boolean isStreaming() {
+    return isStreaming;
+  }
+
+  /**
+   * Get the number of crossings that have not been printed.
+   *
+   * @return the number of crossings that have not been printed; 0 if the
+   *         line is not in the streaming mode
+   */
+  public int getNumOfPendingCrossings() {
+    return numOfPendingCrossings;
+  }
+
+  /**
+   * Print all the recorded crossings, one line per crossing, in the format
+   * given by {@link #CSV_HEADER}.
+   *
+   * @param outfile  the output stream
+   */
+  public void printCrossings(PrintStream outfile) {
+    for (int vin : vinToTime.keySet()) {
+      for(double time : vinToTime.get(vin)) {
+        printCrossing(outfile, vin, time);
+      }
+    }
+  }
+
+  /**
+   * Print the crossings recorded since the last call of this method in the
+   * order in which they happened, and forget them.  Does nothing if the
+   * line is not in the streaming mode.
+   *
+   * @param outfile  the output stream
+   */
+  public void printPendingCrossings(PrintStream outfile) {
+    for (int i = 0; i < numOfPendingCrossings; i++) {
+      printCrossing(outfile, pendingVINs[i], pendingTimes[i]);
+    }
+    if (numOfPendingCrossings > 0) {
+      forgetOldCrossings(pendingTimes[numOfPendingCrossings - 1]);
+    }
+    numOfPendingCrossings = 0;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the time of the last crossing of a vehicle.  In the streaming mode
+   * the time is forgotten NO_REPEAT_TIME_PERIOD after the crossing.
+   *
+   * @param vin  the VIN of the vehicle
+   * @return the time of the last crossing; null if there is none
+   */
+  private Double getLastTime(int vin) {
+    if (isStreaming) {
+      return vinToLastTime.get(vin);
+    } else {
+      List<Double> times = vinToTime.get(vin);
+      return (times != null) ? times.get(times.size() - 1) : null;
+    }
+  }
+
+  /**
+   * Record a crossing in the streaming mode.
+   *
+   * @param vin   the VIN of the vehicle
+   * @param time  the time of the crossing
+   */
+  private void addPendingCrossing(int vin, double time) {
+    if (numOfPendingCrossings == pendingVINs.length) {
+      pendingVINs = Arrays.copyOf(pendingVINs, 2 * pendingVINs.length);
+      pendingTimes = Arrays.copyOf(pendingTimes, 2 * pendingTimes.length);
+    }
+    pendingVINs[numOfPendingCrossings] = vin;
+    pendingTimes[numOfPendingCrossings] = time;
+    numOfPendingCrossings++;
+    if (isNoRepeat) {
+      // move the vehicle to the end of the order of the crossings
+      vinToLastTime.remove(vin);
+      vinToLastTime.put(vin, time);
+    }
+  }
+
+  /**
+   * Forget the last crossings that can no longer prevent a vehicle from
+   * being counted again.
+   *
+   * @param time  the time of the latest crossing
+   */
+  private void forgetOldCrossings(double time) {
+    Iterator<Double> iter = vinToLastTime.values().iterator();
+    while (iter.hasNext() && iter.next() + NO_REPEAT_TIME_PERIOD < time) {
+      iter.remove();
+    }
+  }
+
+  /**
+   * Print a crossing.
+   *
+   * @param outfile  the output stream
+   * @param vin      the VIN of the vehicle
+   * @param time     the time of the crossing
+   */
+  private void printCrossing(PrintStream outfile, int vin, double time) {
+    outfile.printf("%d,%.4f,%s,%s,%d,%s\n",
+                   vin, time, name,
+                   VinRegistry.getVehicleSpecFromVIN(vin).getName(),
+                   VinRegistry.getSpawnPointFromVIN(vin).getLane().getId(),
+                   VinRegistry.getDestRoadFromVIN(vin).getName());
+  }
+
 }
@@ -40,14 +40,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import aim4.config.Debug;
 import aim4.im.IntersectionManager;
 import aim4.map.lane.Lane;
 import aim4.map.lane.LineSegmentLane;
+import aim4.sim.SimContext;
 import aim4.util.ArrayListRegistry;
 import aim4.util.GeomMath;
 import aim4.util.Registry;
-import aim4.vehicle.VinRegistry;
 
 
 /**
@@ -358,7 +357,7 @@ public class GridMap implements BasicMap {
     spawnPoints.addAll(horizontalSpawnPoints);
     spawnPoints.addAll(verticalSpawnPoints);
 
-    Debug.currentMap = this;
+    SimContext.current().setMap(this);
   }
 
   /**
@@ -418,13 +417,15 @@ public class GridMap implements BasicMap {
   @Override
   public double getMaximumSpeedLimit() {
     if(memoMaximumSpeedLimit < 0) {
+      double maximumSpeedLimit = -1;
       for(Road r : getRoads()) {
         for(Lane l : r.getLanes()) {
-          if(l.getSpeedLimit() > memoMaximumSpeedLimit) {
-            memoMaximumSpeedLimit = l.getSpeedLimit();
+          if(l.getSpeedLimit() > maximumSpeedLimit) {
+            maximumSpeedLimit = l.getSpeedLimit();
           }
         }
       }
+      memoMaximumSpeedLimit = maximumSpeedLimit;
     }
     return memoMaximumSpeedLimit;
   }
@@ -619,17 +620,9 @@ public class GridMap implements BasicMap {
       return;
     }
     // TODO: sort by time and LineId and VIN
-    outfile.printf("VIN,Time,DCLname,vType,startLaneId,destRoad\n");
+    outfile.print(DataCollectionLine.CSV_HEADER + "\n");
     for (DataCollectionLine line : dataCollectionLines) {
-      for (int vin : line.getAllVIN()) {
-        for(double time : line.getTimes(vin)) {
-          outfile.printf("%d,%.4f,%s,%s,%d,%s\n",
-                         vin, time, line.getName(),
-                         VinRegistry.getVehicleSpecFromVIN(vin).getName(),
-                         VinRegistry.getSpawnPointFromVIN(vin).getLane().getId(),
-                         VinRegistry.getDestRoadFromVIN(vin).getName());
-        }
-      }
+      line.printCrossings(outfile);
     }
 
     outfile.close();
@@ -31,11 +31,9 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.map;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
-import aim4.config.Debug;
-import aim4.config.SimConfig;
 import aim4.config.TrafficSignalPhase;
 import aim4.im.RoadBasedIntersection;
 import aim4.im.RoadBasedTrackModel;
@@ -58,6 +56,7 @@ import aim4.map.destination.RandomDestinationSelector;
 import aim4.map.destination.RatioDestinationSelector;
 import aim4.map.destination.TurnBasedDestinationSelector;
 import aim4.map.lane.Lane;
+import aim4.sim.SimContext;
 import aim4.util.Util;
 import aim4.vehicle.VehicleSpec;
 import aim4.vehicle.VehicleSpecDatabase;
@@ -82,15 +81,17 @@ public class GridMapUtil {
   };
 
   /**
-   * The uniform distributed spawn spec generator.
+   * The uniform distributed spawn spec generator.  The vehicles arrive as a
+   * Poisson process whose rate is the traffic level, and each vehicle is
+   * resized to fit the lane of the spawn point.
    */
   public static class UniformSpawnSpecGenerator implements SpawnSpecGenerator {
     /** The proportion of each spec */
     private List<Double> proportion;
     /** The destination selector */
     private DestinationSelector destinationSelector;
-    /** probability of generating a vehicle in each spawn time step */
-    private double prob;
+    /** The number of vehicles arriving per second */
+    private double trafficLevel;
 
     /**
      * Create an uniform spawn specification generator.
@@ -107,10 +108,7 @@ public class GridMapUtil {
         proportion.add(p);
       }
       this.destinationSelector = destinationSelector;
-
-      prob = trafficLevel * SimConfig.SPAWN_TIME_STEP;
-      // Cannot generate more than one vehicle in each spawn time step
-      assert prob <= 1.0;
+      this.trafficLevel = trafficLevel;
     }
 
     /**
@@ -118,58 +116,57 @@ public class GridMapUtil {
      */
     @Override
     public List<SpawnSpec> act(SpawnPoint spawnPoint, double timeStep) {
-      List<SpawnSpec> result = new LinkedList<SpawnSpec>();
-
-      double initTime = spawnPoint.getCurrentTime();
-      for (double time = initTime; time < initTime + timeStep; time += SimConfig.SPAWN_TIME_STEP) {
-        if (Util.random.nextDouble() < prob) {
-          int i = Util.randomIndex(proportion);
-          VehicleSpec baseSpec = VehicleSpecDatabase.getVehicleSpecById(i);
-
-          // Enforce size equal to LANE WIDTH as requested
-          double laneWidth = spawnPoint.getLane().getWidth();
-          double fixedLength = laneWidth;
-          double fixedWidth = laneWidth;
-
-          VehicleSpec vehicleSpec = new VehicleSpec(
-              baseSpec.getName(),
-              baseSpec.getMaxAcceleration(),
-              baseSpec.getMaxDeceleration(),
-              baseSpec.getMaxVelocity(),
-              baseSpec.getMinVelocity(),
-              fixedLength,
-              fixedWidth,
-              fixedLength * 0.25, // Front axle displacement (25% from front)
-              fixedLength * 0.75, // Rear axle displacement (75% from front)
-              fixedWidth * 0.9, // Wheel span (90% of width)
-              fixedWidth * 0.075, // Wheel radius
-              fixedWidth * 0.05, // Wheel width
-              baseSpec.getMaxSteeringAngle(),
-              baseSpec.getMaxTurnPerSecond());
-          Road destinationRoad = destinationSelector.selectDestination(spawnPoint.getLane());
-
-          // maybe spawnPoint.getCurrentTime() is incorrect
+      List<SpawnSpec> result = Collections.emptyList();
 
-          result.add(new SpawnSpec(spawnPoint.getCurrentTime(),
-              vehicleSpec,
-              destinationRoad));
+      double endTime = spawnPoint.getCurrentTime() + timeStep;
+      double arrivalTime = firstArrivalTime(spawnPoint, trafficLevel);
+      while (arrivalTime < endTime) {
+        if (result.isEmpty()) {
+          result = new ArrayList<SpawnSpec>(1);
         }
+        int i = Util.randomIndex(proportion, spawnPoint.getRandom());
+        // Enforce size equal to LANE WIDTH as requested
+        VehicleSpec vehicleSpec = VehicleSpecDatabase.getLaneSizedSpec(
+            i, spawnPoint.getLane().getWidth());
+        Road destinationRoad = destinationSelector.selectDestination(spawnPoint.getLane());
+
+        // maybe spawnPoint.getCurrentTime() is incorrect
+
+        result.add(new SpawnSpec(spawnPoint.getCurrentTime(),
+            vehicleSpec,
+            destinationRoad));
+        arrivalTime = nextArrivalTime(spawnPoint, arrivalTime, trafficLevel);
       }
+      spawnPoint.setNextArrivalTime(arrivalTime);
 
       return result;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<VehicleSpec> getVehicleSpecs(SpawnPoint spawnPoint) {
+      List<VehicleSpec> specs = new ArrayList<VehicleSpec>(proportion.size());
+      for (int i = 0; i < proportion.size(); i++) {
+        specs.add(VehicleSpecDatabase.getLaneSizedSpec(
+            i, spawnPoint.getLane().getWidth()));
+      }
+      return specs;
+    }
   }
 
   /**
-   * The spawn spec generator that generates only one spec.
+   * The spawn spec generator that generates only one spec.  The vehicles
+   * arrive as a Poisson process whose rate is the traffic level.
    */
   public static class OneSpawnSpecGenerator implements SpawnSpecGenerator {
     /** The vehicle specification */
     private VehicleSpec vehicleSpec;
     /** The destination selector */
     private DestinationSelector destinationSelector;
-    /** the probability of generating a vehicle in each spawn time step */
-    private double prob;
+    /** The number of vehicles arriving per second */
+    private double trafficLevel;
 
     /**
      * Create a spawn spec generator that generates only one spec.
@@ -183,10 +180,7 @@ public class GridMapUtil {
         DestinationSelector destinationSelector) {
       vehicleSpec = VehicleSpecDatabase.getVehicleSpecById(vehicleSpecId);
       this.destinationSelector = destinationSelector;
-
-      prob = trafficLevel * SimConfig.SPAWN_TIME_STEP;
-      // Cannot generate more than one vehicle in each spawn time step
-      assert prob <= 1.0;
+      this.trafficLevel = trafficLevel;
     }
 
     /**
@@ -194,21 +188,33 @@ public class GridMapUtil {
      */
     @Override
     public List<SpawnSpec> act(SpawnPoint spawnPoint, double timeStep) {
-      List<SpawnSpec> result = new LinkedList<SpawnSpec>();
+      List<SpawnSpec> result = Collections.emptyList();
 
-      double initTime = spawnPoint.getCurrentTime();
-      for (double time = initTime; time < initTime + timeStep; time += SimConfig.SPAWN_TIME_STEP) {
-        if (Util.random.nextDouble() < prob) {
-          Road destinationRoad = destinationSelector.selectDestination(spawnPoint.getLane());
-
-          result.add(new SpawnSpec(spawnPoint.getCurrentTime(),
-              vehicleSpec,
-              destinationRoad));
+      double endTime = spawnPoint.getCurrentTime() + timeStep;
+      double arrivalTime = firstArrivalTime(spawnPoint, trafficLevel);
+      while (arrivalTime < endTime) {
+        if (result.isEmpty()) {
+          result = new ArrayList<SpawnSpec>(1);
         }
+        Road destinationRoad = destinationSelector.selectDestination(spawnPoint.getLane());
+
+        result.add(new SpawnSpec(spawnPoint.getCurrentTime(),
+            vehicleSpec,
+            destinationRoad));
+        arrivalTime = nextArrivalTime(spawnPoint, arrivalTime, trafficLevel);
       }
+      spawnPoint.setNextArrivalTime(arrivalTime);
 
       return result;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<VehicleSpec> getVehicleSpecs(SpawnPoint spawnPoint) {
+      return Collections.singletonList(vehicleSpec);
+    }
   }
 
   /**
@@ -250,6 +256,14 @@ public class GridMapUtil {
       }
       return result;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<VehicleSpec> getVehicleSpecs(SpawnPoint spawnPoint) {
+      return Collections.singletonList(vehicleSpec);
+    }
   }
 
   /**
@@ -281,7 +295,7 @@ public class GridMapUtil {
         double spawnPeriod) {
       this.destinationRoads = new ArrayList<Road>(destinationRoads.size());
       for (Road road : destinationRoads) {
-        if (Debug.currentMap.getRoad(spawnPoint.getLane()).getDual() != road) {
+        if (SimContext.current().getMap().getRoad(spawnPoint.getLane()).getDual() != road) {
           this.destinationRoads.add(road);
         }
       }
@@ -314,6 +328,58 @@ public class GridMapUtil {
       } // else wait until next spawn time
       return result;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<VehicleSpec> getVehicleSpecs(SpawnPoint spawnPoint) {
+      List<VehicleSpec> specs =
+        new ArrayList<VehicleSpec>(VehicleSpecDatabase.getNumOfSpec());
+      for (int i = 0; i < VehicleSpecDatabase.getNumOfSpec(); i++) {
+        specs.add(VehicleSpecDatabase.getVehicleSpecById(i));
+      }
+      return specs;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the time of the first arrival at a spawn point that has not acted
+   * yet in the current time step.  The arrival is sampled when the spawn
+   * point acts for the first time.
+   *
+   * @param spawnPoint  the spawn point
+   * @param rate        the number of vehicles arriving per second
+   * @return the time of the first arrival
+   */
+  private static double firstArrivalTime(SpawnPoint spawnPoint, double rate) {
+    double arrivalTime = spawnPoint.getNextArrivalTime();
+    if (Double.isNaN(arrivalTime)) {
+      arrivalTime =
+        nextArrivalTime(spawnPoint, spawnPoint.getCurrentTime(), rate);
+    }
+    return arrivalTime;
+  }
+
+  /**
+   * Sample the time of the arrival that follows an arrival of a Poisson
+   * process, using the random stream of the spawn point.
+   *
+   * @param spawnPoint  the spawn point
+   * @param time        the time of the previous arrival
+   * @param rate        the number of vehicles arriving per second
+   * @return the time of the next arrival; infinity if the rate is zero
+   */
+  private static double nextArrivalTime(SpawnPoint spawnPoint, double time,
+                                        double rate) {
+    if (rate <= 0.0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    return time - Math.log(1.0 - spawnPoint.getRandom().nextDouble()) / rate;
   }
 
   /////////////////////////////////
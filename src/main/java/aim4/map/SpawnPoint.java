@@ -32,9 +32,12 @@ package aim4.map;
 
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.Collections;
 import java.util.List;
+import java.util.SplittableRandom;
 
 import aim4.map.lane.Lane;
+import aim4.sim.SimContext;
 import aim4.vehicle.VehicleSpec;
 
 /**
@@ -114,6 +117,19 @@ public class SpawnPoint {
      * @return the list of spawn spec generated in this time step.
      */
     List<SpawnSpec> act(SpawnPoint spawnPoint, double timeStep);
+
+    /**
+     * Get the vehicle specifications of the vehicles that the generator may
+     * spawn at a spawn point, so that the quantities that depend on them can
+     * be computed in advance.
+     *
+     * @param spawnPoint  the spawn point
+     * @return the vehicle specifications; an empty list if they are not
+     *         known in advance
+     */
+    default List<VehicleSpec> getVehicleSpecs(SpawnPoint spawnPoint) {
+      return Collections.emptyList();
+    }
   }
 
 
@@ -140,6 +156,13 @@ public class SpawnPoint {
   private Rectangle2D noVehicleZone;
   /** The vehicle spec chooser */
   private SpawnSpecGenerator vehicleSpecChooser;
+  /** The random stream of the spawn point; null if not created yet */
+  private SplittableRandom random;
+  /**
+   * The time of the next arrival of a vehicle scheduled by the vehicle spec
+   * chooser; NaN if the chooser does not schedule arrivals.
+   */
+  private double nextArrivalTime = Double.NaN;
 
   /////////////////////////////////
   // CONSTRUCTORS
@@ -220,6 +243,17 @@ public class SpawnPoint {
     return spawnSpecs;
   }
 
+  /**
+   * Move the current time forward without acting.  It is used when the
+   * spawn point has been skipped because no vehicle could arrive.
+   *
+   * @param time  the new current time
+   */
+  public void skipTo(double time) {
+    assert time >= currentTime;
+    currentTime = time;
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -235,6 +269,71 @@ public class SpawnPoint {
     return currentTime;
   }
 
+  /**
+   * Get the time of the next arrival of a vehicle scheduled by the vehicle
+   * spec chooser.
+   *
+   * @return the time of the next arrival; NaN if no arrival is scheduled
+   */
+  public double getNextArrivalTime() {
+    return nextArrivalTime;
+  }
+
+  /**
+   * Set the time of the next arrival of a vehicle.  Vehicle spec choosers
+   * that know the arrival times in advance call this method, so that the
+   * spawn point does not need to act before the arrival.
+   *
+   * @param nextArrivalTime  the time of the next arrival; infinity if no
+   *                         vehicle will arrive
+   */
+  public void setNextArrivalTime(double nextArrivalTime) {
+    this.nextArrivalTime = nextArrivalTime;
+  }
+
+  /**
+   * Get the earliest time at which the spawn point may generate a spawn
+   * spec.  A spawn point whose vehicle spec chooser does not schedule the
+   * arrivals may generate a spawn spec at any time, so it must act in every
+   * time step.
+   *
+   * @return the earliest time at which the spawn point may generate a
+   *         spawn spec
+   */
+  public double getWakeUpTime() {
+    return Double.isNaN(nextArrivalTime) ? currentTime : nextArrivalTime;
+  }
+
+  /**
+   * Get the vehicle specifications of the vehicles that may be spawned at
+   * the spawn point.
+   *
+   * @return the vehicle specifications; an empty list if they are not known
+   *         in advance
+   */
+  public List<VehicleSpec> getVehicleSpecs() {
+    if (vehicleSpecChooser == null) {
+      return Collections.emptyList();
+    }
+    return vehicleSpecChooser.getVehicleSpecs(this);
+  }
+
+  /**
+   * Get the random stream of the spawn point.  The stream is created from
+   * the context of the current thread the first time it is needed and is
+   * keyed by the ID of the lane, so the vehicles spawned here do not depend
+   * on the order in which the spawn points act.
+   *
+   * @return the random stream of the spawn point
+   */
+  public SplittableRandom getRandom() {
+    if (random == null) {
+      random = SimContext.current().newStream(SimContext.SPAWN_STREAM,
+                                              lane.getId());
+    }
+    return random;
+  }
+
   /**
    * Get the initial position.
    *
@@ -297,6 +396,7 @@ public class SpawnPoint {
   public void setVehicleSpecChooser(SpawnSpecGenerator vehicleSpecChooser) {
     // assert this.vehicleSpecChooser == null;  // TODO think whether it is okay
     this.vehicleSpecChooser = vehicleSpecChooser;
+    this.nextArrivalTime = Double.NaN;
   }
 
 }
@@ -0,0 +1,193 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The scheduler of the spawn points of a map.  It keeps the spawn points in
+ * a priority queue ordered by the times at which they wake up (see
+ * {@link SpawnPoint#getWakeUpTime()}), so that in each time step only the
+ * spawn points at which a vehicle may arrive have to act.  At low traffic
+ * levels, or on maps with many spawn points, most spawn points are not
+ * touched in most time steps.
+ */
+public class SpawnScheduler {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The spawn points */
+  private final List<SpawnPoint> spawnPoints;
+  /**
+   * The binary heap of the indices of the spawn points that are waiting,
+   * ordered by their wake-up times and then by their indices
+   */
+  private final int[] heap;
+  /** The number of spawn points in the heap */
+  private int heapSize;
+  /** The wake-up times of the spawn points when they entered the heap */
+  private final double[] wakeUpTimes;
+  /** The indices of the spawn points that are due in the current step */
+  private final int[] due;
+  /** The number of spawn points that are due in the current step */
+  private int dueSize;
+  /** The spawn points that are due in the current step */
+  private final List<SpawnPoint> dueSpawnPoints;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a scheduler of spawn points.  All the spawn points are due in
+   * the first time step.
+   *
+   * @param spawnPoints  the spawn points
+   */
+  public SpawnScheduler(List<SpawnPoint> spawnPoints) {
+    int n = spawnPoints.size();
+    this.spawnPoints = spawnPoints;
+    this.heap = new int[n];
+    this.heapSize = 0;
+    this.wakeUpTimes = new double[n];
+    this.due = new int[n];
+    this.dueSize = n;
+    for (int i = 0; i < n; i++) {
+      due[i] = i;
+    }
+    this.dueSpawnPoints = new ArrayList<SpawnPoint>(n);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the spawn points that must act in a time step.  The spawn points
+   * returned by the previous call must have acted, and are put back into
+   * the queue according to their new wake-up times.  The current times of
+   * the spawn points returned are moved forward to the current time.
+   *
+   * @param currentTime  the current time
+   * @param timeStep     the time step
+   * @return the spawn points that must act in the time step, in the order
+   *         in which they are listed in the map.  The list is reused by
+   *         the next call.
+   */
+  public List<SpawnPoint> getDueSpawnPoints(double currentTime,
+                                            double timeStep) {
+    for (int k = 0; k < dueSize; k++) {
+      int i = due[k];
+      wakeUpTimes[i] = spawnPoints.get(i).getWakeUpTime();
+      push(i);
+    }
+    dueSize = 0;
+    double endTime = currentTime + timeStep;
+    while (heapSize > 0 && wakeUpTimes[heap[0]] < endTime) {
+      due[dueSize++] = pop();
+    }
+    Arrays.sort(due, 0, dueSize);
+    dueSpawnPoints.clear();
+    for (int k = 0; k < dueSize; k++) {
+      SpawnPoint spawnPoint = spawnPoints.get(due[k]);
+      if (spawnPoint.getCurrentTime() < currentTime) {
+        spawnPoint.skipTo(currentTime);
+      }
+      dueSpawnPoints.add(spawnPoint);
+    }
+    return dueSpawnPoints;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Whether a spawn point should leave the heap before another one.
+   *
+   * @param i  the index of a spawn point
+   * @param j  the index of another spawn point
+   * @return whether the spawn point i should leave the heap before j
+   */
+  private boolean isBefore(int i, int j) {
+    return wakeUpTimes[i] < wakeUpTimes[j]
+           || (wakeUpTimes[i] == wakeUpTimes[j] && i < j);
+  }
+
+  /**
+   * Put a spawn point into the heap.
+   *
+   * @param i  the index of the spawn point
+   */
+  private void push(int i) {
+    int k = heapSize++;
+    while (k > 0) {
+      int parent = (k - 1) >>> 1;
+      if (!isBefore(i, heap[parent])) {
+        break;
+      }
+      heap[k] = heap[parent];
+      k = parent;
+    }
+    heap[k] = i;
+  }
+
+  /**
+   * Remove the first spawn point from the heap.
+   *
+   * @return the index of the spawn point
+   */
+  private int pop() {
+    int first = heap[0];
+    int last = heap[--heapSize];
+    int k = 0;
+    while (true) {
+      int child = 2 * k + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && isBefore(heap[child + 1], heap[child])) {
+        child++;
+      }
+      if (!isBefore(heap[child], last)) {
+        break;
+      }
+      heap[k] = heap[child];
+      k = child;
+    }
+    heap[k] = last;
+    return first;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.map.destination;
+
+import java.util.SplittableRandom;
+
+import aim4.map.BasicMap;
+import aim4.map.SpawnPoint;
+import aim4.map.lane.Lane;
+import aim4.sim.SimContext;
+import aim4.util.IntHashMap;
+
+/**
+ * The random streams of a destination selector, one for each lane from
+ * which vehicles are spawned.  A vehicle's destination is therefore drawn
+ * from the stream of its lane, regardless of the order in which the spawn
+ * points use the selector.
+ */
+class DestinationStreams {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The random streams, indexed by the IDs of the lanes */
+  private final IntHashMap<SplittableRandom> streams;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create the random streams of the spawn points of a map.  The streams
+   * are created from the context of the current thread, which must be the
+   * context of the simulation.
+   *
+   * @param map  the map
+   */
+  DestinationStreams(BasicMap map) {
+    streams = new IntHashMap<SplittableRandom>();
+    for (SpawnPoint sp : map.getSpawnPoints()) {
+      get(sp.getLane());
+    }
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the random stream of a lane.  The stream of a lane without a spawn
+   * point is created on demand.
+   *
+   * @param lane  the lane
+   * @return the random stream of the lane
+   */
+  synchronized SplittableRandom get(Lane lane) {
+    SplittableRandom stream = streams.get(lane.getId());
+    if (stream == null) {
+      stream = SimContext.current().newStream(SimContext.DESTINATION_STREAM,
+                                              lane.getId());
+      streams.put(lane.getId(), stream);
+    }
+    return stream;
+  }
+}
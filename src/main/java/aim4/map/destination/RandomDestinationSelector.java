@@ -31,12 +31,12 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.map.destination;
 
 import java.util.List;
+import java.util.SplittableRandom;
 
-import aim4.config.Debug;
 import aim4.map.BasicMap;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
-import aim4.util.Util;
+import aim4.sim.SimContext;
 
 /**
  * The RandomDestinationSelector selects Roads uniformly at random, but will
@@ -53,6 +53,8 @@ public class RandomDestinationSelector implements DestinationSelector {
    * The Set of legal Roads that a vehicle can use as an ultimate destination.
    */
   private List<Road> destinationRoads;
+  /** The random streams of the lanes */
+  private DestinationStreams streams;
 
   /////////////////////////////////
   // CLASS CONSTRUCTORS
@@ -66,6 +68,7 @@ public class RandomDestinationSelector implements DestinationSelector {
    */
   public RandomDestinationSelector(BasicMap layout) {
     destinationRoads = layout.getDestinationRoads();
+    streams = new DestinationStreams(layout);
   }
 
   /////////////////////////////////
@@ -77,12 +80,13 @@ public class RandomDestinationSelector implements DestinationSelector {
    */
   @Override
   public Road selectDestination(Lane currentLane) {
-    Road currentRoad = Debug.currentMap.getRoad(currentLane);
+    Road currentRoad = SimContext.current().getMap().getRoad(currentLane);
+    SplittableRandom random = streams.get(currentLane);
     Road dest =
-      destinationRoads.get(Util.random.nextInt(destinationRoads.size()));
+      destinationRoads.get(random.nextInt(destinationRoads.size()));
     while(dest.getDual() == currentRoad) {
       dest =
-        destinationRoads.get(Util.random.nextInt(destinationRoads.size()));
+        destinationRoads.get(random.nextInt(destinationRoads.size()));
     }
     return dest;
   }
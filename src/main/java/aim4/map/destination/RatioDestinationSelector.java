@@ -32,13 +32,12 @@ package aim4.map.destination;
 
 import java.util.List;
 
-import aim4.config.Debug;
 import aim4.map.BasicMap;
 import aim4.map.Road;
 import aim4.map.SpawnPoint;
 import aim4.map.TrafficVolume;
 import aim4.map.lane.Lane;
-import aim4.util.Util;
+import aim4.sim.SimContext;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -67,6 +66,10 @@ public class RatioDestinationSelector implements DestinationSelector {
    * The probability of making a right turn.
    */
   private Map<Integer,Double> rightTurnProb;
+  /**
+   * The random streams of the lanes.
+   */
+  private DestinationStreams streams;
 
 
   /////////////////////////////////
@@ -93,6 +96,7 @@ public class RatioDestinationSelector implements DestinationSelector {
       rightTurnProb.put(laneId, trafficVolume.getRightTurnVolume(laneId) /
                                 trafficVolume.getThroughVolume(laneId));
     }
+    streams = new DestinationStreams(map);
   }
 
   /////////////////////////////////
@@ -104,9 +108,9 @@ public class RatioDestinationSelector implements DestinationSelector {
    */
   @Override
   public Road selectDestination(Lane currentLane) {
-    Road currentRoad = Debug.currentMap.getRoad(currentLane);
+    Road currentRoad = SimContext.current().getMap().getRoad(currentLane);
     int laneId = currentLane.getId();
-    double prob = Util.random.nextDouble();
+    double prob = streams.get(currentLane).nextDouble();
     if (prob < leftTurnProb.get(laneId)) {
       return trafficVolume.getLeftTurnRoad(currentRoad);
     } else if (prob >= 1.0 - rightTurnProb.get(laneId)) {
@@ -31,12 +31,12 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.map.destination;
 
 import java.util.List;
+import java.util.SplittableRandom;
 
-import aim4.config.Debug;
 import aim4.map.BasicMap;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
-import aim4.util.Util;
+import aim4.sim.SimContext;
 
 /**
  * A destination selector that only allows vehicles from the south
@@ -53,6 +53,8 @@ public class SouthOnlyDestinationSelector implements DestinationSelector {
    * The set of roads that a vehicle can use as an ultimate destination.
    */
   private List<Road> destinationRoads;
+  /** The random streams of the lanes */
+  private DestinationStreams streams;
 
   /////////////////////////////////
   // CLASS CONSTRUCTORS
@@ -65,6 +67,7 @@ public class SouthOnlyDestinationSelector implements DestinationSelector {
    */
   public SouthOnlyDestinationSelector(BasicMap map) {
     destinationRoads = map.getDestinationRoads();
+    streams = new DestinationStreams(map);
   }
 
   /////////////////////////////////
@@ -81,14 +84,15 @@ public class SouthOnlyDestinationSelector implements DestinationSelector {
     // that is the dual of the starting Road to prevent vehicles 
     // from simply going back from whence they came.
     
-    Road currentRoad = Debug.currentMap.getRoad(currentLane);
+    Road currentRoad = SimContext.current().getMap().getRoad(currentLane);
+    SplittableRandom random = streams.get(currentLane);
     Road dest =
-      destinationRoads.get(Util.random.nextInt(destinationRoads.size()));
+      destinationRoads.get(random.nextInt(destinationRoads.size()));
     
     // Keep selecting until we find a road that is not the dual of current road
     while(dest.getDual() == currentRoad) {
       dest =
-        destinationRoads.get(Util.random.nextInt(destinationRoads.size()));
+        destinationRoads.get(random.nextInt(destinationRoads.size()));
     }
     
     return dest;
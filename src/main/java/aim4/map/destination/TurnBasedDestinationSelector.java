@@ -32,10 +32,10 @@ package aim4.map.destination;
 
 import java.util.List;
 
-import aim4.config.Debug;
 import aim4.map.BasicMap;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
+import aim4.sim.SimContext;
 
 
 //TODO: Need to fix this class to avoid hard-coding
@@ -77,7 +77,7 @@ public class TurnBasedDestinationSelector implements DestinationSelector {
    */
   @Override
   public Road selectDestination(Lane currentLane) {
-    Road currentRoad = Debug.currentMap.getRoad(currentLane);
+    Road currentRoad = SimContext.current().getMap().getRoad(currentLane);
 
     boolean hasLeft = currentLane.hasLeftNeighbor();
     boolean hasRight = currentLane.hasRightNeighbor();
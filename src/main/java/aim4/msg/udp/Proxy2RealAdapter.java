@@ -35,6 +35,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 
 import aim4.msg.i2v.Confirm;
 import aim4.msg.i2v.Reject;
@@ -45,6 +46,94 @@ import aim4.msg.udp.UdpHeader.UdpMessageType;
  */
 public abstract class Proxy2RealAdapter {
 
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The length of a confirm message including the header (in bytes) */
+  public static final int CONFIRM_LENGTH = UdpHeader.LENGTH + 24;
+
+  /** The length of a reject message including the header (in bytes) */
+  public static final int REJECT_LENGTH = UdpHeader.LENGTH;
+
+  /**
+   * The length of a distance-to-front-vehicle message including the header
+   * (in bytes)
+   */
+  public static final int DIST_TO_FRONT_VEHICLE_LENGTH = UdpHeader.LENGTH + 4;
+
+  /////////////////////////////////
+  // CLASS METHODS
+  /////////////////////////////////
+
+  // encoding
+
+  /**
+   * Write a confirm message, including its header and checksum, into a
+   * buffer at its current position, which is advanced past the message.
+   *
+   * @param msg          the confirm message
+   * @param buf          the buffer
+   * @param currentTime  absolute time in seconds
+   * @throws java.nio.BufferOverflowException  if the buffer does not have
+   *                                           enough room for the message
+   */
+  public static void encode(Confirm msg, ByteBuffer buf, double currentTime) {
+    int start = buf.position();
+    putHeader(buf, currentTime, UdpMessageType.I2V_Confirm);
+    buf.putInt(msg.getReservationId());
+    // arrival_time is relative
+    buf.putFloat((float) (msg.getArrivalTime() - currentTime));
+    buf.putFloat((float) msg.getEarlyError());
+    buf.putFloat((float) msg.getLateError());
+    buf.putFloat((float) msg.getArrivalVelocity());
+    // ignore other acceleration for now
+    // TODO: fix it in the future
+    buf.putFloat((float) msg.getAccelerationProfile().peek()[0]);
+    assert buf.position() - start == CONFIRM_LENGTH;
+    putChecksum(buf, start);
+  }
+
+  /**
+   * Write a reject message, including its header and checksum, into a
+   * buffer at its current position, which is advanced past the message.
+   *
+   * @param msg          the reject message
+   * @param buf          the buffer
+   * @param currentTime  absolute time in seconds
+   * @throws java.nio.BufferOverflowException  if the buffer does not have
+   *                                           enough room for the message
+   */
+  public static void encode(Reject msg, ByteBuffer buf, double currentTime) {
+    int start = buf.position();
+    putHeader(buf, currentTime, UdpMessageType.I2V_Reject);
+    assert buf.position() - start == REJECT_LENGTH;
+    putChecksum(buf, start);
+  }
+
+  /**
+   * Write a distance-to-front-vehicle message, including its header and
+   * checksum, into a buffer at its current position, which is advanced past
+   * the message.
+   *
+   * @param distToFrontVehicle  the distance of the vehicles in front
+   * @param buf                 the buffer
+   * @param currentTime         absolute time in seconds
+   * @throws java.nio.BufferOverflowException  if the buffer does not have
+   *                                           enough room for the message
+   */
+  public static void encodeDistToFrontVehicle(double distToFrontVehicle,
+                                              ByteBuffer buf,
+                                              double currentTime) {
+    int start = buf.position();
+    putHeader(buf, currentTime, UdpMessageType.I2V_DistToFrontVehicle);
+    buf.putFloat((float) distToFrontVehicle);
+    assert buf.position() - start == DIST_TO_FRONT_VEHICLE_LENGTH;
+    putChecksum(buf, start);
+  }
+
+  // datagram packets
+
   /**
    * Construct a DatagramPacket of this confirm message
    *
@@ -54,35 +143,13 @@ public abstract class Proxy2RealAdapter {
    *
    * @return a DatagramPacket object which can be sent over UDP representing
    *         this message
-   * @throws IOException
    */
   public static DatagramPacket toDatagramPacket(Confirm msg,
                                                 SocketAddress sa,
-                                                double currentTime)
-                                               throws IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    DataOutputStream dos =
-      getDosWithHeader(baos, currentTime, UdpMessageType.I2V_Confirm);
-    assert dos.size() == UdpHeader.LENGTH;
-
-    dos.writeInt(msg.getReservationId());
-    // arrival_time is relative
-    dos.writeFloat((float) (msg.getArrivalTime() - currentTime));
-    dos.writeFloat((float) msg.getEarlyError());
-    dos.writeFloat((float) msg.getLateError());
-    dos.writeFloat((float) msg.getArrivalVelocity());
-    double accel = msg.getAccelerationProfile().peek()[0];
-    // ignore other acceleration for now
-    // TODO: fix it in the future
-    dos.writeFloat((float) accel);
-//    System.out.printf("I2V_Confirm: acceleration for car to use is %.2f\n",
-//                      accel);
-
-    int udpPacketSize = UdpHeader.LENGTH + 24;
-    assert (baos.size() == udpPacketSize);
-    DatagramPacket dp =
-      new DatagramPacket(baos.toByteArray(), udpPacketSize, sa);
-    return dp;
+                                                double currentTime) {
+    ByteBuffer buf = ByteBuffer.allocate(CONFIRM_LENGTH);
+    encode(msg, buf, currentTime);
+    return new DatagramPacket(buf.array(), CONFIRM_LENGTH, sa);
   }
 
   /**
@@ -94,22 +161,13 @@ public abstract class Proxy2RealAdapter {
    *
    * @return a DatagramPacket object which can be sent over UDP representing
    *         this message
-   * @throws IOException
    */
   public static DatagramPacket toDatagramPacket(Reject msg,
                                                 SocketAddress sa,
-                                                double currentTime)
-                                               throws IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    DataOutputStream dos =
-      getDosWithHeader(baos, currentTime, UdpMessageType.I2V_Reject);
-    assert dos.size() == UdpHeader.LENGTH;
-
-    int udpPacketSize = UdpHeader.LENGTH;
-    assert (baos.size() == udpPacketSize);
-    DatagramPacket dp =
-      new DatagramPacket(baos.toByteArray(), udpPacketSize, sa);
-    return dp;
+                                                double currentTime) {
+    ByteBuffer buf = ByteBuffer.allocate(REJECT_LENGTH);
+    encode(msg, buf, currentTime);
+    return new DatagramPacket(buf.array(), REJECT_LENGTH, sa);
   }
 
   /**
@@ -122,30 +180,21 @@ public abstract class Proxy2RealAdapter {
    *
    * @return a DatagramPacket object which can be sent over UDP representing
    *         this message
-   * @throws IOException
    */
   public static DatagramPacket toDatagramPacket(double distToFrontVehicle,
                                                 SocketAddress sa,
-                                                double currentTime)
-                                               throws IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    DataOutputStream dos =
-      getDosWithHeader(baos, currentTime,UdpMessageType.I2V_DistToFrontVehicle);
-    assert dos.size() == UdpHeader.LENGTH;
-
-    dos.writeFloat((float) distToFrontVehicle);
-
-    int udpPacketSize = UdpHeader.LENGTH + 4;
-    assert (baos.size() == udpPacketSize);
-    DatagramPacket dp =
-      new DatagramPacket(baos.toByteArray(), udpPacketSize, sa);
-    return dp;
+                                                double currentTime) {
+    ByteBuffer buf = ByteBuffer.allocate(DIST_TO_FRONT_VEHICLE_LENGTH);
+    encodeDistToFrontVehicle(distToFrontVehicle, buf, currentTime);
+    return new DatagramPacket(buf.array(), DIST_TO_FRONT_VEHICLE_LENGTH, sa);
   }
 
 
   /**
    * Builds a header for the type of this message, and writes it to a new
-   * DataOutputStream wrapped around a given ByteArrayOutputStream
+   * DataOutputStream wrapped around a given ByteArrayOutputStream.  The
+   * checksum of the header is {@link UdpHeader#NO_CHECKSUM}; use the
+   * <code>encode</code> methods to get messages with checksums.
    *
    * @param baos         The ByteArrayOutputStream
    * @param currentTime  The current, absolute time in seconds
@@ -160,8 +209,41 @@ public abstract class Proxy2RealAdapter {
   {
     DataOutputStream dos = new DataOutputStream(baos);
     UdpHeader header = new UdpHeader((float)currentTime, type);
-    // TODO: compute and set the checksum
     header.writeToDataOutputStream(dos);
     return dos;
   }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Write a header without checksum into a buffer.
+   *
+   * @param buf          the buffer
+   * @param currentTime  the current, absolute time in seconds
+   * @param type         the message type
+   */
+  private static void putHeader(ByteBuffer buf, double currentTime,
+                                UdpMessageType type) {
+    buf.putFloat((float)currentTime);
+    buf.putInt(type.ordinal());
+    buf.putInt(UdpHeader.NO_CHECKSUM);
+  }
+
+  /**
+   * Compute the checksum of the message written into a buffer between a
+   * given start position and the current position, and write it into the
+   * header of the message.
+   *
+   * @param buf    the buffer
+   * @param start  the start position of the message
+   */
+  private static void putChecksum(ByteBuffer buf, int start) {
+    int end = buf.position();
+    int limit = buf.limit();
+    buf.limit(end).position(start);
+    UdpHeader.writeChecksum(buf);
+    buf.limit(limit).position(end);
+  }
 }
@@ -0,0 +1,257 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.msg.udp;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import aim4.msg.i2v.Confirm;
+import aim4.msg.i2v.Reject;
+
+/**
+ * An encoder that serializes the messages from proxy vehicles to real
+ * vehicles into a pool of reusable buffers, and sends them with a
+ * {@link DatagramChannel}.  All the messages to the same socket address
+ * between two calls to {@link #flush()} are coalesced into one datagram,
+ * each message with its own header and checksum, so that a real vehicle
+ * reads the messages in a datagram one after another.  A datagram is sent
+ * early if the next message would make it longer than
+ * {@link UdpHeader#MAX_MESSENGE_PACKAGE_LENGTH}.  The owner calls
+ * {@link #flush()} once per simulation step, after the I2V messages are
+ * delivered.  The encoder is not thread-safe.
+ */
+public class Proxy2RealEncoder {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The channel through which the datagrams are sent */
+  private final DatagramChannel channel;
+
+  /** The buffers that are free to hold new datagrams */
+  private final Deque<ByteBuffer> freeBuffers = new ArrayDeque<ByteBuffer>();
+
+  /** The datagrams being filled, indexed by their destinations */
+  private final Map<SocketAddress,ByteBuffer> pendingBuffers =
+    new LinkedHashMap<SocketAddress,ByteBuffer>();
+
+  // statistics
+
+  /** The number of messages encoded */
+  private long numOfEncodedMessages;
+  /** The number of datagrams sent */
+  private long numOfSentDatagrams;
+  /** The number of datagrams that could not be sent */
+  private long numOfFailedDatagrams;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create an encoder that sends the datagrams through a channel.  The
+   * channel can be shared with a listener thread that receives datagrams
+   * from it.
+   *
+   * @param channel  the datagram channel
+   */
+  public Proxy2RealEncoder(DatagramChannel channel) {
+    this.channel = channel;
+    numOfEncodedMessages = 0;
+    numOfSentDatagrams = 0;
+    numOfFailedDatagrams = 0;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  // encoding
+
+  /**
+   * Add a confirm message to the datagram to a real vehicle.
+   *
+   * @param msg          the confirm message
+   * @param sa           the socket address of the real vehicle
+   * @param currentTime  absolute time in seconds
+   */
+  public void add(Confirm msg, SocketAddress sa, double currentTime) {
+    Proxy2RealAdapter.encode(
+      msg, getBuffer(sa, Proxy2RealAdapter.CONFIRM_LENGTH), currentTime);
+    numOfEncodedMessages++;
+  }
+
+  /**
+   * Add a reject message to the datagram to a real vehicle.
+   *
+   * @param msg          the reject message
+   * @param sa           the socket address of the real vehicle
+   * @param currentTime  absolute time in seconds
+   */
+  public void add(Reject msg, SocketAddress sa, double currentTime) {
+    Proxy2RealAdapter.encode(
+      msg, getBuffer(sa, Proxy2RealAdapter.REJECT_LENGTH), currentTime);
+    numOfEncodedMessages++;
+  }
+
+  /**
+   * Add a distance-to-front-vehicle message to the datagram to a real
+   * vehicle.
+   *
+   * @param distToFrontVehicle  the distance of the vehicles in front
+   * @param sa                  the socket address of the real vehicle
+   * @param currentTime         absolute time in seconds
+   */
+  public void addDistToFrontVehicle(double distToFrontVehicle,
+                                    SocketAddress sa,
+                                    double currentTime) {
+    Proxy2RealAdapter.encodeDistToFrontVehicle(
+      distToFrontVehicle,
+      getBuffer(sa, Proxy2RealAdapter.DIST_TO_FRONT_VEHICLE_LENGTH),
+      currentTime);
+    numOfEncodedMessages++;
+  }
+
+  // sending
+
+  /**
+   * Send all the pending datagrams and return their buffers to the pool.
+   *
+   * @return the number of datagrams sent
+   */
+  public int flush() {
+    int n = 0;
+    for (Iterator<Map.Entry<SocketAddress,ByteBuffer>> iter =
+           pendingBuffers.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry<SocketAddress,ByteBuffer> entry = iter.next();
+      if (send(entry.getValue(), entry.getKey())) {
+        n++;
+      }
+      iter.remove();
+    }
+    return n;
+  }
+
+  // statistics
+
+  /**
+   * Get the number of messages encoded.
+   *
+   * @return the number of messages encoded
+   */
+  public long getNumOfEncodedMessages() {
+    return numOfEncodedMessages;
+  }
+
+  /**
+   * Get the number of datagrams sent.
+   *
+   * @return the number of datagrams sent
+   */
+  public long getNumOfSentDatagrams() {
+    return numOfSentDatagrams;
+  }
+
+  /**
+   * Get the number of datagrams that could not be sent.
+   *
+   * @return the number of datagrams that could not be sent
+   */
+  public long getNumOfFailedDatagrams() {
+    return numOfFailedDatagrams;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the buffer of the pending datagram to a socket address that has
+   * room for a message.  If the pending datagram is too full, it is sent
+   * first.
+   *
+   * @param sa      the socket address
+   * @param length  the length of the message
+   * @return the buffer, whose position is where the message is written
+   */
+  private ByteBuffer getBuffer(SocketAddress sa, int length) {
+    ByteBuffer buf = pendingBuffers.get(sa);
+    if (buf != null && buf.remaining() < length) {
+      pendingBuffers.remove(sa);
+      send(buf, sa);
+      buf = null;
+    }
+    if (buf == null) {
+      buf = freeBuffers.poll();
+      if (buf == null) {
+        buf = ByteBuffer.allocateDirect(UdpHeader.MAX_MESSENGE_PACKAGE_LENGTH);
+      }
+      buf.clear();
+      pendingBuffers.put(sa, buf);
+    }
+    return buf;
+  }
+
+  /**
+   * Send a datagram and return its buffer to the pool.
+   *
+   * @param buf  the buffer of the datagram
+   * @param sa   the destination of the datagram
+   * @return whether the datagram is sent
+   */
+  private boolean send(ByteBuffer buf, SocketAddress sa) {
+    buf.flip();
+    boolean isSent;
+    try {
+      isSent = channel.send(buf, sa) > 0;
+    } catch(IOException e) {
+      System.err.println("Failed to send a datagram to a real vehicle: "
+                         + e.getMessage());
+      isSent = false;
+    }
+    if (isSent) {
+      numOfSentDatagrams++;
+    } else {
+      numOfFailedDatagrams++;
+    }
+    freeBuffers.push(buf);
+    return isSent;
+  }
+
+}
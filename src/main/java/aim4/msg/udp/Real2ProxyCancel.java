@@ -32,6 +32,7 @@ package aim4.msg.udp;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * A real vehicle to proxy vehicle message for cancel message.
@@ -58,10 +59,23 @@ public class Real2ProxyCancel extends Real2ProxyMsg {
    */
   public Real2ProxyCancel(DataInputStream dis, double receivedTime)
       throws IOException {
-    super(Type.REQUEST, receivedTime);
+    super(Type.CANCEL, receivedTime);
     reservationId = dis.readInt();
   }
 
+  /**
+   * Create a real vehicle to proxy vehicle message for cancel message from
+   * the body of a datagram.
+   *
+   * @param buf           the buffer, positioned at the body of the datagram
+   * @param receivedTime  the time stamp
+   * @throws java.nio.BufferUnderflowException  if the body is too short
+   */
+  public Real2ProxyCancel(ByteBuffer buf, double receivedTime) {
+    super(Type.CANCEL, receivedTime);
+    reservationId = buf.getInt();
+  }
+
   /////////////////////////////////
   // DEBUG
   /////////////////////////////////
@@ -32,6 +32,7 @@ package aim4.msg.udp;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * A real vehicle to proxy vehicle message for done message.
@@ -54,6 +55,17 @@ public class Real2ProxyDone extends Real2ProxyMsg {
     super(Type.DONE, receivedTime);
   }
 
+  /**
+   * Create a real vehicle to proxy vehicle message for done message from
+   * the body of a datagram.
+   *
+   * @param buf           the buffer, positioned at the body of the datagram
+   * @param receivedTime  the time stamp
+   */
+  public Real2ProxyDone(ByteBuffer buf, double receivedTime) {
+    super(Type.DONE, receivedTime);
+  }
+
   /////////////////////////////////
   // DEBUG
   /////////////////////////////////
@@ -33,6 +33,7 @@ package aim4.msg.udp;
 import java.awt.geom.Point2D;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import aim4.config.Constants;
 import aim4.vehicle.AccelSchedule;
@@ -95,6 +96,28 @@ public class Real2ProxyPVUpdate extends Real2ProxyMsg {
     // TODO: Marvin can't generate accelProfile yet. Thus, just leave it null
   }
 
+  /**
+   * Create a real vehicle to proxy vehicle message for PV update message
+   * from the body of a datagram.
+   *
+   * @param buf           the buffer, positioned at the body of the datagram
+   * @param receivedTime  the time stamp
+   * @throws java.nio.BufferUnderflowException  if the body is too short
+   */
+  public Real2ProxyPVUpdate(ByteBuffer buf, double receivedTime) {
+    super(Type.PV_UPDATE, receivedTime);
+    vin = buf.getInt();
+    double x = (double)buf.getFloat();
+    double y = (double)buf.getFloat();
+    position = new Point2D.Double(x, y);
+    heading = (double)buf.getFloat();
+    steeringAngle = (double)buf.getFloat();
+    velocity = (double)buf.getFloat();
+    targetVelocity = (double)buf.getFloat();
+    acceleration = (double)buf.getFloat();
+    accelProfile = null;
+  }
+
   /////////////////////////////////
   // DEBUG
   /////////////////////////////////
@@ -32,6 +32,7 @@ package aim4.msg.udp;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import aim4.config.Constants;
 
@@ -73,6 +74,22 @@ public class Real2ProxyRequest extends Real2ProxyMsg {
     arrivalVelocity = dis.readFloat();
   }
 
+  /**
+   * Create a real vehicle to proxy vehicle message for request message
+   * from the body of a datagram.
+   *
+   * @param buf           the buffer, positioned at the body of the datagram
+   * @param receivedTime  the time stamp
+   * @throws java.nio.BufferUnderflowException  if the body is too short
+   */
+  public Real2ProxyRequest(ByteBuffer buf, double receivedTime) {
+    super(Type.REQUEST, receivedTime);
+    vin = buf.getInt();
+    arrivalTimeSpan = buf.getFloat();
+    departureLaneId = buf.getInt();
+    arrivalVelocity = buf.getFloat();
+  }
+
   /////////////////////////////////
   // DEBUG
   /////////////////////////////////
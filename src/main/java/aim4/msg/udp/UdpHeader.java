@@ -33,6 +33,7 @@ package aim4.msg.udp;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Small header included in all UDP messages sent to/from the real car.
@@ -49,6 +50,25 @@ public class UdpHeader {
   /** The size of a UDP header (in bytes) */
   public static final int LENGTH = 12;
 
+  /** The offset of the checksum in a message (in bytes) */
+  public static final int CHECKSUM_OFFSET = 8;
+
+  /**
+   * The checksum of a message whose sender does not compute checksums.
+   * Such messages are accepted without checking.
+   */
+  public static final int NO_CHECKSUM = 0;
+
+  /** The offset basis of the FNV-1a hash */
+  private static final int FNV_OFFSET_BASIS = 0x811C9DC5;
+
+  /** The prime of the FNV-1a hash */
+  private static final int FNV_PRIME = 0x01000193;
+
+  /** The message types indexed by their ordinals */
+  private static final UdpMessageType[] MESSAGE_TYPES =
+    UdpMessageType.values();
+
   /////////////////////////////////
   // NESTED CLASSES
   /////////////////////////////////
@@ -90,8 +110,9 @@ public class UdpHeader {
   /**
    * A simple checksum to validate the UDP packet. UDP makes no effort
    * to protect against corrupted packets, so we attach a simple checksum
-   * to each UDP package.
-   * TODO: computing the checksums and checksum checking
+   * to each UDP package.  The checksum is a FNV-1a hash of the message
+   * with the checksum field skipped; {@link #NO_CHECKSUM} means the sender
+   * did not compute it.
    */
   private int checksum;
 
@@ -114,6 +135,27 @@ public class UdpHeader {
     checksum = dis.readInt();
   }
 
+  /**
+   * Construct the header from a buffer holding a datagram received over
+   * UDP from the real car.  The header is read at the current position of
+   * the buffer, which is advanced past the header.
+   *
+   * @param buf  the buffer
+   * @throws java.nio.BufferUnderflowException  if the buffer is shorter
+   *                                            than a header
+   * @throws IllegalArgumentException           if the message type is
+   *                                            unknown
+   */
+  public UdpHeader(ByteBuffer buf) {
+    timestamp = buf.getFloat();
+    int type = buf.getInt();
+    if (type < 0 || type >= MESSAGE_TYPES.length) {
+      throw new IllegalArgumentException("Unknown UDP message type: " + type);
+    }
+    messageType = MESSAGE_TYPES[type];
+    checksum = buf.getInt();
+  }
+
   /**
    * Create a header for a particular message type
    *
@@ -123,7 +165,7 @@ public class UdpHeader {
   public UdpHeader(float currentTime, UdpMessageType messageType) {
     timestamp = currentTime;
     this.messageType = messageType;
-    checksum = 0;  // need to fix it later.
+    checksum = NO_CHECKSUM;  // computed after the body is written
   }
 
   /////////////////////////////////
@@ -191,8 +233,62 @@ public class UdpHeader {
    * @return the check sum
    */
   public static int computeChecksum(byte[] data) {
-    // TODO: implement this function later
-    return 0;
+    return computeChecksum(data, 0, data.length);
+  }
+
+  /**
+   * Compute the check sum for a message in an array of bytes.
+   *
+   * @param data    the array of bytes
+   * @param offset  the offset of the message in the array
+   * @param length  the length of the message
+   * @return the check sum
+   */
+  public static int computeChecksum(byte[] data, int offset, int length) {
+    return computeChecksum(ByteBuffer.wrap(data, offset, length));
+  }
+
+  /**
+   * Compute the check sum for the message between the position and the
+   * limit of a buffer.  The position of the buffer is not changed.
+   *
+   * @param buf  the buffer
+   * @return the check sum
+   */
+  public static int computeChecksum(ByteBuffer buf) {
+    int start = buf.position();
+    int length = buf.remaining();
+    int h = FNV_OFFSET_BASIS;
+    for(int i = 0; i < length; i++) {
+      if (i < CHECKSUM_OFFSET || i >= CHECKSUM_OFFSET + 4) {
+        h = (h ^ (buf.get(start + i) & 0xff)) * FNV_PRIME;
+      }
+    }
+    return (h == NO_CHECKSUM) ? 1 : h;
+  }
+
+  /**
+   * Compute the check sum for the message between the position and the
+   * limit of a buffer, and write it into the header of the message.  The
+   * position of the buffer is not changed.
+   *
+   * @param buf  the buffer
+   */
+  public static void writeChecksum(ByteBuffer buf) {
+    buf.putInt(buf.position() + CHECKSUM_OFFSET, computeChecksum(buf));
+  }
+
+  /**
+   * Whether the check sum of a message matches the message between the
+   * position and the limit of a buffer.  Messages from senders that do not
+   * compute check sums are accepted.
+   *
+   * @param checksum  the check sum in the header of the message
+   * @param buf       the buffer
+   * @return whether the check sum is valid
+   */
+  public static boolean isChecksumValid(int checksum, ByteBuffer buf) {
+    return checksum == NO_CHECKSUM || checksum == computeChecksum(buf);
   }
 
   /////////////////////////////////
@@ -30,6 +30,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.noise;
 
+import java.util.random.RandomGenerator;
+
 /**
  * Singleton class representing the null NoiseFunction.  This function
  * does nothing to values to which it is applied.
@@ -47,7 +49,7 @@ public class BasicNoiseFunction implements NoiseFunction {
   /**
    * {@inheritDoc}
    */
-  public double apply(double trueValue) {
+  public double apply(double trueValue, RandomGenerator random) {
     return trueValue;
   }
 }
@@ -30,6 +30,10 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.noise;
 
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+import aim4.sim.SimContext;
 import aim4.util.Util;
 
 /**
@@ -54,6 +58,15 @@ public class DoubleGauge {
    * The function that determines how the gauge reads.
    */
   private NoiseFunction noiseFunction = BasicNoiseFunction.noNoise;
+  /**
+   * The ID of the random stream of the gauge, or -1 if the gauge draws its
+   * noise from the noise generator of the simulation context.
+   */
+  private long streamId = -1;
+  /**
+   * The random stream of the gauge; null if it has not been created.
+   */
+  private SplittableRandom random = null;
 
   // Constructors
   /**
@@ -137,7 +150,40 @@ public class DoubleGauge {
    * @param recValue the value to be written to the gauge
    */
   public void record(double recValue) {
-    double v = noiseFunction.apply(recValue);
+    double v = recValue;
+    if (noiseFunction != BasicNoiseFunction.noNoise) {
+      v = noiseFunction.apply(recValue, getRandom());
+    }
     value = Util.constrain(v, minValue, maxValue);
   }
+
+  /**
+   * Give the gauge its own random stream, so that the noise it reads does
+   * not depend on the order in which the gauges are recorded.  The stream is
+   * created from the simulation context the first time the gauge records a
+   * noisy value.
+   *
+   * @param streamId the ID of the stream, unique among the gauges of the
+   *                 simulation
+   */
+  public void setStreamId(long streamId) {
+    this.streamId = streamId;
+    this.random = null;
+  }
+
+  /**
+   * Get the random number generator from which the noise is drawn.
+   *
+   * @return the random number generator from which the noise is drawn
+   */
+  private RandomGenerator getRandom() {
+    if (streamId < 0) {
+      return SimContext.current().getNoiseRandom();
+    }
+    if (random == null) {
+      random = SimContext.current().newStream(SimContext.NOISE_STREAM,
+                                              streamId);
+    }
+    return random;
+  }
 }
@@ -30,19 +30,36 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.noise;
 
+import java.util.random.RandomGenerator;
+
+import aim4.sim.SimContext;
+
 /**
  * Interface for noise functions that can affect double values.
  * This allows gauges, for example, to be noisy.
  */
 public interface NoiseFunction {
 
+    /**
+     * Apply the noise function to the given value, drawing the noise from
+     * the noise generator of the current simulation context.
+     *
+     * @param actualValue the actual value of the quantity.
+     * @return the value of the quantity with noise added.
+     */
+    public default double apply(double actualValue) {
+      return apply(actualValue, SimContext.current().getNoiseRandom());
+    }
+
     /**
      * Apply the noise function to the given value.
      *
      * @param actualValue the actual value of the quantity.
+     * @param random      the random number generator from which the noise
+     *                    is drawn.
      * @return the value of the quantity with noise added.
      */
-    public double apply(double actualValue);
+    public double apply(double actualValue, RandomGenerator random);
 
 }
 
@@ -30,7 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.noise;
 
-import aim4.util.Util;
+import java.util.random.RandomGenerator;
 
 /**
  * NoiseFunction that adds noise uniformly within a fixed proportion of the
@@ -58,7 +58,7 @@ public class UniformFixedNoiseFunction implements NoiseFunction {
    * {@inheritDoc}
    */
   @Override
-  public double apply(double trueValue) {
-    return trueValue + (Util.random.nextDouble() * range * 2) - range;
+  public double apply(double trueValue, RandomGenerator random) {
+    return trueValue + (random.nextDouble() * range * 2) - range;
   }
 }
@@ -30,7 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.noise;
 
-import aim4.util.Util;
+import java.util.random.RandomGenerator;
 
 /**
  * NoiseFunction that adds noise uniformly within a fixed proportion of the
@@ -59,8 +59,8 @@ public class UniformProportionalNoiseFunction implements NoiseFunction {
    * {@inheritDoc}
    */
   @Override
-  public double apply(double trueValue) {
+  public double apply(double trueValue, RandomGenerator random) {
     double range = 2 * trueValue * proportion;
-    return trueValue + (Util.random.nextDouble() * range) - range/2;
+    return trueValue + (random.nextDouble() * range) - range/2;
   }
 }
@@ -31,7 +31,6 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.sim;
 
 import java.awt.Color;
-import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
@@ -41,27 +40,35 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import aim4.config.Debug;
 import aim4.config.DebugPoint;
 import aim4.driver.AutoDriver;
 import aim4.driver.DriverSimView;
 import aim4.driver.ProxyDriver;
+import aim4.driver.navigator.CongestionRouteTable;
 import aim4.im.IntersectionManager;
 import aim4.im.v2i.V2IManager;
+import aim4.im.v2i.policy.BasePolicy;
 import aim4.map.DataCollectionLine;
 import aim4.map.BasicMap;
 import aim4.map.Road;
 import aim4.map.SpawnPoint;
 import aim4.map.SpawnPoint.SpawnSpec;
+import aim4.map.SpawnScheduler;
 import aim4.map.lane.Lane;
 import aim4.msg.i2v.I2VMessage;
 import aim4.msg.v2i.V2IMessage;
+import aim4.sim.metrics.SimMetrics;
+import aim4.sim.metrics.SimMetrics.Phase;
+import aim4.util.GeomMath;
+import aim4.util.SpatialHash;
 import aim4.vehicle.AutoVehicleSimView;
 import aim4.vehicle.BasicAutoVehicle;
 import aim4.vehicle.HumanDrivenVehicleSimView;
@@ -75,6 +82,23 @@ import aim4.vehicle.VehicleSimView;
  */
 public class AutoDriverOnlySimulator implements Simulator {
 
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The number of shards per worker thread in the parallel step mode.
+   * More shards than threads even out the load when some vehicles take
+   * longer to act than others.
+   */
+  private static final int SHARDS_PER_THREAD = 4;
+
+  /**
+   * The length of the sides of the cells of the spatial hash of the
+   * vehicles, in meters.  It is about twice the length of a typical vehicle.
+   */
+  private static final double VEHICLE_SPATIAL_HASH_CELL_SIZE = 10.0;
+
   /////////////////////////////////
   // NESTED CLASSES
   /////////////////////////////////
@@ -106,6 +130,19 @@ public class AutoDriverOnlySimulator implements Simulator {
     }
   }
 
+  /**
+   * An action on the i-th element of a list, which is run by the worker
+   * threads in the parallel step mode.
+   */
+  private static interface IndexedAction {
+    /**
+     * Perform the action on the i-th element.
+     *
+     * @param i  the index of the element
+     */
+    void act(int i);
+  }
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -122,25 +159,62 @@ public class AutoDriverOnlySimulator implements Simulator {
   private int totalBitsTransmittedByCompletedVehicles;
   /** The total number of bits received by the completed vehicles */
   private int totalBitsReceivedByCompletedVehicles;
+  /** The vehicles on each lane, ordered by their distance along the lane */
+  private LaneVehicleIndex laneVehicleIndex;
+  /** The bounding boxes of all active vehicles */
+  private SpatialHash<VehicleSimView> vehicleSpatialHash;
+  /** The scheduler of the spawn points */
+  private SpawnScheduler spawnScheduler;
+  /** The metrics of the simulation */
+  private SimMetrics metrics;
+  /**
+   * The worker threads of the parallel step mode; null if the simulation
+   * steps are run serially.
+   */
+  private ForkJoinPool pool;
+  /**
+   * The worker threads on which the intersection managers evaluate the
+   * proposals of a request; null if the proposals are evaluated one by one.
+   */
+  private ForkJoinPool proposalPool;
+  /**
+   * The table of the routes under the current load of the intersections;
+   * null if congestion-aware routing is disabled.
+   */
+  private CongestionRouteTable congestionRouteTable;
+  /** The UDP listener of the proxy vehicles; null if there is none */
+  private NioUdpListener udpListener;
+  /** The context of the simulation */
+  private final SimContext context;
 
   /////////////////////////////////
   // CLASS CONSTRUCTORS
   /////////////////////////////////
 
   /**
-   * Create an instance of the simulator.
+   * Create an instance of the simulator.  The simulator runs in the context
+   * of the current thread, in which the map must have been built.
    *
    * @param basicMap the map of the simulation
    */
   public AutoDriverOnlySimulator(BasicMap basicMap) {
+    this.context = SimContext.current();
     this.basicMap = basicMap;
     this.vinToVehicles = new HashMap<Integer, VehicleSimView>();
+    this.laneVehicleIndex = new LaneVehicleIndex(basicMap);
+    this.vehicleSpatialHash =
+      new SpatialHash<VehicleSimView>(VEHICLE_SPATIAL_HASH_CELL_SIZE);
+    this.spawnScheduler = new SpawnScheduler(basicMap.getSpawnPoints());
+    this.metrics = new SimMetrics(basicMap);
 
     currentTime = 0.0;
     numOfCompletedVehicles = 0;
     totalBitsTransmittedByCompletedVehicles = 0;
     totalBitsReceivedByCompletedVehicles = 0;
-
+    pool = null;
+    proposalPool = null;
+    congestionRouteTable = null;
+    udpListener = null;
   }
 
   /////////////////////////////////
@@ -154,39 +228,82 @@ public class AutoDriverOnlySimulator implements Simulator {
    */
   @Override
   public synchronized AutoDriverOnlySimStepResult step(double timeStep) {
+    SimContext previous = SimContext.bind(context);
+    try {
+      return runStep(timeStep);
+    } finally {
+      SimContext.bind(previous);
+    }
+  }
+
+  /**
+   * Get the context of the simulation.
+   *
+   * @return the context of the simulation
+   */
+  public SimContext getContext() {
+    return context;
+  }
+
+  /**
+   * Run a simulation step in the context of the simulation.
+   *
+   * @param timeStep  the time step
+   * @return the result of the step
+   */
+  private AutoDriverOnlySimStepResult runStep(double timeStep) {
+    long stepStartTime = System.nanoTime();
+    long t = stepStartTime;
     if (Debug.PRINT_SIMULATOR_STAGE) {
       System.err.printf("--------------------------------------\n");
+      System.err.printf("------SIM:processUdpMessages---------------\n");
+    }
+    processUdpMessages();
+    t = metrics.endPhase(Phase.PROCESS_UDP_MESSAGES, t);
+    if (Debug.PRINT_SIMULATOR_STAGE) {
       System.err.printf("------SIM:spawnVehicles---------------\n");
     }
     spawnVehicles(timeStep);
+    t = metrics.endPhase(Phase.SPAWN_VEHICLES, t);
     if (Debug.PRINT_SIMULATOR_STAGE) {
       System.err.printf("------SIM:provideSensorInput---------------\n");
     }
     provideSensorInput();
+    t = metrics.endPhase(Phase.PROVIDE_SENSOR_INPUT, t);
     if (Debug.PRINT_SIMULATOR_STAGE) {
       System.err.printf("------SIM:letDriversAct---------------\n");
     }
     letDriversAct();
+    t = metrics.endPhase(Phase.LET_DRIVERS_ACT, t);
     if (Debug.PRINT_SIMULATOR_STAGE) {
       System.err.printf("------SIM:letIntersectionManagersAct--------------\n");
     }
     letIntersectionManagersAct(timeStep);
+    t = metrics.endPhase(Phase.LET_INTERSECTION_MANAGERS_ACT, t);
     if (Debug.PRINT_SIMULATOR_STAGE) {
       System.err.printf("------SIM:communication---------------\n");
     }
     communication();
+    t = metrics.endPhase(Phase.COMMUNICATION, t);
     if (Debug.PRINT_SIMULATOR_STAGE) {
       System.err.printf("------SIM:moveVehicles---------------\n");
     }
     moveVehicles(timeStep);
+    t = metrics.endPhase(Phase.MOVE_VEHICLES, t);
     if (Debug.PRINT_SIMULATOR_STAGE) {
       System.err.printf("------SIM:cleanUpCompletedVehicles---------------\n");
     }
     List<Integer> completedVINs = cleanUpCompletedVehicles();
+    metrics.endPhase(Phase.CLEAN_UP_COMPLETED_VEHICLES, t);
     currentTime += timeStep;
+    if (congestionRouteTable != null) {
+      congestionRouteTable.update(currentTime, vinToVehicles.values());
+    }
     // debug
     checkClocks();
 
+    metrics.endStep(System.nanoTime() - stepStartTime, currentTime,
+                    vinToVehicles.size(), numOfCompletedVehicles);
     return new AutoDriverOnlySimStepResult(completedVINs);
   }
 
@@ -194,8 +311,97 @@ public class AutoDriverOnlySimulator implements Simulator {
   // PUBLIC METHODS
   /////////////////////////////////
 
+  // parallel step mode
+
+  /**
+   * Set the number of worker threads.  If there is more than one worker
+   * thread, the drivers act, the intersection managers act, the vehicles
+   * move and the data collection lines are checked in parallel.  Messages
+   * are still delivered and completed vehicles are still removed by the
+   * simulation thread in the same order as in the serial mode, so the
+   * result of a simulation does not depend on the number of threads.
+   *
+   * @param parallelism  the number of worker threads; 1 for the serial mode
+   */
+  public synchronized void setParallelism(int parallelism) {
+    if (pool != null) {
+      pool.shutdown();
+      pool = null;
+    }
+    if (parallelism > 1) {
+      pool = new ForkJoinPool(parallelism);
+    }
+  }
+
+  /**
+   * Get the number of worker threads.
+   *
+   * @return the number of worker threads; 1 in the serial mode
+   */
+  public synchronized int getParallelism() {
+    return (pool != null) ? pool.getParallelism() : 1;
+  }
+
+  /**
+   * Set the number of worker threads on which the intersection managers
+   * evaluate the proposals of a request in parallel.  The threads are
+   * shared by all intersection managers whose policy is a
+   * {@link BasePolicy}.
+   *
+   * @param proposalParallelism  the number of worker threads; 1 evaluates
+   *                             the proposals one by one
+   */
+  public synchronized void setProposalParallelism(int proposalParallelism) {
+    if (proposalPool != null) {
+      proposalPool.shutdown();
+      proposalPool = null;
+    }
+    if (proposalParallelism > 1) {
+      proposalPool = new ForkJoinPool(proposalParallelism);
+    }
+    for (IntersectionManager im : basicMap.getIntersectionManagers()) {
+      if (im instanceof V2IManager
+          && ((V2IManager) im).getPolicy() instanceof BasePolicy) {
+        ((BasePolicy) ((V2IManager) im).getPolicy())
+          .setProposalPool(proposalPool);
+      }
+    }
+  }
+
+  /**
+   * Get the number of worker threads on which the intersection managers
+   * evaluate the proposals of a request.
+   *
+   * @return the number of worker threads; 1 if the proposals are evaluated
+   *         one by one
+   */
+  public synchronized int getProposalParallelism() {
+    return (proposalPool != null) ? proposalPool.getParallelism() : 1;
+  }
+
+  // routing
+
+  /**
+   * Let the vehicles spawned from now on choose their routes according to
+   * the current load of the intersections.
+   *
+   * @param refreshPeriod  the period, in simulated seconds, at which the
+   *                       load of the intersections is measured
+   */
+  public synchronized void setCongestionAwareRouting(double refreshPeriod) {
+    congestionRouteTable = CongestionRouteTable.enable(basicMap, refreshPeriod);
+  }
+
   // information retrieval
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public SimMetrics getMetrics() {
+    return metrics;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -262,6 +468,18 @@ public class AutoDriverOnlySimulator implements Simulator {
     return vinToVehicles.get(vin);
   }
 
+  /**
+   * Get the active vehicles whose bounding boxes intersect a given region.
+   * The bounding boxes are the ones at the end of the last time step.
+   *
+   * @param region  the region
+   * @return the active vehicles whose bounding boxes intersect the region
+   */
+  public synchronized List<VehicleSimView> getActiveVehiclesNear(
+      Rectangle2D region) {
+    return vehicleSpatialHash.getItems(region);
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -294,23 +512,48 @@ public class AutoDriverOnlySimulator implements Simulator {
     }
 
     vinToVehicles.put(vehicle.getVIN(), vehicle);
+    vehicleSpatialHash.put(vehicle, vehicle.getShape().getBounds2D());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void setUdpListener(NioUdpListener udpListener) {
+    this.udpListener = udpListener;
   }
 
   /////////////////////////////////
   // PRIVATE METHODS
   /////////////////////////////////
 
+  /////////////////////////////////
+  // STEP 0
+  /////////////////////////////////
+
+  /**
+   * Deliver the messages received by the UDP listener to the proxy
+   * vehicles.
+   */
+  private void processUdpMessages() {
+    if (udpListener != null) {
+      udpListener.processMessages();
+    }
+  }
+
   /////////////////////////////////
   // STEP 1
   /////////////////////////////////
 
   /**
-   * Spawn vehicles.
+   * Spawn vehicles.  Only the spawn points at which a vehicle may arrive in
+   * this time step act.
    *
    * @param timeStep the time step
    */
   private void spawnVehicles(double timeStep) {
-    for (SpawnPoint spawnPoint : basicMap.getSpawnPoints()) {
+    for (SpawnPoint spawnPoint :
+           spawnScheduler.getDueSpawnPoints(currentTime, timeStep)) {
       List<SpawnSpec> spawnSpecs = spawnPoint.act(timeStep);
       if (!spawnSpecs.isEmpty()) {
         if (canSpawnVehicle(spawnPoint)) {
@@ -318,6 +561,9 @@ public class AutoDriverOnlySimulator implements Simulator {
             VehicleSimView vehicle = makeVehicle(spawnPoint, spawnSpec);
             VinRegistry.registerVehicle(vehicle); // Get vehicle a VIN number
             vinToVehicles.put(vehicle.getVIN(), vehicle);
+            vehicleSpatialHash.put(vehicle,
+                                   vehicle.getShape().getBounds2D());
+            metrics.recordSpawnedVehicle();
 
             // Determine color/type based on DESTINATION heading
             // 0 -> East
@@ -376,9 +622,8 @@ public class AutoDriverOnlySimulator implements Simulator {
    * @return Whether the spawn point can spawn any vehicle
    */
   private boolean canSpawnVehicle(SpawnPoint spawnPoint) {
-    // TODO: can be made much faster.
     Rectangle2D noVehicleZone = spawnPoint.getNoVehicleZone();
-    for (VehicleSimView vehicle : vinToVehicles.values()) {
+    for (VehicleSimView vehicle : vehicleSpatialHash.getItems(noVehicleZone)) {
       if (vehicle.getShape().intersects(noVehicleZone)) {
         return false;
       }
@@ -423,114 +668,26 @@ public class AutoDriverOnlySimulator implements Simulator {
   // STEP 2
   /////////////////////////////////
 
-  /**
-   * Compute the lists of vehicles of all lanes.
-   *
-   * @return a mapping from lanes to lists of vehicles sorted by their
-   *         distance on their lanes
-   */
-  private Map<Lane, SortedMap<Double, VehicleSimView>> computeVehicleLists() {
-    // Set up the structure that will hold all the Vehicles as they are
-    // currently ordered in the Lanes
-    Map<Lane, SortedMap<Double, VehicleSimView>> vehicleLists = new HashMap<Lane, SortedMap<Double, VehicleSimView>>();
-    for (Road road : basicMap.getRoads()) {
-      for (Lane lane : road.getLanes()) {
-        vehicleLists.put(lane, new TreeMap<Double, VehicleSimView>());
-      }
-    }
-    // Now add each of the Vehicles, but make sure to exclude those that are
-    // already inside (partially or entirely) the intersection
-    for (VehicleSimView vehicle : vinToVehicles.values()) {
-      // Find out what lanes it is in.
-      Set<Lane> lanes = vehicle.getDriver().getCurrentlyOccupiedLanes();
-      for (Lane lane : lanes) {
-        // Find out what IntersectionManager is coming up for this vehicle
-        IntersectionManager im = lane.getLaneIM().nextIntersectionManager(vehicle.getPosition());
-        // Only include this Vehicle if it is not in the intersection.
-        if (lane.getLaneIM().distanceToNextIntersection(vehicle.getPosition()) > 0
-            || im == null || !im.intersects(vehicle.getShape().getBounds2D())) {
-          // Now find how far along the lane it is.
-          double dst = lane.distanceAlongLane(vehicle.getPosition());
-          // Now add it to the map.
-          vehicleLists.get(lane).put(dst, vehicle);
-        }
-      }
-    }
-    // Now consolidate the lists based on lanes
-    for (Road road : basicMap.getRoads()) {
-      for (Lane lane : road.getLanes()) {
-        // We may have already removed this Lane from the map
-        if (vehicleLists.containsKey(lane)) {
-          Lane currLane = lane;
-          // Now run through the lanes
-          while (currLane.hasNextLane()) {
-            currLane = currLane.getNextLane();
-            // Put everything from the next lane into the original lane
-            // and remove the mapping for the next lane
-            vehicleLists.get(lane).putAll(vehicleLists.remove(currLane));
-          }
-        }
-      }
-    }
-
-    return vehicleLists;
-  }
-
-  /**
-   * Compute the next vehicles of all vehicles.
-   *
-   * @param vehicleLists a mapping from lanes to lists of vehicles sorted by
-   *                     their distance on their lanes
-   * @return a mapping from vehicles to next vehicles
-   */
-  private Map<VehicleSimView, VehicleSimView> computeNextVehicle(
-      Map<Lane, SortedMap<Double, VehicleSimView>> vehicleLists) {
-    // At this point we should only have mappings for start Lanes, and they
-    // should include all the Lanes they run into. Now we need to turn this
-    // into a hash map that maps Vehicles to the next vehicle in the Lane
-    // or any Lane the Lane runs into
-    Map<VehicleSimView, VehicleSimView> nextVehicle = new HashMap<VehicleSimView, VehicleSimView>();
-    // For each of the ordered lists of vehicles
-    for (SortedMap<Double, VehicleSimView> vehicleList : vehicleLists.values()) {
-      VehicleSimView lastVehicle = null;
-      // Go through the Vehicles in order of their position in the Lane
-      for (VehicleSimView currVehicle : vehicleList.values()) {
-        if (lastVehicle != null) {
-          // Create the mapping from the previous Vehicle to the current one
-          nextVehicle.put(lastVehicle, currVehicle);
-        }
-        lastVehicle = currVehicle;
-      }
-    }
-
-    return nextVehicle;
-  }
-
   /**
    * Provide each vehicle with sensor information to allow it to make
-   * decisions. This works first by making an ordered list for each Lane of
-   * all the vehicles in that Lane, in order from the start of the Lane to
-   * the end of the Lane. We must make sure to leave out all vehicles that
-   * are in the intersection. We must also concatenate the lists for lanes
-   * that feed into one another. Then, for each vehicle, depending on the
-   * state of its sensors, we provide it with the appropriate sensor input.
+   * decisions. This works first by updating the ordered list for each Lane
+   * of all the vehicles in that Lane, in order from the start of the Lane to
+   * the end of the Lane (see {@link LaneVehicleIndex}). Then, for each
+   * vehicle, depending on the state of its sensors, we provide it with the
+   * appropriate sensor input.
    */
   private void provideSensorInput() {
-    Map<Lane, SortedMap<Double, VehicleSimView>> vehicleLists = computeVehicleLists();
-    Map<VehicleSimView, VehicleSimView> nextVehicle = computeNextVehicle(vehicleLists);
+    laneVehicleIndex.update(vinToVehicles.values());
 
-    provideIntervalInfo(nextVehicle);
-    provideVehicleTrackingInfo(vehicleLists);
+    provideIntervalInfo();
+    provideVehicleTrackingInfo();
     provideTrafficSignal();
   }
 
   /**
    * Provide sensing information to the intervalometers of all vehicles.
-   *
-   * @param nextVehicle a mapping from vehicles to next vehicles
    */
-  private void provideIntervalInfo(
-      Map<VehicleSimView, VehicleSimView> nextVehicle) {
+  private void provideIntervalInfo() {
 
     // Now that we have this list set up, let's provide input to all the
     // Vehicles.
@@ -543,11 +700,13 @@ public class AutoDriverOnlySimulator implements Simulator {
           case DISABLED:
             // Find the interval to the next vehicle
             double interval;
+            VehicleSimView nextVehicle =
+                laneVehicleIndex.getNextVehicle(autoVehicle);
             // If there is a next vehicle, then calculate it
-            if (nextVehicle.containsKey(autoVehicle)) {
+            if (nextVehicle != null) {
               // It's the distance from the front of this Vehicle to the point
               // at the rear of the Vehicle in front of it
-              interval = calcInterval(autoVehicle, nextVehicle.get(autoVehicle));
+              interval = calcInterval(autoVehicle, nextVehicle);
             } else { // Otherwise, just set it to the maximum possible value
               interval = Double.MAX_VALUE;
             }
@@ -574,12 +733,8 @@ public class AutoDriverOnlySimulator implements Simulator {
 
   /**
    * Provide tracking information to vehicles.
-   *
-   * @param vehicleLists a mapping from lanes to lists of vehicles sorted by
-   *                     their distance on their lanes
    */
-  private void provideVehicleTrackingInfo(
-      Map<Lane, SortedMap<Double, VehicleSimView>> vehicleLists) {
+  private void provideVehicleTrackingInfo() {
     // Vehicle Tracking
     for (VehicleSimView vehicle : vinToVehicles.values()) {
       // If the vehicle is autonomous
@@ -590,7 +745,7 @@ public class AutoDriverOnlySimulator implements Simulator {
           DriverSimView driver = autoVehicle.getDriver();
           Lane targetLane = autoVehicle.getTargetLaneForVehicleTracking();
           Point2D pos = autoVehicle.getPosition();
-          double dst = targetLane.distanceAlongLane(pos);
+          double dst = laneVehicleIndex.calcDistance(targetLane, pos);
 
           // initialize the distances to infinity
           double frontDst = Double.MAX_VALUE;
@@ -599,24 +754,20 @@ public class AutoDriverOnlySimulator implements Simulator {
           VehicleSimView rearVehicle = null;
 
           // only consider the vehicles on the target lane
-          SortedMap<Double, VehicleSimView> vehiclesOnTargetLane = vehicleLists.get(targetLane);
+          LaneVehicleIndex.LaneList vehiclesOnTargetLane =
+              laneVehicleIndex.getLaneList(targetLane);
 
           // compute the distances and the corresponding vehicles
-          try {
-            double d = vehiclesOnTargetLane.tailMap(dst).firstKey();
-            frontVehicle = vehiclesOnTargetLane.get(d);
+          int i = vehiclesOnTargetLane.ceilingIndex(dst);
+          if (i < vehiclesOnTargetLane.size()) {
+            double d = vehiclesOnTargetLane.getDistance(i);
+            frontVehicle = vehiclesOnTargetLane.getVehicle(i);
             frontDst = (d - dst) - frontVehicle.getSpec().getLength();
-          } catch (NoSuchElementException e) {
-            frontDst = Double.MAX_VALUE;
-            frontVehicle = null;
           }
-          try {
-            double d = vehiclesOnTargetLane.headMap(dst).lastKey();
-            rearVehicle = vehiclesOnTargetLane.get(d);
+          if (i > 0) {
+            double d = vehiclesOnTargetLane.getDistance(i - 1);
+            rearVehicle = vehiclesOnTargetLane.getVehicle(i - 1);
             rearDst = dst - d;
-          } catch (NoSuchElementException e) {
-            rearDst = Double.MAX_VALUE;
-            rearVehicle = null;
           }
 
           // assign the sensor readings
@@ -641,6 +792,7 @@ public class AutoDriverOnlySimulator implements Simulator {
 
           // show the section on the viewer
           if (Debug.isTargetVIN(driver.getVehicle().getVIN())) {
+            dst = targetLane.distanceAlongLane(pos);
             Point2D p1 = targetLane.getPointAtNormalizedDistance(
                 Math.max((dst - rearDst) / targetLane.getLength(), 0.0));
             Point2D p2 = targetLane.getPointAtNormalizedDistance(
@@ -678,18 +830,11 @@ public class AutoDriverOnlySimulator implements Simulator {
     // From Chiu: Kurt, if you think this function is not okay, probably
     // we should talk to see what to do.
     Point2D pos = vehicle.getPosition();
-    if (nextVehicle.getShape().contains(pos)) {
+    double[] corners = nextVehicle.getCornerCoordinates();
+    if (GeomMath.polygonContains(corners, pos.getX(), pos.getY())) {
       return 0.0;
     } else {
-      // TODO: make it more efficient
-      double interval = Double.MAX_VALUE;
-      for (Line2D edge : nextVehicle.getEdges()) {
-        double dst = edge.ptSegDist(pos);
-        if (dst < interval) {
-          interval = dst;
-        }
-      }
-      return interval;
+      return GeomMath.polygonBoundaryDistance(corners, pos.getX(), pos.getY());
     }
   }
   // Kurt's code:
@@ -740,8 +885,19 @@ public class AutoDriverOnlySimulator implements Simulator {
    * Allow each driver to act.
    */
   private void letDriversAct() {
-    for (VehicleSimView vehicle : vinToVehicles.values()) {
-      vehicle.getDriver().act();
+    if (pool != null) {
+      final List<VehicleSimView> vehicles =
+        new ArrayList<VehicleSimView>(vinToVehicles.values());
+      forEachInParallel(vehicles.size(), new IndexedAction() {
+        @Override
+        public void act(int i) {
+          vehicles.get(i).getDriver().act();
+        }
+      });
+    } else {
+      for (VehicleSimView vehicle : vinToVehicles.values()) {
+        vehicle.getDriver().act();
+      }
     }
   }
 
@@ -754,9 +910,31 @@ public class AutoDriverOnlySimulator implements Simulator {
    *
    * @param timeStep the time step
    */
-  private void letIntersectionManagersAct(double timeStep) {
-    for (IntersectionManager im : basicMap.getIntersectionManagers()) {
-      im.act(timeStep);
+  private void letIntersectionManagersAct(final double timeStep) {
+    if (pool != null) {
+      final List<IntersectionManager> ims = basicMap.getIntersectionManagers();
+      // the managers color the vehicles in their batches; the changes are
+      // applied afterwards in the order of the managers, as in serial mode
+      final Debug.VehicleColorChanges[] colorChanges =
+        new Debug.VehicleColorChanges[ims.size()];
+      forEachInParallel(ims.size(), new IndexedAction() {
+        @Override
+        public void act(int i) {
+          colorChanges[i] = Debug.deferVehicleColorChanges();
+          try {
+            ims.get(i).act(timeStep);
+          } finally {
+            Debug.stopDeferringVehicleColorChanges();
+          }
+        }
+      });
+      for (Debug.VehicleColorChanges changes : colorChanges) {
+        changes.apply();
+      }
+    } else {
+      for (IntersectionManager im : basicMap.getIntersectionManagers()) {
+        im.act(timeStep);
+      }
     }
   }
 
@@ -771,6 +949,9 @@ public class AutoDriverOnlySimulator implements Simulator {
     deliverV2IMessages();
     deliverI2VMessages();
     // deliverV2VMessages();
+    if (udpListener != null) {
+      udpListener.sendMessages();
+    }
   }
 
   /**
@@ -917,13 +1098,58 @@ public class AutoDriverOnlySimulator implements Simulator {
    * @param timeStep the time step
    */
   private void moveVehicles(double timeStep) {
+    if (pool != null) {
+      moveVehiclesInParallel(timeStep);
+    } else {
+      for (VehicleSimView vehicle : vinToVehicles.values()) {
+        Point2D p1 = vehicle.getPosition();
+        vehicle.move(timeStep);
+        Point2D p2 = vehicle.getPosition();
+        for (DataCollectionLine line : basicMap.getDataCollectionLines()) {
+          line.intersect(vehicle, currentTime, p1, p2);
+        }
+        if (Debug.isPrintVehicleStateOfVIN(vehicle.getVIN())) {
+          vehicle.printState();
+        }
+      }
+    }
     for (VehicleSimView vehicle : vinToVehicles.values()) {
-      Point2D p1 = vehicle.getPosition();
-      vehicle.move(timeStep);
-      Point2D p2 = vehicle.getPosition();
-      for (DataCollectionLine line : basicMap.getDataCollectionLines()) {
-        line.intersect(vehicle, currentTime, p1, p2);
+      vehicleSpatialHash.put(vehicle, vehicle.getShape().getBounds2D());
+    }
+  }
+
+  /**
+   * Move all the vehicles in parallel.  The data collection lines are
+   * checked in parallel too, but each line checks the vehicles in the same
+   * order as {@link #moveVehicles(double)} does.
+   *
+   * @param timeStep the time step
+   */
+  private void moveVehiclesInParallel(final double timeStep) {
+    final List<VehicleSimView> vehicles =
+      new ArrayList<VehicleSimView>(vinToVehicles.values());
+    final Point2D[] p1s = new Point2D[vehicles.size()];
+    final Point2D[] p2s = new Point2D[vehicles.size()];
+    forEachInParallel(vehicles.size(), new IndexedAction() {
+      @Override
+      public void act(int i) {
+        VehicleSimView vehicle = vehicles.get(i);
+        p1s[i] = vehicle.getPosition();
+        vehicle.move(timeStep);
+        p2s[i] = vehicle.getPosition();
+      }
+    });
+    final List<DataCollectionLine> lines = basicMap.getDataCollectionLines();
+    forEachInParallel(lines.size(), new IndexedAction() {
+      @Override
+      public void act(int j) {
+        DataCollectionLine line = lines.get(j);
+        for (int i = 0; i < p1s.length; i++) {
+          line.intersect(vehicles.get(i), currentTime, p1s[i], p2s[i]);
+        }
       }
+    });
+    for (VehicleSimView vehicle : vehicles) {
       if (Debug.isPrintVehicleStateOfVIN(vehicle.getVIN())) {
         vehicle.printState();
       }
@@ -949,7 +1175,18 @@ public class AutoDriverOnlySimulator implements Simulator {
       VehicleSimView v = vinToVehicles.get(vin);
       // If the vehicle is no longer in the layout
       // TODO: this should be replaced with destination zone.
-      if (!v.getShape().intersects(mapBoundary)) {
+      // Only the vehicles whose bounding boxes straddle the boundary need
+      // the exact test.
+      Rectangle2D bounds = vehicleSpatialHash.getBounds(v);
+      boolean isInLayout;
+      if (mapBoundary.contains(bounds)) {
+        isInLayout = true;
+      } else if (!mapBoundary.intersects(bounds)) {
+        isInLayout = false;
+      } else {
+        isInLayout = v.getShape().intersects(mapBoundary);
+      }
+      if (!isInLayout) {
         // Process all the things we need to from this vehicle
         if (v instanceof AutoVehicleSimView) {
           AutoVehicleSimView v2 = (AutoVehicleSimView) v;
@@ -961,7 +1198,10 @@ public class AutoDriverOnlySimulator implements Simulator {
     }
     // Remove the marked vehicles
     for (int vin : removedVINs) {
-      vinToVehicles.remove(vin);
+      vehicleSpatialHash.remove(vinToVehicles.remove(vin));
+      laneVehicleIndex.remove(vin);
+      VinRegistry.retireVehicle(vin);
+      Debug.removeVehicleColor(vin);
       completedVINs.add(vin);
       numOfCompletedVehicles++;
     }
@@ -978,8 +1218,19 @@ public class AutoDriverOnlySimulator implements Simulator {
    */
   private void checkClocks() {
     // Check the clocks for all autonomous vehicles.
-    for (VehicleSimView vehicle : vinToVehicles.values()) {
-      vehicle.checkCurrentTime(currentTime);
+    if (pool != null) {
+      final List<VehicleSimView> vehicles =
+        new ArrayList<VehicleSimView>(vinToVehicles.values());
+      forEachInParallel(vehicles.size(), new IndexedAction() {
+        @Override
+        public void act(int i) {
+          vehicles.get(i).checkCurrentTime(currentTime);
+        }
+      });
+    } else {
+      for (VehicleSimView vehicle : vinToVehicles.values()) {
+        vehicle.checkCurrentTime(currentTime);
+      }
     }
     // Check the clocks for all the intersection managers.
     for (IntersectionManager im : basicMap.getIntersectionManagers()) {
@@ -987,4 +1238,55 @@ public class AutoDriverOnlySimulator implements Simulator {
     }
   }
 
+  /////////////////////////////////
+  // PARALLEL STEP MODE
+  /////////////////////////////////
+
+  /**
+   * Run an action on the indices 0 to n-1 on the worker threads.  The
+   * indices are split into contiguous shards, and the method returns after
+   * all shards are done.
+   *
+   * @param n       the number of indices
+   * @param action  the action
+   */
+  private void forEachInParallel(int n, final IndexedAction action) {
+    int numOfShards = Math.min(n, pool.getParallelism() * SHARDS_PER_THREAD);
+    List<Callable<Void>> shards = new ArrayList<Callable<Void>>(numOfShards);
+    for (int s = 0; s < numOfShards; s++) {
+      final int begin = (int) ((long) n * s / numOfShards);
+      final int end = (int) ((long) n * (s + 1) / numOfShards);
+      shards.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          SimContext previous = SimContext.bind(context);
+          try {
+            for (int i = begin; i < end; i++) {
+              action.act(i);
+            }
+          } finally {
+            SimContext.bind(previous);
+          }
+          return null;
+        }
+      });
+    }
+    try {
+      for (Future<Void> future : pool.invokeAll(shards)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted in a parallel step", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      } else {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+  }
+
 }
@@ -0,0 +1,440 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import aim4.im.IntersectionManager;
+import aim4.map.BasicMap;
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+import aim4.vehicle.VehicleSimView;
+
+/**
+ * A persistent index of the vehicles on each lane, ordered by their
+ * distance along the lane.  Vehicles that are inside an intersection are
+ * left out, and lanes that lead into one another share one list, in which
+ * the distance is measured from the start of the first lane.
+ * <p>
+ * The index is updated once per simulation step.  The lists keep the order
+ * of the previous step and are repaired by an insertion sort, which takes
+ * linear time since vehicles rarely overtake one another.
+ */
+public class LaneVehicleIndex {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The vehicles on a lane, or on a sequence of lanes leading into one
+   * another, ordered by their distance along the lane.
+   */
+  public static class LaneList {
+    /** The entries of the vehicles */
+    private Entry[] entries = new Entry[16];
+    /** The distances of the vehicles along the lane */
+    private double[] distances = new double[16];
+    /** The number of vehicles */
+    private int size = 0;
+
+    /**
+     * Get the number of vehicles on the lane.
+     *
+     * @return the number of vehicles on the lane
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Get the i-th vehicle from the start of the lane.
+     *
+     * @param i  the index of the vehicle
+     * @return the i-th vehicle
+     */
+    public VehicleSimView getVehicle(int i) {
+      return entries[i].vehicle;
+    }
+
+    /**
+     * Get the distance of the i-th vehicle along the lane.
+     *
+     * @param i  the index of the vehicle
+     * @return the distance of the i-th vehicle along the lane
+     */
+    public double getDistance(int i) {
+      return distances[i];
+    }
+
+    /**
+     * Get the index of the first vehicle whose distance along the lane is
+     * larger than or equal to the given distance.
+     *
+     * @param distance  the distance along the lane
+     * @return the index of the vehicle; the number of vehicles if there is
+     *         no such vehicle
+     */
+    public int ceilingIndex(double distance) {
+      int lo = 0;
+      int hi = size;
+      while(lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (distances[mid] < distance) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo;
+    }
+
+    /**
+     * Append a vehicle to the end of the list.
+     *
+     * @param entry     the entry of the vehicle
+     * @param distance  the distance of the vehicle along the lane
+     */
+    private void add(Entry entry, double distance) {
+      if (size == entries.length) {
+        Entry[] newEntries = new Entry[2 * size];
+        System.arraycopy(entries, 0, newEntries, 0, size);
+        entries = newEntries;
+        double[] newDistances = new double[2 * size];
+        System.arraycopy(distances, 0, newDistances, 0, size);
+        distances = newDistances;
+      }
+      entries[size] = entry;
+      distances[size] = distance;
+      size++;
+    }
+
+    /**
+     * Sort the vehicles by their distances with an insertion sort, and
+     * record the position of each vehicle in its entry.
+     */
+    private void sort() {
+      for(int i = 1; i < size; i++) {
+        Entry e = entries[i];
+        double d = distances[i];
+        int j = i - 1;
+        while(j >= 0 && distances[j] > d) {
+          entries[j + 1] = entries[j];
+          distances[j + 1] = distances[j];
+          j--;
+        }
+        entries[j + 1] = e;
+        distances[j + 1] = d;
+      }
+      for(int i = 0; i < size; i++) {
+        entries[i].setIndex(this, i);
+      }
+    }
+  }
+
+  /**
+   * The lanes, distances and list positions of a vehicle in the current
+   * step.  A vehicle is on more than one lane only while it changes lanes.
+   */
+  private static class Entry {
+    /** The vehicle */
+    final VehicleSimView vehicle;
+    /** The step at which the entry was last updated */
+    int stamp = -1;
+    /** The number of lists the vehicle is in */
+    int numOfLists = 0;
+    /** The lists the vehicle is in */
+    LaneList[] lists = new LaneList[2];
+    /** The distances of the vehicle along the lanes of the lists */
+    double[] distances = new double[2];
+    /** The positions of the vehicle in the lists */
+    int[] indices = new int[2];
+    /** Whether the vehicle has been put into the lists in this step */
+    boolean[] placed = new boolean[2];
+
+    /**
+     * Create an entry.
+     *
+     * @param vehicle  the vehicle
+     */
+    Entry(VehicleSimView vehicle) {
+      this.vehicle = vehicle;
+    }
+
+    /**
+     * Add a list the vehicle is in.
+     *
+     * @param list      the list
+     * @param distance  the distance of the vehicle along the lane
+     */
+    void addList(LaneList list, double distance) {
+      for(int k = 0; k < numOfLists; k++) {
+        if (lists[k] == list) {
+          // keep the first distance, as a sorted map would keep one key
+          return;
+        }
+      }
+      if (numOfLists == lists.length) {
+        int n = 2 * numOfLists;
+        LaneList[] newLists = new LaneList[n];
+        System.arraycopy(lists, 0, newLists, 0, numOfLists);
+        lists = newLists;
+        double[] newDistances = new double[n];
+        System.arraycopy(distances, 0, newDistances, 0, numOfLists);
+        distances = newDistances;
+        indices = new int[n];
+        placed = new boolean[n];
+      }
+      lists[numOfLists] = list;
+      distances[numOfLists] = distance;
+      placed[numOfLists] = false;
+      numOfLists++;
+    }
+
+    /**
+     * Find the position of a list in this entry.
+     *
+     * @param list  the list
+     * @return the position of the list; -1 if the vehicle is not in the list
+     */
+    int find(LaneList list) {
+      for(int k = 0; k < numOfLists; k++) {
+        if (lists[k] == list) {
+          return k;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Record the position of the vehicle in a list.
+     *
+     * @param list   the list
+     * @param index  the position
+     */
+    void setIndex(LaneList list, int index) {
+      indices[find(list)] = index;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The lists of all lanes; lanes that lead into one another share a list.
+   */
+  private final Map<Lane,LaneList> laneToList;
+
+  /**
+   * The distance from the start of a list to the start of each lane.
+   */
+  private final Map<Lane,Double> laneToOffset;
+
+  /**
+   * All lists, in the order of the roads and lanes of the map.
+   */
+  private final List<LaneList> lists;
+
+  /**
+   * A mapping from VINs to the entries of the vehicles.
+   */
+  private final Map<Integer,Entry> vinToEntry;
+
+  /**
+   * The current step.
+   */
+  private int stamp;
+
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create an empty index for the lanes of a map.
+   *
+   * @param basicMap  the map
+   */
+  public LaneVehicleIndex(BasicMap basicMap) {
+    laneToList = new HashMap<Lane,LaneList>();
+    laneToOffset = new HashMap<Lane,Double>();
+    lists = new ArrayList<LaneList>();
+    vinToEntry = new HashMap<Integer,Entry>();
+    stamp = 0;
+    for(Road road : basicMap.getRoads()) {
+      for(Lane lane : road.getLanes()) {
+        if (!laneToList.containsKey(lane)) {
+          LaneList list = new LaneList();
+          lists.add(list);
+          double offset = 0.0;
+          for(Lane l = lane; l != null && !laneToList.containsKey(l);
+              l = l.hasNextLane() ? l.getNextLane() : null) {
+            laneToList.put(l, list);
+            laneToOffset.put(l, offset);
+            offset += l.getLength();
+          }
+        }
+      }
+    }
+  }
+
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Update the index with the current positions of the vehicles.
+   *
+   * @param vehicles  all active vehicles
+   */
+  public void update(Collection<VehicleSimView> vehicles) {
+    stamp++;
+    // Find the lanes and the distances of all vehicles
+    List<Entry> current = new ArrayList<Entry>(vehicles.size());
+    for(VehicleSimView vehicle : vehicles) {
+      Entry entry = vinToEntry.get(vehicle.getVIN());
+      if (entry == null || entry.vehicle != vehicle) {
+        entry = new Entry(vehicle);
+        vinToEntry.put(vehicle.getVIN(), entry);
+      }
+      entry.stamp = stamp;
+      entry.numOfLists = 0;
+      Point2D pos = vehicle.getPosition();
+      for(Lane lane : vehicle.getDriver().getCurrentlyOccupiedLanes()) {
+        // Find out what IntersectionManager is coming up for this vehicle
+        IntersectionManager im =
+          lane.getLaneIM().nextIntersectionManager(pos);
+        // Only include this Vehicle if it is not in the intersection.
+        if (lane.getLaneIM().distanceToNextIntersection(pos) > 0
+            || im == null
+            || !im.intersects(vehicle.getShape().getBounds2D())) {
+          entry.addList(laneToList.get(lane), calcDistance(lane, pos));
+        }
+      }
+      current.add(entry);
+    }
+    // Keep the vehicles that are still on the lanes in their previous order
+    for(LaneList list : lists) {
+      int n = 0;
+      for(int i = 0; i < list.size; i++) {
+        Entry entry = list.entries[i];
+        if (entry.stamp == stamp) {
+          int k = entry.find(list);
+          if (k >= 0) {
+            list.entries[n] = entry;
+            list.distances[n] = entry.distances[k];
+            entry.placed[k] = true;
+            n++;
+          }
+        }
+      }
+      for(int i = n; i < list.size; i++) {
+        list.entries[i] = null;
+      }
+      list.size = n;
+    }
+    // Add the vehicles that have just entered the lanes
+    for(Entry entry : current) {
+      for(int k = 0; k < entry.numOfLists; k++) {
+        if (!entry.placed[k]) {
+          entry.lists[k].add(entry, entry.distances[k]);
+        }
+        entry.placed[k] = false;
+      }
+    }
+    // Repair the order
+    for(LaneList list : lists) {
+      list.sort();
+    }
+  }
+
+  /**
+   * Remove a vehicle that has left the simulation.
+   *
+   * @param vin  the VIN of the vehicle
+   */
+  public void remove(int vin) {
+    vinToEntry.remove(vin);
+  }
+
+  /**
+   * Get the list of the vehicles on a lane.
+   *
+   * @param lane  the lane
+   * @return the list of the vehicles on the lane and on the lanes that
+   *         lead into it or that it leads into
+   */
+  public LaneList getLaneList(Lane lane) {
+    return laneToList.get(lane);
+  }
+
+  /**
+   * Get the distance of a point along a lane in the coordinate of the
+   * lane's list.
+   *
+   * @param lane  the lane
+   * @param pos   the point
+   * @return the distance of the point along the lane's list
+   */
+  public double calcDistance(Lane lane, Point2D pos) {
+    return laneToOffset.get(lane) + lane.distanceAlongLane(pos);
+  }
+
+  /**
+   * Get the vehicle in front of a vehicle on the vehicle's lane.  If the
+   * vehicle is on more than one lane, the first lane on which there is a
+   * vehicle in front is used.
+   *
+   * @param vehicle  the vehicle
+   * @return the vehicle in front; null if there is none or if the vehicle
+   *         is not on any lane
+   */
+  public VehicleSimView getNextVehicle(VehicleSimView vehicle) {
+    Entry entry = vinToEntry.get(vehicle.getVIN());
+    if (entry != null && entry.stamp == stamp) {
+      for(int k = 0; k < entry.numOfLists; k++) {
+        LaneList list = entry.lists[k];
+        int i = entry.indices[k] + 1;
+        if (i < list.size) {
+          return list.entries[i].vehicle;
+        }
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,536 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import aim4.config.Debug;
+import aim4.driver.ProxyDriver;
+import aim4.msg.udp.Proxy2RealEncoder;
+import aim4.msg.udp.Real2ProxyCancel;
+import aim4.msg.udp.Real2ProxyDone;
+import aim4.msg.udp.Real2ProxyMsg;
+import aim4.msg.udp.Real2ProxyPVUpdate;
+import aim4.msg.udp.Real2ProxyRequest;
+import aim4.msg.udp.UdpHeader;
+import aim4.vehicle.ProxyVehicle;
+import aim4.vehicle.ProxyVehicleSimView;
+import aim4.vehicle.VinRegistry;
+
+/**
+ * Listens for UDP datagrams from real cars at a UDP port (default is 46000)
+ * with a {@link DatagramChannel}, and manages the corresponding proxy
+ * vehicles.  Unlike {@link UdpListener}, the listener thread never locks
+ * the simulator: it receives the datagrams into a fixed pool of direct
+ * buffers and puts the buffers into a lock-free queue.  The simulator
+ * drains the queue once at the beginning of each step by calling
+ * {@link #processMessages()}, which parses the messages directly from the
+ * buffers and returns the buffers to the pool.  If the pool is exhausted
+ * because the simulator falls behind, the datagrams are dropped, as the
+ * network would.  The replies of the proxy vehicles are coalesced by a
+ * {@link Proxy2RealEncoder} and sent through the same channel, one datagram
+ * per real vehicle per step.
+ */
+public class NioUdpListener implements Runnable {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The default listener UDP port */
+  public static final int DEFAULT_LISTENER_UDP_PORT = 46000;
+
+  /** The default UDP port on the vehicles */
+  public static final int DEFAULT_VEHICLE_UDP_PORT = 46042;
+
+  /** The default number of buffers in the pool */
+  public static final int DEFAULT_NUM_OF_BUFFERS = 4096;
+
+  /** The size of the receive buffer of the socket, in bytes */
+  private static final int SOCKET_RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * A received datagram.
+   */
+  private static class Datagram {
+    /** The buffer holding the datagram */
+    final ByteBuffer buffer =
+      ByteBuffer.allocateDirect(UdpHeader.MAX_MESSENGE_PACKAGE_LENGTH);
+    /** The address of the sender */
+    SocketAddress address;
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The UDP port */
+  private final int udpPort;
+
+  /** The UDP port on the vehicles to which the replies are sent */
+  private volatile int vehicleUdpPort;
+
+  /** the simulator */
+  private final Simulator sim;
+
+  /** The datagram channel; null if the listener has not started */
+  private volatile DatagramChannel channel;
+
+  /**
+   * The encoder of the messages to the real vehicles, which sends them
+   * through the channel; null if the listener has not started.  It is
+   * accessed by the simulation thread only.
+   */
+  private volatile Proxy2RealEncoder encoder;
+
+  /** The datagrams whose buffers are free to receive new datagrams */
+  private final ConcurrentLinkedQueue<Datagram> freeDatagrams =
+    new ConcurrentLinkedQueue<Datagram>();
+
+  /** The datagrams waiting to be processed by the simulator */
+  private final ConcurrentLinkedQueue<Datagram> receivedDatagrams =
+    new ConcurrentLinkedQueue<Datagram>();
+
+  /** The buffer into which the datagrams to be dropped are received */
+  private final ByteBuffer overflowBuffer =
+    ByteBuffer.allocateDirect(UdpHeader.MAX_MESSENGE_PACKAGE_LENGTH);
+
+  /**
+   * A map of all the ProxyVehicles, indexed by their respective (unique)
+   * socket addresses.  It is accessed by the simulation thread only.
+   */
+  private final Map<SocketAddress,ProxyVehicleSimView> sa2ProxyVehicle =
+    new HashMap<SocketAddress,ProxyVehicleSimView>();
+
+  /** The thread of this UDP listener */
+  private volatile Thread blinker;
+
+  // statistics
+
+  /** The number of datagrams received; written by the listener thread */
+  private volatile long numOfReceivedDatagrams;
+  /** The number of datagrams dropped; written by the listener thread */
+  private volatile long numOfDroppedDatagrams;
+  /** The number of messages processed; written by the simulation thread */
+  private volatile long numOfProcessedMessages;
+  /** The number of corrupted datagrams; written by the simulation thread */
+  private volatile long numOfCorruptedDatagrams;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Default constructor uses UDP port 46000
+   *
+   * @param sim  the simulator
+   */
+  public NioUdpListener(Simulator sim) {
+    this(DEFAULT_LISTENER_UDP_PORT, sim);
+  }
+
+  /**
+   * Constructor for a UDP listener on the specified port.
+   *
+   * @param udpPort  the port to listen on
+   * @param sim      the simulator
+   */
+  public NioUdpListener(int udpPort, Simulator sim) {
+    this(udpPort, sim, DEFAULT_NUM_OF_BUFFERS);
+  }
+
+  /**
+   * Constructor for a UDP listener on the specified port.
+   *
+   * @param udpPort       the port to listen on
+   * @param sim           the simulator
+   * @param numOfBuffers  the number of buffers in the pool, i.e., the
+   *                      maximum number of datagrams waiting to be
+   *                      processed
+   */
+  public NioUdpListener(int udpPort, Simulator sim, int numOfBuffers) {
+    this.udpPort = udpPort;
+    this.vehicleUdpPort = DEFAULT_VEHICLE_UDP_PORT;
+    this.sim = sim;
+    for (int i = 0; i < numOfBuffers; i++) {
+      freeDatagrams.add(new Datagram());
+    }
+    channel = null;
+    encoder = null;
+    blinker = null;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  // settings
+
+  /**
+   * Set the UDP port on the vehicles to which the replies are sent.  The
+   * port applies to the vehicles that connect from now on.
+   *
+   * @param vehicleUdpPort  the UDP port on the vehicles
+   */
+  public void setVehicleUdpPort(int vehicleUdpPort) {
+    this.vehicleUdpPort = vehicleUdpPort;
+  }
+
+  /**
+   * Get the UDP port on the vehicles to which the replies are sent.
+   *
+   * @return the UDP port on the vehicles
+   */
+  public int getVehicleUdpPort() {
+    return vehicleUdpPort;
+  }
+
+  // start and stop the thread
+
+  /**
+   * Whether or not the thread has started to listen to the UDP port.
+   *
+   * @return whether or not the thread has started to listen to the UDP port.
+   */
+  public synchronized boolean hasStarted() {
+    return blinker != null;
+  }
+
+  /**
+   * Open the UDP port and start the listener thread.  If the port cannot
+   * be opened, the listener does not start.
+   */
+  public synchronized void start() {
+    assert blinker == null;
+    try {
+      channel = DatagramChannel.open();
+      channel.socket().setReceiveBufferSize(SOCKET_RECEIVE_BUFFER_SIZE);
+      channel.socket().bind(new InetSocketAddress(udpPort));
+    } catch(IOException e) {
+      System.err.println("Cannot open UDP channel: " + e.getMessage());
+      closeChannel();
+      return;
+    }
+    encoder = new Proxy2RealEncoder(channel);
+    sim.setUdpListener(this);
+    blinker = new Thread(this, "NioUdpListener");
+    blinker.setDaemon(true);
+    blinker.start();
+  }
+
+  /**
+   * Stop the listener thread.
+   */
+  public synchronized void stop() {
+    assert blinker != null;
+    blinker = null;
+    closeChannel();
+    sim.setUdpListener(null);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void run() {
+    DatagramChannel ch = channel;
+    Thread thisThread = Thread.currentThread();
+
+    // listen so long as the user hasn't called stop()
+    while (blinker == thisThread) {
+      Datagram datagram = freeDatagrams.poll();
+      ByteBuffer buf = (datagram != null) ? datagram.buffer : overflowBuffer;
+      buf.clear();
+      SocketAddress sa;
+      try {
+        sa = ch.receive(buf);   // blocks until data received
+      } catch(IOException e) {
+        // Either stop() is called to close the channel, or
+        // something is wrong with our channel.
+        if (datagram != null) {
+          freeDatagrams.add(datagram);
+        }
+        break;
+      }
+      numOfReceivedDatagrams++;
+      if (datagram != null) {
+        buf.flip();
+        datagram.address = sa;
+        receivedDatagrams.add(datagram);
+      } else {
+        numOfDroppedDatagrams++;
+      }
+    }
+  }
+
+  // processing
+
+  /**
+   * Deliver the messages received since the last call to the proxy
+   * vehicles, creating proxy vehicles for new real vehicles.  This method
+   * is called by the simulator at the beginning of each step.
+   */
+  public void processMessages() {
+    double currentTime = sim.getSimulationTime();
+    Datagram datagram;
+    while((datagram = receivedDatagrams.poll()) != null) {
+      processDatagram(datagram.address, datagram.buffer, currentTime);
+      datagram.address = null;
+      freeDatagrams.add(datagram);
+    }
+  }
+
+  /**
+   * Send the messages that the proxy vehicles have encoded since the last
+   * call, one datagram per real vehicle.  This method is called by the
+   * simulator after the I2V messages are delivered.
+   */
+  public void sendMessages() {
+    Proxy2RealEncoder enc = encoder;
+    if (enc != null) {
+      enc.flush();
+    }
+  }
+
+  // statistics
+
+  /**
+   * Get the number of datagrams received.
+   *
+   * @return the number of datagrams received
+   */
+  public long getNumOfReceivedDatagrams() {
+    return numOfReceivedDatagrams;
+  }
+
+  /**
+   * Get the number of datagrams dropped because there was no free buffer.
+   *
+   * @return the number of datagrams dropped
+   */
+  public long getNumOfDroppedDatagrams() {
+    return numOfDroppedDatagrams;
+  }
+
+  /**
+   * Get the number of messages delivered to the proxy vehicles.
+   *
+   * @return the number of messages delivered to the proxy vehicles
+   */
+  public long getNumOfProcessedMessages() {
+    return numOfProcessedMessages;
+  }
+
+  /**
+   * Get the number of datagrams that could not be parsed.
+   *
+   * @return the number of datagrams that could not be parsed
+   */
+  public long getNumOfCorruptedDatagrams() {
+    return numOfCorruptedDatagrams;
+  }
+
+  /**
+   * Get the number of datagrams sent to the real vehicles.
+   *
+   * @return the number of datagrams sent to the real vehicles
+   */
+  public long getNumOfSentDatagrams() {
+    Proxy2RealEncoder enc = encoder;
+    return (enc != null) ? enc.getNumOfSentDatagrams() : 0;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * A synchronized function for closing the UDP channel.  Closing the
+   * channel wakes up the listener thread if it is blocked in receiving.
+   */
+  private synchronized void closeChannel() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch(IOException e) {
+        System.err.println("Cannot close UDP channel: " + e.getMessage());
+      }
+      channel = null;
+      if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+        System.err.println("The UDP channel is closed.");
+      }
+    }
+  }
+
+  /**
+   * Process a datagram.
+   *
+   * @param sa           the address of the sender
+   * @param buf          the buffer holding the datagram
+   * @param currentTime  the current time
+   */
+  private void processDatagram(SocketAddress sa, ByteBuffer buf,
+                               double currentTime) {
+    Real2ProxyMsg msg = convertDatagramToReal2ProxyMsg(buf, currentTime);
+
+    if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+      if (Debug.SHOW_PROXY_VEHICLE_PVUPDATE_MSG ||
+          !(msg instanceof Real2ProxyPVUpdate)) {
+        System.err.printf("Proxy vehicle received a Real2Proxy msg: %s\n",
+                          msg);
+      }
+    }
+
+    if (msg == null) {
+      numOfCorruptedDatagrams++;
+      return;
+    }
+    numOfProcessedMessages++;
+
+    ProxyVehicleSimView vehicle = sa2ProxyVehicle.get(sa);
+    if (vehicle != null) {
+      // The datagram came from a real vehicle we're already tracking.
+      // Simply forward the datagram to the corresponding proxy vehicle
+      vehicle.processReal2ProxyMsg(msg);
+    } else if (msg.messageType == Real2ProxyMsg.Type.PV_UPDATE) {
+      // This must be coming from a new real vehicle that we're not
+      // tracking.  Instantiate the proxy vehicle and associate the socket
+      // address to this proxy vehicle.
+      Real2ProxyPVUpdate pvUpdateMsg = (Real2ProxyPVUpdate)msg;
+      vehicle = makeProxyVehicle(pvUpdateMsg);
+      // check the VIN number
+      if (VinRegistry.registerVehicleWithExistingVIN(vehicle,
+                                                     pvUpdateMsg.vin)) {
+        // reply to the same IP address at the port of the vehicle
+        vehicle.setSa(
+          new InetSocketAddress(((InetSocketAddress)sa).getAddress(),
+                                vehicleUdpPort));
+        vehicle.setProxy2RealEncoder(encoder);
+        sa2ProxyVehicle.put(sa, vehicle);
+        sim.addProxyVehicle(vehicle);
+        if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+          System.err.printf("A proxy vehicle is created at time %.2f "
+            + "(vin=%d).\n", currentTime, vehicle.getVIN());
+        }
+      } else {
+        System.err.println("Warning: the VIN of the UPD message has " +
+                           "already been used by other vehicles.");
+      }
+    } else {
+      // Ignore the message
+      if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+        System.err.println("Warning: first message from a new real " +
+                           "vehicle must be a PVUpdate.");
+      }
+    }
+  }
+
+  /**
+   * Convert a datagram to a Real2Proxy message.  The message is read
+   * directly from the buffer.
+   *
+   * @param buf          the buffer holding the datagram
+   * @param currentTime  the current time
+   * @return the Real2Proxy message; <code>null</code> if the datagram is
+   *         corrupted
+   */
+  private Real2ProxyMsg convertDatagramToReal2ProxyMsg(ByteBuffer buf,
+                                                       double currentTime) {
+    // the checksum covers the whole datagram, header included
+    boolean isChecksumValid = buf.remaining() >= UdpHeader.LENGTH
+      && UdpHeader.isChecksumValid(
+           buf.getInt(buf.position() + UdpHeader.CHECKSUM_OFFSET), buf);
+    UdpHeader header;
+    try {
+      header = new UdpHeader(buf);
+    } catch(RuntimeException e) {
+      System.err.println("Error: Datagram has a corrupted header.");
+      return null;
+    }
+    if (!isChecksumValid) {
+      // the datagram is corrupted, can't use it
+      System.err.println("Error: Datagram has a corrupted checksum.");
+      return null;
+    }
+
+    try {
+      switch(header.getMessageType()) {
+      case PVUpdate:
+        return new Real2ProxyPVUpdate(buf, currentTime);
+      case V2I_Request:
+        return new Real2ProxyRequest(buf, currentTime);
+      case V2I_Cancel:
+        return new Real2ProxyCancel(buf, currentTime);
+      case V2I_Done:
+        return new Real2ProxyDone(buf, currentTime);
+      default:
+        System.err.println("Error: Unknown UDP message type");
+        return null;
+      }
+    } catch(RuntimeException e) {
+      System.err.println("Error: Datagram has a corrupted body for a " +
+                         header.getMessageType() + " message.");
+      return null;
+    }
+  }
+
+  /**
+   * Create a proxy vehicle
+   *
+   * @param msg  the PV update message
+   * @return the proxy vehicle
+   */
+  private ProxyVehicleSimView makeProxyVehicle(Real2ProxyPVUpdate msg) {
+    ProxyVehicleSimView vehicle = new ProxyVehicle(msg.position,
+                                                   msg.heading,
+                                                   msg.steeringAngle,
+                                                   msg.velocity,
+                                                   msg.targetVelocity,
+                                                   msg.acceleration,
+                                                   msg.receivedTime);
+    vehicle.setDriver(new ProxyDriver(vehicle, sim.getMap()));
+
+    assert vehicle.getDriver() != null;
+    return vehicle;
+  }
+
+}
@@ -0,0 +1,478 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+import aim4.config.Condor;
+import aim4.driver.navigator.CongestionRouteTable;
+import aim4.driver.navigator.RouteTable;
+import aim4.driver.pilot.V2IPilot;
+import aim4.map.BasicMap;
+import aim4.util.IntHashMap;
+import aim4.vehicle.MaxTurnVelocityTable;
+import aim4.vehicle.VinRegistry;
+
+/**
+ * The state of a simulation that used to be kept in static fields: the map,
+ * the route tables of the map, the VIN registry, the random number
+ * generators, the memo of the maximum turn velocities, the colors of the
+ * vehicles and the switches that the simulation setups turn on.
+ * <p>
+ * The context of the code running on a thread is the context bound to the
+ * thread by {@link #bind(SimContext)}, or the default context if none is
+ * bound.  A simulation that runs alone in the JVM simply uses the default
+ * context.  To run several simulations at the same time, give each of them
+ * its own context: bind the context while the simulator is built, after
+ * which the simulator binds it again on every thread that runs a step of
+ * the simulation.
+ * <p>
+ * The entities that draw random numbers, such as the spawn points, the
+ * destination selectors and the noisy gauges, take their own random streams
+ * from {@link #newStream(int, long)}.  The seed of a stream depends only on
+ * the master seed, the kind of the entity and the ID of the entity, so the
+ * numbers an entity draws do not depend on the order in which the entities
+ * are processed.
+ */
+public class SimContext {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The constant that is mixed into the master seed to obtain the seed of
+   * the noise generator
+   */
+  private static final long NOISE_SEED_MIX = 0x9E3779B97F4A7C15L;
+  /**
+   * The odd constant that spaces apart the kinds and the IDs of the random
+   * streams before they are mixed with the master seed
+   */
+  private static final long STREAM_GAMMA = 0x9E3779B97F4A7C15L;
+
+  /** The kind of the random streams of the spawn points */
+  public static final int SPAWN_STREAM = 1;
+  /** The kind of the random streams of the destination selectors */
+  public static final int DESTINATION_STREAM = 2;
+  /** The kind of the random streams of the gauges */
+  public static final int NOISE_STREAM = 3;
+
+  /////////////////////////////////
+  // PRIVATE STATIC FIELDS
+  /////////////////////////////////
+
+  /** The context of the code that runs without a bound context */
+  private static final SimContext defaultContext =
+    new SimContext(makeDefaultSeed());
+
+  /** The contexts bound to the threads */
+  private static final ThreadLocal<SimContext> boundContext =
+    new ThreadLocal<SimContext>();
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The master random seed */
+  private long seed;
+  /** The random number generator of the simulation */
+  private final Random random;
+  /** The random number generator of the noise functions */
+  private final Random noiseRandom;
+  /** The map; null if the map has not been built */
+  private volatile BasicMap map;
+  /** The route table of the map; null if it has not been created */
+  private volatile RouteTable routeTable;
+  /**
+   * The congestion-aware route table of the map; null if congestion-aware
+   * routing has not been enabled
+   */
+  private volatile CongestionRouteTable congestionRouteTable;
+  /** The VIN registry */
+  private final VinRegistry vinRegistry;
+  /**
+   * The memo of the max turn velocities, indexed by the names of the
+   * vehicle specifications
+   */
+  private final Map<String,Map<List<Integer>,Double>> maxTurnVelocityMemo;
+  /**
+   * The table of the max turn velocities computed in advance; null if there
+   * is none
+   */
+  private volatile MaxTurnVelocityTable maxTurnVelocityTable;
+  /** A mapping from vehicle's VINs to the color of the vehicles */
+  private final IntHashMap<Color> vehicleColors;
+  /** Whether the vehicles must stop before an intersection */
+  private volatile boolean isMustStopBeforeIntersection;
+  /**
+   * The shortest distance before an intersection at which the vehicles stop
+   * if they cannot enter the intersection immediately
+   */
+  private volatile double stopDistanceBeforeIntersection;
+
+  /////////////////////////////////
+  // CLASS METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the context of the current thread.
+   *
+   * @return the context bound to the current thread; the default context if
+   *         none is bound
+   */
+  public static SimContext current() {
+    SimContext context = boundContext.get();
+    return (context != null) ? context : defaultContext;
+  }
+
+  /**
+   * Get the default context.
+   *
+   * @return the default context
+   */
+  public static SimContext getDefault() {
+    return defaultContext;
+  }
+
+  /**
+   * Bind a context to the current thread.  The previous binding should be
+   * restored afterwards by binding the returned context again.
+   *
+   * @param context  the context; null to unbind the current context
+   * @return the context bound before; null if none was bound
+   */
+  public static SimContext bind(SimContext context) {
+    SimContext previous = boundContext.get();
+    if (context != null) {
+      boundContext.set(context);
+    } else {
+      boundContext.remove();
+    }
+    return previous;
+  }
+
+  /**
+   * Make the seed of the default context.  On Condor, different processes
+   * receive different seeds.
+   *
+   * @return the seed of the default context
+   */
+  private static long makeDefaultSeed() {
+    long seed = (new Random()).nextLong();
+    if (Condor.IS_CONDOR_EXIST) {
+      // To make sure different processes on Condor receives different random
+      // seeds, different processes sleep for a different time.
+      try{
+        Thread.sleep(Condor.CONDOR_ID * 10);
+      } catch(InterruptedException e){
+        // ignore the interruption by another thread
+      }
+      seed = (new Random(seed)).nextLong() + Condor.CONDOR_ID;
+    }
+    return seed;
+  }
+
+  /**
+   * The finalizer of SplitMix64, which maps a counter to a well mixed value.
+   *
+   * @param z  the counter
+   * @return the mixed value
+   */
+  private static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a context.
+   *
+   * @param seed  the master random seed
+   */
+  public SimContext(long seed) {
+    this.random = new Random();
+    this.noiseRandom = new Random();
+    this.map = null;
+    this.vinRegistry = new VinRegistry();
+    this.maxTurnVelocityMemo =
+      new ConcurrentHashMap<String,Map<List<Integer>,Double>>();
+    this.maxTurnVelocityTable = null;
+    this.vehicleColors = new IntHashMap<Color>();
+    this.isMustStopBeforeIntersection = false;
+    this.stopDistanceBeforeIntersection =
+      V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION;
+    reseed(seed);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  // random numbers
+
+  /**
+   * Get the master random seed.
+   *
+   * @return the master random seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Set the master random seed and reseed the random number generators.
+   *
+   * @param seed  the master random seed
+   */
+  public void setSeed(long seed) {
+    reseed(seed);
+  }
+
+  /**
+   * Get the random number generator of the simulation.
+   *
+   * @return the random number generator of the simulation
+   */
+  public Random getRandom() {
+    return random;
+  }
+
+  /**
+   * Create a random stream of an entity.  The stream is seeded with a mix
+   * of the master seed, the kind of the stream and the ID of the entity;
+   * streams with the same kind and ID are identical, and creating a stream
+   * does not change any other stream.  The stream must not be shared by
+   * several threads.
+   *
+   * @param kind  the kind of the stream
+   * @param id    the ID of the entity, unique among the streams of the kind
+   * @return the random stream
+   */
+  public SplittableRandom newStream(int kind, long id) {
+    long s = mix64(seed + kind * STREAM_GAMMA);
+    return new SplittableRandom(mix64(s + id * STREAM_GAMMA));
+  }
+
+  /**
+   * Get the random number generator of the noise functions.
+   *
+   * @return the random number generator of the noise functions
+   */
+  public Random getNoiseRandom() {
+    return noiseRandom;
+  }
+
+  // map
+
+  /**
+   * Get the map.
+   *
+   * @return the map; null if the map has not been built
+   */
+  public BasicMap getMap() {
+    return map;
+  }
+
+  /**
+   * Set the map.  The route tables and the table of the max turn velocities
+   * of the previous map are dropped.
+   *
+   * @param map  the map
+   */
+  public void setMap(BasicMap map) {
+    if (map != this.map) {
+      routeTable = null;
+      congestionRouteTable = null;
+      maxTurnVelocityTable = null;
+    }
+    this.map = map;
+  }
+
+  /**
+   * Get the route table of the map.
+   *
+   * @return the route table of the map; null if it has not been created
+   */
+  public RouteTable getRouteTable() {
+    return routeTable;
+  }
+
+  /**
+   * Set the route table of the map.
+   *
+   * @param routeTable  the route table of the map
+   */
+  public void setRouteTable(RouteTable routeTable) {
+    this.routeTable = routeTable;
+  }
+
+  /**
+   * Get the congestion-aware route table of the map.
+   *
+   * @return the congestion-aware route table of the map; null if
+   *         congestion-aware routing has not been enabled
+   */
+  public CongestionRouteTable getCongestionRouteTable() {
+    return congestionRouteTable;
+  }
+
+  /**
+   * Set the congestion-aware route table of the map.
+   *
+   * @param congestionRouteTable  the congestion-aware route table of the map
+   */
+  public void setCongestionRouteTable(
+                                CongestionRouteTable congestionRouteTable) {
+    this.congestionRouteTable = congestionRouteTable;
+  }
+
+  // vehicles
+
+  /**
+   * Get the VIN registry.
+   *
+   * @return the VIN registry
+   */
+  public VinRegistry getVinRegistry() {
+    return vinRegistry;
+  }
+
+  /**
+   * Get the memo of the max turn velocities.  The memo is safe to use from
+   * several threads.
+   *
+   * @return the memo of the max turn velocities, indexed by the names of
+   *         the vehicle specifications
+   */
+  public Map<String,Map<List<Integer>,Double>> getMaxTurnVelocityMemo() {
+    return maxTurnVelocityMemo;
+  }
+
+  /**
+   * Get the table of the max turn velocities computed in advance.
+   *
+   * @return the table of the max turn velocities; null if there is none
+   */
+  public MaxTurnVelocityTable getMaxTurnVelocityTable() {
+    return maxTurnVelocityTable;
+  }
+
+  /**
+   * Set the table of the max turn velocities computed in advance.
+   *
+   * @param maxTurnVelocityTable  the table of the max turn velocities; null
+   *                              to drop the table
+   */
+  public void setMaxTurnVelocityTable(
+                                MaxTurnVelocityTable maxTurnVelocityTable) {
+    this.maxTurnVelocityTable = maxTurnVelocityTable;
+  }
+
+  /**
+   * Get the colors of the vehicles.
+   *
+   * @return a mapping from vehicle's VINs to the color of the vehicles
+   */
+  public IntHashMap<Color> getVehicleColors() {
+    return vehicleColors;
+  }
+
+  // switches
+
+  /**
+   * Whether the vehicles must stop before an intersection.
+   *
+   * @return whether the vehicles must stop before an intersection
+   */
+  public boolean isMustStopBeforeIntersection() {
+    return isMustStopBeforeIntersection;
+  }
+
+  /**
+   * Set whether the vehicles must stop before an intersection.
+   *
+   * @param isMustStopBeforeIntersection  whether the vehicles must stop
+   *                                      before an intersection
+   */
+  public void setMustStopBeforeIntersection(
+                                      boolean isMustStopBeforeIntersection) {
+    this.isMustStopBeforeIntersection = isMustStopBeforeIntersection;
+  }
+
+  /**
+   * Get the shortest distance before an intersection at which the vehicles
+   * stop if they cannot enter the intersection immediately.
+   *
+   * @return the stopping distance before an intersection, in meters
+   */
+  public double getStopDistanceBeforeIntersection() {
+    return stopDistanceBeforeIntersection;
+  }
+
+  /**
+   * Set the shortest distance before an intersection at which the vehicles
+   * stop if they cannot enter the intersection immediately.
+   *
+   * @param stopDistanceBeforeIntersection  the stopping distance before an
+   *                                        intersection, in meters
+   */
+  public void setStopDistanceBeforeIntersection(
+                                      double stopDistanceBeforeIntersection) {
+    this.stopDistanceBeforeIntersection = stopDistanceBeforeIntersection;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Set the master random seed and reseed the random number generators.
+   * Unlike {@link #setSeed(long)}, this method cannot be overridden, so the
+   * constructor can call it.
+   *
+   * @param seed  the master random seed
+   */
+  private void reseed(long seed) {
+    this.seed = seed;
+    random.setSeed(seed);
+    noiseRandom.setSeed(seed ^ NOISE_SEED_MIX);
+  }
+}
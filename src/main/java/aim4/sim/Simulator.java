@@ -33,6 +33,7 @@ package aim4.sim;
 import java.util.Set;
 
 import aim4.map.BasicMap;
+import aim4.sim.metrics.SimMetrics;
 import aim4.vehicle.ProxyVehicleSimView;
 import aim4.vehicle.VehicleSimView;
 
@@ -89,6 +90,14 @@ public interface Simulator {
    */
   double getAvgBitsReceivedByCompletedVehicles();
 
+  /**
+   * Get the metrics of the simulation.  The metrics are always recorded
+   * and can be read by any thread.
+   *
+   * @return the metrics of the simulation
+   */
+  SimMetrics getMetrics();
+
   /**
    * Get the set of all active vehicles in the simulation.
    *
@@ -110,4 +119,12 @@ public interface Simulator {
    * @param vehicle  the proxy vehicle
    */
   void addProxyVehicle(ProxyVehicleSimView vehicle);
+
+  /**
+   * Set the UDP listener whose messages are delivered to the proxy vehicles
+   * at the beginning of each step.
+   *
+   * @param udpListener  the UDP listener; <code>null</code> if there is none
+   */
+  void setUdpListener(NioUdpListener udpListener);
 }
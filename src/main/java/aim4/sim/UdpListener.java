@@ -38,6 +38,7 @@ import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -80,6 +81,9 @@ public class UdpListener implements Runnable {
   /** the simulator */
   private final Simulator sim;
 
+  /** The context of the simulation */
+  private final SimContext context;
+
   /** Datagram socket for listening on a port over UDP. */
   private DatagramSocket ds;
 
@@ -119,6 +123,7 @@ public class UdpListener implements Runnable {
   public UdpListener(int udpPort, Simulator sim) {
     this.udpPort = udpPort;
     this.sim = sim;
+    this.context = SimContext.current();
     ds = null;
     sa2ProxyVehicle = new HashMap<SocketAddress,ProxyVehicleSimView>();
     blinker = null;
@@ -181,6 +186,8 @@ public class UdpListener implements Runnable {
    */
   @Override
   public void run() {
+    // the proxy vehicles are registered in the context of the simulation
+    SimContext.bind(context);
     try {
       ds = new DatagramSocket(udpPort);
     } catch(SocketException e) {
@@ -332,7 +339,8 @@ public class UdpListener implements Runnable {
       return null;
     }
 
-    if (header.getChecksum() != UdpHeader.computeChecksum(data)) {
+    if (!UdpHeader.isChecksumValid(header.getChecksum(),
+           ByteBuffer.wrap(data, dp.getOffset(), dp.getLength()))) {
       // the datagram is corrupted, can't use it
       System.err.println("Error: Datagram has a corrupted checksum.");
       return null;
@@ -0,0 +1,372 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import aim4.config.SimConfig;
+import aim4.msg.udp.UdpHeader;
+import aim4.sim.setup.AutoDriverOnlySimSetup;
+
+/**
+ * A load generator for the UDP listener of the proxy vehicles.  It
+ * replays synthetic PV update messages of many fake real vehicles over the
+ * loopback interface, each vehicle from its own UDP socket, and reports the
+ * throughput.
+ * <p>
+ * By default, the generator runs its own simulator with a
+ * {@link NioUdpListener}, steps the simulator as fast as possible while
+ * sending, and reports how many messages were received, dropped and
+ * delivered to the proxy vehicles.  With the <code>--host</code> option,
+ * it only sends to a listener running elsewhere, e.g., in the GUI.
+ * <p>
+ * Usage:
+ * <pre>
+ * java aim4.sim.UdpLoadGenerator [options]
+ *   --vehicles n    the number of fake vehicles (default: 2000)
+ *   --rate r        the number of PV updates per vehicle per second
+ *                   (default: 10)
+ *   --time t        the duration of the test in seconds (default: 10)
+ *   --port p        the port of the listener (default: 46000)
+ *   --host h        the host of a running listener (default: run a local
+ *                   simulator and listener)
+ * </pre>
+ * Every fake vehicle needs its own socket, so the number of vehicles is
+ * limited by the number of open files allowed to the process.
+ */
+public class UdpLoadGenerator {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The VIN of the first fake vehicle */
+  private static final int BASE_VIN = 100000;
+
+  /** The length of a PV update datagram, in bytes */
+  private static final int PV_UPDATE_LENGTH = UdpHeader.LENGTH + 32;
+
+  /** The distance between the fake vehicles, in meters */
+  private static final double VEHICLE_SPACING = 5.0;
+
+  /** The number of fake vehicles in a row */
+  private static final int VEHICLES_PER_ROW = 60;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The thread that steps the local simulator as fast as possible.
+   */
+  private static class SimRunner extends Thread {
+    /** The simulator */
+    private final Simulator sim;
+    /** Whether the thread should stop */
+    private volatile boolean isStopped = false;
+    /** The number of steps */
+    private volatile long numOfSteps = 0;
+    /** The time the thread has run, in seconds */
+    private volatile double elapsedTime = 0.0;
+
+    /**
+     * Create a thread that steps a simulator.
+     *
+     * @param sim  the simulator
+     */
+    SimRunner(Simulator sim) {
+      super("SimRunner");
+      this.sim = sim;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+      long startTime = System.nanoTime();
+      while (!isStopped) {
+        sim.step(SimConfig.TIME_STEP);
+        numOfSteps++;
+      }
+      elapsedTime = (System.nanoTime() - startTime) / 1e9;
+    }
+
+    /**
+     * Stop the thread and wait for it to finish.
+     */
+    void stopAndJoin() {
+      isStopped = true;
+      try {
+        join();
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * Get the number of steps.
+     *
+     * @return the number of steps
+     */
+    long getNumOfSteps() {
+      return numOfSteps;
+    }
+
+    /**
+     * Get the time the thread has run.
+     *
+     * @return the time the thread has run, in seconds
+     */
+    double getElapsedTime() {
+      return elapsedTime;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The number of fake vehicles */
+  private int numOfVehicles = 2000;
+  /** The number of PV updates per vehicle per second */
+  private double rate = 10.0;
+  /** The duration of the test in seconds */
+  private double duration = 10.0;
+  /** The port of the listener */
+  private int port = NioUdpListener.DEFAULT_LISTENER_UDP_PORT;
+  /** The host of the listener; null if a local listener is run */
+  private String host = null;
+
+  /////////////////////////////////
+  // THE MAIN FUNCTION
+  /////////////////////////////////
+
+  /**
+   * The main function of the load generator.
+   *
+   * @param args  the command-line arguments
+   */
+  public static void main(String[] args) {
+    UdpLoadGenerator generator = new UdpLoadGenerator();
+    try {
+      generator.parseArgs(args);
+      generator.run();
+    } catch(IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(2);
+    } catch(IOException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Parse the command-line arguments.
+   *
+   * @param args  the command-line arguments
+   */
+  private void parseArgs(String[] args) {
+    for (int i = 0; i < args.length; i += 2) {
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value of " + args[i]);
+      }
+      String opt = args[i];
+      String value = args[i + 1];
+      if (opt.equals("--vehicles")) {
+        numOfVehicles = Integer.parseInt(value);
+      } else if (opt.equals("--rate")) {
+        rate = Double.parseDouble(value);
+      } else if (opt.equals("--time")) {
+        duration = Double.parseDouble(value);
+      } else if (opt.equals("--port")) {
+        port = Integer.parseInt(value);
+      } else if (opt.equals("--host")) {
+        host = value;
+      } else {
+        throw new IllegalArgumentException("Unknown option: " + opt);
+      }
+    }
+    if (numOfVehicles <= 0 || rate <= 0.0 || duration <= 0.0) {
+      throw new IllegalArgumentException("The number of vehicles, the rate "
+                                         + "and the time must be positive.");
+    }
+  }
+
+  /**
+   * Run the test.
+   *
+   * @throws IOException  if the sockets cannot be opened
+   */
+  private void run() throws IOException {
+    Simulator sim = null;
+    NioUdpListener listener = null;
+    SimRunner simRunner = null;
+    InetSocketAddress target;
+    if (host == null) {
+      AutoDriverOnlySimSetup setup =
+        new AutoDriverOnlySimSetup(1, 1, 4.0, 25.0, 1, 1.0, 150.0, 0.0, 1.0);
+      sim = setup.getSimulator();
+      listener = new NioUdpListener(port, sim);
+      listener.start();
+      if (!listener.hasStarted()) {
+        throw new IOException("Cannot start the UDP listener.");
+      }
+      simRunner = new SimRunner(sim);
+      simRunner.start();
+      target = new InetSocketAddress(InetAddress.getByName(null), port);
+    } else {
+      target = new InetSocketAddress(host, port);
+    }
+
+    DatagramChannel[] channels = new DatagramChannel[numOfVehicles];
+    try {
+      for (int i = 0; i < numOfVehicles; i++) {
+        channels[i] = DatagramChannel.open();
+        channels[i].configureBlocking(false);
+        channels[i].connect(target);
+      }
+      long startTime = System.nanoTime();
+      long[] counts = send(channels, startTime);
+      double elapsed = (System.nanoTime() - startTime) / 1e9;
+      System.out.printf("vehicles=%d rate=%.1f/s time=%.2fs\n",
+                        numOfVehicles, rate, elapsed);
+      System.out.printf("sent=%d (%.0f/s) notSent=%d\n",
+                        counts[0], counts[0] / elapsed, counts[1]);
+    } finally {
+      for (DatagramChannel ch : channels) {
+        if (ch != null) {
+          ch.close();
+        }
+      }
+    }
+
+    if (listener != null) {
+      // let the simulator drain the queue
+      try {
+        Thread.sleep(200);
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      listener.stop();
+      simRunner.stopAndJoin();
+      System.out.printf("received=%d dropped=%d processed=%d corrupted=%d\n",
+                        listener.getNumOfReceivedDatagrams(),
+                        listener.getNumOfDroppedDatagrams(),
+                        listener.getNumOfProcessedMessages(),
+                        listener.getNumOfCorruptedDatagrams());
+      System.out.printf("steps=%d (%.0f/s) proxyVehicles=%d\n",
+                        simRunner.getNumOfSteps(),
+                        simRunner.getNumOfSteps() / simRunner.getElapsedTime(),
+                        sim.getActiveVehicles().size());
+    }
+  }
+
+  /**
+   * Send the PV updates of the fake vehicles in rounds until the end of
+   * the test.
+   *
+   * @param channels   the channels of the fake vehicles
+   * @param startTime  the start time of the test, in nanoseconds
+   * @return the number of datagrams sent and the number of datagrams that
+   *         could not be sent because the socket buffer was full
+   * @throws IOException  if a datagram cannot be sent
+   */
+  private long[] send(DatagramChannel[] channels, long startTime)
+      throws IOException {
+    ByteBuffer buf = ByteBuffer.allocateDirect(PV_UPDATE_LENGTH);
+    long roundPeriod = (long)(1e9 / rate);
+    long endTime = startTime + (long)(duration * 1e9);
+    long numOfSent = 0;
+    long numOfNotSent = 0;
+    for (long round = 0; ; round++) {
+      long roundStart = startTime + round * roundPeriod;
+      if (roundStart >= endTime) {
+        break;
+      }
+      long wait = roundStart - System.nanoTime();
+      if (wait > 0) {
+        try {
+          Thread.sleep(wait / 1000000L, (int)(wait % 1000000L));
+        } catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      float timestamp = (float)(round / rate);
+      for (int i = 0; i < channels.length; i++) {
+        writePVUpdate(buf, i, timestamp);
+        if (channels[i].write(buf) > 0) {
+          numOfSent++;
+        } else {
+          numOfNotSent++;
+        }
+      }
+    }
+    return new long[] { numOfSent, numOfNotSent };
+  }
+
+  /**
+   * Write the PV update of a fake vehicle into a buffer.  The vehicles
+   * stand still in rows.
+   *
+   * @param buf        the buffer
+   * @param i          the index of the vehicle
+   * @param timestamp  the timestamp
+   */
+  private static void writePVUpdate(ByteBuffer buf, int i, float timestamp) {
+    buf.clear();
+    // header
+    buf.putFloat(timestamp);
+    buf.putInt(UdpHeader.UdpMessageType.PVUpdate.ordinal());
+    buf.putInt(UdpHeader.NO_CHECKSUM);
+    // body
+    buf.putInt(BASE_VIN + i);
+    buf.putFloat((float)((i % VEHICLES_PER_ROW) * VEHICLE_SPACING));
+    buf.putFloat((float)((i / VEHICLES_PER_ROW) * VEHICLE_SPACING));
+    buf.putFloat(0.0f);  // heading
+    buf.putFloat(0.0f);  // steering angle
+    buf.putFloat(0.0f);  // velocity
+    buf.putFloat(0.0f);  // target velocity
+    buf.putFloat(0.0f);  // acceleration
+    buf.flip();
+    UdpHeader.writeChecksum(buf);
+  }
+}
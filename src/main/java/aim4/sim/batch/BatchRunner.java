@@ -0,0 +1,544 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import aim4.config.Debug;
+import aim4.config.SimConfig;
+import aim4.sim.SimContext;
+import aim4.sim.Simulator;
+import aim4.sim.batch.RunSpec.Policy;
+import aim4.sim.metrics.MetricsCsvWriter;
+import aim4.sim.results.ResultStream;
+import aim4.sim.setup.SimFactory;
+
+/**
+ * The headless batch runner.  It expands a grid of parameter values into
+ * a list of runs, runs them in parallel without the GUI and streams one
+ * row of results per run to a CSV file as soon as the run finishes.
+ * <p>
+ * By default each run is executed in a fresh JVM, which this class
+ * launches with the <code>--run</code> option.  With
+ * <code>--in-process true</code>, the runs are executed on threads of this
+ * JVM instead, each in its own {@link SimContext}, which saves the startup
+ * and the warm-up of a JVM per run and gives the same results.
+ * <p>
+ * Usage:
+ * <pre>
+ * java aim4.sim.batch.BatchRunner [options]
+ *   --policies fcfs,batch,...  the policies (fcfs, batch, south_only,
+ *                              stop_sign, traffic_signal)
+ *   --columns 1,2,...          the numbers of columns
+ *   --rows 1,2,...             the numbers of rows
+ *   --lanes 1,2,...            the numbers of lanes per road
+ *   --speed-limits 25,...      the speed limits
+ *   --traffic 0.1,0.2,...      the traffic levels
+ *   --repeats n                the number of runs of each combination
+ *   --seed n                   the base random seed
+ *   --time t                   the simulated time of each run in seconds
+ *   --threads n                the number of runs executed at once
+ *   --out file                 the CSV file (default: standard output)
+ *   --metrics-dir dir          the directory to which each run writes the
+ *                              CSV file of its metrics (default: none)
+ *   --metrics-period t         the period in seconds of wall-clock time
+ *                              between the rows of the metrics files
+ *   --results-dir dir          the directory under which each run streams
+ *                              its crossings of the data collection lines
+ *                              and the statistics of its intersection
+ *                              managers to chunked CSV files, in a
+ *                              subdirectory named after the index of the
+ *                              run (default: none)
+ *   --in-process true|false    whether the runs are executed in this JVM
+ *                              (default: false)
+ * </pre>
+ * Each run executed in its own JVM also registers its metrics as MBeans, so
+ * a running run can be inspected with a JMX client such as
+ * <code>jconsole</code>.
+ */
+public class BatchRunner {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The argument that stands for no metrics file */
+  private static final String NO_METRICS_FILE = "-";
+
+  /** The argument that stands for no results directory */
+  private static final String NO_RESULTS_DIR = "-";
+
+  /**
+   * The period, in simulated seconds, between the rows of the statistics of
+   * the intersection managers in the results directory
+   */
+  private static final double IM_STATS_PERIOD = 60.0;
+
+  /** The prefix of the line of results printed by a run */
+  private static final String RESULT_PREFIX = "#RESULT,";
+
+  /** The number of lines of output of a failed run that are reported */
+  private static final int NUM_OF_REPORTED_LINES = 20;
+
+  /** The names of the columns of the results in the CSV file */
+  public static final String CSV_HEADER =
+    RunSpec.CSV_HEADER + ",simulationTime,completedVehicles,"
+    + "throughputPerHour,activeVehicles,avgBitsTransmitted,"
+    + "avgBitsReceived,wallTimeMs";
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The grid of parameter values */
+  private final ParameterGrid grid = new ParameterGrid();
+  /** The base random seed */
+  private long baseSeed = 0L;
+  /** The simulated time of each run */
+  private double simulationTime = 600.0;
+  /** The number of runs executed at once */
+  private int numOfThreads = Runtime.getRuntime().availableProcessors();
+  /** The name of the CSV file; null if the standard output is used */
+  private String outFileName = null;
+  /**
+   * The directory of the metrics files of the runs; null if the metrics
+   * are not written
+   */
+  private String metricsDirName = null;
+  /** The period in seconds between the rows of the metrics files */
+  private double metricsPeriod = 10.0;
+  /**
+   * The directory of the results of the runs; null if the results are not
+   * written
+   */
+  private String resultsDirName = null;
+  /** Whether the runs are executed in this JVM */
+  private boolean isInProcess = false;
+
+  /////////////////////////////////
+  // THE MAIN FUNCTION
+  /////////////////////////////////
+
+  /**
+   * The main function of the batch runner.
+   *
+   * @param args  the command-line arguments
+   */
+  public static void main(String[] args) {
+    try {
+      if (args.length > 0 && args[0].equals("--run")) {
+        runOne(args);
+        System.exit(0);
+      } else {
+        BatchRunner runner = new BatchRunner();
+        runner.parseArgs(args);
+        System.exit(runner.runAll() ? 0 : 1);
+      }
+    } catch(IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(2);
+    }
+  }
+
+  /////////////////////////////////
+  // CLASS METHODS
+  /////////////////////////////////
+
+  /**
+   * Run a single simulation and print the results.  The arguments are
+   * <code>--run</code>, the simulated time, the name of the metrics file
+   * (or <code>-</code>), the period in milliseconds between the rows of the
+   * metrics file, the name of the results directory (or <code>-</code>) and
+   * the arguments of a {@link RunSpec}.
+   *
+   * @param args  the command-line arguments
+   */
+  private static void runOne(String[] args) {
+    double time = Double.parseDouble(args[1]);
+    String metricsFileName = args[2];
+    long metricsPeriodMillis = Long.parseLong(args[3]);
+    String resultsDirName = args[4];
+    RunSpec spec = RunSpec.fromArgs(Arrays.copyOfRange(args, 5, args.length));
+
+    SimContext.current().setSeed(spec.getSeed());
+    long startTime = System.nanoTime();
+    Simulator sim = SimFactory.makeSimulator(spec.makeSimSetup());
+    sim.getMetrics().registerMBeans();
+    System.out.println(RESULT_PREFIX
+                       + simulate(sim, spec, startTime, time,
+                                  metricsFileName, metricsPeriodMillis,
+                                  resultsDirName));
+    System.out.flush();
+  }
+
+  /**
+   * Run a simulation in the context of the current thread.
+   *
+   * @param sim                  the simulator
+   * @param spec                 the specification of the run
+   * @param startTime            the wall-clock time at which the creation
+   *                             of the simulator started, in nanoseconds
+   * @param time                 the simulated time
+   * @param metricsFileName      the name of the metrics file, or
+   *                             <code>-</code>
+   * @param metricsPeriodMillis  the period in milliseconds between the rows
+   *                             of the metrics file
+   * @param resultsDirName       the name of the results directory, or
+   *                             <code>-</code>
+   * @return the row of results
+   */
+  private static String simulate(Simulator sim, RunSpec spec,
+                                 long startTime, double time,
+                                 String metricsFileName,
+                                 long metricsPeriodMillis,
+                                 String resultsDirName) {
+    MetricsCsvWriter metricsWriter = null;
+    PrintStream metricsOut = null;
+    if (!metricsFileName.equals(NO_METRICS_FILE)) {
+      try {
+        metricsOut = new PrintStream(new File(metricsFileName));
+      } catch(FileNotFoundException e) {
+        throw new IllegalArgumentException("Cannot open " + metricsFileName);
+      }
+      metricsWriter = new MetricsCsvWriter(sim.getMetrics(), metricsOut);
+      metricsWriter.start(metricsPeriodMillis);
+    }
+    ResultStream results = null;
+    if (!resultsDirName.equals(NO_RESULTS_DIR)) {
+      results = new ResultStream(sim, new File(resultsDirName),
+                                 IM_STATS_PERIOD,
+                                 ResultStream.DEFAULT_LINES_PER_CHUNK);
+    }
+    while (sim.getSimulationTime() < time) {
+      Debug.clearShortTermDebugPoints();
+      sim.step(SimConfig.TIME_STEP);
+      if (results != null) {
+        results.recordStep();
+      }
+    }
+    long wallTime = (System.nanoTime() - startTime) / 1000000L;
+    if (metricsWriter != null) {
+      metricsWriter.stop();
+      metricsOut.close();
+    }
+    if (results != null) {
+      results.close();
+    }
+
+    double simTime = sim.getSimulationTime();
+    int completed = sim.getNumCompletedVehicles();
+    return spec.toCsv() + ","
+           + simTime + ","
+           + completed + ","
+           + (completed * 3600.0 / simTime) + ","
+           + sim.getActiveVehicles().size() + ","
+           + sim.getAvgBitsTransmittedByCompletedVehicles() + ","
+           + sim.getAvgBitsReceivedByCompletedVehicles() + ","
+           + wallTime;
+  }
+
+  /**
+   * Parse a comma-separated list of integers.
+   *
+   * @param str  the string
+   * @return the list of integers
+   */
+  private static List<Integer> parseIntList(String str) {
+    List<Integer> values = new ArrayList<Integer>();
+    for (String s : str.split(",")) {
+      values.add(Integer.parseInt(s.trim()));
+    }
+    return values;
+  }
+
+  /**
+   * Parse a comma-separated list of doubles.
+   *
+   * @param str  the string
+   * @return the list of doubles
+   */
+  private static List<Double> parseDoubleList(String str) {
+    List<Double> values = new ArrayList<Double>();
+    for (String s : str.split(",")) {
+      values.add(Double.parseDouble(s.trim()));
+    }
+    return values;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Parse the command-line arguments of a sweep.
+   *
+   * @param args  the command-line arguments
+   */
+  private void parseArgs(String[] args) {
+    for (int i = 0; i < args.length; i += 2) {
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value of " + args[i]);
+      }
+      String opt = args[i];
+      String value = args[i + 1];
+      if (opt.equals("--policies")) {
+        List<Policy> policies = new ArrayList<Policy>();
+        for (String s : value.split(",")) {
+          policies.add(Policy.valueOf(s.trim().toUpperCase()));
+        }
+        grid.setPolicies(policies);
+      } else if (opt.equals("--columns")) {
+        grid.setColumns(parseIntList(value));
+      } else if (opt.equals("--rows")) {
+        grid.setRows(parseIntList(value));
+      } else if (opt.equals("--lanes")) {
+        grid.setLanesPerRoad(parseIntList(value));
+      } else if (opt.equals("--speed-limits")) {
+        grid.setSpeedLimits(parseDoubleList(value));
+      } else if (opt.equals("--traffic")) {
+        grid.setTrafficLevels(parseDoubleList(value));
+      } else if (opt.equals("--repeats")) {
+        grid.setRepeats(Integer.parseInt(value));
+      } else if (opt.equals("--seed")) {
+        baseSeed = Long.parseLong(value);
+      } else if (opt.equals("--time")) {
+        simulationTime = Double.parseDouble(value);
+      } else if (opt.equals("--threads")) {
+        numOfThreads = Integer.parseInt(value);
+        if (numOfThreads <= 0) {
+          throw new IllegalArgumentException("The number of threads must be "
+                                             + "positive.");
+        }
+      } else if (opt.equals("--out")) {
+        outFileName = value;
+      } else if (opt.equals("--metrics-dir")) {
+        metricsDirName = value;
+      } else if (opt.equals("--metrics-period")) {
+        metricsPeriod = Double.parseDouble(value);
+        if (metricsPeriod <= 0.0) {
+          throw new IllegalArgumentException("The metrics period must be "
+                                             + "positive.");
+        }
+      } else if (opt.equals("--results-dir")) {
+        resultsDirName = value;
+      } else if (opt.equals("--in-process")) {
+        isInProcess = Boolean.parseBoolean(value);
+      } else {
+        throw new IllegalArgumentException("Unknown option: " + opt);
+      }
+    }
+  }
+
+  /**
+   * Run all the runs of the sweep and write the results.
+   *
+   * @return whether all runs succeeded
+   */
+  private boolean runAll() {
+    List<RunSpec> runs = grid.expand(baseSeed);
+    PrintStream out = System.out;
+    if (outFileName != null) {
+      try {
+        out = new PrintStream(new File(outFileName));
+      } catch(FileNotFoundException e) {
+        throw new IllegalArgumentException("Cannot open " + outFileName);
+      }
+    }
+    if (metricsDirName != null) {
+      new File(metricsDirName).mkdirs();
+    }
+    out.println(CSV_HEADER);
+    out.flush();
+
+    ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+    CompletionService<String> completionService =
+      new ExecutorCompletionService<String>(executor);
+    for (final RunSpec run : runs) {
+      completionService.submit(new Callable<String>() {
+        @Override
+        public String call() throws IOException, InterruptedException {
+          return isInProcess ? runInProcess(run) : launch(run);
+        }
+      });
+    }
+
+    int numOfFailures = 0;
+    try {
+      for (int i = 0; i < runs.size(); i++) {
+        try {
+          out.println(completionService.take().get());
+          out.flush();
+        } catch(ExecutionException e) {
+          numOfFailures++;
+          System.err.println(e.getCause().getMessage());
+        }
+        System.err.printf("%d/%d runs finished\n", i + 1, runs.size());
+      }
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      numOfFailures++;
+    } finally {
+      executor.shutdownNow();
+      if (out != System.out) {
+        out.close();
+      }
+    }
+    return numOfFailures == 0;
+  }
+
+  /**
+   * Run a simulation on the current thread in a new context.
+   *
+   * @param run  the run
+   * @return the row of results
+   */
+  private String runInProcess(RunSpec run) {
+    SimContext context = new SimContext(run.getSeed());
+    long startTime = System.nanoTime();
+    Simulator sim = SimFactory.makeSimulator(run.makeSimSetup(), context);
+    SimContext previous = SimContext.bind(context);
+    try {
+      return simulate(sim, run, startTime, simulationTime,
+                      getMetricsFileName(run), (long) (metricsPeriod * 1000),
+                      getResultsDirName(run));
+    } finally {
+      SimContext.bind(previous);
+    }
+  }
+
+  /**
+   * Get the name of the metrics file of a run.
+   *
+   * @param run  the run
+   * @return the name of the metrics file; <code>-</code> if the metrics are
+   *         not written
+   */
+  private String getMetricsFileName(RunSpec run) {
+    if (metricsDirName != null) {
+      return new File(metricsDirName,
+                      "metrics-" + run.getIndex() + ".csv").getPath();
+    } else {
+      return NO_METRICS_FILE;
+    }
+  }
+
+  /**
+   * Get the name of the results directory of a run.
+   *
+   * @param run  the run
+   * @return the name of the results directory; <code>-</code> if the
+   *         results are not written
+   */
+  private String getResultsDirName(RunSpec run) {
+    if (resultsDirName != null) {
+      return new File(resultsDirName, "run-" + run.getIndex()).getPath();
+    } else {
+      return NO_RESULTS_DIR;
+    }
+  }
+
+  /**
+   * Run a simulation in a new JVM.
+   *
+   * @param run  the run
+   * @return the row of results
+   * @throws IOException          if the JVM cannot be started
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private String launch(RunSpec run) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<String>();
+    command.add(System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java");
+    command.add("-Djava.awt.headless=true");
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(BatchRunner.class.getName());
+    command.add("--run");
+    command.add(Double.toString(simulationTime));
+    command.add(getMetricsFileName(run));
+    command.add(Long.toString((long) (metricsPeriod * 1000)));
+    command.add(getResultsDirName(run));
+    command.addAll(run.toArgs());
+
+    ProcessBuilder builder = new ProcessBuilder(command);
+    builder.redirectErrorStream(true);
+    Process process = builder.start();
+
+    // the run prints a lot of debugging messages, so keep only the last
+    // few lines for the error report.
+    String result = null;
+    LinkedList<String> lastLines = new LinkedList<String>();
+    BufferedReader reader =
+      new BufferedReader(new InputStreamReader(process.getInputStream()));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(RESULT_PREFIX)) {
+          result = line.substring(RESULT_PREFIX.length());
+        } else {
+          lastLines.add(line);
+          if (lastLines.size() > NUM_OF_REPORTED_LINES) {
+            lastLines.removeFirst();
+          }
+        }
+      }
+    } finally {
+      reader.close();
+    }
+
+    int exitValue = process.waitFor();
+    if (exitValue != 0 || result == null) {
+      StringBuilder sb = new StringBuilder();
+      sb.append(run).append(" failed with exit value ").append(exitValue);
+      for (String line : lastLines) {
+        sb.append("\n  ").append(line);
+      }
+      throw new IOException(sb.toString());
+    }
+    return result;
+  }
+
+}
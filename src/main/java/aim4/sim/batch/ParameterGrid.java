@@ -0,0 +1,184 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import aim4.sim.batch.RunSpec.Policy;
+
+/**
+ * A grid of parameter values.  The sweep consists of one run for every
+ * combination of the values, repeated a given number of times with
+ * different random seeds.
+ */
+public class ParameterGrid {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The policies */
+  private List<Policy> policies = Arrays.asList(Policy.FCFS);
+  /** The numbers of columns */
+  private List<Integer> columns = Arrays.asList(1);
+  /** The numbers of rows */
+  private List<Integer> rows = Arrays.asList(1);
+  /** The numbers of lanes per road */
+  private List<Integer> lanesPerRoad = Arrays.asList(1);
+  /** The speed limits */
+  private List<Double> speedLimits = Arrays.asList(25.0);
+  /** The traffic levels */
+  private List<Double> trafficLevels = Arrays.asList(0.28);
+  /** The number of runs of each combination of the values */
+  private int repeats = 1;
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Set the policies.
+   *
+   * @param policies  the policies
+   */
+  public void setPolicies(List<Policy> policies) {
+    this.policies = nonEmpty(policies);
+  }
+
+  /**
+   * Set the numbers of columns.
+   *
+   * @param columns  the numbers of columns
+   */
+  public void setColumns(List<Integer> columns) {
+    this.columns = nonEmpty(columns);
+  }
+
+  /**
+   * Set the numbers of rows.
+   *
+   * @param rows  the numbers of rows
+   */
+  public void setRows(List<Integer> rows) {
+    this.rows = nonEmpty(rows);
+  }
+
+  /**
+   * Set the numbers of lanes per road.
+   *
+   * @param lanesPerRoad  the numbers of lanes per road
+   */
+  public void setLanesPerRoad(List<Integer> lanesPerRoad) {
+    this.lanesPerRoad = nonEmpty(lanesPerRoad);
+  }
+
+  /**
+   * Set the speed limits.
+   *
+   * @param speedLimits  the speed limits
+   */
+  public void setSpeedLimits(List<Double> speedLimits) {
+    this.speedLimits = nonEmpty(speedLimits);
+  }
+
+  /**
+   * Set the traffic levels.
+   *
+   * @param trafficLevels  the traffic levels
+   */
+  public void setTrafficLevels(List<Double> trafficLevels) {
+    this.trafficLevels = nonEmpty(trafficLevels);
+  }
+
+  /**
+   * Set the number of runs of each combination of the values.
+   *
+   * @param repeats  the number of runs
+   */
+  public void setRepeats(int repeats) {
+    if (repeats <= 0) {
+      throw new IllegalArgumentException("The number of repeats must be "
+                                         + "positive.");
+    }
+    this.repeats = repeats;
+  }
+
+  /**
+   * Expand the grid into the list of runs.  The seed of each run is drawn
+   * from a random number generator seeded with the base seed, so that a
+   * sweep is reproducible and the runs of a sweep have different seeds.
+   *
+   * @param baseSeed  the base seed
+   * @return the list of runs
+   */
+  public List<RunSpec> expand(long baseSeed) {
+    Random seedGenerator = new Random(baseSeed);
+    List<RunSpec> runs = new ArrayList<RunSpec>();
+    for (Policy policy : policies) {
+      for (int c : columns) {
+        for (int r : rows) {
+          for (int l : lanesPerRoad) {
+            for (double s : speedLimits) {
+              for (double t : trafficLevels) {
+                for (int i = 0; i < repeats; i++) {
+                  runs.add(new RunSpec(runs.size(), policy, c, r, l, s, t,
+                                       seedGenerator.nextLong()));
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    return runs;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Check that a list of values is not empty.
+   *
+   * @param values  the values
+   * @return the values
+   */
+  private static <T> List<T> nonEmpty(List<T> values) {
+    if (values.isEmpty()) {
+      throw new IllegalArgumentException("The list of values is empty.");
+    }
+    return values;
+  }
+
+}
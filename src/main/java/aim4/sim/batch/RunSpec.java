@@ -0,0 +1,258 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import aim4.sim.setup.ApproxNPhasesTrafficSignalSimSetup;
+import aim4.sim.setup.ApproxStopSignSimSetup;
+import aim4.sim.setup.AutoDriverOnlySimSetup;
+import aim4.sim.setup.BasicSimSetup;
+import aim4.sim.setup.SimSetup;
+import aim4.sim.setup.SouthOnlyProtocolSetup;
+
+/**
+ * The specification of a single run of a parameter sweep.
+ */
+public class RunSpec {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The intersection control policy.
+   */
+  public enum Policy {
+    /** Autonomous vehicles with first-come-first-served reservations */
+    FCFS,
+    /** Autonomous vehicles with batch processing of reservations */
+    BATCH,
+    /** Autonomous vehicles coming from the south only */
+    SOUTH_ONLY,
+    /** Approximate stop signs */
+    STOP_SIGN,
+    /** Approximate traffic signals */
+    TRAFFIC_SIGNAL,
+  }
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The width of the lanes */
+  public static final double LANE_WIDTH = 4.0;
+  /** The size of the medians */
+  public static final double MEDIAN_SIZE = 1.0;
+  /** The distance between intersections */
+  public static final double DISTANCE_BETWEEN = 150.0;
+  /** The stopping distance before intersections */
+  public static final double STOP_DIST_BEFORE_INTERSECTION = 1.0;
+  /** The file of the traffic signal phases */
+  public static final String TRAFFIC_SIGNAL_PHASE_FILE =
+    "/SignalPhases/AIM4Phases.csv";
+  /** The file of the traffic volumes of the traffic signals */
+  public static final String TRAFFIC_SIGNAL_VOLUME_FILE =
+    "/SignalPhases/AIM4Volumes.csv";
+
+  /** The names of the columns of the parameters in the CSV file */
+  public static final String CSV_HEADER =
+    "run,policy,columns,rows,lanesPerRoad,speedLimit,trafficLevel,seed";
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The index of the run in the sweep */
+  private final int index;
+  /** The policy */
+  private final Policy policy;
+  /** The number of columns */
+  private final int columns;
+  /** The number of rows */
+  private final int rows;
+  /** The number of lanes per road */
+  private final int lanesPerRoad;
+  /** The speed limit */
+  private final double speedLimit;
+  /** The traffic level */
+  private final double trafficLevel;
+  /** The random seed */
+  private final long seed;
+
+  /////////////////////////////////
+  // CLASS METHODS
+  /////////////////////////////////
+
+  /**
+   * Parse a run specification from the arguments made by {@link #toArgs()}.
+   *
+   * @param args  the arguments
+   * @return the run specification
+   */
+  public static RunSpec fromArgs(String[] args) {
+    if (args.length != 8) {
+      throw new IllegalArgumentException("A run needs 8 arguments.");
+    }
+    return new RunSpec(Integer.parseInt(args[0]),
+                       Policy.valueOf(args[1]),
+                       Integer.parseInt(args[2]),
+                       Integer.parseInt(args[3]),
+                       Integer.parseInt(args[4]),
+                       Double.parseDouble(args[5]),
+                       Double.parseDouble(args[6]),
+                       Long.parseLong(args[7]));
+  }
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a run specification.
+   *
+   * @param index         the index of the run in the sweep
+   * @param policy        the policy
+   * @param columns       the number of columns
+   * @param rows          the number of rows
+   * @param lanesPerRoad  the number of lanes per road
+   * @param speedLimit    the speed limit
+   * @param trafficLevel  the traffic level
+   * @param seed          the random seed
+   */
+  public RunSpec(int index, Policy policy, int columns, int rows,
+                 int lanesPerRoad, double speedLimit, double trafficLevel,
+                 long seed) {
+    this.index = index;
+    this.policy = policy;
+    this.columns = columns;
+    this.rows = rows;
+    this.lanesPerRoad = lanesPerRoad;
+    this.speedLimit = speedLimit;
+    this.trafficLevel = trafficLevel;
+    this.seed = seed;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the index of the run in the sweep.
+   *
+   * @return the index of the run
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Get the random seed.
+   *
+   * @return the random seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Create the simulation setup of this run.
+   *
+   * @return the simulation setup
+   */
+  public SimSetup makeSimSetup() {
+    BasicSimSetup basicSetup =
+      new BasicSimSetup(columns, rows, LANE_WIDTH, speedLimit, lanesPerRoad,
+                        MEDIAN_SIZE, DISTANCE_BETWEEN, trafficLevel,
+                        STOP_DIST_BEFORE_INTERSECTION);
+    switch(policy) {
+    case FCFS:
+      return new AutoDriverOnlySimSetup(basicSetup);
+    case BATCH:
+      AutoDriverOnlySimSetup batchSetup =
+        new AutoDriverOnlySimSetup(basicSetup);
+      batchSetup.setIsBatchMode(true);
+      return batchSetup;
+    case SOUTH_ONLY:
+      return new SouthOnlyProtocolSetup(basicSetup);
+    case STOP_SIGN:
+      return new ApproxStopSignSimSetup(basicSetup);
+    case TRAFFIC_SIGNAL:
+      ApproxNPhasesTrafficSignalSimSetup signalSetup =
+        new ApproxNPhasesTrafficSignalSimSetup(basicSetup,
+                                               TRAFFIC_SIGNAL_PHASE_FILE);
+      signalSetup.setTrafficVolume(TRAFFIC_SIGNAL_VOLUME_FILE);
+      return signalSetup;
+    default:
+      throw new RuntimeException("Unknown policy: " + policy);
+    }
+  }
+
+  /**
+   * Convert this run specification to the arguments read by
+   * {@link #fromArgs(String[])}.
+   *
+   * @return the arguments
+   */
+  public List<String> toArgs() {
+    List<String> args = new ArrayList<String>(8);
+    args.add(Integer.toString(index));
+    args.add(policy.name());
+    args.add(Integer.toString(columns));
+    args.add(Integer.toString(rows));
+    args.add(Integer.toString(lanesPerRoad));
+    args.add(Double.toString(speedLimit));
+    args.add(Double.toString(trafficLevel));
+    args.add(Long.toString(seed));
+    return args;
+  }
+
+  /**
+   * Get the values of the parameters as a row of a CSV file.
+   *
+   * @return the row whose columns are described by {@link #CSV_HEADER}
+   */
+  public String toCsv() {
+    return index + "," + policy.name().toLowerCase() + "," + columns + ","
+      + rows + "," + lanesPerRoad + "," + speedLimit + "," + trafficLevel
+      + "," + seed;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return "RunSpec(" + toCsv() + ")";
+  }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * This package contains the headless batch runner for parameter sweeps.
+ */
+package aim4.sim.batch;
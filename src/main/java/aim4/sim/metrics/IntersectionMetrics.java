@@ -0,0 +1,131 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.metrics;
+
+import aim4.im.v2i.V2IManager;
+
+/**
+ * The metrics of an intersection manager: the number of requests it has
+ * received and the durations of the queries of its reservation grid
+ * manager.  The metrics are recorded by the intersection manager itself;
+ * this class only reads them.
+ */
+public class IntersectionMetrics implements IntersectionMetricsMXBean {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The intersection manager */
+  private final V2IManager im;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create the metrics of an intersection manager.
+   *
+   * @param im  the intersection manager
+   */
+  public IntersectionMetrics(V2IManager im) {
+    this.im = im;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the histogram of the durations of the queries.
+   *
+   * @return the histogram of the durations of the queries in nanoseconds
+   */
+  public LatencyHistogram getQueryTimes() {
+    return im.getReservationGridManager().getQueryTimes();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getId() {
+    return im.getId();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getNumOfRequests() {
+    return im.getNumOfRequestsReceived();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getNumOfQueries() {
+    return getQueryTimes().getTotalCount();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getMeanQueryTime() {
+    return getQueryTimes().getMean();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getQueryTime50thPercentile() {
+    return getQueryTimes().getValueAtPercentile(50.0);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getQueryTime99thPercentile() {
+    return getQueryTimes().getValueAtPercentile(99.0);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getMaxQueryTime() {
+    return getQueryTimes().getMax();
+  }
+}
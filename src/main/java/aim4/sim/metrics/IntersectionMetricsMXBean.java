@@ -0,0 +1,89 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.metrics;
+
+/**
+ * The management interface of the metrics of an intersection manager.
+ * All durations are in nanoseconds of wall-clock time.
+ */
+public interface IntersectionMetricsMXBean {
+
+  /**
+   * Get the ID of the intersection manager.
+   *
+   * @return the ID of the intersection manager
+   */
+  int getId();
+
+  /**
+   * Get the number of request messages the intersection manager has
+   * received.
+   *
+   * @return the number of requests
+   */
+  long getNumOfRequests();
+
+  /**
+   * Get the number of queries of the reservation grid manager, i.e., the
+   * number of proposals that have been checked.
+   *
+   * @return the number of queries
+   */
+  long getNumOfQueries();
+
+  /**
+   * Get the mean duration of a query.
+   *
+   * @return the mean duration of a query
+   */
+  double getMeanQueryTime();
+
+  /**
+   * Get the median duration of a query.
+   *
+   * @return the median duration of a query
+   */
+  long getQueryTime50thPercentile();
+
+  /**
+   * Get the 99th percentile of the duration of a query.
+   *
+   * @return the 99th percentile of the duration of a query
+   */
+  long getQueryTime99thPercentile();
+
+  /**
+   * Get the longest duration of a query.
+   *
+   * @return the longest duration of a query
+   */
+  long getMaxQueryTime();
+}
@@ -0,0 +1,228 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative durations in nanoseconds with log-linear
+ * buckets, in the style of HdrHistogram.  Values below
+ * {@value #SUB_BUCKET_COUNT} are counted exactly; larger values are counted
+ * in buckets whose width is at most 1/{@value #SUB_BUCKET_COUNT} of the
+ * value, so that the percentiles are accurate to within about two percent
+ * over the whole range of <code>long</code>.
+ * <p>
+ * Recording a value does not allocate any object and is thread-safe, so
+ * a histogram can be written by the worker threads of the simulator and
+ * read by another thread at the same time.  A reader that races with the
+ * writers sees a slightly out-of-date histogram.
+ */
+public class LatencyHistogram {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The number of bits of the position of a value within its bucket */
+  private static final int SUB_BUCKET_BITS = 6;
+  /** The number of sub-buckets in each bucket */
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  /** The number of buckets, enough for every non-negative long */
+  private static final int BUCKET_COUNT = 64 - SUB_BUCKET_BITS;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The number of values in each sub-bucket */
+  private final AtomicLongArray counts =
+    new AtomicLongArray(BUCKET_COUNT * SUB_BUCKET_COUNT);
+  /** The number of values */
+  private final AtomicLong totalCount = new AtomicLong();
+  /** The sum of the values */
+  private final AtomicLong totalValue = new AtomicLong();
+  /** The largest value */
+  private final AtomicLong maxValue = new AtomicLong();
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Record a value.  Negative values are recorded as zero.
+   *
+   * @param value  the value in nanoseconds
+   */
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    counts.incrementAndGet(indexOf(value));
+    totalCount.incrementAndGet();
+    totalValue.addAndGet(value);
+    long max = maxValue.get();
+    while (value > max && !maxValue.compareAndSet(max, value)) {
+      max = maxValue.get();
+    }
+  }
+
+  /**
+   * Add all values of another histogram to this histogram.
+   *
+   * @param other  the other histogram
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < counts.length(); i++) {
+      long n = other.counts.get(i);
+      if (n > 0) {
+        counts.addAndGet(i, n);
+      }
+    }
+    totalCount.addAndGet(other.totalCount.get());
+    totalValue.addAndGet(other.totalValue.get());
+    long value = other.maxValue.get();
+    long max = maxValue.get();
+    while (value > max && !maxValue.compareAndSet(max, value)) {
+      max = maxValue.get();
+    }
+  }
+
+  /**
+   * Remove all values.
+   */
+  public void reset() {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0L);
+    }
+    totalCount.set(0L);
+    totalValue.set(0L);
+    maxValue.set(0L);
+  }
+
+  /**
+   * Get the number of values.
+   *
+   * @return the number of values
+   */
+  public long getTotalCount() {
+    return totalCount.get();
+  }
+
+  /**
+   * Get the sum of the values.
+   *
+   * @return the sum of the values in nanoseconds
+   */
+  public long getTotalValue() {
+    return totalValue.get();
+  }
+
+  /**
+   * Get the largest value.
+   *
+   * @return the largest value in nanoseconds; zero if there is no value
+   */
+  public long getMax() {
+    return maxValue.get();
+  }
+
+  /**
+   * Get the mean of the values.
+   *
+   * @return the mean of the values in nanoseconds; zero if there is no
+   *         value
+   */
+  public double getMean() {
+    long n = totalCount.get();
+    return (n > 0) ? ((double) totalValue.get()) / n : 0.0;
+  }
+
+  /**
+   * Get the value at a given percentile, i.e., the smallest value such that
+   * the given percentage of the values are not larger than it, up to the
+   * precision of the buckets.
+   *
+   * @param percentile  the percentile between 0 and 100
+   * @return the value at the percentile in nanoseconds; zero if there is no
+   *         value
+   */
+  public long getValueAtPercentile(double percentile) {
+    long n = totalCount.get();
+    if (n == 0) {
+      return 0L;
+    }
+    double p = Math.min(Math.max(percentile, 0.0), 100.0);
+    long rank = Math.max(1L, (long) Math.ceil(p / 100.0 * n));
+    long seen = 0L;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValueOf(i), maxValue.get());
+      }
+    }
+    return maxValue.get();
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the index of the sub-bucket of a value.
+   *
+   * @param value  the non-negative value
+   * @return the index of the sub-bucket
+   */
+  private static int indexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  /**
+   * Get the largest value in a sub-bucket.
+   *
+   * @param index  the index of the sub-bucket
+   * @return the largest value in the sub-bucket
+   */
+  private static long highestValueOf(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
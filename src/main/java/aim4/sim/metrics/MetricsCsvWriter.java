@@ -0,0 +1,194 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.metrics;
+
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A writer that periodically appends a row of the metrics of a simulator
+ * to a CSV file.  The rows are written by a daemon thread, so the
+ * simulation thread is never blocked by the output.  All values are
+ * cumulative since the start of the simulation (or since the last call of
+ * {@link SimMetrics#resetTimes()}); the durations are in nanoseconds.
+ */
+public class MetricsCsvWriter {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The metrics */
+  private final SimMetrics metrics;
+  /** The output stream */
+  private final PrintStream out;
+  /** The wall-clock time at which the writer was created */
+  private final long startTime;
+  /** The thread that writes the rows; null if the writer is not started */
+  private ScheduledExecutorService scheduler;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a writer and write the header of the CSV file.
+   *
+   * @param metrics  the metrics
+   * @param out      the output stream
+   */
+  public MetricsCsvWriter(SimMetrics metrics, PrintStream out) {
+    this.metrics = metrics;
+    this.out = out;
+    this.startTime = System.nanoTime();
+    this.scheduler = null;
+    writeHeader();
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Start writing a row periodically.
+   *
+   * @param periodMillis  the period in milliseconds of wall-clock time
+   */
+  public synchronized void start(long periodMillis) {
+    if (scheduler != null) {
+      throw new IllegalStateException("The writer has already started.");
+    }
+    scheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "MetricsCsvWriter");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    scheduler.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        writeRow();
+      }
+    }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop writing rows periodically and write a final row.
+   */
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      try {
+        scheduler.awaitTermination(1, TimeUnit.SECONDS);
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      scheduler = null;
+    }
+    writeRow();
+  }
+
+  /**
+   * Write a row of the current metrics.
+   */
+  public synchronized void writeRow() {
+    StringBuilder sb = new StringBuilder();
+    sb.append((System.nanoTime() - startTime) / 1000000L);
+    sb.append(',').append(metrics.getNumOfSteps());
+    sb.append(',').append(metrics.getSimulationTime());
+    sb.append(',').append(metrics.getNumOfActiveVehicles());
+    sb.append(',').append(metrics.getNumOfCompletedVehicles());
+    sb.append(',').append(metrics.getNumOfSpawnedVehicles());
+    appendHistogram(sb, metrics.getStepTimes());
+    for (SimMetrics.Phase phase : SimMetrics.Phase.values()) {
+      sb.append(',').append(metrics.getPhaseTimes(phase).getTotalValue());
+    }
+    long numOfRequests = 0L;
+    LatencyHistogram queryTimes = new LatencyHistogram();
+    for (IntersectionMetrics im : metrics.getIntersectionMetrics()) {
+      numOfRequests += im.getNumOfRequests();
+      queryTimes.add(im.getQueryTimes());
+    }
+    sb.append(',').append(numOfRequests);
+    sb.append(',').append(queryTimes.getTotalCount());
+    appendHistogram(sb, queryTimes);
+    for (IntersectionMetrics im : metrics.getIntersectionMetrics()) {
+      sb.append(',').append(im.getNumOfRequests());
+      sb.append(',').append(im.getQueryTime99thPercentile());
+    }
+    out.println(sb);
+    out.flush();
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Write the header of the CSV file.
+   */
+  private void writeHeader() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("wallTimeMs,steps,simulationTime,activeVehicles,"
+              + "completedVehicles,spawnedVehicles,"
+              + "stepMean,stepP50,stepP99,stepMax");
+    for (SimMetrics.Phase phase : SimMetrics.Phase.values()) {
+      sb.append(',').append(phase.getPhaseName()).append("Total");
+    }
+    sb.append(",requests,queries,queryMean,queryP50,queryP99,queryMax");
+    for (IntersectionMetrics im : metrics.getIntersectionMetrics()) {
+      sb.append(",im").append(im.getId()).append("Requests");
+      sb.append(",im").append(im.getId()).append("QueryP99");
+    }
+    out.println(sb);
+    out.flush();
+  }
+
+  /**
+   * Append the mean, the median, the 99th percentile and the maximum of a
+   * histogram to a row.
+   *
+   * @param sb  the row
+   * @param h   the histogram
+   */
+  private static void appendHistogram(StringBuilder sb, LatencyHistogram h) {
+    sb.append(',').append(h.getMean());
+    sb.append(',').append(h.getValueAtPercentile(50.0));
+    sb.append(',').append(h.getValueAtPercentile(99.0));
+    sb.append(',').append(h.getMax());
+  }
+}
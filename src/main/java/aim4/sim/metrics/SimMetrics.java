@@ -0,0 +1,406 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import aim4.im.IntersectionManager;
+import aim4.im.v2i.V2IManager;
+import aim4.map.BasicMap;
+
+/**
+ * The metrics of a simulator: the wall-clock durations of the simulation
+ * steps and of each of their phases, the number of vehicles, and the
+ * metrics of each intersection manager.  The metrics are always recorded;
+ * recording costs two calls of {@link System#nanoTime()} per phase and
+ * does not allocate any object.
+ * <p>
+ * The metrics are written by the simulation thread but can be read by any
+ * thread, e.g., through JMX after {@link #registerMBeans()} is called, or
+ * by a {@link MetricsCsvWriter}.
+ */
+public class SimMetrics implements SimMetricsMXBean {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The domain of the names of the MBeans */
+  public static final String MBEAN_DOMAIN = "aim4";
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The phases of a simulation step.
+   */
+  public enum Phase {
+    /** Deliver the messages from the real vehicles to the proxy vehicles */
+    PROCESS_UDP_MESSAGES("processUdpMessages"),
+    /** Spawn new vehicles */
+    SPAWN_VEHICLES("spawnVehicles"),
+    /** Provide the sensor input to the vehicles */
+    PROVIDE_SENSOR_INPUT("provideSensorInput"),
+    /** Let the drivers act */
+    LET_DRIVERS_ACT("letDriversAct"),
+    /** Let the intersection managers act */
+    LET_INTERSECTION_MANAGERS_ACT("letIntersectionManagersAct"),
+    /** Deliver the messages */
+    COMMUNICATION("communication"),
+    /** Move the vehicles */
+    MOVE_VEHICLES("moveVehicles"),
+    /** Remove the vehicles that have left the map */
+    CLEAN_UP_COMPLETED_VEHICLES("cleanUpCompletedVehicles");
+
+    /** The name of the phase */
+    private final String phaseName;
+
+    /**
+     * Create a phase.
+     *
+     * @param phaseName  the name of the phase
+     */
+    private Phase(String phaseName) {
+      this.phaseName = phaseName;
+    }
+
+    /**
+     * Get the name of the phase, which is the name of the method of the
+     * simulator that runs the phase.
+     *
+     * @return the name of the phase
+     */
+    public String getPhaseName() {
+      return phaseName;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The durations of the simulation steps */
+  private final LatencyHistogram stepTimes = new LatencyHistogram();
+  /** The durations of the phases, indexed by the ordinals of the phases */
+  private final LatencyHistogram[] phaseTimes =
+    new LatencyHistogram[Phase.values().length];
+  /** The metrics of the intersection managers */
+  private final List<IntersectionMetrics> intersectionMetrics;
+  /** The number of simulation steps */
+  private volatile long numOfSteps = 0L;
+  /** The simulated time */
+  private volatile double simulationTime = 0.0;
+  /** The number of active vehicles */
+  private volatile int numOfActiveVehicles = 0;
+  /** The number of completed vehicles */
+  private volatile int numOfCompletedVehicles = 0;
+  /** The number of spawned vehicles */
+  private volatile long numOfSpawnedVehicles = 0L;
+  /** The names of the registered MBeans */
+  private final List<ObjectName> mbeanNames = new ArrayList<ObjectName>();
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create the metrics of a simulator.
+   *
+   * @param map  the map of the simulation, whose intersection managers must
+   *             have been set
+   */
+  public SimMetrics(BasicMap map) {
+    for (int i = 0; i < phaseTimes.length; i++) {
+      phaseTimes[i] = new LatencyHistogram();
+    }
+    List<IntersectionMetrics> ims = new ArrayList<IntersectionMetrics>();
+    for (IntersectionManager im : map.getIntersectionManagers()) {
+      if (im instanceof V2IManager) {
+        ims.add(new IntersectionMetrics((V2IManager) im));
+      }
+    }
+    intersectionMetrics = Collections.unmodifiableList(ims);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  // recording
+
+  /**
+   * Record the end of a phase.
+   *
+   * @param phase      the phase
+   * @param startTime  the value of {@link System#nanoTime()} at the start of
+   *                   the phase
+   * @return the value of {@link System#nanoTime()} at the end of the phase,
+   *         which is the start time of the next phase
+   */
+  public long endPhase(Phase phase, long startTime) {
+    long endTime = System.nanoTime();
+    phaseTimes[phase.ordinal()].record(endTime - startTime);
+    return endTime;
+  }
+
+  /**
+   * Record the end of a simulation step.
+   *
+   * @param stepTime                the duration of the step in nanoseconds
+   * @param simulationTime          the simulated time after the step
+   * @param numOfActiveVehicles     the number of active vehicles
+   * @param numOfCompletedVehicles  the number of completed vehicles
+   */
+  public void endStep(long stepTime, double simulationTime,
+                      int numOfActiveVehicles, int numOfCompletedVehicles) {
+    stepTimes.record(stepTime);
+    this.simulationTime = simulationTime;
+    this.numOfActiveVehicles = numOfActiveVehicles;
+    this.numOfCompletedVehicles = numOfCompletedVehicles;
+    numOfSteps++;
+  }
+
+  /**
+   * Record the spawning of a vehicle.
+   */
+  public void recordSpawnedVehicle() {
+    numOfSpawnedVehicles++;
+  }
+
+  // histograms
+
+  /**
+   * Get the histogram of the durations of the simulation steps.
+   *
+   * @return the histogram of the durations of the steps in nanoseconds
+   */
+  public LatencyHistogram getStepTimes() {
+    return stepTimes;
+  }
+
+  /**
+   * Get the histogram of the durations of a phase.
+   *
+   * @param phase  the phase
+   * @return the histogram of the durations of the phase in nanoseconds
+   */
+  public LatencyHistogram getPhaseTimes(Phase phase) {
+    return phaseTimes[phase.ordinal()];
+  }
+
+  /**
+   * Get the metrics of the intersection managers.
+   *
+   * @return the metrics of the intersection managers
+   */
+  public List<IntersectionMetrics> getIntersectionMetrics() {
+    return intersectionMetrics;
+  }
+
+  // SimMetricsMXBean
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getNumOfSteps() {
+    return numOfSteps;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getSimulationTime() {
+    return simulationTime;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getNumOfActiveVehicles() {
+    return numOfActiveVehicles;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getNumOfCompletedVehicles() {
+    return numOfCompletedVehicles;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getNumOfSpawnedVehicles() {
+    return numOfSpawnedVehicles;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getMeanStepTime() {
+    return stepTimes.getMean();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getStepTime99thPercentile() {
+    return stepTimes.getValueAtPercentile(99.0);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getMaxStepTime() {
+    return stepTimes.getMax();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Map<String,Long> getPhaseTotalTimes() {
+    Map<String,Long> result = new LinkedHashMap<String,Long>();
+    for (Phase phase : Phase.values()) {
+      result.put(phase.getPhaseName(), getPhaseTimes(phase).getTotalValue());
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Map<String,Double> getPhaseMeanTimes() {
+    Map<String,Double> result = new LinkedHashMap<String,Double>();
+    for (Phase phase : Phase.values()) {
+      result.put(phase.getPhaseName(), getPhaseTimes(phase).getMean());
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void resetTimes() {
+    stepTimes.reset();
+    for (LatencyHistogram h : phaseTimes) {
+      h.reset();
+    }
+    for (IntersectionMetrics im : intersectionMetrics) {
+      im.getQueryTimes().reset();
+    }
+  }
+
+  // JMX
+
+  /**
+   * Register the metrics of the simulator and of every intersection manager
+   * as MBeans in the platform MBean server, under the names
+   * <code>aim4:type=SimMetrics</code> and
+   * <code>aim4:type=IntersectionMetrics,id=<i>id</i></code>.  Any MBeans
+   * already registered under these names, e.g., by a previous simulator,
+   * are replaced.
+   */
+  public synchronized void registerMBeans() {
+    unregisterMBeans();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      register(server, new ObjectName(MBEAN_DOMAIN, "type", "SimMetrics"),
+               this);
+      for (IntersectionMetrics im : intersectionMetrics) {
+        ObjectName name =
+          new ObjectName(MBEAN_DOMAIN + ":type=IntersectionMetrics,id="
+                         + im.getId());
+        register(server, name, im);
+      }
+    } catch(JMException e) {
+      throw new IllegalStateException("Cannot register the MBeans", e);
+    }
+  }
+
+  /**
+   * Unregister the MBeans registered by {@link #registerMBeans()}.
+   */
+  public synchronized void unregisterMBeans() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (ObjectName name : mbeanNames) {
+      try {
+        if (server.isRegistered(name)) {
+          server.unregisterMBean(name);
+        }
+      } catch(JMException e) {
+        // the MBean has been unregistered by someone else
+      }
+    }
+    mbeanNames.clear();
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Register an MBean, replacing any MBean with the same name.
+   *
+   * @param server  the MBean server
+   * @param name    the name of the MBean
+   * @param mbean   the MBean
+   * @throws JMException if the MBean cannot be registered
+   */
+  private void register(MBeanServer server, ObjectName name, Object mbean)
+      throws JMException {
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name);
+    }
+    server.registerMBean(mbean, name);
+    mbeanNames.add(name);
+  }
+}
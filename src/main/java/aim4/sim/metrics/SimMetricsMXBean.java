@@ -0,0 +1,117 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of the metrics of a simulator.  All durations
+ * are in nanoseconds of wall-clock time.
+ */
+public interface SimMetricsMXBean {
+
+  /**
+   * Get the number of simulation steps.
+   *
+   * @return the number of simulation steps
+   */
+  long getNumOfSteps();
+
+  /**
+   * Get the simulated time.
+   *
+   * @return the simulated time in seconds
+   */
+  double getSimulationTime();
+
+  /**
+   * Get the number of vehicles in the simulation.
+   *
+   * @return the number of active vehicles
+   */
+  int getNumOfActiveVehicles();
+
+  /**
+   * Get the number of vehicles that have left the map.
+   *
+   * @return the number of completed vehicles
+   */
+  int getNumOfCompletedVehicles();
+
+  /**
+   * Get the number of vehicles that have been spawned.
+   *
+   * @return the number of spawned vehicles
+   */
+  long getNumOfSpawnedVehicles();
+
+  /**
+   * Get the mean duration of a simulation step.
+   *
+   * @return the mean duration of a step
+   */
+  double getMeanStepTime();
+
+  /**
+   * Get the 99th percentile of the duration of a simulation step.
+   *
+   * @return the 99th percentile of the duration of a step
+   */
+  long getStepTime99thPercentile();
+
+  /**
+   * Get the longest duration of a simulation step.
+   *
+   * @return the longest duration of a step
+   */
+  long getMaxStepTime();
+
+  /**
+   * Get the total duration of each phase of the simulation steps.
+   *
+   * @return a mapping from the names of the phases to their total durations
+   */
+  Map<String,Long> getPhaseTotalTimes();
+
+  /**
+   * Get the mean duration of each phase of the simulation steps.
+   *
+   * @return a mapping from the names of the phases to their mean durations
+   */
+  Map<String,Double> getPhaseMeanTimes();
+
+  /**
+   * Reset the durations of the steps, the phases and the queries of all
+   * intersection managers, e.g., after a warm-up period.  The counts of the
+   * steps, the vehicles and the requests are not reset.
+   */
+  void resetTimes();
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains the metrics of the simulator, which can be read
+ * through JMX or written to a CSV file.
+ */
+package aim4.sim.metrics;
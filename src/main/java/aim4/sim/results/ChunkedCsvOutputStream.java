@@ -0,0 +1,234 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.results;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that splits a CSV file into a series of chunks.  The
+ * chunks are named <code>name-00000.csv</code>, <code>name-00001.csv</code>,
+ * etc., and each of them starts with the header of the CSV file.  A chunk
+ * is written to a file with the suffix <code>.part</code>, which is renamed
+ * when the chunk is complete, so a reader can read the complete chunks
+ * while the simulation is still running.  When the stream is closed, an
+ * empty file <code>name.done</code> is created.
+ * <p>
+ * The stream holds at most one buffer of a fixed size, so its memory does
+ * not depend on the amount of data written.  The data must be ASCII text;
+ * a chunk is completed only at the end of a line.
+ */
+public class ChunkedCsvOutputStream extends OutputStream {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The size of the buffer of the output file (in bytes) */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The suffix of the file of the chunk being written */
+  private static final String PART_SUFFIX = ".part";
+
+  /** The suffix of the file that marks the end of the chunks */
+  private static final String DONE_SUFFIX = ".done";
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The directory of the chunks */
+  private final File dir;
+  /** The name of the CSV file */
+  private final String name;
+  /** The header of the CSV file, including the line separator */
+  private final byte[] header;
+  /** The maximum number of lines in a chunk, excluding the header */
+  private final int linesPerChunk;
+  /** The output stream of the current chunk; null if there is none */
+  private OutputStream out;
+  /** The number of lines written to the current chunk */
+  private int numOfLines;
+  /** The number of chunks that have been started */
+  private int numOfChunks;
+  /** Whether the stream has been closed */
+  private boolean isClosed;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a chunked CSV output stream.  The first chunk is created when
+   * the first byte is written.
+   *
+   * @param dir            the directory of the chunks
+   * @param name           the name of the CSV file
+   * @param header         the header of the CSV file
+   * @param linesPerChunk  the maximum number of lines in a chunk,
+   *                       excluding the header
+   */
+  public ChunkedCsvOutputStream(File dir, String name, String header,
+                                int linesPerChunk) {
+    if (linesPerChunk <= 0) {
+      throw new IllegalArgumentException("The number of lines per chunk "
+                                         + "must be positive.");
+    }
+    this.dir = dir;
+    this.name = name;
+    this.header = (header + "\n").getBytes();
+    this.linesPerChunk = linesPerChunk;
+    this.out = null;
+    this.numOfLines = 0;
+    this.numOfChunks = 0;
+    this.isClosed = false;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the number of chunks that have been started.
+   *
+   * @return the number of chunks that have been started
+   */
+  public int getNumOfChunks() {
+    return numOfChunks;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] { (byte) b }, 0, 1);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (isClosed) {
+      throw new IOException("The stream has been closed.");
+    }
+    int end = off + len;
+    while (off < end) {
+      if (out == null) {
+        startChunk();
+      }
+      // write up to the end of the line that completes the chunk
+      int i = off;
+      while (i < end && numOfLines < linesPerChunk) {
+        if (b[i++] == '\n') {
+          numOfLines++;
+        }
+      }
+      out.write(b, off, i - off);
+      off = i;
+      if (numOfLines >= linesPerChunk) {
+        finishChunk();
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void flush() throws IOException {
+    if (out != null) {
+      out.flush();
+    }
+  }
+
+  /**
+   * Complete the current chunk and mark the end of the chunks.
+   *
+   * @throws IOException  if the files cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    if (!isClosed) {
+      if (out != null) {
+        finishChunk();
+      }
+      new FileOutputStream(new File(dir, name + DONE_SUFFIX)).close();
+      isClosed = true;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the file of a chunk.
+   *
+   * @param index  the index of the chunk
+   * @return the file of the chunk
+   */
+  private File getChunkFile(int index) {
+    return new File(dir, String.format("%s-%05d.csv", name, index));
+  }
+
+  /**
+   * Start a new chunk and write the header.
+   *
+   * @throws IOException  if the file cannot be created
+   */
+  private void startChunk() throws IOException {
+    File part = new File(getChunkFile(numOfChunks).getPath() + PART_SUFFIX);
+    out = new BufferedOutputStream(new FileOutputStream(part), BUFFER_SIZE);
+    out.write(header);
+    numOfLines = 0;
+    numOfChunks++;
+  }
+
+  /**
+   * Complete the current chunk and give it its final name.
+   *
+   * @throws IOException  if the file cannot be written or renamed
+   */
+  private void finishChunk() throws IOException {
+    out.close();
+    out = null;
+    File chunk = getChunkFile(numOfChunks - 1);
+    File part = new File(chunk.getPath() + PART_SUFFIX);
+    if (!part.renameTo(chunk)) {
+      throw new IOException("Cannot rename " + part + " to " + chunk);
+    }
+  }
+}
@@ -0,0 +1,267 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim.results;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import aim4.im.IntersectionManager;
+import aim4.im.v2i.V2IManager;
+import aim4.im.v2i.reservation.ReservationGridManager.VinHistoryStatCollector;
+import aim4.map.DataCollectionLine;
+import aim4.map.Road;
+import aim4.map.SpawnPoint;
+import aim4.sim.Simulator;
+import aim4.sim.StatCollector;
+import aim4.sim.metrics.IntersectionMetrics;
+import aim4.vehicle.VinRegistry;
+
+/**
+ * A stream of the results of a simulation.  Instead of keeping the results
+ * in memory until the end of the simulation, the stream appends them to
+ * chunked CSV files (see {@link ChunkedCsvOutputStream}) after every
+ * simulation step:
+ * <ul>
+ * <li><code>crossings</code>: the crossings of the data collection lines,
+ *     in the same format as
+ *     {@link aim4.map.BasicMap#printDataCollectionLinesData(String)};</li>
+ * <li><code>vinhistory-im&lt;id&gt;</code>: the VINs of the reserved tiles
+ *     of each intersection manager whenever they change, in the same format
+ *     as {@link V2IManager#printData(String)};</li>
+ * <li><code>imstats</code>: the cumulative statistics of each
+ *     intersection manager, once per period of simulated time;</li>
+ * <li><code>vehicles</code>: the specification, the spawn lane and the
+ *     destination road of each vehicle, when the vehicle leaves the
+ *     map.</li>
+ * </ul>
+ * The data collection lines and the statistic collectors of the
+ * intersection managers are switched to a mode in which they keep only the
+ * results that have not been written, and the {@link VinRegistry} releases
+ * the records of the vehicles once they have been written, so the memory
+ * of a long simulation stays flat.
+ */
+public class ResultStream {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The default maximum number of lines in a chunk */
+  public static final int DEFAULT_LINES_PER_CHUNK = 100000;
+
+  /** The header of the CSV file of the statistics */
+  public static final String IM_STATS_CSV_HEADER =
+    "Time,IM,requests,queries,queryMeanNs,queryP99Ns";
+
+  /** The header of the CSV files of the VIN history */
+  public static final String VIN_HISTORY_CSV_HEADER = "Time,VINs";
+
+  /** The header of the CSV file of the vehicles */
+  public static final String VEHICLES_CSV_HEADER =
+    "VIN,Time,vType,startLaneId,destRoad";
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The simulator */
+  private final Simulator sim;
+  /** The period, in simulated seconds, between the rows of statistics */
+  private final double imStatsPeriod;
+  /** The output of the crossings */
+  private final PrintStream crossingsOut;
+  /** The output of the statistics */
+  private final PrintStream imStatsOut;
+  /** The output of the vehicles */
+  private final PrintStream vehiclesOut;
+  /** The statistic collectors of the VIN history */
+  private final List<StatCollector<?>> vinHistoryCollectors;
+  /** The outputs of the VIN history of the intersection managers */
+  private final List<PrintStream> vinHistoryOuts;
+  /** The simulated time at which the next rows of statistics are written */
+  private double nextImStatsTime;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a stream of the results of a simulation, which must not have
+   * been started.
+   *
+   * @param sim            the simulator
+   * @param dir            the directory of the CSV files
+   * @param imStatsPeriod  the period, in simulated seconds, between the rows
+   *                       of statistics of the intersection managers
+   * @param linesPerChunk  the maximum number of lines in a chunk
+   */
+  public ResultStream(Simulator sim, File dir, double imStatsPeriod,
+                      int linesPerChunk) {
+    if (imStatsPeriod <= 0.0) {
+      throw new IllegalArgumentException("The period must be positive.");
+    }
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IllegalArgumentException("Cannot create " + dir);
+    }
+    this.sim = sim;
+    this.imStatsPeriod = imStatsPeriod;
+    this.crossingsOut =
+      new PrintStream(new ChunkedCsvOutputStream(
+        dir, "crossings", DataCollectionLine.CSV_HEADER, linesPerChunk));
+    this.imStatsOut =
+      new PrintStream(new ChunkedCsvOutputStream(
+        dir, "imstats", IM_STATS_CSV_HEADER, linesPerChunk));
+    this.vehiclesOut =
+      new PrintStream(new ChunkedCsvOutputStream(
+        dir, "vehicles", VEHICLES_CSV_HEADER, linesPerChunk));
+    this.vinHistoryCollectors = new ArrayList<StatCollector<?>>();
+    this.vinHistoryOuts = new ArrayList<PrintStream>();
+    this.nextImStatsTime = imStatsPeriod;
+
+    for (DataCollectionLine line : sim.getMap().getDataCollectionLines()) {
+      line.setStreaming(true);
+    }
+    VinRegistry.setRetainingRetiredVehicles(false);
+    for (IntersectionManager im : sim.getMap().getIntersectionManagers()) {
+      if (im instanceof V2IManager) {
+        StatCollector<?> collector =
+          ((V2IManager) im).getReservationGridManager().getStatCollector();
+        if (collector instanceof VinHistoryStatCollector) {
+          ((VinHistoryStatCollector) collector).setRetained(false);
+          vinHistoryCollectors.add(collector);
+          vinHistoryOuts.add(
+            new PrintStream(new ChunkedCsvOutputStream(
+              dir, "vinhistory-im" + im.getId(), VIN_HISTORY_CSV_HEADER,
+              linesPerChunk)));
+        }
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Write the results of the last simulation step.  This method must be
+   * called by the simulation thread after every simulation step.
+   */
+  public void recordStep() {
+    for (DataCollectionLine line : sim.getMap().getDataCollectionLines()) {
+      line.printPendingCrossings(crossingsOut);
+    }
+    for (int i = 0; i < vinHistoryCollectors.size(); i++) {
+      vinHistoryCollectors.get(i).print(vinHistoryOuts.get(i));
+    }
+    double time = sim.getSimulationTime();
+    writeRetiredVehicles(time);
+    if (time >= nextImStatsTime) {
+      writeImStats(time);
+      nextImStatsTime += imStatsPeriod;
+      checkError();  // flushes the buffers too
+    }
+  }
+
+  /**
+   * Write the final statistics and close all files.
+   */
+  public void close() {
+    writeImStats(sim.getSimulationTime());
+    checkError();
+    VinRegistry.setRetainingRetiredVehicles(true);
+    crossingsOut.close();
+    imStatsOut.close();
+    vehiclesOut.close();
+    for (PrintStream out : vinHistoryOuts) {
+      out.close();
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Write a row of statistics for each intersection manager.
+   *
+   * @param time  the current time
+   */
+  private void writeImStats(double time) {
+    for (IntersectionMetrics im : sim.getMetrics().getIntersectionMetrics()) {
+      imStatsOut.printf("%.2f,%d,%d,%d,%.1f,%d\n",
+                        time, im.getId(), im.getNumOfRequests(),
+                        im.getNumOfQueries(), im.getMeanQueryTime(),
+                        im.getQueryTime99thPercentile());
+    }
+  }
+
+  /**
+   * Write a row for each vehicle retired since the last step and release
+   * the records of the vehicles.  The crossings must have been written
+   * already, since they look up the records too.
+   *
+   * @param time  the current time
+   */
+  private void writeRetiredVehicles(double time) {
+    int n = VinRegistry.getNumOfRetiredVehicles();
+    for (int i = 0; i < n; i++) {
+      int vin = VinRegistry.getRetiredVIN(i);
+      SpawnPoint spawnPoint = VinRegistry.getSpawnPointFromVIN(vin);
+      Road destRoad = VinRegistry.getDestRoadFromVIN(vin);
+      vehiclesOut.printf("%d,%.2f,%s,%d,%s\n",
+                         vin, time,
+                         VinRegistry.getVehicleSpecFromVIN(vin).getName(),
+                         (spawnPoint != null)
+                           ? spawnPoint.getLane().getId() : -1,
+                         (destRoad != null) ? destRoad.getName() : "");
+    }
+    VinRegistry.releaseRetiredVehicles();
+  }
+
+  /**
+   * Flush the outputs and check whether any of them has failed.
+   *
+   * @throws RuntimeException  if an output has failed
+   */
+  private void checkError() {
+    boolean isError = crossingsOut.checkError() || imStatsOut.checkError()
+                      || vehiclesOut.checkError();
+    for (PrintStream out : vinHistoryOuts) {
+      isError |= out.checkError();
+    }
+    if (isError) {
+      throw new RuntimeException("ResultStream: cannot write the results");
+    }
+  }
+}
@@ -0,0 +1,5 @@
+/**
+ * This package contains the writers that stream the results of a
+ * simulation to files while the simulation is running.
+ */
+package aim4.sim.results;
@@ -32,11 +32,11 @@ package aim4.sim.setup;
 
 import aim4.config.Debug;
 import aim4.config.SimConfig;
-import aim4.driver.pilot.V2IPilot;
 import aim4.im.v2i.reservation.ReservationGridManager;
 import aim4.map.GridMap;
 import aim4.map.GridMapUtil;
 import aim4.sim.AutoDriverOnlySimulator;
+import aim4.sim.SimContext;
 import aim4.sim.Simulator;
 
 /**
@@ -153,8 +153,8 @@ public class ApproxSimpleTrafficSignalSimSetup extends BasicSimSetup
       GridMapUtil.setUniformRandomSpawnPoints(layout, trafficLevel);
     }
 
-    V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION =
-      stopDistBeforeIntersection;
+    SimContext.current().setStopDistanceBeforeIntersection(
+      stopDistBeforeIntersection);
 
     return new AutoDriverOnlySimulator(layout);
   }
@@ -32,11 +32,11 @@ package aim4.sim.setup;
 
 import aim4.config.Debug;
 import aim4.config.SimConfig;
-import aim4.driver.pilot.V2IPilot;
 import aim4.im.v2i.reservation.ReservationGridManager;
 import aim4.map.GridMap;
 import aim4.map.GridMapUtil;
 import aim4.sim.AutoDriverOnlySimulator;
+import aim4.sim.SimContext;
 import aim4.sim.Simulator;
 
 /**
@@ -127,7 +127,7 @@ public class ApproxStopSignSimSetup extends BasicSimSetup
                                         true,
                                         1.0);
 
-    SimConfig.MUST_STOP_BEFORE_INTERSECTION = true;
+    SimContext.current().setMustStopBeforeIntersection(true);
     Debug.SHOW_VEHICLE_COLOR_BY_MSG_STATE = false;
 
     GridMapUtil.setApproxStopSignManagers(layout, currentTime,
@@ -143,8 +143,8 @@ public class ApproxStopSignSimSetup extends BasicSimSetup
       GridMapUtil.setUniformRatioSpawnPoints(layout, trafficVolumeFileName);
     }
 
-    V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION =
-      stopDistBeforeIntersection;
+    SimContext.current().setStopDistanceBeforeIntersection(
+      stopDistBeforeIntersection);
 
     return new AutoDriverOnlySimulator(layout);
   }
@@ -30,15 +30,21 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.sim.setup;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import aim4.config.Debug;
 import aim4.config.SimConfig;
-import aim4.driver.pilot.V2IPilot;
 import aim4.im.v2i.batch.RoadBasedReordering;
 import aim4.im.v2i.reservation.ReservationGridManager;
 import aim4.map.GridMap;
 import aim4.map.GridMapUtil;
+import aim4.map.SpawnPoint;
 import aim4.sim.AutoDriverOnlySimulator;
+import aim4.sim.SimContext;
 import aim4.sim.Simulator;
+import aim4.vehicle.MaxTurnVelocityTable;
+import aim4.vehicle.VehicleSpec;
 
 /**
  * The setup for the simulator in which all vehicles are autonomous.
@@ -87,6 +93,24 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
   private double processingInterval = RoadBasedReordering.DEFAULT_PROCESSING_INTERVAL;
   /** The name of the file about the traffic volume */
   private String trafficVolumeFileName = null;
+  /** The size of the trajectory cache of the reservation grid managers */
+  private int trajectoryCacheSize = 0;
+  /**
+   * The period of the refresh of the congestion-aware routes; zero if
+   * congestion-aware routing is disabled
+   */
+  private double congestionRefreshPeriod = 0.0;
+  /**
+   * The number of worker threads on which the intersection managers
+   * evaluate the proposals of a request in parallel; 1 if the proposals
+   * are evaluated one by one.
+   */
+  private int proposalParallelism = 1;
+  /**
+   * Whether the max turn velocities of the map are computed in advance,
+   * when the simulator is created
+   */
+  private boolean isMaxTurnVelocityPrecomputed = false;
 
   /////////////////////////////////
   // CONSTRUCTORS
@@ -225,6 +249,57 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
     this.granularity = granularity;
   }
 
+  /**
+   * Set the size of the trajectory cache of the reservation grid managers.
+   *
+   * @param trajectoryCacheSize  the maximum number of footprints in the
+   *                             cache; zero disables the cache
+   */
+  public void setTrajectoryCacheSize(int trajectoryCacheSize) {
+    this.trajectoryCacheSize = trajectoryCacheSize;
+  }
+
+  /**
+   * Turn on or off congestion-aware routing, in which the vehicles choose
+   * their routes according to the current load of the intersections.
+   *
+   * @param refreshPeriod  the period, in simulated seconds, at which the
+   *                       load of the intersections is measured; zero
+   *                       turns congestion-aware routing off
+   */
+  public void setCongestionAwareRouting(double refreshPeriod) {
+    this.congestionRefreshPeriod = refreshPeriod;
+  }
+
+  /**
+   * Set the number of worker threads on which the intersection managers
+   * evaluate the proposals of a request in parallel.  The threads are
+   * shared by all intersection managers.
+   *
+   * @param proposalParallelism  the number of worker threads; 1 evaluates
+   *                             the proposals one by one
+   */
+  public void setProposalParallelism(int proposalParallelism) {
+    if (proposalParallelism < 1) {
+      throw new IllegalArgumentException("The number of threads must be "
+                                         + "positive.");
+    }
+    this.proposalParallelism = proposalParallelism;
+  }
+
+  /**
+   * Turn on or off the computation of the max turn velocities of the map in
+   * advance.  When it is on, the velocities of the vehicles that the spawn
+   * points may spawn are computed when the simulator is created, which
+   * takes a few seconds on large maps, instead of the first time a vehicle
+   * asks for them during the simulation.
+   *
+   * @param b  whether the max turn velocities are computed in advance
+   */
+  public void setIsMaxTurnVelocityPrecomputed(boolean b) {
+    isMaxTurnVelocityPrecomputed = b;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -248,6 +323,7 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
                                         edgeTileTimeBufferSize,
                                         isEdgeTileTimeBufferEnabled,
                                         granularity);  // granularity
+    gridConfig.setTrajectoryCacheSize(trajectoryCacheSize);
 
 /* for demo */
 /*
@@ -305,8 +381,28 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
     }
 
 
-    V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION =
-      stopDistBeforeIntersection;
-    return new AutoDriverOnlySimulator(layout);
+    SimContext.current().setStopDistanceBeforeIntersection(
+      stopDistBeforeIntersection);
+    if (isMaxTurnVelocityPrecomputed) {
+      List<VehicleSpec> specs = new ArrayList<VehicleSpec>();
+      for (SpawnPoint spawnPoint : layout.getSpawnPoints()) {
+        for (VehicleSpec spec : spawnPoint.getVehicleSpecs()) {
+          if (!specs.contains(spec)) {
+            specs.add(spec);
+          }
+        }
+      }
+      SimContext.current().setMaxTurnVelocityTable(
+        new MaxTurnVelocityTable(layout, specs));
+    }
+
+    AutoDriverOnlySimulator sim = new AutoDriverOnlySimulator(layout);
+    if (congestionRefreshPeriod > 0.0) {
+      sim.setCongestionAwareRouting(congestionRefreshPeriod);
+    }
+    if (proposalParallelism > 1) {
+      sim.setProposalParallelism(proposalParallelism);
+    }
+    return sim;
   }
 }
@@ -30,6 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.sim.setup;
 
+import aim4.sim.SimContext;
 import aim4.sim.Simulator;
 import aim4.vehicle.VinRegistry;
 
@@ -41,7 +42,7 @@ import aim4.vehicle.VinRegistry;
 public class SimFactory {
 
   /**
-   * Create a simulator.
+   * Create a simulator in the context of the current thread.
    *
    * @param simSetup  the simulation setup
    * @return a simulator
@@ -55,4 +56,24 @@ public class SimFactory {
     return sim;
   }
 
+  /**
+   * Create a simulator in a given context.  The context must not be used by
+   * any other simulator, so that several simulators created in this way
+   * can run at the same time.
+   *
+   * @param simSetup  the simulation setup
+   * @param context   the context of the simulation
+   * @return a simulator
+   */
+  public static Simulator makeSimulator(SimSetup simSetup,
+                                        SimContext context) {
+    SimContext previous = SimContext.bind(context);
+    try {
+      VinRegistry.reset();
+      return simSetup.getSimulator();
+    } finally {
+      SimContext.bind(previous);
+    }
+  }
+
 }
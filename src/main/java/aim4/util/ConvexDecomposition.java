@@ -0,0 +1,356 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import aim4.config.Constants;
+
+/**
+ * A decomposition of an area into convex polygons, each with its bounding
+ * box, for fast intersection tests with convex polygons such as vehicles.
+ * <p>
+ * The area is cut into horizontal slabs at the y-coordinates of its
+ * vertices.  No vertex lies strictly inside a slab, so every connected
+ * part of the area within a slab is a trapezoid.  Curved boundaries are
+ * flattened first; in that case, or if a piece turns out not to be convex,
+ * the decomposition is marked as inexact and the tests fall back to the
+ * original area.
+ */
+public class ConvexDecomposition {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The default maximum distance between a curved boundary and its
+   * flattened approximation.
+   */
+  public static final double DEFAULT_FLATNESS = 0.01;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The original area */
+  private final Area area;
+  /** The coordinates x0, y0, x1, y1, ... of the vertices of the pieces */
+  private final double[][] pieces;
+  /** The bounding boxes minX, minY, maxX, maxY of the pieces */
+  private final double[] boxes;
+  /** The bounding box of the area */
+  private final Rectangle2D bounds;
+  /** Whether the pieces cover exactly the same region as the area */
+  private final boolean isExact;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Decompose an area into convex pieces.
+   *
+   * @param area  the area
+   */
+  public ConvexDecomposition(Area area) {
+    this(area, DEFAULT_FLATNESS);
+  }
+
+  /**
+   * Decompose an area into convex pieces.
+   *
+   * @param area      the area
+   * @param flatness  the maximum distance between a curved boundary and its
+   *                  flattened approximation
+   */
+  public ConvexDecomposition(Area area, double flatness) {
+    this.area = area;
+    this.bounds = area.getBounds2D();
+
+    boolean isPolygonal = true;
+    double[] pts = new double[6];
+    for(PathIterator iter = area.getPathIterator(null); !iter.isDone();
+        iter.next()) {
+      int type = iter.currentSegment(pts);
+      if (type == PathIterator.SEG_QUADTO || type == PathIterator.SEG_CUBICTO) {
+        isPolygonal = false;
+        break;
+      }
+    }
+
+    Area flatArea = area;
+    if (!isPolygonal) {
+      PathIterator iter = area.getPathIterator(null, flatness);
+      Path2D.Double path = new Path2D.Double(iter.getWindingRule());
+      path.append(iter, false);
+      flatArea = new Area(path);
+    }
+
+    // the y-coordinates of the vertices
+    SortedSet<Double> ys = new TreeSet<Double>();
+    for(PathIterator iter = flatArea.getPathIterator(null); !iter.isDone();
+        iter.next()) {
+      if (iter.currentSegment(pts) != PathIterator.SEG_CLOSE) {
+        ys.add(pts[1]);
+      }
+    }
+
+    boolean isAllConvex = true;
+    List<double[]> pieceList = new ArrayList<double[]>();
+    Double prevY = null;
+    for(double y : ys) {
+      if (prevY != null) {
+        Area slab = new Area(new Rectangle2D.Double(bounds.getMinX() - 1.0,
+                                                    prevY,
+                                                    bounds.getWidth() + 2.0,
+                                                    y - prevY));
+        slab.intersect(flatArea);
+        for(double[] piece : toPolygons(slab)) {
+          if (!isConvex(piece)) {
+            isAllConvex = false;
+          }
+          pieceList.add(piece);
+        }
+      }
+      prevY = y;
+    }
+
+    this.pieces = pieceList.toArray(new double[pieceList.size()][]);
+    this.boxes = new double[4 * pieces.length];
+    for(int i = 0; i < pieces.length; i++) {
+      double[] piece = pieces[i];
+      double minX = Double.MAX_VALUE;
+      double minY = Double.MAX_VALUE;
+      double maxX = -Double.MAX_VALUE;
+      double maxY = -Double.MAX_VALUE;
+      for(int k = 0; k < piece.length; k += 2) {
+        minX = Math.min(minX, piece[k]);
+        minY = Math.min(minY, piece[k + 1]);
+        maxX = Math.max(maxX, piece[k]);
+        maxY = Math.max(maxY, piece[k + 1]);
+      }
+      boxes[4 * i] = minX;
+      boxes[4 * i + 1] = minY;
+      boxes[4 * i + 2] = maxX;
+      boxes[4 * i + 3] = maxY;
+    }
+    this.isExact = isPolygonal && isAllConvex;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the original area.
+   *
+   * @return the original area
+   */
+  public Area getArea() {
+    return area;
+  }
+
+  /**
+   * Whether the convex pieces cover exactly the same region as the area.
+   * If not, {@link #intersectsConvexPolygon(double[])} and
+   * {@link #contains(double, double)} use the original area.
+   *
+   * @return whether the decomposition is exact
+   */
+  public boolean isExact() {
+    return isExact;
+  }
+
+  /**
+   * Get the number of convex pieces.
+   *
+   * @return the number of convex pieces
+   */
+  public int getNumOfPieces() {
+    return pieces.length;
+  }
+
+  /**
+   * Get the vertices of a convex piece.
+   *
+   * @param i  the index of the piece
+   * @return   the coordinates x0, y0, x1, y1, ... of the vertices of the
+   *           piece.  The array must not be modified.
+   */
+  public double[] getPiece(int i) {
+    return pieces[i];
+  }
+
+  /**
+   * Whether the area contains a point.
+   *
+   * @param x  the x-coordinate of the point
+   * @param y  the y-coordinate of the point
+   * @return   whether the area contains the point
+   */
+  public boolean contains(double x, double y) {
+    if (!isExact) {
+      return area.contains(x, y);
+    }
+    for(int i = 0; i < pieces.length; i++) {
+      int b = 4 * i;
+      if (boxes[b] <= x && x <= boxes[b + 2]
+          && boxes[b + 1] <= y && y <= boxes[b + 3]
+          && GeomMath.polygonContains(pieces[i], x, y)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether the area intersects a convex polygon.  Polygons that only touch
+   * the area are considered intersecting.  No object is allocated unless
+   * the decomposition is inexact.
+   *
+   * @param coords  the coordinates x0, y0, x1, y1, ... of the vertices of
+   *                the convex polygon
+   * @return        whether the area intersects the polygon
+   */
+  public boolean intersectsConvexPolygon(double[] coords) {
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for(int k = 0; k < coords.length; k += 2) {
+      minX = Math.min(minX, coords[k]);
+      minY = Math.min(minY, coords[k + 1]);
+      maxX = Math.max(maxX, coords[k]);
+      maxY = Math.max(maxY, coords[k + 1]);
+    }
+    if (maxX < bounds.getMinX() || bounds.getMaxX() < minX
+        || maxY < bounds.getMinY() || bounds.getMaxY() < minY) {
+      return false;
+    }
+    if (!isExact) {
+      Area polygonArea = new Area(GeomUtil.convertCoordinatesToShape(coords));
+      polygonArea.intersect(area);
+      return !polygonArea.isEmpty();
+    }
+    for(int i = 0; i < pieces.length; i++) {
+      int b = 4 * i;
+      if (boxes[b] <= maxX && minX <= boxes[b + 2]
+          && boxes[b + 1] <= maxY && minY <= boxes[b + 3]
+          && GeomMath.convexPolygonsIntersect(pieces[i], coords)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Convert a polygonal area to the list of its closed sub-paths, without
+   * repeated consecutive vertices.
+   *
+   * @param a  the polygonal area
+   * @return   the coordinates of the vertices of the sub-paths
+   */
+  private static List<double[]> toPolygons(Area a) {
+    List<double[]> result = new ArrayList<double[]>();
+    double[] pts = new double[6];
+    double[] coords = new double[16];
+    int n = 0;
+    for(PathIterator iter = a.getPathIterator(null); !iter.isDone();
+        iter.next()) {
+      int type = iter.currentSegment(pts);
+      if (type == PathIterator.SEG_MOVETO) {
+        n = 0;
+      }
+      if (type == PathIterator.SEG_MOVETO || type == PathIterator.SEG_LINETO) {
+        if (n == 0 || coords[n - 2] != pts[0] || coords[n - 1] != pts[1]) {
+          if (n + 2 > coords.length) {
+            double[] newCoords = new double[2 * coords.length];
+            System.arraycopy(coords, 0, newCoords, 0, n);
+            coords = newCoords;
+          }
+          coords[n++] = pts[0];
+          coords[n++] = pts[1];
+        }
+      } else if (type == PathIterator.SEG_CLOSE) {
+        if (n >= 4 && coords[0] == coords[n - 2] && coords[1] == coords[n - 1]) {
+          n -= 2;
+        }
+        if (n >= 6) {
+          double[] polygon = new double[n];
+          System.arraycopy(coords, 0, polygon, 0, n);
+          result.add(polygon);
+        }
+        n = 0;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Whether a polygon is convex.  Collinear consecutive edges are allowed.
+   *
+   * @param coords  the coordinates x0, y0, x1, y1, ... of the vertices
+   * @return        whether the polygon is convex
+   */
+  private static boolean isConvex(double[] coords) {
+    int n = coords.length;
+    int sign = 0;
+    for(int i = 0; i < n; i += 2) {
+      int j = (i + 2) % n;
+      int k = (i + 4) % n;
+      double cross =
+        (coords[j] - coords[i]) * (coords[k + 1] - coords[j + 1])
+        - (coords[j + 1] - coords[i + 1]) * (coords[k] - coords[j]);
+      if (Math.abs(cross) > Constants.DOUBLE_EQUAL_PRECISION) {
+        int s = (cross > 0) ? 1 : -1;
+        if (sign == 0) {
+          sign = s;
+        } else if (sign != s) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+}
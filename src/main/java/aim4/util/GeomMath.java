@@ -396,6 +396,101 @@ public final class GeomMath {
     return perimeterSegments;
   }
 
+  /**
+   * Compute the distance between a point and the boundary of a polygon
+   * whose vertices are given in an array of coordinates.  No object is
+   * allocated.
+   *
+   * @param coords  the coordinates x0, y0, x1, y1, ... of the vertices
+   * @param px      the x-coordinate of the point
+   * @param py      the y-coordinate of the point
+   * @return        the distance between the point and the nearest edge of
+   *                the polygon
+   */
+  public static double polygonBoundaryDistance(double[] coords,
+                                               double px, double py) {
+    int n = coords.length;
+    double dst = Double.MAX_VALUE;
+    for(int i = 0; i < n; i += 2) {
+      int j = (i + 2) % n;
+      double d = Line2D.ptSegDist(coords[i], coords[i + 1],
+                                  coords[j], coords[j + 1], px, py);
+      if (d < dst) {
+        dst = d;
+      }
+    }
+    return dst;
+  }
+
+  /**
+   * Compute the distance between two line segments.  No object is
+   * allocated.
+   *
+   * @param ax1  the x-coordinate of the first end point of the first segment
+   * @param ay1  the y-coordinate of the first end point of the first segment
+   * @param ax2  the x-coordinate of the second end point of the first segment
+   * @param ay2  the y-coordinate of the second end point of the first segment
+   * @param bx1  the x-coordinate of the first end point of the second segment
+   * @param by1  the y-coordinate of the first end point of the second segment
+   * @param bx2  the x-coordinate of the second end point of the second segment
+   * @param by2  the y-coordinate of the second end point of the second segment
+   * @return     the distance between the segments; zero if they intersect
+   */
+  public static double segmentDistance(double ax1, double ay1,
+                                       double ax2, double ay2,
+                                       double bx1, double by1,
+                                       double bx2, double by2) {
+    if (Line2D.linesIntersect(ax1, ay1, ax2, ay2, bx1, by1, bx2, by2)) {
+      return 0.0;
+    }
+    return Math.min(
+      Math.min(Line2D.ptSegDist(ax1, ay1, ax2, ay2, bx1, by1),
+               Line2D.ptSegDist(ax1, ay1, ax2, ay2, bx2, by2)),
+      Math.min(Line2D.ptSegDist(bx1, by1, bx2, by2, ax1, ay1),
+               Line2D.ptSegDist(bx1, by1, bx2, by2, ax2, ay2)));
+  }
+
+  /**
+   * Whether a polygon whose vertices are given in an array of coordinates
+   * contains a point, according to the even-odd rule.  No object is
+   * allocated.
+   *
+   * @param coords  the coordinates x0, y0, x1, y1, ... of the vertices
+   * @param px      the x-coordinate of the point
+   * @param py      the y-coordinate of the point
+   * @return        whether the polygon contains the point
+   */
+  public static boolean polygonContains(double[] coords,
+                                        double px, double py) {
+    int n = coords.length;
+    boolean isInside = false;
+    for(int i = 0, j = n - 2; i < n; j = i, i += 2) {
+      double xi = coords[i];
+      double yi = coords[i + 1];
+      double xj = coords[j];
+      double yj = coords[j + 1];
+      if ((yi > py) != (yj > py)
+          && px < (xj - xi) * (py - yi) / (yj - yi) + xi) {
+        isInside = !isInside;
+      }
+    }
+    return isInside;
+  }
+
+  /**
+   * Whether two convex polygons whose vertices are given in arrays of
+   * coordinates intersect, by the separating axis theorem.  Polygons that
+   * only touch each other are considered intersecting.  No object is
+   * allocated.
+   *
+   * @param a  the coordinates x0, y0, x1, y1, ... of the first polygon
+   * @param b  the coordinates x0, y0, x1, y1, ... of the second polygon
+   * @return   whether the polygons intersect
+   */
+  public static boolean convexPolygonsIntersect(double[] a, double[] b) {
+    return !hasSeparatingAxis(a, b) && !hasSeparatingAxis(b, a);
+  }
+
   /**
    * Given a polygonal, non-overlapping Shape, return the areas of the closed
    * portions of the shape.  If the Shape is not polygonal or it overlaps
@@ -570,6 +665,42 @@ public final class GeomMath {
   // PRIVATE STATIC METHODS
   /////////////////////////////////
 
+  /**
+   * Whether the normal of one of the edges of a convex polygon separates it
+   * from another convex polygon.
+   *
+   * @param a  the coordinates of the polygon whose edges are tested
+   * @param b  the coordinates of the other polygon
+   * @return   whether there is a separating axis among the edge normals
+   */
+  private static boolean hasSeparatingAxis(double[] a, double[] b) {
+    int n = a.length;
+    for(int i = 0; i < n; i += 2) {
+      int j = (i + 2) % n;
+      // the normal of the edge
+      double nx = a[j + 1] - a[i + 1];
+      double ny = a[i] - a[j];
+      double minA = Double.MAX_VALUE;
+      double maxA = -Double.MAX_VALUE;
+      for(int k = 0; k < n; k += 2) {
+        double d = nx * a[k] + ny * a[k + 1];
+        minA = Math.min(minA, d);
+        maxA = Math.max(maxA, d);
+      }
+      double minB = Double.MAX_VALUE;
+      double maxB = -Double.MAX_VALUE;
+      for(int k = 0; k < b.length; k += 2) {
+        double d = nx * b[k] + ny * b[k + 1];
+        minB = Math.min(minB, d);
+        maxB = Math.max(maxB, d);
+      }
+      if (maxA < minB || maxB < minA) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Compute the determinant of a 2x2 matrix.
    * | a b |
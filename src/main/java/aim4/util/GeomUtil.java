@@ -123,6 +123,22 @@ public class GeomUtil {
     return result;
   }
 
+  /**
+   * Construct a shape out of the coordinates of a set of corner points.
+   *
+   * @param coords  the coordinates x0, y0, x1, y1, ... of the corners
+   * @return        the shape
+   */
+  public static Shape convertCoordinatesToShape(double[] coords) {
+    GeneralPath result = new GeneralPath();
+    result.moveTo((float)coords[0], (float)coords[1]);
+    for(int i = 2; i < coords.length; i += 2) {
+      result.lineTo((float)coords[i], (float)coords[i + 1]);
+    }
+    result.closePath();
+    return result;
+  }
+
 
   /////////////////////////////////
   // CLASS CONSTRUCTORS
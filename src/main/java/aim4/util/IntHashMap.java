@@ -0,0 +1,275 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from primitive <code>int</code> keys to objects.  Unlike a
+ * <code>HashMap&lt;Integer,V&gt;</code>, it neither boxes the keys nor
+ * allocates an entry per mapping: the keys and the values are kept in two
+ * parallel arrays with open addressing and linear probing, and the removal
+ * of a key shifts the following keys back instead of leaving a tombstone,
+ * so the arrays only grow with the number of keys in the map at the same
+ * time.
+ * <p>
+ * Null values are not allowed.  This class is not thread-safe.
+ *
+ * @param <V> the type of the values
+ */
+public class IntHashMap<V> {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The default initial capacity */
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** The maximum ratio of the number of keys to the capacity */
+  private static final double MAX_LOAD_FACTOR = 0.5;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The keys of the slots */
+  private int[] keys;
+  /** The values of the slots; null if a slot is empty */
+  private Object[] values;
+  /** The number of keys in the map */
+  private int size;
+  /** The number of keys above which the arrays are enlarged */
+  private int threshold;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create an empty map.
+   */
+  public IntHashMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create an empty map.
+   *
+   * @param expectedSize  the expected number of keys
+   */
+  public IntHashMap(int expectedSize) {
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+      capacity *= 2;
+    }
+    allocate(capacity);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the number of keys in the map.
+   *
+   * @return the number of keys in the map
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Whether the map is empty.
+   *
+   * @return whether the map is empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Whether a key is in the map.
+   *
+   * @param key  the key
+   * @return whether the key is in the map
+   */
+  public boolean containsKey(int key) {
+    return values[indexOf(key)] != null;
+  }
+
+  /**
+   * Get the value of a key.
+   *
+   * @param key  the key
+   * @return the value of the key; null if the key is not in the map
+   */
+  @SuppressWarnings("unchecked")
+  public V get(int key) {
+    return (V) values[indexOf(key)];
+  }
+
+  /**
+   * Map a key to a value.
+   *
+   * @param key    the key
+   * @param value  the value; must not be null
+   * @return the previous value of the key; null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public V put(int key, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("The value must not be null.");
+    }
+    int i = indexOf(key);
+    Object old = values[i];
+    if (old == null) {
+      if (size >= threshold) {
+        rehash(2 * keys.length);
+        i = indexOf(key);
+      }
+      keys[i] = key;
+      size++;
+    }
+    values[i] = value;
+    return (V) old;
+  }
+
+  /**
+   * Remove a key from the map.
+   *
+   * @param key  the key
+   * @return the value of the key; null if the key is not in the map
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(int key) {
+    int i = indexOf(key);
+    Object old = values[i];
+    if (old != null) {
+      shiftBack(i);
+      size--;
+    }
+    return (V) old;
+  }
+
+  /**
+   * Remove all keys from the map.
+   */
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Allocate the arrays.
+   *
+   * @param capacity  the number of slots, a power of two
+   */
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new Object[capacity];
+    threshold = (int) (capacity * MAX_LOAD_FACTOR);
+  }
+
+  /**
+   * Get the slot at which the probing of a key starts.
+   *
+   * @param key  the key
+   * @return the slot at which the probing of the key starts
+   */
+  private int slotOf(int key) {
+    int h = key * 0x9E3779B9;  // Fibonacci hashing spreads sequential keys
+    return (h ^ (h >>> 16)) & (keys.length - 1);
+  }
+
+  /**
+   * Get the slot of a key, or the empty slot at which the key would be
+   * inserted.
+   *
+   * @param key  the key
+   * @return the slot of the key
+   */
+  private int indexOf(int key) {
+    int mask = keys.length - 1;
+    int i = slotOf(key);
+    while (values[i] != null && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /**
+   * Empty a slot and move the following keys of the same probe sequence
+   * back, so that no lookup stops at the emptied slot too early.
+   *
+   * @param i  the slot to be emptied
+   */
+  private void shiftBack(int i) {
+    int mask = keys.length - 1;
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (values[j] == null) {
+        break;
+      }
+      int k = slotOf(keys[j]);
+      // move the key at j to i unless its home slot k lies in (i, j]
+      if ((j > i) ? (k <= i || k > j) : (k <= i && k > j)) {
+        keys[i] = keys[j];
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    values[i] = null;
+  }
+
+  /**
+   * Move the keys to new arrays.
+   *
+   * @param capacity  the number of slots of the new arrays
+   */
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != null) {
+        int j = indexOf(oldKeys[i]);
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+}
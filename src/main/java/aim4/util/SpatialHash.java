@@ -0,0 +1,314 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A uniform-grid spatial hash over the bounding boxes of a set of items.
+ * The plane is divided into square cells of a fixed size and each item is
+ * recorded in every cell its bounding box overlaps, so that a query only
+ * needs to look at the items in the cells overlapping the query region.
+ * Only the non-empty cells are stored, so the grid is unbounded.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @param <T> the type of the items
+ */
+public class SpatialHash<T> {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The record of an item in the spatial hash.
+   */
+  private static class Entry<T> {
+    /** The item */
+    final T item;
+    /** The bounding box of the item */
+    final Rectangle2D.Double bounds = new Rectangle2D.Double();
+    /** The smallest x-coordinate of the cells the item is in */
+    int minCx;
+    /** The smallest y-coordinate of the cells the item is in */
+    int minCy;
+    /** The largest x-coordinate of the cells the item is in */
+    int maxCx;
+    /** The largest y-coordinate of the cells the item is in */
+    int maxCy;
+    /** The stamp of the last query that reported this item */
+    int queryStamp;
+
+    /**
+     * Create a record of an item.
+     *
+     * @param item  the item
+     */
+    Entry(T item) {
+      this.item = item;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The length of the sides of the cells */
+  private final double cellSize;
+  /** A mapping from the keys of the cells to the items in the cells */
+  private final Map<Long,List<Entry<T>>> cells =
+    new HashMap<Long,List<Entry<T>>>();
+  /** A mapping from the items to their records */
+  private final Map<T,Entry<T>> itemToEntry = new HashMap<T,Entry<T>>();
+  /** The stamp of the current query */
+  private int queryStamp = 0;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a spatial hash.
+   *
+   * @param cellSize  the length of the sides of the cells; it should be
+   *                  about the size of the typical item or query region
+   */
+  public SpatialHash(double cellSize) {
+    if (cellSize <= 0.0) {
+      throw new IllegalArgumentException("The cell size must be positive.");
+    }
+    this.cellSize = cellSize;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the length of the sides of the cells.
+   *
+   * @return the length of the sides of the cells
+   */
+  public double getCellSize() {
+    return cellSize;
+  }
+
+  /**
+   * Get the number of items in the spatial hash.
+   *
+   * @return the number of items
+   */
+  public int size() {
+    return itemToEntry.size();
+  }
+
+  /**
+   * Whether an item is in the spatial hash.
+   *
+   * @param item  the item
+   * @return whether the item is in the spatial hash
+   */
+  public boolean contains(T item) {
+    return itemToEntry.containsKey(item);
+  }
+
+  /**
+   * Get the bounding box of an item recorded in the spatial hash.
+   *
+   * @param item  the item
+   * @return the bounding box of the item; <code>null</code> if the item is
+   *         not in the spatial hash.  The rectangle must not be modified.
+   */
+  public Rectangle2D getBounds(T item) {
+    Entry<T> entry = itemToEntry.get(item);
+    return (entry != null) ? entry.bounds : null;
+  }
+
+  /**
+   * Insert an item or update the bounding box of an item.  The item is
+   * moved to other cells only if the set of cells it overlaps has changed.
+   *
+   * @param item    the item
+   * @param bounds  the bounding box of the item
+   */
+  public void put(T item, Rectangle2D bounds) {
+    int minCx = calcCell(bounds.getMinX());
+    int minCy = calcCell(bounds.getMinY());
+    int maxCx = calcCell(bounds.getMaxX());
+    int maxCy = calcCell(bounds.getMaxY());
+
+    Entry<T> entry = itemToEntry.get(item);
+    if (entry == null) {
+      entry = new Entry<T>(item);
+      itemToEntry.put(item, entry);
+      setCells(entry, minCx, minCy, maxCx, maxCy);
+    } else if (entry.minCx != minCx || entry.minCy != minCy
+               || entry.maxCx != maxCx || entry.maxCy != maxCy) {
+      removeFromCells(entry);
+      setCells(entry, minCx, minCy, maxCx, maxCy);
+    }
+    entry.bounds.setRect(bounds);
+  }
+
+  /**
+   * Remove an item.
+   *
+   * @param item  the item
+   * @return whether the item was in the spatial hash
+   */
+  public boolean remove(T item) {
+    Entry<T> entry = itemToEntry.remove(item);
+    if (entry != null) {
+      removeFromCells(entry);
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Remove all items.
+   */
+  public void clear() {
+    cells.clear();
+    itemToEntry.clear();
+  }
+
+  /**
+   * Get the items whose bounding boxes intersect a given region.  Note that
+   * the bounding box of an item intersecting the region does not imply that
+   * the item itself intersects the region; the caller should check the
+   * exact shapes of the returned items if needed.
+   *
+   * @param region  the region
+   * @return the items whose bounding boxes intersect the region
+   */
+  public List<T> getItems(Rectangle2D region) {
+    List<T> result = new ArrayList<T>();
+    queryStamp++;
+    int minCx = calcCell(region.getMinX());
+    int minCy = calcCell(region.getMinY());
+    int maxCx = calcCell(region.getMaxX());
+    int maxCy = calcCell(region.getMaxY());
+    for (int cx = minCx; cx <= maxCx; cx++) {
+      for (int cy = minCy; cy <= maxCy; cy++) {
+        List<Entry<T>> cell = cells.get(calcKey(cx, cy));
+        if (cell != null) {
+          for (Entry<T> entry : cell) {
+            if (entry.queryStamp != queryStamp
+                && entry.bounds.intersects(region)) {
+              entry.queryStamp = queryStamp;
+              result.add(entry.item);
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Calculate the coordinate of the cell containing a given coordinate.
+   *
+   * @param v  the x- or y-coordinate
+   * @return the coordinate of the cell
+   */
+  private int calcCell(double v) {
+    return (int)Math.floor(v / cellSize);
+  }
+
+  /**
+   * Calculate the key of a cell.
+   *
+   * @param cx  the x-coordinate of the cell
+   * @param cy  the y-coordinate of the cell
+   * @return the key of the cell
+   */
+  private static long calcKey(int cx, int cy) {
+    return (((long)cx) << 32) | (cy & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Add an item to the cells in a given range.
+   *
+   * @param entry  the record of the item
+   * @param minCx  the smallest x-coordinate of the cells
+   * @param minCy  the smallest y-coordinate of the cells
+   * @param maxCx  the largest x-coordinate of the cells
+   * @param maxCy  the largest y-coordinate of the cells
+   */
+  private void setCells(Entry<T> entry, int minCx, int minCy,
+                        int maxCx, int maxCy) {
+    entry.minCx = minCx;
+    entry.minCy = minCy;
+    entry.maxCx = maxCx;
+    entry.maxCy = maxCy;
+    for (int cx = minCx; cx <= maxCx; cx++) {
+      for (int cy = minCy; cy <= maxCy; cy++) {
+        long key = calcKey(cx, cy);
+        List<Entry<T>> cell = cells.get(key);
+        if (cell == null) {
+          cell = new ArrayList<Entry<T>>(4);
+          cells.put(key, cell);
+        }
+        cell.add(entry);
+      }
+    }
+  }
+
+  /**
+   * Remove an item from all the cells it is in.
+   *
+   * @param entry  the record of the item
+   */
+  private void removeFromCells(Entry<T> entry) {
+    for (int cx = entry.minCx; cx <= entry.maxCx; cx++) {
+      for (int cy = entry.minCy; cy <= entry.maxCy; cy++) {
+        long key = calcKey(cx, cy);
+        List<Entry<T>> cell = cells.get(key);
+        cell.remove(entry);
+        if (cell.isEmpty()) {
+          cells.remove(key);
+        }
+      }
+    }
+  }
+
+}
@@ -32,10 +32,9 @@ package aim4.util;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
-import aim4.config.Condor;
 import aim4.config.Constants;
+import aim4.sim.SimContext;
 import java.io.BufferedReader;
 import java.io.DataInputStream;
 import java.io.IOException;
@@ -43,42 +42,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.random.RandomGenerator;
 
 /**
  * This class provides helper methods that are used throughout the code.
  */
 public class Util {
 
-  /////////////////////////////////
-  // PUBLIC METHODS
-  /////////////////////////////////
-
-  /** The random seed for all random number generators in the simulation */
-  public static long randSeed = (new Random()).nextLong();
-  // public static final long randSeed = -6397397808339168785L;
-
-  /** The global random number generator */
-  public static final Random random = new Random(randSeed);
-
-  static {
-    if (Condor.IS_CONDOR_EXIST) {
-      // To make sure different processes on Condor receives different random
-      // seeds, different processes sleep for a different time.
-      try{
-        Thread.sleep(Condor.CONDOR_ID * 10);
-      } catch(InterruptedException e){
-        // ignore the interruption by another thread
-      }
-      randSeed = Util.random.nextLong() + Condor.CONDOR_ID;
-      Util.random.setSeed(randSeed);
-    }
-
-//    if (Debug.IS_PRINT_RANDOM_SEED) {
-//      System.err.println("randSeed = " + Util.randSeed + "L");
-//    }
-  }
-
-
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -283,7 +253,7 @@ public class Util {
    *         to the distribution
    */
   public static int randomIndex(double[] distribution) {
-    double a = Util.random.nextDouble();
+    double a = SimContext.current().getRandom().nextDouble();
     for(int i=0; i<distribution.length; i++) {
       a -= distribution[i];
       if (a<0.0) {
@@ -301,7 +271,20 @@ public class Util {
    *         to the distribution
    */
   public static int randomIndex(List<Double> distribution) {
-    double a = Util.random.nextDouble();
+    return randomIndex(distribution, SimContext.current().getRandom());
+  }
+
+  /**
+   * Choose a number according to a finite probability distribution.
+   *
+   * @param distribution  the probability distribution
+   * @param random        the random number generator
+   * @return an index of the distribution that is randomly chosen according
+   *         to the distribution
+   */
+  public static int randomIndex(List<Double> distribution,
+                                RandomGenerator random) {
+    double a = random.nextDouble();
     for(int i=0; i<distribution.size(); i++) {
       a -= distribution.get(i);
       if (a<0.0) {
@@ -540,4 +540,23 @@ public class BasicAutoVehicle extends BasicVehicle
     return lastV2IMessage;
   }
 
+
+  /////////////////////////////////
+  // PROTECTED METHODS
+  /////////////////////////////////
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void assignGaugeStreams(long firstStreamId) {
+    super.assignGaugeStreams(firstStreamId);
+    intervalometer.setStreamId(firstStreamId + 5);
+    lrfAngle.setStreamId(firstStreamId + 6);
+    lrfDistance.setStreamId(firstStreamId + 7);
+    frontVehicleDistanceSensor.setStreamId(firstStreamId + 8);
+    rearVehicleDistanceSensor.setStreamId(firstStreamId + 9);
+    frontVehicleSpeedSensor.setStreamId(firstStreamId + 10);
+    rearVehicleSpeedSensor.setStreamId(firstStreamId + 11);
+  }
 }
@@ -33,6 +33,7 @@ package aim4.vehicle;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -41,6 +42,7 @@ import aim4.config.Debug;
 import aim4.driver.Driver;
 import aim4.map.track.TrackPosition;
 import aim4.noise.DoubleGauge;
+import aim4.sim.SimContext;
 import aim4.util.GeomMath;
 import aim4.util.GeomUtil;
 import aim4.util.Util;
@@ -61,6 +63,11 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   private static final double MIN_STEERING_THRESHOLD = 0.00001;
 
+  /**
+   * The number of random streams reserved for the gauges of each vehicle.
+   */
+  protected static final int GAUGE_STREAMS_PER_VEHICLE = 16;
+
   /////////////////////////////////
   // NESTED CLASSES
   /////////////////////////////////
@@ -1098,6 +1105,12 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   protected int vin;
 
+  /**
+   * The registry that issued the VIN; null if the vehicle has not been
+   * registered.
+   */
+  private VinRegistry vinRegistry;
+
   /** The characteristics of the vehicle */
   protected VehicleSpec spec;
 
@@ -1150,13 +1163,25 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   private Point2D memoGaugePointBetweenFrontWheels;
   /**
-   * Memoization cache for {@link #getShape()}.
+   * Memoization cache for {@link #getCornerCoordinates()}.  It is updated
+   * in place whenever the vehicle moves.
+   */
+  private final double[] memoCornerCoordinates = new double[8];
+  /**
+   * Memoization cache for {@link #gaugeCornerCoordinates()}.  It is updated
+   * in place whenever the vehicle moves.
    */
-  private Shape memoGetShape;
+  private final double[] memoGaugeCornerCoordinates = new double[8];
   /**
-   * Memoization cache for {@link #gaugeShape()}.
+   * Memoization cache for {@link #getShape()}; built lazily from
+   * {@link #memoCornerCoordinates}.
    */
-  private Shape memoGaugeShape;
+  private volatile Shape memoGetShape;
+  /**
+   * Memoization cache for {@link #gaugeShape()}; built lazily from
+   * {@link #memoGaugeCornerCoordinates}.
+   */
+  private volatile Shape memoGaugeShape;
 
   /////////////////////////////////
   // CONSTRUCTORS
@@ -1210,8 +1235,8 @@ public abstract class BasicVehicle implements VehicleSimView {
   protected void finalize() throws Throwable {
     super.finalize();
     // Make sure that the vehicle is unregistered from the Vehicle Registry.
-    if (vin >= 0) {
-      VinRegistry.unregisterVehicle(vin);
+    if (vin >= 0 && vinRegistry != null) {
+      vinRegistry.unregister(vin);
       vin = -1;
     }
   }
@@ -1234,6 +1259,9 @@ public abstract class BasicVehicle implements VehicleSimView {
   @Override
   public void setVIN(int vin) {
     this.vin = vin;
+    // the registry calls this method in the context of the simulation
+    this.vinRegistry = SimContext.current().getVinRegistry();
+    assignGaugeStreams((long) vin * GAUGE_STREAMS_PER_VEHICLE);
   }
 
   /**
@@ -1378,7 +1406,12 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   @Override
   public Shape getShape() {
-    return memoGetShape;
+    Shape shape = memoGetShape;
+    if (shape == null) {
+      shape = GeomUtil.convertCoordinatesToShape(memoCornerCoordinates);
+      memoGetShape = shape;
+    }
+    return shape;
   }
 
   /**
@@ -1386,7 +1419,12 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   @Override
   public Shape gaugeShape() {
-    return memoGaugeShape;
+    Shape shape = memoGaugeShape;
+    if (shape == null) {
+      shape = GeomUtil.convertCoordinatesToShape(memoGaugeCornerCoordinates);
+      memoGaugeShape = shape;
+    }
+    return shape;
   }
 
   /**
@@ -1394,10 +1432,27 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   @Override
   public Shape getShape(double extra) {
-    Point2D[] points = spec.getCornerPoints(extra,
-                                            movement.getPosition(),
-                                            movement.getHeading());
-    return GeomUtil.convertPointsToShape(points);
+    double[] coords = new double[8];
+    Point2D pos = movement.getPosition();
+    spec.getCornerCoordinates(extra, pos.getX(), pos.getY(),
+                              movement.getHeading(), coords);
+    return GeomUtil.convertCoordinatesToShape(coords);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double[] getCornerCoordinates() {
+    return memoCornerCoordinates;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double[] gaugeCornerCoordinates() {
+    return memoGaugeCornerCoordinates;
   }
 
   /**
@@ -1405,7 +1460,13 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   @Override
   public List<Line2D> getEdges() {
-    return GeomMath.polygonalShapePerimeterSegments(getShape());
+    double[] c = memoCornerCoordinates;
+    List<Line2D> edges = new ArrayList<Line2D>(4);
+    for (int i = 0; i < 8; i += 2) {
+      int j = (i + 2) % 8;
+      edges.add(new Line2D.Double(c[i], c[i + 1], c[j], c[j + 1]));
+    }
+    return edges;
   }
 
   /**
@@ -1652,6 +1713,28 @@ public abstract class BasicVehicle implements VehicleSimView {
   }
 
 
+  /////////////////////////////////
+  // PROTECTED METHODS
+  /////////////////////////////////
+
+  /**
+   * Give each gauge of the vehicle its own random stream.  A subclass that
+   * adds gauges should give them the streams following those of its
+   * superclass.
+   *
+   * @param firstStreamId  the ID of the first of the
+   *                       {@link #GAUGE_STREAMS_PER_VEHICLE} streams of the
+   *                       vehicle
+   */
+  protected void assignGaugeStreams(long firstStreamId) {
+    clock.setStreamId(firstStreamId);
+    xometer.setStreamId(firstStreamId + 1);
+    yometer.setStreamId(firstStreamId + 2);
+    compass.setStreamId(firstStreamId + 3);
+    speedometer.setStreamId(firstStreamId + 4);
+  }
+
+
   /////////////////////////////////
   // PRIVATE METHODS
   /////////////////////////////////
@@ -1709,8 +1792,15 @@ public abstract class BasicVehicle implements VehicleSimView {
     speedometer.record(movement.getVelocity());
 
     memoGaugePosition = new Point2D.Double(xometer.read(), yometer.read());
-    memoGetShape = GeomUtil.convertPointsToShape(getCornerPoints());
-    memoGaugeShape = GeomUtil.convertPointsToShape(gaugeCornerPoints());
+    Point2D pos = movement.getPosition();
+    spec.getCornerCoordinates(pos.getX(), pos.getY(), movement.getHeading(),
+                              memoCornerCoordinates);
+    spec.getCornerCoordinates(memoGaugePosition.getX(),
+                              memoGaugePosition.getY(),
+                              gaugeHeading(),
+                              memoGaugeCornerCoordinates);
+    memoGetShape = null;
+    memoGaugeShape = null;
     memoGaugePointBetweenFrontWheels =
         spec.getPointBetweenFrontWheels(gaugePosition(), gaugeHeading());
   }
@@ -0,0 +1,259 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import aim4.im.IntersectionManager;
+import aim4.im.RoadBasedIntersection;
+import aim4.im.RoadBasedTrackModel;
+import aim4.map.BasicMap;
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+import aim4.sim.SimContext;
+
+/**
+ * A table of the max turn velocities of a map, computed in advance for a
+ * set of vehicle specifications.  The table is indexed by the ID of the
+ * vehicle specification, the ID of the intersection manager and the ID of
+ * the movement through the intersection (see
+ * {@link RoadBasedTrackModel#getMovementId(int, int)}), so that looking up
+ * a velocity involves no allocation and no simulation.
+ */
+public class MaxTurnVelocityTable {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The vehicle specifications in the table, indexed by their IDs; null
+   * for the IDs that are not in the table.
+   */
+  private final VehicleSpec[] specs;
+  /**
+   * The track models of the intersection managers, indexed by the IDs of
+   * the intersection managers; null for the intersection managers that are
+   * not in the table.
+   */
+  private final RoadBasedTrackModel[] trackModels;
+  /**
+   * The offsets of the blocks of the intersection managers in
+   * {@link #velocities}, indexed by the IDs of the intersection managers.
+   */
+  private final int[] offsets;
+  /**
+   * The max turn velocities.  The block of an intersection manager holds a
+   * row for each vehicle specification ID, and the row holds the velocity
+   * of each movement through the intersection.
+   */
+  private final double[] velocities;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Compute the table of the max turn velocities of a map.  The velocities
+   * of each intersection are computed in parallel, in the context of the
+   * current thread, in which the map must have been built.  A specification
+   * whose ID is already taken by another specification in the list is left
+   * out.
+   *
+   * @param map    the map
+   * @param specs  the vehicle specifications
+   */
+  public MaxTurnVelocityTable(BasicMap map, List<VehicleSpec> specs) {
+    int numOfSpecs = VehicleSpecDatabase.getNumOfSpec();
+    this.specs = new VehicleSpec[numOfSpecs];
+    for (VehicleSpec spec : specs) {
+      int id = VehicleSpecDatabase.getIdOfVehicleSpec(spec);
+      if (id >= 0 && this.specs[id] == null) {
+        this.specs[id] = spec;
+      }
+    }
+
+    List<IntersectionManager> ims = map.getIntersectionManagers();
+    int maxImId = -1;
+    for (IntersectionManager im : ims) {
+      maxImId = Math.max(maxImId, im.getId());
+    }
+    trackModels = new RoadBasedTrackModel[maxImId + 1];
+    offsets = new int[maxImId + 1];
+    int size = 0;
+    for (IntersectionManager im : ims) {
+      if (im.getTrackModel() instanceof RoadBasedTrackModel) {
+        RoadBasedTrackModel trackModel =
+          (RoadBasedTrackModel) im.getTrackModel();
+        trackModels[im.getId()] = trackModel;
+        offsets[im.getId()] = size;
+        size += numOfSpecs * trackModel.getNumOfMovements();
+      }
+    }
+    velocities = new double[size];
+    Arrays.fill(velocities, Double.NaN);
+
+    for (IntersectionManager im : ims) {
+      if (trackModels[im.getId()] != null) {
+        fill(map, im);
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Compute the max turn velocities of an intersection manager in parallel.
+   * Only the movements that the vehicles ask for are computed: from each
+   * entry lane to the departure lane of highest priority of each exit road,
+   * and between the index lanes of the roads, except for U-turns.
+   *
+   * @param map  the map
+   * @param im   the intersection manager
+   */
+  private void fill(BasicMap map, final IntersectionManager im) {
+    final RoadBasedTrackModel trackModel = trackModels[im.getId()];
+    RoadBasedIntersection intersection = trackModel.getIntersection();
+    final List<Lane> arrivalLanes = new ArrayList<Lane>();
+    final List<Lane> departureLanes = new ArrayList<Lane>();
+    boolean[] isListed = new boolean[trackModel.getNumOfMovements()];
+    for (Lane entryLane : intersection.getEntryLanes()) {
+      Road entryRoad = map.getRoad(entryLane);
+      for (Road exitRoad : intersection.getExitRoads()) {
+        List<Lane> lanes =
+          trackModel.getSortedDepartureLanes(entryLane, exitRoad);
+        if (exitRoad != entryRoad.getDual() && !lanes.isEmpty()) {
+          listMovement(trackModel, entryLane, lanes.get(0), isListed,
+                       arrivalLanes, departureLanes);
+        }
+      }
+    }
+    for (Road entryRoad : intersection.getEntryRoads()) {
+      for (Road exitRoad : intersection.getExitRoads()) {
+        if (exitRoad != entryRoad.getDual()) {
+          listMovement(trackModel, entryRoad.getIndexLane(),
+                       exitRoad.getIndexLane(), isListed,
+                       arrivalLanes, departureLanes);
+        }
+      }
+    }
+    final int numOfPairs = arrivalLanes.size();
+    final int numOfMovements = trackModel.getNumOfMovements();
+    final int offset = offsets[im.getId()];
+    // the velocities are simulated with the map of this context
+    final SimContext context = SimContext.current();
+    IntStream.range(0, specs.length * numOfPairs).parallel().forEach(
+      new IntConsumer() {
+        @Override
+        public void accept(int k) {
+          int id = k / numOfPairs;
+          Lane arrivalLane = arrivalLanes.get(k % numOfPairs);
+          Lane departureLane = departureLanes.get(k % numOfPairs);
+          int m = trackModel.getMovementId(arrivalLane.getId(),
+                                           departureLane.getId());
+          if (specs[id] == null) {
+            return;
+          }
+          SimContext previous = SimContext.bind(context);
+          try {
+            velocities[offset + id * numOfMovements + m] =
+              VehicleUtil.calculateMaxTurnVelocity(specs[id], arrivalLane,
+                                                   departureLane, im);
+          } finally {
+            SimContext.bind(previous);
+          }
+        }
+      });
+  }
+
+  /**
+   * Add a movement to the lists of the movements to compute, unless it is
+   * already listed or it does not go through the intersection.
+   *
+   * @param trackModel      the track model of the intersection
+   * @param arrivalLane     the arrival lane
+   * @param departureLane   the departure lane
+   * @param isListed        whether each movement is listed
+   * @param arrivalLanes    the arrival lanes of the listed movements
+   * @param departureLanes  the departure lanes of the listed movements
+   */
+  private static void listMovement(RoadBasedTrackModel trackModel,
+                                   Lane arrivalLane, Lane departureLane,
+                                   boolean[] isListed,
+                                   List<Lane> arrivalLanes,
+                                   List<Lane> departureLanes) {
+    int m = trackModel.getMovementId(arrivalLane.getId(),
+                                     departureLane.getId());
+    if (m >= 0 && !isListed[m]) {
+      isListed[m] = true;
+      arrivalLanes.add(arrivalLane);
+      departureLanes.add(departureLane);
+    }
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the max turn velocity of a vehicle specification.
+   *
+   * @param spec           the vehicle specification
+   * @param arrivalLane    the arrival lane
+   * @param departureLane  the departure lane
+   * @param im             the intersection manager
+   * @return the max turn velocity; NaN if it is not in the table
+   */
+  public double get(VehicleSpec spec, Lane arrivalLane, Lane departureLane,
+                    IntersectionManager im) {
+    int id = VehicleSpecDatabase.getIdOfVehicleSpec(spec);
+    int imId = im.getId();
+    if (id < 0 || specs[id] != spec
+        || imId >= trackModels.length
+        || trackModels[imId] != im.getTrackModel()) {
+      return Double.NaN;
+    }
+    RoadBasedTrackModel trackModel = trackModels[imId];
+    int m = trackModel.getMovementId(arrivalLane.getId(),
+                                     departureLane.getId());
+    if (m < 0) {
+      return Double.NaN;
+    }
+    return velocities[offsets[imId] + id * trackModel.getNumOfMovements()
+                      + m];
+  }
+}
@@ -37,6 +37,7 @@ import java.lang.Math;
 
 import aim4.msg.v2i.Done;
 import aim4.msg.udp.Proxy2RealAdapter;
+import aim4.msg.udp.Proxy2RealEncoder;
 import aim4.msg.udp.Real2ProxyCancel;
 import aim4.msg.udp.Real2ProxyMsg;
 import aim4.msg.udp.Real2ProxyRequest;
@@ -84,6 +85,27 @@ public class ProxyVehicle extends BasicAutoVehicle
    */
   private static final double SEND_INTERVALOMETER_READING_PERIOD = 1.0;
 
+  /**
+   * The specification of Marvin, used if it is not registered in the
+   * {@link VehicleSpecDatabase}.  It is not registered by default since the
+   * spawn points choose among all registered specifications.
+   */
+  private static final VehicleSpec MARVIN_SPEC =
+    new VehicleSpec("MARVIN",
+                    1.01,        // maxAcceleration (m/s/s)
+                  -13.0,        // maxDeceleration (m/s/s)
+                   25.0,        // maxVelocity (m/s)
+                   -0.1,        // minVelocity (m/s)
+                    5.131,      // length (meters)
+                    2.0,        // width (meters)
+                    1.18,       // frontAxleDisplacement (meters)
+                    4.126,      // rearAxleDisplacement (meters)
+                  (2.0-0.33)/2, // wheelSpan (meters)
+                    0.375,      // wheelRadius (meters)
+                    0.33,       // wheelWidth (meters)
+                  Math.PI/3,    // maxSteeringAngle (radian)
+                  Math.PI/3);   // maxTurnPerSecond (radian)
+
 
   /////////////////////////////////
   // PRIVATE FIELDS
@@ -93,6 +115,8 @@ public class ProxyVehicle extends BasicAutoVehicle
   ProxyDriver driver;
   /** The socket address */
   SocketAddress sa;
+  /** The encoder of the messages to the real vehicle; null if none */
+  private Proxy2RealEncoder encoder;
   /** The last time stamp */
   private double lastTimeStamp;
   /** The next request Id */
@@ -102,6 +126,21 @@ public class ProxyVehicle extends BasicAutoVehicle
   /** The next intervalometer reading time */
   private double nextIntervalometerReadingTime;
 
+  /////////////////////////////////
+  // CLASS METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the specification of Marvin.
+   *
+   * @return the specification in the {@link VehicleSpecDatabase} if it is
+   *         registered; the built-in specification otherwise
+   */
+  private static VehicleSpec getMarvinSpec() {
+    VehicleSpec spec = VehicleSpecDatabase.getVehicleSpecByName("MARVIN");
+    return (spec != null) ? spec : MARVIN_SPEC;
+  }
+
   /////////////////////////////////
   // CONSTRUCTORS
   /////////////////////////////////
@@ -124,10 +163,11 @@ public class ProxyVehicle extends BasicAutoVehicle
                       double targetVelocity,
                       double acceleration,
                       double currentTime) {
-    super(VehicleSpecDatabase.getVehicleSpecByName("MARVIN"), pos, heading,
+    super(getMarvinSpec(), pos, heading,
           steeringAngle, velocity, targetVelocity, acceleration, currentTime);
     driver = null;
     sa = null;
+    encoder = null;
     lastTimeStamp = Double.MIN_VALUE;
     nextRequestId = 0;
     pvUpdate = null;
@@ -178,6 +218,14 @@ public class ProxyVehicle extends BasicAutoVehicle
     this.sa = sa;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setProxy2RealEncoder(Proxy2RealEncoder encoder) {
+    this.encoder = encoder;
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -244,27 +292,22 @@ public class ProxyVehicle extends BasicAutoVehicle
     // super.receive(msg);  // do not call this!
     bitsReceived += msg.getSize();
 
+    if (encoder != null) {
+      encode(msg);
+      return;
+    }
+
     DatagramPacket dp = null;
     switch(msg.getMessageType()) {
     case CONFIRM:
-      try {
-        dp = Proxy2RealAdapter.toDatagramPacket((Confirm)msg, sa, gaugeTime());
-      } catch (IOException e) {
-        System.err.println("Failed to convert confirm message to a datagram");
-        e.printStackTrace();
-      }
+      dp = Proxy2RealAdapter.toDatagramPacket((Confirm)msg, sa, gaugeTime());
       if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
         System.err.printf("Sending a confirm message to real vehicle: %s\n",
                           (Confirm)msg);
       }
       break;
     case REJECT:
-      try {
-        dp = Proxy2RealAdapter.toDatagramPacket((Reject)msg, sa, gaugeTime());
-      } catch (IOException e) {
-        System.err.println("Failed to convert reject message to a datagram");
-        e.printStackTrace();
-      }
+      dp = Proxy2RealAdapter.toDatagramPacket((Reject)msg, sa, gaugeTime());
       if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
         System.err.printf("Sending a reject message to real vehicle: %s\n",
                           (Reject)msg);
@@ -300,23 +343,23 @@ public class ProxyVehicle extends BasicAutoVehicle
       if (currentTime >= nextIntervalometerReadingTime) {
         System.err.printf("Try sending the intervalometer reading %.2f to " +
         		  "Marvin...\n", getIntervalometer().read());
-        DatagramPacket dp = null;
-        try {
-          dp = Proxy2RealAdapter.toDatagramPacket(getIntervalometer().read(),
-                                                  sa, gaugeTime());
-        } catch (IOException e) {
-          System.err.println("Failed to convert getIntervalometer().read() " +
-          		         "message to a datagram");
-          e.printStackTrace();
-        }
-        try {
-          DatagramSocket ds = new DatagramSocket();
-          ds.send(dp);
-          ds.close();
-          System.err.printf("intervalometer reading sent.\n");
-        } catch (IOException e) {
-          System.err.println("Failed to send a datagram to a real vehicle.");
-          e.printStackTrace();
+        if (encoder != null) {
+          // sent by the encoder at the end of the next communication phase
+          encoder.addDistToFrontVehicle(getIntervalometer().read(), sa,
+                                        gaugeTime());
+        } else {
+          DatagramPacket dp =
+            Proxy2RealAdapter.toDatagramPacket(getIntervalometer().read(),
+                                               sa, gaugeTime());
+          try {
+            DatagramSocket ds = new DatagramSocket();
+            ds.send(dp);
+            ds.close();
+            System.err.printf("intervalometer reading sent.\n");
+          } catch (IOException e) {
+            System.err.println("Failed to send a datagram to a real vehicle.");
+            e.printStackTrace();
+          }
         }
         nextIntervalometerReadingTime =
           currentTime + SEND_INTERVALOMETER_READING_PERIOD;
@@ -368,6 +411,34 @@ public class ProxyVehicle extends BasicAutoVehicle
   // PRIVATE METHODS
   /////////////////////////////////
 
+  /**
+   * Add an I2V message to the datagram to the real vehicle, which is sent
+   * by the encoder at the end of the communication phase.
+   *
+   * @param msg  the I2V message
+   */
+  private void encode(I2VMessage msg) {
+    switch(msg.getMessageType()) {
+    case CONFIRM:
+      encoder.add((Confirm)msg, sa, gaugeTime());
+      if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+        System.err.printf("Sending a confirm message to real vehicle: %s\n",
+                          (Confirm)msg);
+      }
+      break;
+    case REJECT:
+      encoder.add((Reject)msg, sa, gaugeTime());
+      if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+        System.err.printf("Sending a reject message to real vehicle: %s\n",
+                          (Reject)msg);
+      }
+      break;
+    default:
+      assert (false):("Cannot encode a I2VMessage because the adaptor " +
+                      "message has not been implemented yet");
+    }
+  }
+
   /**
    * Create a request message from the Real2ProxyRequest message object.
    * Increment nextRequestId as well.
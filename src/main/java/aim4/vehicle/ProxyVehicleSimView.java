@@ -33,6 +33,7 @@ package aim4.vehicle;
 import java.net.SocketAddress;
 
 import aim4.driver.ProxyDriver;
+import aim4.msg.udp.Proxy2RealEncoder;
 import aim4.msg.udp.Real2ProxyMsg;
 
 /**
@@ -63,6 +64,15 @@ public interface ProxyVehicleSimView extends AutoVehicleSimView {
    */
   void setSa(SocketAddress sa);
 
+  /**
+   * Set the encoder through which the messages to the real vehicle are
+   * sent.  If no encoder is set, each message is sent in its own datagram
+   * immediately.
+   *
+   * @param encoder  the encoder
+   */
+  void setProxy2RealEncoder(Proxy2RealEncoder encoder);
+
   /**
    * Process the incoming Real2Proxy message
    *
@@ -123,6 +123,16 @@ public interface VehicleDriverView {
    */
   Shape gaugeShape();
 
+  /**
+   * Get the coordinates of the corners of the Vehicle, according to the
+   * Vehicle's gauges.  The array is owned by the vehicle, must not be
+   * modified, and is updated in place whenever the vehicle moves.
+   *
+   * @return the coordinates x0, y0, x1, y1, x2, y2, x3, y3 of the corners,
+   *         according to the Vehicle's gauges
+   */
+  double[] gaugeCornerCoordinates();
+
   /**
    * Get the point in front of the middle point of the vehicle that is
    * at the distance of delta away from the vehicle, according to the gauges.
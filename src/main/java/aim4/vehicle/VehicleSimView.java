@@ -132,6 +132,16 @@ public interface VehicleSimView extends VehicleDriverView {
    */
   List<Line2D> getEdges();
 
+  /**
+   * Get the current global coordinates of the corners of this Vehicle as
+   * an array of primitives.  The array is owned by the vehicle, must not be
+   * modified, and is updated in place whenever the vehicle moves.
+   *
+   * @return the coordinates x0, y0, x1, y1, x2, y2, x3, y3 of the corners,
+   *         in the same order as {@link #getCornerPoints()}
+   */
+  double[] getCornerCoordinates();
+
   /**
    * Get the Shapes of each of the wheels.
    *
@@ -453,26 +453,46 @@ public class VehicleSpec {
    * @return         an array of points representing the four corners.
    */
   public Point2D[] getCornerPoints(Point2D pos, double heading) {
-    Point2D[] result = new Point2D.Double[4];
+    double[] coords = new double[8];
+    getCornerCoordinates(pos.getX(), pos.getY(), heading, coords);
+    return toCornerPoints(coords);
+  }
+
+  /**
+   * Compute the global coordinates of the corners of the Vehicle without
+   * allocating any object.  The corners are in the same order as those
+   * returned by {@link #getCornerPoints(Point2D, double)}.
+   *
+   * @param posX     the x-coordinate of the position of the vehicle
+   * @param posY     the y-coordinate of the position of the vehicle
+   * @param heading  the heading of the vehicle
+   * @param result   the array of length 8 to which the coordinates
+   *                 x0, y0, x1, y1, x2, y2, x3, y3 are written
+   */
+  public void getCornerCoordinates(double posX, double posY, double heading,
+                                   double[] result) {
     double x;
     double y;
     // First point, counterclockwise
-    x = pos.getX() + halfWidth * Math.cos(heading + Math.PI/2);
-    y = pos.getY() + halfWidth * Math.sin(heading + Math.PI/2);
-    result[0] = new Point2D.Double(x,y);
+    x = posX + halfWidth * Math.cos(heading + Math.PI/2);
+    y = posY + halfWidth * Math.sin(heading + Math.PI/2);
+    result[0] = x;
+    result[1] = y;
     // Second point
     x = x + length * Math.cos(heading + Math.PI);
     y = y + length * Math.sin(heading + Math.PI);
-    result[1] = new Point2D.Double(x,y);
+    result[2] = x;
+    result[3] = y;
     // Fourth point
-    x = pos.getX() + halfWidth * Math.cos(heading - Math.PI/2);
-    y = pos.getY() + halfWidth * Math.sin(heading - Math.PI/2);
-    result[3] = new Point2D.Double(x,y);
+    x = posX + halfWidth * Math.cos(heading - Math.PI/2);
+    y = posY + halfWidth * Math.sin(heading - Math.PI/2);
+    result[6] = x;
+    result[7] = y;
     // Third point
     x = x + length * Math.cos(heading - Math.PI);
     y = y + length * Math.sin(heading - Math.PI);
-    result[2] = new Point2D.Double(x,y);
-    return result;
+    result[4] = x;
+    result[5] = y;
   }
 
 
@@ -486,29 +506,64 @@ public class VehicleSpec {
    * @return         an array of points representing the four "inflated" corners
    */
   public Point2D[] getCornerPoints(double extra, Point2D pos, double heading) {
-    Point2D[] result = new Point2D.Double[4];
+    double[] coords = new double[8];
+    getCornerCoordinates(extra, pos.getX(), pos.getY(), heading, coords);
+    return toCornerPoints(coords);
+  }
+
+  /**
+   * Compute the global coordinates of the corners of the Vehicle, assuming
+   * it is larger in each dimension by a fixed amount, without allocating
+   * any object.
+   *
+   * @param extra    the fixed amount to add to each dimension of the Vehicle.
+   * @param posX     the x-coordinate of the position of the vehicle
+   * @param posY     the y-coordinate of the position of the vehicle
+   * @param heading  the heading of the vehicle
+   * @param result   the array of length 8 to which the coordinates
+   *                 x0, y0, x1, y1, x2, y2, x3, y3 are written
+   */
+  public void getCornerCoordinates(double extra, double posX, double posY,
+                                   double heading, double[] result) {
     double x;
     double y;
     // First point, counterclockwise
-    x = pos.getX() + (extra/2) * Math.cos(heading) +
+    x = posX + (extra/2) * Math.cos(heading) +
         ((width + extra)/2) * Math.cos(heading + Math.PI/2);
-    y = pos.getY() + (extra/2) * Math.sin(heading) +
+    y = posY + (extra/2) * Math.sin(heading) +
         ((width + extra)/2) * Math.sin(heading + Math.PI/2);
-    result[0] = new Point2D.Double(x,y);
+    result[0] = x;
+    result[1] = y;
     // Second point
     x = x + (length + extra) * Math.cos(heading + Math.PI);
     y = y + (length + extra) * Math.sin(heading + Math.PI);
-    result[1] = new Point2D.Double(x,y);
+    result[2] = x;
+    result[3] = y;
     // Fourth point
-    x = pos.getX() + (extra/2) * Math.cos(heading) +
+    x = posX + (extra/2) * Math.cos(heading) +
         ((width + extra)/2) * Math.cos(heading - Math.PI/2);
-    y = pos.getY() + (extra/2) * Math.sin(heading) +
+    y = posY + (extra/2) * Math.sin(heading) +
         ((width + extra)/2) * Math.sin(heading - Math.PI/2);
-    result[3] = new Point2D.Double(x,y);
+    result[6] = x;
+    result[7] = y;
     // Third point
     x = x + (length + extra) * Math.cos(heading - Math.PI);
     y = y + (length + extra) * Math.sin(heading - Math.PI);
-    result[2] = new Point2D.Double(x,y);
+    result[4] = x;
+    result[5] = y;
+  }
+
+  /**
+   * Convert the coordinates of the corners to points.
+   *
+   * @param coords  the coordinates x0, y0, x1, y1, x2, y2, x3, y3
+   * @return        an array of points representing the four corners
+   */
+  private static Point2D[] toCornerPoints(double[] coords) {
+    Point2D[] result = new Point2D.Double[4];
+    for (int i = 0; i < 4; i++) {
+      result[i] = new Point2D.Double(coords[2 * i], coords[2 * i + 1]);
+    }
     return result;
   }
 
@@ -56,6 +56,13 @@ public class VehicleSpecDatabase {
   private static Map<String, Integer> nameToId =
     new HashMap<String,Integer>();
 
+  /**
+   * The vehicle specifications resized to fit the lanes, indexed by the
+   * ids of the vehicle specifications and the widths of the lanes.
+   */
+  private static Map<Integer, Map<Double, VehicleSpec>> laneSizedSpecs =
+    new HashMap<Integer, Map<Double, VehicleSpec>>();
+
 
   /////////////////////////////////
   // PUBLIC METHODS
@@ -91,11 +98,12 @@ public class VehicleSpecDatabase {
    * @return true if there exists a spec whose name is the same
    *         as the new one; false if otherwise.
    */
-  public static boolean replaceSpec(VehicleSpec spec) {
+  public static synchronized boolean replaceSpec(VehicleSpec spec) {
     if (nameToId.containsKey(spec.getName())) {
       int id = nameToId.get(spec.getName());
       VehicleSpec oldSpec = vehicleSpecs.get(id);
       oldSpec.assign(spec);
+      laneSizedSpecs.remove(id);
       return true;
     } else {
       return false;
@@ -154,6 +162,47 @@ public class VehicleSpecDatabase {
     return (id != null)?vehicleSpecs.get(id):null;
   }
 
+  /**
+   * Get the vehicle specification resized to fit a lane: the vehicle is as
+   * long and as wide as the lane, and its axles and wheels are scaled
+   * accordingly.  The resized specification has the same name and
+   * performance as the original one, and is created only once for each
+   * width of lane.
+   *
+   * @param id         the id of the vehicle specification
+   * @param laneWidth  the width of the lane
+   * @return the vehicle specification resized to fit the lane
+   */
+  public static synchronized VehicleSpec getLaneSizedSpec(int id,
+                                                          double laneWidth) {
+    Map<Double, VehicleSpec> specs = laneSizedSpecs.get(id);
+    if (specs == null) {
+      specs = new HashMap<Double, VehicleSpec>();
+      laneSizedSpecs.put(id, specs);
+    }
+    VehicleSpec spec = specs.get(laneWidth);
+    if (spec == null) {
+      VehicleSpec baseSpec = vehicleSpecs.get(id);
+      spec = new VehicleSpec(
+          baseSpec.getName(),
+          baseSpec.getMaxAcceleration(),
+          baseSpec.getMaxDeceleration(),
+          baseSpec.getMaxVelocity(),
+          baseSpec.getMinVelocity(),
+          laneWidth,          // length
+          laneWidth,          // width
+          laneWidth * 0.25,   // front axle displacement (25% from front)
+          laneWidth * 0.75,   // rear axle displacement (75% from front)
+          laneWidth * 0.9,    // wheel span (90% of width)
+          laneWidth * 0.075,  // wheel radius
+          laneWidth * 0.05,   // wheel width
+          baseSpec.getMaxSteeringAngle(),
+          baseSpec.getMaxTurnPerSecond());
+      specs.put(laneWidth, spec);
+    }
+    return spec;
+  }
+
   /////////////////////////////////
   // STATIC CONSTRUCTORS
   /////////////////////////////////
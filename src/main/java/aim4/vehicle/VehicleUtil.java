@@ -31,16 +31,21 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.vehicle;
 
 import java.awt.geom.Area;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import aim4.config.SimConfig;
 import aim4.driver.CrashTestDummy;
 import aim4.driver.Driver;
+import aim4.im.Intersection;
 import aim4.im.IntersectionManager;
 import aim4.map.lane.Lane;
+import aim4.sim.SimContext;
+import aim4.util.ConvexDecomposition;
 import aim4.util.GeomMath;
 import aim4.util.Util;
 
@@ -89,17 +94,13 @@ public class VehicleUtil {
    */
   private static final double SAFE_TRAVERSAL_STEERING_DELTA = 0.08;
 
-
-  /////////////////////////////////
-  // PRIVATE FIELDS
-  /////////////////////////////////
-
   /**
-   * Memoization caches for max turn velocities for various vehicle
-   * specification.
+   * The maximum difference, in radians, between the entry heading and the
+   * exit heading, and the maximum distance, in meters, between the entry
+   * point and the line of the departure Lane, such that the track through
+   * the intersection is considered straight. {@value}
    */
-  private static Map<String,Map<List<Integer>, Double>>
-    memoMaxTurnVelocity = new HashMap<String,Map<List<Integer>,Double>>();
+  private static final double STRAIGHT_TRACK_TOLERANCE = 1e-6;
 
 
   /////////////////////////////////
@@ -127,12 +128,26 @@ public class VehicleUtil {
                                        Lane arrivalLane,
                                        Lane departureLane,
                                        IntersectionManager im) {
+    // The table and the memo are kept in the context of the simulation,
+    // since the lane and IM ids of the maps of different simulations may
+    // coincide.
+    SimContext context = SimContext.current();
+    MaxTurnVelocityTable table = context.getMaxTurnVelocityTable();
+    if (table != null) {
+      double mtv = table.get(spec, arrivalLane, departureLane, im);
+      if (!Double.isNaN(mtv)) {
+        // FIXME try to see why we need this hack
+        return Math.max(mtv, MIN_MAX_TURN_VELOCITY);
+      }
+    }
+    Map<String,Map<List<Integer>, Double>> memoMaxTurnVelocity =
+      context.getMaxTurnVelocityMemo();
 
     // check to see if the spec has been seem before.
     if (!memoMaxTurnVelocity.containsKey(spec.getName())) {
       // if not, create a map for it
-      memoMaxTurnVelocity.put(spec.getName(),
-                              new HashMap<List<Integer>,Double>());
+      memoMaxTurnVelocity.putIfAbsent(
+        spec.getName(), new ConcurrentHashMap<List<Integer>,Double>());
     }
 
     // check to see if the max turn velocity has been stored in the cache
@@ -153,6 +168,17 @@ public class VehicleUtil {
     return Math.max(mmtvs.get(key), MIN_MAX_TURN_VELOCITY);
   }
 
+  /**
+   * Clear the memoization caches of the max turn velocities, such that the
+   * next call of {@link #maxTurnVelocity(VehicleSpec, Lane, Lane,
+   * IntersectionManager)} recalculates the velocity.  The table of the max
+   * turn velocities computed in advance is dropped as well.
+   */
+  public static void clearMaxTurnVelocityCache() {
+    SimContext.current().getMaxTurnVelocityMemo().clear();
+    SimContext.current().setMaxTurnVelocityTable(null);
+  }
+
 
   /**
    * Determine whether or not it is safe to cross the intersection governed
@@ -226,7 +252,7 @@ public class VehicleUtil {
       // Record whether or not we've entered the intersection
       if(!enteredIntersection &&
          VehicleUtil.intersects(testVehicle,
-                                im.getIntersection().getAreaPlus())) {
+                    im.getIntersection().getAreaPlusDecomposition())) {
         enteredIntersection = true;
       }
       // Increment our simulated time
@@ -511,10 +537,10 @@ public class VehicleUtil {
    * @return               the maximum safe velocity at which the Vehicle
    *                       should make the turn
    */
-  private static double calculateMaxTurnVelocity(VehicleSpec spec,
-                                                 Lane arrivalLane,
-                                                 Lane departureLane,
-                                                 IntersectionManager im) {
+  static double calculateMaxTurnVelocity(VehicleSpec spec,
+                                         Lane arrivalLane,
+                                         Lane departureLane,
+                                         IntersectionManager im) {
     // Start the search with a minimum of 0
     double lowerBound = 0;
     // and a maximum of the smallest of the Vehicle's maximum velocity,
@@ -522,8 +548,10 @@ public class VehicleUtil {
     double upperBound = Math.min(spec.getMaxVelocity(),
                                  Math.min(arrivalLane.getSpeedLimit(),
                                           departureLane.getSpeedLimit()));
-    // If we're not changing lanes, then no need to compute this.
-    if(arrivalLane == departureLane) {
+    // If we're not changing lanes, or the departure Lane continues the
+    // arrival Lane in a straight line, then no need to compute this.
+    if(arrivalLane == departureLane ||
+       isStraightTrack(arrivalLane, departureLane, im)) {
       return upperBound; // This one is easy
     } else {
       // Now as long as the range we are searching is at least
@@ -549,6 +577,35 @@ public class VehicleUtil {
     }
   }
 
+  /**
+   * Whether the track from an arrival Lane to a departure Lane through an
+   * intersection is a straight line, which a vehicle can follow without
+   * steering at any velocity.
+   *
+   * @param arrivalLane    the Lane from which the Vehicle is turning
+   * @param departureLane  the Lane into which the Vehicle is turning
+   * @param im             the IntersectionManager controlling the
+   *                       intersection
+   * @return               whether the track is a straight line
+   */
+  private static boolean isStraightTrack(Lane arrivalLane,
+                                         Lane departureLane,
+                                         IntersectionManager im) {
+    Intersection intersection = im.getIntersection();
+    if (GeomMath.angleDiff(intersection.getEntryHeading(arrivalLane),
+                           intersection.getExitHeading(departureLane)) >
+        STRAIGHT_TRACK_TOLERANCE) {
+      return false;
+    }
+    Point2D entry = intersection.getEntryPoint(arrivalLane);
+    Point2D start = departureLane.getStartPoint();
+    Point2D end = departureLane.getEndPoint();
+    return Line2D.ptLineDist(start.getX(), start.getY(),
+                             end.getX(), end.getY(),
+                             entry.getX(), entry.getY()) <=
+           STRAIGHT_TRACK_TOLERANCE;
+  }
+
   /**
    * Determine whether the given Vehicle is currently inside an area
    *
@@ -572,6 +629,20 @@ public class VehicleUtil {
     }
   }
 
+  /**
+   * Determine whether the given Vehicle is currently inside an area that
+   * has been decomposed into convex pieces.  Unlike
+   * {@link #intersects(VehicleSimView, Area)}, it does not allocate any
+   * object if the decomposition is exact.
+   *
+   * @param v     the vehicle
+   * @param area  the convex decomposition of the area
+   * @return      whether the Vehicle is currently in the area
+   */
+  public static boolean intersects(VehicleSimView v, ConvexDecomposition area) {
+    return area.intersectsConvexPolygon(v.getCornerCoordinates());
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
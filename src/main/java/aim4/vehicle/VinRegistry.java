@@ -31,17 +31,67 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.vehicle;
 
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import aim4.map.Road;
 import aim4.map.SpawnPoint;
+import aim4.sim.SimContext;
+import aim4.util.IntHashMap;
 
 /**
  * The Vehicle Registry, the class that issues VIN to vehicles.
+ * <p>
+ * The registry remembers the specification, the spawn point and the
+ * destination road of every vehicle it has issued a VIN to.  By default it
+ * keeps them until it is reset, since the data collection lines look them
+ * up at the end of the simulation.  If the retired vehicles are not
+ * retained, the simulator retires each vehicle when it leaves the map, and
+ * the records of the retired vehicles are released by
+ * {@link #releaseRetiredVehicles()}, so the memory of the registry tracks
+ * the number of vehicles on the map rather than the number of vehicles
+ * spawned.
+ * <p>
+ * Each {@link SimContext} has its own registry, and the static methods of
+ * this class work on the registry of the current context.
  */
 public class VinRegistry {
 
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The record of a vehicle.
+   */
+  private static class VinRecord {
+    /** The specification of the vehicle */
+    final VehicleSpec spec;
+    /** The spawn point of the vehicle */
+    final SpawnPoint spawnPoint;
+    /** The destination road of the vehicle */
+    final Road destRoad;
+
+    /**
+     * Create a record of a vehicle.
+     *
+     * @param spec        the specification of the vehicle
+     * @param spawnPoint  the spawn point of the vehicle
+     * @param destRoad    the destination road of the vehicle
+     */
+    VinRecord(VehicleSpec spec, SpawnPoint spawnPoint, Road destRoad) {
+      this.spec = spec;
+      this.spawnPoint = spawnPoint;
+      this.destRoad = destRoad;
+    }
+  }
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The initial capacity of the list of retired VINs */
+  private static final int INITIAL_RETIRED_CAPACITY = 16;
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -49,33 +99,35 @@ public class VinRegistry {
   /**
    * This generates a unique identifier for each vehicle, starting with 1000.
    */
-  private static int vinGenerator = 1000;
+  private int vinGenerator = 1000;
 
   /**
    * A map from VINs to Vehicles.
    */
-  private static Map<Integer,WeakReference<VehicleSimView>> vinToVehicle =
-    new HashMap<Integer,WeakReference<VehicleSimView>>();
+  private IntHashMap<WeakReference<VehicleSimView>> vinToVehicle =
+    new IntHashMap<WeakReference<VehicleSimView>>();
 
   /**
-   * A map from VINs to VehicleSpec.
+   * A map from VINs to the records of the vehicles.
    */
-  private static Map<Integer,VehicleSpec> vinToVehicleSpec =
-    new HashMap<Integer,VehicleSpec>();
+  private IntHashMap<VinRecord> vinToRecord =
+    new IntHashMap<VinRecord>();
 
-  // TODO: remove the following in the future
+  /**
+   * Whether the records of the retired vehicles are kept until the
+   * registry is reset.
+   */
+  private boolean isRetainingRetiredVehicles = true;
 
   /**
-   * A map from VINs to spawn points.
+   * The VINs of the vehicles retired since the last release.
    */
-  private static Map<Integer,SpawnPoint> vinToSpawnPoint =
-    new HashMap<Integer,SpawnPoint>();
+  private int[] retiredVINs = new int[INITIAL_RETIRED_CAPACITY];
 
   /**
-   * A map from VINs to destination roads.
+   * The number of vehicles retired since the last release.
    */
-  private static Map<Integer,Road> vinToDestRoad =
-    new HashMap<Integer,Road>();
+  private int numOfRetiredVehicles = 0;
 
 
   /////////////////////////////////
@@ -83,14 +135,17 @@ public class VinRegistry {
   /////////////////////////////////
 
   /**
-   * Reset the registry.
+   * Reset the registry.  The records of the retired vehicles are retained
+   * again.
    */
   public static void reset() {
-    vinGenerator = 1000;
-    vinToVehicle = new HashMap<Integer,WeakReference<VehicleSimView>>();
-    vinToVehicleSpec = new HashMap<Integer,VehicleSpec>();
-    vinToSpawnPoint = new HashMap<Integer,SpawnPoint>();
-    vinToDestRoad = new HashMap<Integer,Road>();
+    VinRegistry r = SimContext.current().getVinRegistry();
+    r.vinGenerator = 1000;
+    r.vinToVehicle = new IntHashMap<WeakReference<VehicleSimView>>();
+    r.vinToRecord = new IntHashMap<VinRecord>();
+    r.isRetainingRetiredVehicles = true;
+    r.retiredVINs = new int[INITIAL_RETIRED_CAPACITY];
+    r.numOfRetiredVehicles = 0;
   }
 
   /**
@@ -100,16 +155,18 @@ public class VinRegistry {
    * @return  a new VIN for the vehicle
    */
   public static int registerVehicle(VehicleSimView vehicle) {
-    assert vinToVehicle.get(vinGenerator) == null;
-    int vin = vinGenerator;
-    vinToVehicle.put(vin, new WeakReference<VehicleSimView>(vehicle));
-    vinToVehicleSpec.put(vin, vehicle.getSpec());
-    vinToSpawnPoint.put(vin, vehicle.getDriver().getSpawnPoint());
-    vinToDestRoad.put(vin, vehicle.getDriver().getDestination());
+    VinRegistry r = SimContext.current().getVinRegistry();
+    assert r.vinToVehicle.get(r.vinGenerator) == null;
+    int vin = r.vinGenerator;
+    r.vinToVehicle.put(vin, new WeakReference<VehicleSimView>(vehicle));
+    r.vinToRecord.put(vin,
+                      new VinRecord(vehicle.getSpec(),
+                                    vehicle.getDriver().getSpawnPoint(),
+                                    vehicle.getDriver().getDestination()));
 
     vehicle.setVIN(vin);
 
-    vinGenerator++;
+    r.vinGenerator++;
     return vin;
   }
 
@@ -123,26 +180,27 @@ public class VinRegistry {
    */
   public static boolean registerVehicleWithExistingVIN(VehicleSimView vehicle,
                                                        int vin) {
+    VinRegistry r = SimContext.current().getVinRegistry();
     assert vin >= 0;
-    if (vinToVehicle.containsKey(vin)) {
+    if (r.vinToVehicle.containsKey(vin)) {
       return false;  // the VIN has been used by some other vehicle
     } else {
       assert vehicle.getVIN() < 0;
 
-      vinToVehicle.put(vin, new WeakReference<VehicleSimView>(vehicle));
-      vinToVehicleSpec.put(vin, vehicle.getSpec());
+      r.vinToVehicle.put(vin, new WeakReference<VehicleSimView>(vehicle));
       // TODO: think how to resolve the problem.
       if (vehicle.getDriver() != null) {
-        vinToSpawnPoint.put(vin, vehicle.getDriver().getSpawnPoint());
-        vinToDestRoad.put(vin, vehicle.getDriver().getDestination());
+        r.vinToRecord.put(vin,
+                          new VinRecord(vehicle.getSpec(),
+                                        vehicle.getDriver().getSpawnPoint(),
+                                        vehicle.getDriver().getDestination()));
       } else {
-        vinToSpawnPoint.put(vin, null);
-        vinToDestRoad.put(vin, null);
+        r.vinToRecord.put(vin, new VinRecord(vehicle.getSpec(), null, null));
       }
 
       vehicle.setVIN(vin);
-      if (vin >= vinGenerator) {
-        vinGenerator = vin + 1;
+      if (vin >= r.vinGenerator) {
+        r.vinGenerator = vin + 1;
       }  // else vin < vinGenerator and it would not affect the next vehicle
       return true;
     }
@@ -155,26 +213,91 @@ public class VinRegistry {
    * @param vin  the VIN of the vehicle
    */
   public static void unregisterVehicle(int vin) {
-    if (vinToVehicle.containsKey(vin)) {
-      vinToVehicle.remove(vin);
-      // do not remove the following
-//      vinToVehicleSpec.remove(vin);
-//      vinToSpawnPoint.remove(vin);
-//      vinToDestRoad.remove(vin);
-    } else {
-      throw new RuntimeException("VehicleRegistry:unregisterVehicle: " +
-                                 "Cannot unregister a vehicle twice");
+    SimContext.current().getVinRegistry().unregister(vin);
+  }
+
+  /**
+   * Set whether the records of the retired vehicles are kept until the
+   * registry is reset.  If they are not, the records must be released by
+   * calling {@link #releaseRetiredVehicles()} regularly.
+   *
+   * @param isRetaining  whether the records of the retired vehicles are
+   *                     kept until the registry is reset
+   */
+  public static void setRetainingRetiredVehicles(boolean isRetaining) {
+    VinRegistry r = SimContext.current().getVinRegistry();
+    r.isRetainingRetiredVehicles = isRetaining;
+    r.numOfRetiredVehicles = 0;
+  }
+
+  /**
+   * Retire a vehicle that has left the simulation.  The record of the
+   * vehicle can still be looked up until the next call of
+   * {@link #releaseRetiredVehicles()}.
+   *
+   * @param vin  the VIN of the vehicle
+   */
+  public static void retireVehicle(int vin) {
+    VinRegistry r = SimContext.current().getVinRegistry();
+    if (!r.isRetainingRetiredVehicles) {
+      if (r.numOfRetiredVehicles == r.retiredVINs.length) {
+        r.retiredVINs =
+          Arrays.copyOf(r.retiredVINs, 2 * r.retiredVINs.length);
+      }
+      r.retiredVINs[r.numOfRetiredVehicles++] = vin;
+    }
+  }
+
+  /**
+   * Get the number of vehicles retired since the last release.
+   *
+   * @return the number of vehicles retired since the last release; 0 if
+   *         the records of the retired vehicles are retained
+   */
+  public static int getNumOfRetiredVehicles() {
+    VinRegistry r = SimContext.current().getVinRegistry();
+    return r.numOfRetiredVehicles;
+  }
+
+  /**
+   * Get the VIN of a vehicle retired since the last release.
+   *
+   * @param i  the index of the vehicle, between 0 and
+   *           {@link #getNumOfRetiredVehicles()} - 1
+   * @return the VIN of the vehicle
+   */
+  public static int getRetiredVIN(int i) {
+    VinRegistry r = SimContext.current().getVinRegistry();
+    if (i < 0 || i >= r.numOfRetiredVehicles) {
+      throw new IndexOutOfBoundsException("No retired vehicle at " + i);
+    }
+    return r.retiredVINs[i];
+  }
+
+  /**
+   * Release the records of the vehicles retired since the last release.
+   */
+  public static void releaseRetiredVehicles() {
+    VinRegistry r = SimContext.current().getVinRegistry();
+    for (int i = 0; i < r.numOfRetiredVehicles; i++) {
+      r.vinToRecord.remove(r.retiredVINs[i]);
+    }
+    r.numOfRetiredVehicles = 0;
+    if (r.retiredVINs.length > INITIAL_RETIRED_CAPACITY) {
+      r.retiredVINs = new int[INITIAL_RETIRED_CAPACITY];
     }
   }
 
   /**
-   * Whether or not the VIN has been issued.
+   * Whether or not the VIN has been issued.  The VINs of the released
+   * vehicles are considered not issued.
    *
    * @param vin  the VIN of the vehicle
    * @return whether of not the VIN has been issued.
    */
   public static boolean isVINexist(int vin) {
-    return vinToVehicleSpec.containsKey(vin);
+    VinRegistry r = SimContext.current().getVinRegistry();
+    return r.vinToRecord.containsKey(vin);
   }
 
   /**
@@ -185,7 +308,8 @@ public class VinRegistry {
    *         has been destroyed.
    */
   public static VehicleSimView getVehicleFromVIN(int vin) {
-    WeakReference<VehicleSimView> wr = vinToVehicle.get(vin);
+    VinRegistry r = SimContext.current().getVinRegistry();
+    WeakReference<VehicleSimView> wr = r.vinToVehicle.get(vin);
     if(wr == null) {
       return null;
     }
@@ -193,7 +317,7 @@ public class VinRegistry {
     VehicleSimView v = wr.get();
     // If it's null, then the Vehicle no longer exists
     if(v == null) {
-      vinToVehicle.remove(vin);
+      r.vinToVehicle.remove(vin);
     }
     return v;
   }
@@ -202,30 +326,59 @@ public class VinRegistry {
    * Given a VIN, get the vehicle specification with that VIN.
    *
    * @param vin  the VIN of the desired vehicle
-   * @return the corresponding vehicle specification
+   * @return the corresponding vehicle specification; null if the vehicle
+   *         has been released
    */
   public static VehicleSpec getVehicleSpecFromVIN(int vin) {
-    return vinToVehicleSpec.get(vin);
+    VinRegistry r = SimContext.current().getVinRegistry();
+    VinRecord record = r.vinToRecord.get(vin);
+    return (record != null) ? record.spec : null;
   }
 
   /**
    * Get a spawn point from the VIN of a vehicle
    *
    * @param vin  the VIN of the vehicle
-   * @return the spawn point
+   * @return the spawn point; null if the vehicle has been released
    */
   public static SpawnPoint getSpawnPointFromVIN(int vin) {
-    return vinToSpawnPoint.get(vin);
+    VinRegistry r = SimContext.current().getVinRegistry();
+    VinRecord record = r.vinToRecord.get(vin);
+    return (record != null) ? record.spawnPoint : null;
   }
 
   /**
    * Get the destination road from the VIN of a vehicle
    *
    * @param vin  the VIN of the vehicle
-   * @return the destination road
+   * @return the destination road; null if the vehicle has been released
    */
   public static Road getDestRoadFromVIN(int vin) {
-    return vinToDestRoad.get(vin);
+    VinRegistry r = SimContext.current().getVinRegistry();
+    VinRecord record = r.vinToRecord.get(vin);
+    return (record != null) ? record.destRoad : null;
+  }
+
+  /////////////////////////////////
+  // PACKAGE METHODS
+  /////////////////////////////////
+
+  /**
+   * Remove the vehicle from this registry.  Unlike
+   * {@link #unregisterVehicle(int)}, it does not depend on the context of
+   * the current thread, so it can be called by the finalizer.
+   *
+   * @param vin  the VIN of the vehicle
+   */
+  void unregister(int vin) {
+    if (vinToVehicle.containsKey(vin)) {
+      vinToVehicle.remove(vin);
+      // do not remove the record here; it is released after the vehicle
+      // is retired, if at all.
+    } else {
+      throw new RuntimeException("VehicleRegistry:unregisterVehicle: " +
+                                 "Cannot unregister a vehicle twice");
+    }
   }
 
   /////////////////////////////////
@@ -233,8 +386,10 @@ public class VinRegistry {
   /////////////////////////////////
 
   /**
-   * This class should never be instantiated.
+   * Create an empty VIN registry.  Use {@link SimContext#getVinRegistry()}
+   * instead of creating a registry directly.
    */
-  private VinRegistry(){};
+  public VinRegistry() {
+  }
 
 }
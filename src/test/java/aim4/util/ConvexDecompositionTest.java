@@ -0,0 +1,219 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.junit.Test;
+
+import aim4.im.RoadBasedIntersection;
+import aim4.map.GridMap;
+
+/**
+ * A property test of {@link ConvexDecomposition}: on random rectangles
+ * placed around an intersection, the decomposition must agree with the
+ * intersection test done with {@link Area}.
+ */
+public class ConvexDecompositionTest {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The random seed of the rectangles */
+  private static final long SEED = 20111;
+  /** The number of random rectangles per area */
+  private static final int NUM_OF_RECTANGLES = 2000;
+  /** The margin around the area in which the rectangles are placed */
+  private static final double MARGIN = 6.0;
+  /** The maximum length of the sides of the rectangles */
+  private static final double MAX_SIDE = 6.0;
+
+  /////////////////////////////////
+  // TESTS
+  /////////////////////////////////
+
+  /**
+   * The decomposition of the areas of intersections with 1 to 3 lanes per
+   * road agrees with {@link Area} on random rotated rectangles.
+   */
+  @Test
+  public void agreesWithAreaAroundIntersections() {
+    Random random = new Random(SEED);
+    for(int lanesPerRoad = 1; lanesPerRoad <= 3; lanesPerRoad++) {
+      RoadBasedIntersection intersection = makeIntersection(lanesPerRoad);
+      assertAgreesWithArea(intersection.getAreaDecomposition(), random);
+      assertAgreesWithArea(intersection.getAreaPlusDecomposition(), random);
+    }
+  }
+
+  /**
+   * A rectangle that only touches the boundary of an intersection is
+   * considered intersecting, while a rectangle slightly farther away is
+   * not and a rectangle slightly overlapping the intersection is.
+   */
+  @Test
+  public void touchingRectanglesIntersect() {
+    for(int lanesPerRoad = 1; lanesPerRoad <= 3; lanesPerRoad++) {
+      ConvexDecomposition decomposition =
+        makeIntersection(lanesPerRoad).getAreaDecomposition();
+      Rectangle2D bounds = decomposition.getArea().getBounds2D();
+      double y = bounds.getCenterY();
+      // the end of the road on the right side of the intersection
+      double x = bounds.getMaxX();
+      assertTrue(decomposition.intersectsConvexPolygon(
+                   rectangle(x, y - 1.0, x + 2.0, y + 1.0)));
+      assertFalse(decomposition.intersectsConvexPolygon(
+                    rectangle(x + 1e-6, y - 1.0, x + 2.0, y + 1.0)));
+      assertTrue(decomposition.intersectsConvexPolygon(
+                   rectangle(x - 1e-6, y - 1.0, x + 2.0, y + 1.0)));
+      assertTrue(intersectsByArea(decomposition.getArea(),
+                                  rectangle(x - 1e-6, y - 1.0,
+                                            x + 2.0, y + 1.0)));
+      // the bottom-right corner of the bounding box is not in the area
+      x = bounds.getMaxX() - 1e-3;
+      double minY = bounds.getMinY();
+      assertFalse(decomposition.intersectsConvexPolygon(
+                    rectangle(x, minY, x + 2.0, minY + 1e-3)));
+    }
+  }
+
+  /**
+   * An area with curved boundaries is marked as inexact, and its
+   * decomposition still agrees with {@link Area} on random rotated
+   * rectangles.
+   */
+  @Test
+  public void agreesWithAreaOnCurvedAreas() {
+    Area area = new Area(new Rectangle2D.Double(0.0, 0.0, 20.0, 4.0));
+    area.add(new Area(new Ellipse2D.Double(5.0, -5.0, 10.0, 14.0)));
+    ConvexDecomposition decomposition = new ConvexDecomposition(area);
+    assertFalse(decomposition.isExact());
+    assertAgreesWithArea(decomposition, new Random(SEED));
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Create the intersection of a 1x1 grid map.
+   *
+   * @param lanesPerRoad  the number of lanes per road
+   * @return the intersection
+   */
+  private static RoadBasedIntersection makeIntersection(int lanesPerRoad) {
+    GridMap map = new GridMap(0.0, 1, 1, 4.0, 25.0, lanesPerRoad, 1.0, 150.0);
+    return new RoadBasedIntersection(map.getRoads(0, 0));
+  }
+
+  /**
+   * Check that a decomposition agrees with {@link Area} on random rotated
+   * rectangles placed around the area.
+   *
+   * @param decomposition  the decomposition
+   * @param random         the random number generator
+   */
+  private static void assertAgreesWithArea(ConvexDecomposition decomposition,
+                                           Random random) {
+    Area area = decomposition.getArea();
+    Rectangle2D bounds = area.getBounds2D();
+    int numOfIntersecting = 0;
+    for(int i = 0; i < NUM_OF_RECTANGLES; i++) {
+      double x = bounds.getMinX() - MARGIN
+        + random.nextDouble() * (bounds.getWidth() + 2 * MARGIN);
+      double y = bounds.getMinY() - MARGIN
+        + random.nextDouble() * (bounds.getHeight() + 2 * MARGIN);
+      double h = random.nextDouble() * 2 * Math.PI;
+      double l = 0.1 + random.nextDouble() * MAX_SIDE;
+      double w = 0.1 + random.nextDouble() * MAX_SIDE;
+      double c = Math.cos(h);
+      double s = Math.sin(h);
+      double[] coords = new double[] {
+        x,                 y,
+        x + l * c,         y + l * s,
+        x + l * c - w * s, y + l * s + w * c,
+        x - w * s,         y + w * c,
+      };
+      boolean expected = intersectsByArea(area, coords);
+      assertEquals("rectangle " + i, expected,
+                   decomposition.intersectsConvexPolygon(coords));
+      if (expected) {
+        numOfIntersecting++;
+      }
+    }
+    // make sure that both outcomes are exercised
+    assertTrue(numOfIntersecting > 0);
+    assertTrue(numOfIntersecting < NUM_OF_RECTANGLES);
+  }
+
+  /**
+   * Whether an area intersects a polygon, computed with {@link Area}.
+   *
+   * @param area    the area
+   * @param coords  the coordinates x0, y0, x1, y1, ... of the vertices of
+   *                the polygon
+   * @return        whether the area intersects the polygon
+   */
+  private static boolean intersectsByArea(Area area, double[] coords) {
+    Path2D.Double path = new Path2D.Double();
+    path.moveTo(coords[0], coords[1]);
+    for(int k = 2; k < coords.length; k += 2) {
+      path.lineTo(coords[k], coords[k + 1]);
+    }
+    path.closePath();
+    Area polygonArea = new Area(path);
+    polygonArea.intersect(area);
+    return !polygonArea.isEmpty();
+  }
+
+  /**
+   * Get the coordinates of an axis-aligned rectangle.
+   *
+   * @param minX  the minimum x-coordinate
+   * @param minY  the minimum y-coordinate
+   * @param maxX  the maximum x-coordinate
+   * @param maxY  the maximum y-coordinate
+   * @return      the coordinates x0, y0, x1, y1, ... of the vertices
+   */
+  private static double[] rectangle(double minX, double minY,
+                                    double maxX, double maxY) {
+    return new double[] { minX, minY, maxX, minY, maxX, maxY, minX, maxY };
+  }
+}
@@ -3,6 +3,7 @@
 import sys
 import getopt
 import pprint
+import chunks
 from collections import defaultdict
 
 #===============================================================================
@@ -12,22 +13,15 @@ from collections import defaultdict
 def read_arrival_rate(infilename):
     latest_time = 0.0
     count = 0
-    with open(infilename) as infile:
-        last_vins = list()
-        isFirstLine = True
-        for s in infile:
-            if isFirstLine:
-                isFirstLine = False
-            else:
-                s2 = s.strip()
-                d = s2.split(',')
-                t = float(d[0])
-                vins = d[1:]
-                for vin in vins:
-                    if not vin in last_vins:
-                        count += 1
-                last_vins = vins
-                latest_time = t
+    last_vins = list()
+    for d in chunks.iter_rows(infilename):
+        t = float(d[0])
+        vins = d[1:]
+        for vin in vins:
+            if not vin in last_vins:
+                count += 1
+        last_vins = vins
+        latest_time = t
     return count / latest_time;
 
 
@@ -36,7 +30,7 @@ def read_arrival_rate(infilename):
 #===============================================================================
 
 def usage():
-    print(sys.argv[0], "[-l num_of_lanes] datafile.csv")
+    print(sys.argv[0], "[-l num_of_lanes] datafile.csv|prefix_of_chunks")
     print(sys.argv[0], "[-h|--help]")
 
 def main():
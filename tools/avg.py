@@ -3,6 +3,7 @@
 import sys
 import getopt
 import math
+import chunks
 
 #===============================================================================
 # Core functions
@@ -14,34 +15,32 @@ def calcAvgAndStd(infilename):
     countDict = dict();
     sumDict = dict();
     sumSqDict = dict();
-    with open(infilename) as infile:
-        condorIdFieldId = -1
-        for s in infile:
-            arr = s.strip().split(',')
-            arr1 = arr[0].split('_')
-            # Identify the condor id field index
-            if condorIdFieldId < 0:
-                i=0
-                for field in arr1:
-                    if field.lower().rfind("condor") >= 0:
-                        condorIdFieldId = i
-                        break
-                    else:
-                        i = i + 1
-            assert condorIdFieldId >= 0
-            fieldNum = len(arr1) - 1
-            # record
-            key = "_".join(arr1[:condorIdFieldId]+arr1[(condorIdFieldId+1):])
-            value = float(arr[1])
-            if key in countDict:
-                countDict[key] += 1
-                sumDict[key] += value
-                sumSqDict[key] += value * value
-            else:
-                orderedKey.append(key)
-                countDict[key] = 1
-                sumDict[key] = value
-                sumSqDict[key] = value * value
+    condorIdFieldId = -1
+    for arr in chunks.iter_rows(infilename, header=False):
+        arr1 = arr[0].split('_')
+        # Identify the condor id field index
+        if condorIdFieldId < 0:
+            i=0
+            for field in arr1:
+                if field.lower().rfind("condor") >= 0:
+                    condorIdFieldId = i
+                    break
+                else:
+                    i = i + 1
+        assert condorIdFieldId >= 0
+        fieldNum = len(arr1) - 1
+        # record
+        key = "_".join(arr1[:condorIdFieldId]+arr1[(condorIdFieldId+1):])
+        value = float(arr[1])
+        if key in countDict:
+            countDict[key] += 1
+            sumDict[key] += value
+            sumSqDict[key] += value * value
+        else:
+            orderedKey.append(key)
+            countDict[key] = 1
+            sumDict[key] = value
+            sumSqDict[key] = value * value
     return orderedKey,fieldNum,countDict,sumDict,sumSqDict
 
 def printAvgAndStd(orderedKey,fieldNum,countDict,sumDict,sumSqDict):
@@ -0,0 +1,90 @@
+#!/usr/local/bin/python3.1
+
+import os
+import sys
+import glob
+import time
+import getopt
+
+#===============================================================================
+# Core functions
+#===============================================================================
+
+def chunk_files(path):
+    """The files of a CSV file.
+
+    If path is a file, it is the only file.  Otherwise path is the prefix of
+    a series of chunks written by aim4.sim.results.ChunkedCsvOutputStream,
+    e.g. results/run-0/crossings, and the complete chunks are returned in
+    order.
+    """
+    if os.path.isfile(path):
+        return [path]
+    return sorted(glob.glob(path + '-[0-9][0-9][0-9][0-9][0-9].csv'))
+
+def iter_rows(path, follow=False, poll_interval=1.0, header=True):
+    """Iterate over the rows of a CSV file or a series of chunks.
+
+    If header is true, the header of each file is skipped.  Each row is split
+    into a list of fields.  The chunks are read one at a time, so the rows can be processed
+    incrementally.  If follow is true, wait for new chunks until the writer
+    has marked the end of the chunks with the file path.done.
+    """
+    index = 0
+    while True:
+        files = chunk_files(path)
+        while index < len(files):
+            with open(files[index]) as infile:
+                isFirstLine = header
+                for s in infile:
+                    if isFirstLine:
+                        isFirstLine = False
+                    else:
+                        yield s.strip().split(',')
+            index += 1
+        if not follow or len(files) == 1 and files[0] == path:
+            return
+        if os.path.exists(path + '.done'):
+            if len(chunk_files(path)) == index:
+                return
+        else:
+            time.sleep(poll_interval)
+
+#===============================================================================
+# Main
+#===============================================================================
+
+def usage():
+    print(sys.argv[0], "[-f] prefix_of_chunks")
+    print(sys.argv[0], "[-h|--help]")
+    print("Concatenate a series of chunks into a single CSV file.")
+
+def main():
+    try:
+        opts, args = getopt.getopt(sys.argv[1:], "hf", ["help", "follow"])
+    except getopt.GetoptError as err:
+        print(err)
+        usage()
+        exit(2)
+    follow = False
+    for o, a in opts:
+        if o in ("-h", "--help"):
+            usage()
+            sys.exit()
+        elif o in ("-f", "--follow"):
+            follow = True
+        else:
+            assert False, "unhandled option"
+    if len(args) == 0:
+        usage()
+        exit(2)
+    files = chunk_files(args[0])
+    if len(files) > 0:
+        with open(files[0]) as infile:
+            sys.stdout.write(infile.readline())
+    for d in iter_rows(args[0], follow):
+        print(','.join(d))
+        sys.stdout.flush()
+
+if __name__ == "__main__":
+    main()
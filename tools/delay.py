@@ -3,6 +3,7 @@
 import sys
 import getopt
 import pprint
+import chunks
 from collections import defaultdict
 
 #===============================================================================
@@ -31,42 +32,28 @@ class IncorrectParameter(Exception):
 
 def read_baseline(infilename):
     traversal_time = dict()
-    with open(baseline_filename) as infile:
-        isFirstLine = True
-        vtime = dict()
-        for s in infile:
-            if isFirstLine:
-                isFirstLine = False
-            else:
-                s2 = s.strip()
-                d = s2.split(',')
-                key = (d[3],d[4],d[5])
-                if key in vtime:
-                    t = abs(float(d[1])-float(vtime[key]))
-                    traversal_time[key] = t
-                else:
-                    vtime[key] = d[1]
+    vtime = dict()
+    for d in chunks.iter_rows(baseline_filename):
+        key = (d[3],d[4],d[5])
+        if key in vtime:
+            t = abs(float(d[1])-float(vtime[key]))
+            traversal_time[key] = t
+        else:
+            vtime[key] = d[1]
     return traversal_time
 
 def read_delay(infilename):
     delay_time = dict()
-    with open(infilename) as infile:
-        isFirstLine = True
-        vtime = dict()
-        for s in infile:
-            if isFirstLine:
-                isFirstLine = False
-            else:
-                s2 = s.strip()
-                d = s2.split(',')
-                vin = d[0]
-                t = d[1]
-                key = (d[3],d[4],d[5])
-                if vin in vtime:
-                    traversal_time = abs(float(t)-float(vtime[vin]))
-                    delay_time[vin] = traversal_time - base_time[key]
-                else:
-                    vtime[vin] = t
+    vtime = dict()
+    for d in chunks.iter_rows(infilename):
+        vin = d[0]
+        t = d[1]
+        key = (d[3],d[4],d[5])
+        if vin in vtime:
+            traversal_time = abs(float(t)-float(vtime[vin]))
+            delay_time[vin] = traversal_time - base_time[key]
+        else:
+            vtime[vin] = t
     return delay_time
 
 def print_traversal_time(traversal_time):
@@ -86,7 +73,7 @@ def avg_delay(delay_time):
 #===============================================================================
 
 def usage():
-    print(sys.argv[0], "[-b baseline.csv] datafile.csv")
+    print(sys.argv[0], "[-b baseline.csv] datafile.csv|prefix_of_chunks")
     print(sys.argv[0], "[-h|--help]")
 
 def main():
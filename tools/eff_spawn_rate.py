@@ -3,6 +3,7 @@
 import sys
 import getopt
 import pprint
+import chunks
 from collections import defaultdict
 
 
@@ -11,24 +12,17 @@ from collections import defaultdict
 #===============================================================================
 
 def read_eff_spawn_rate(infilename):
-    with open(infilename) as infile:
-        latest_time = 0.0
-        counts = dict()
-        isFirstLine = True
-        for s in infile:
-            if isFirstLine:
-                isFirstLine = False
-            else:
-                s2 = s.strip()
-                d = s2.split(',')
-                dcl = d[2]
-                if dcl in counts:
-                    counts[dcl] += 1
-                else:
-                    counts[dcl] = 1
-                t = float(d[1])
-                if latest_time < t:
-                    latest_time = t
+    latest_time = 0.0
+    counts = dict()
+    for d in chunks.iter_rows(infilename):
+        dcl = d[2]
+        if dcl in counts:
+            counts[dcl] += 1
+        else:
+            counts[dcl] = 1
+        t = float(d[1])
+        if latest_time < t:
+            latest_time = t
     eff_spawn_rate = dict()
     for dcl, n in counts.items():
         if dcl.find("Entrance") >= 0:
@@ -47,7 +41,7 @@ def calc_avg_eff_spawn_rate(eff_spawn_rate):
 #===============================================================================
 
 def usage():
-    print(sys.argv[0], "[-v] datafile.csv")
+    print(sys.argv[0], "[-v] datafile.csv|prefix_of_chunks")
     print(sys.argv[0], "[-h|--help]")
 
 def main():
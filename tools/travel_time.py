@@ -2,6 +2,7 @@
 
 import sys
 import getopt
+import chunks
 
 
 #===============================================================================
@@ -13,27 +14,21 @@ def read_time_diff(infilename):
     max_time = dict()
     min_time = dict()
     diff_time = dict()
-    with open(infilename) as infile:
-        isFirstLine = True
-        for s in infile:
-            if isFirstLine:
-                isFirstLine = False
-            else:
-                d = s.strip().split(',')
-                vin = d[0]
-                t = float(d[1])
-                if not vin in vins:
-                    vins.append(vin)
-                if vin in max_time:
-                    if t > max_time[vin]:
-                        max_time[vin] = t
-                else:
-                    max_time[vin] = t
-                if vin in min_time:
-                    if t < min_time[vin]:
-                        min_time[vin] = t
-                else:
-                    min_time[vin] = t
+    for d in chunks.iter_rows(infilename):
+        vin = d[0]
+        t = float(d[1])
+        if not vin in vins:
+            vins.append(vin)
+        if vin in max_time:
+            if t > max_time[vin]:
+                max_time[vin] = t
+        else:
+            max_time[vin] = t
+        if vin in min_time:
+            if t < min_time[vin]:
+                min_time[vin] = t
+        else:
+            min_time[vin] = t
     for vin in vins:
         diff_time[vin] = max_time[vin] - min_time[vin]
     return diff_time
@@ -53,7 +48,7 @@ def avg_time_diff(diff_time):
 
 def usage():
     print("Usage:")
-    print("   ", sys.argv[0], "datafile.csv")
+    print("   ", sys.argv[0], "datafile.csv|prefix_of_chunks")
     print("   ", sys.argv[0], "[-h|--help]")
 
 def main():